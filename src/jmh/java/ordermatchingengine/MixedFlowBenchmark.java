@@ -0,0 +1,118 @@
+package ordermatchingengine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.logging.Logger;
+
+/*
+    A recorded looking flow of snapshots, passive and aggressive new orders, amends and cancels, replayed over and over one command per call.
+    Orders still live at the end of the flow are cancelled by it, so every replay starts from the same book apart from the market data.
+    New orders arrive as fields, like from the pipeline, so the engine creates their NewOrder objects as it would in production.
+*/
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(java.util.concurrent.TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MixedFlowBenchmark {
+    private static final int FLOW_LENGTH = 20000;
+    private static final int RETAINED_TRADES = 1024;
+
+    @Param({"TREE_MAP", "PRICE_LADDER"})
+    public OrderBookType orderBookType;
+
+    private OrderMatchingEngineImpl orderMatchingEngine;
+    private EngineCommand[] flow;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Logger.getLogger("").setLevel(java.util.logging.Level.OFF);
+        orderMatchingEngine = new OrderMatchingEngineImpl(orderBookType, new TradeHistory(RETAINED_TRADES));
+        Random random = new Random(42);
+        List<EngineCommand> commands = new ArrayList<>();
+        List<LiveOrder> liveOrders = new ArrayList<>();
+        int mid = 100;
+        int orderId = 0;
+        while (commands.size() < FLOW_LENGTH) {
+            EngineCommand command = new EngineCommand();
+            int choice = random.nextInt(100);
+            if (choice < 10) {
+                mid = Math.max(20, mid + random.nextInt(3) - 1);
+                command.marketDataSnapshot(snapshot(mid, random));
+            } else if (choice < 60 || liveOrders.isEmpty()) {
+                Side side = random.nextBoolean() ? Side.BUY : Side.SELL;
+                //A third of the orders cross the spread, the rest join the book up to 5 ticks away
+                int ticks = random.nextInt(3) == 0 ? -2 : random.nextInt(5);
+                LiveOrder order = new LiveOrder(side, Prices.toScaled(side == Side.BUY ? mid - 1 - ticks : mid + 1 + ticks), "ORDER-" + orderId++);
+                command.newOrder("AAPL", side, 10 + random.nextInt(500), order.price, order.clOrdId);
+                liveOrders.add(order);
+            } else if (choice < 80) {
+                //Amends and cancels refer to the clOrdId the order was entered with, a quarter of the amends move the price by a tick
+                LiveOrder order = liveOrders.get(random.nextInt(liveOrders.size()));
+                if (random.nextInt(4) == 0) {
+                    order.price += (random.nextBoolean() ? 1 : -1) * Prices.toScaled(1);
+                }
+                command.amendOrder("AAPL", order.side, 10 + random.nextInt(500), order.price, order.clOrdId, "ORDER-" + orderId++);
+            } else {
+                LiveOrder order = liveOrders.remove(random.nextInt(liveOrders.size()));
+                command.cancelOrder("AAPL", order.side, order.clOrdId, order.clOrdId + "-CXL");
+            }
+            commands.add(command);
+        }
+        for (LiveOrder order : liveOrders) {
+            EngineCommand cancel = new EngineCommand();
+            cancel.cancelOrder("AAPL", order.side, order.clOrdId, order.clOrdId + "-CXL");
+            commands.add(cancel);
+        }
+        flow = commands.toArray(new EngineCommand[0]);
+    }
+
+    private static final class LiveOrder {
+        private final Side side;
+        private long price;
+        private final String clOrdId;
+
+        LiveOrder(Side side, long price, String clOrdId) {
+            this.side = side;
+            this.price = price;
+            this.clOrdId = clOrdId;
+        }
+    }
+
+    private static MarketDataBookSnapshot snapshot(int mid, Random random) {
+        double prices[] = new double[10];
+        int quantities[] = new int[10];
+        for (int level = 0; level < 5; level++) {
+            prices[level] = mid - 5 + level;
+            prices[5 + level] = mid + 1 + level;
+            quantities[level] = 100 + random.nextInt(1000);
+            quantities[5 + level] = 100 + random.nextInt(1000);
+        }
+        return new MarketDataBookSnapshot("AAPL", prices, quantities);
+    }
+
+    @Benchmark
+    public void mixedFlow(Blackhole blackhole) {
+        blackhole.consume(orderMatchingEngine.apply(flow[next]));
+        if (++next == flow.length) {
+            next = 0;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package ordermatchingengine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.logging.Logger;
+
+/*
+    Single operations against a book which already holds restingOrders client orders, for both book types.
+    The resting orders are buys spread over 95-99, below the market bids, so they take part in every level lookup and snapshot diff without trading.
+    Every benchmark leaves the book as it found it, so the numbers do not drift with the iteration count.
+*/
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(java.util.concurrent.TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderBookBenchmark {
+    private static final int RETAINED_TRADES = 1024;
+    private static final double[] PRICES = new double[]{97, 98, 99, 100, 101, 103, 104, 105, 106, 107};
+    private static final int[] QUANTITIES = new int[]{500, 400, 300, 300, 100, 500, 1000, 2000, 2500, 3000};
+    //Same depths one tick higher with different quantities, alternating the two moves every level of the diff
+    private static final double[] SHIFTED_PRICES = new double[]{98, 99, 100, 101, 102, 104, 105, 106, 107, 108};
+    private static final int[] SHIFTED_QUANTITIES = new int[]{450, 350, 250, 350, 150, 550, 950, 2100, 2400, 3100};
+
+    //Only used by aggressiveSweep, so its parameter does not multiply the other benchmarks
+    @State(Scope.Thread)
+    public static class Sweep {
+        //Number of ask levels the aggressive buy takes out
+        @Param({"1", "5"})
+        public int sweptLevels;
+
+        private int sweptQty;
+        private NewOrder aggressiveBuy;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            for (int level = 0; level < sweptLevels; level++) {
+                sweptQty += QUANTITIES[5 + level];
+            }
+            aggressiveBuy = new NewOrder("AAPL", Side.BUY, sweptQty, PRICES[5 + sweptLevels - 1], "AGGRESSIVE_BUY");
+        }
+    }
+
+    @Param({"TREE_MAP", "PRICE_LADDER"})
+    public OrderBookType orderBookType;
+
+    @Param({"0", "100", "1000"})
+    public int restingOrders;
+
+    private OrderMatchingEngineImpl orderMatchingEngine;
+    private MarketDataBookSnapshot snapshot;
+    private MarketDataBookSnapshot shiftedSnapshot;
+    private boolean shifted;
+    private NewOrder passiveBuy;
+    private CancelOrder passiveBuyCancel;
+    private AmendOrder passiveBuyModUp;
+    private AmendOrder passiveBuyModDown;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Logger.getLogger("").setLevel(java.util.logging.Level.OFF);
+        orderMatchingEngine = new OrderMatchingEngineImpl("AAPL", orderBookType, RETAINED_TRADES);
+        snapshot = new MarketDataBookSnapshot("AAPL", PRICES, QUANTITIES);
+        shiftedSnapshot = new MarketDataBookSnapshot("AAPL", SHIFTED_PRICES, SHIFTED_QUANTITIES);
+        orderMatchingEngine.onMdSnapshot(snapshot);
+        for (int i = 0; i < restingOrders; i++) {
+            orderMatchingEngine.enter(new NewOrder("AAPL", Side.BUY, 100, 95 + i % 5, "RESTING-" + i));
+        }
+        passiveBuy = new NewOrder("AAPL", Side.BUY, 100, 99, "PASSIVE_BUY");
+        passiveBuyCancel = new CancelOrder("AAPL", Side.BUY, 100, 99, "PASSIVE_BUY", "PASSIVE_BUY_CXL");
+        passiveBuyModUp = new AmendOrder("AAPL", Side.BUY, 200, 99, "PASSIVE_BUY", "PASSIVE_BUY_UP");
+        passiveBuyModDown = new AmendOrder("AAPL", Side.BUY, 50, 99, "PASSIVE_BUY", "PASSIVE_BUY_DOWN");
+    }
+
+    @TearDown(Level.Trial)
+    public void checkBook() {
+        if (orderMatchingEngine.getOrderCountAtLevel("AAPL", Side.BUY, 95) != (restingOrders + 4) / 5) {
+            throw new IllegalStateException("The benchmarks changed the resting orders");
+        }
+    }
+
+    //Joins the back of the queue at 99 and leaves again
+    @Benchmark
+    public void passiveInsertAndCancel(Blackhole blackhole) {
+        passiveBuy.setQty(100);
+        blackhole.consume(orderMatchingEngine.enter(passiveBuy));
+        blackhole.consume(orderMatchingEngine.enter(passiveBuyCancel));
+    }
+
+    //Amend up adds a slice at the back of the queue, amend down collapses the slices again
+    @Benchmark
+    public void passiveInsertAmendUpAmendDownAndCancel(Blackhole blackhole) {
+        passiveBuy.setQty(100);
+        blackhole.consume(orderMatchingEngine.enter(passiveBuy));
+        blackhole.consume(orderMatchingEngine.enter(passiveBuyModUp));
+        blackhole.consume(orderMatchingEngine.enter(passiveBuyModDown));
+        blackhole.consume(orderMatchingEngine.enter(passiveBuyCancel));
+    }
+
+    //Takes out sweptLevels ask levels in matchOrder, the snapshot puts them back for the next call
+    @Benchmark
+    public void aggressiveSweep(Sweep sweep, Blackhole blackhole) {
+        orderMatchingEngine.onMdSnapshot(snapshot);
+        sweep.aggressiveBuy.setQty(sweep.sweptQty);
+        blackhole.consume(orderMatchingEngine.enter(sweep.aggressiveBuy));
+    }
+
+    //Re-applies a snapshot which moved every level while restingOrders client orders sit in the book
+    @Benchmark
+    public void marketDataSnapshot() {
+        shifted = !shifted;
+        orderMatchingEngine.onMdSnapshot(shifted ? shiftedSnapshot : snapshot);
+    }
+}
@@ -0,0 +1,686 @@
+package ordermatchingengine;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/*
+    Matching, amend and cancel rules shared by every book backend.
+    Subclasses only decide how price levels are stored and walked, levels are always visited from the best price to the worst price.
+    Market data liquidity is the exchange layer of each PriceLevel, a plain quantity replaced in place by every snapshot, only our client slices are order objects.
+    Amend up slices are taken from an ObjectPool and given back once they leave the book, so the steady state does not allocate orders.
+*/
+public abstract class AbstractOrderBook implements OrderBook {
+    private static final int INITIAL_POOL_SIZE = 64;
+    //Kinds of the queue entries of a checkpointed level
+    private static final int MARKET_DATA_ENTRY = 0;
+    private static final int CLIENT_ORDER_ENTRY = 1;
+    private static final int SLICE_ENTRY = 2;
+    private final String symbol;
+    private final TradeHistory tradeHistory;
+    //Scaled tick size every order and market data price has to be a multiple of, 0 accepts any price
+    private final long tickSize;
+    //Last published top of book, only rebuilt when one of the best prices or quantities has moved
+    private TopOfBook topOfBook;
+    private Logger logger = Logger.getLogger(this.getClass().getName());
+    private OrderValidator orderValidator = new OrderValidatorImpl();
+    private LogPrinting logPrinting = new LogPrinting();
+    //Youngest resting slice per client order id, older slices are reached through NewOrder.prevSlice
+    private LongOpenHashMap<NewOrder> youngestSliceIndex = new LongOpenHashMap<>();
+    private final ObjectPool<NewOrder> orderPool;
+    //Client orders re-entered after a market data snapshot, reused for every snapshot
+    private final List<NewOrder> clientOrders = new ArrayList<>();
+    //Prices of the last applied snapshot per side and its sequence number, levels refreshed by a snapshot are stamped with it
+    private long marketDataBidPrices[] = new long[0];
+    private int marketDataBidCount;
+    private long marketDataAskPrices[] = new long[0];
+    private int marketDataAskCount;
+    private long marketDataSequence;
+    private EngineMetrics metrics;
+    private OrderStore orderStore;
+
+    AbstractOrderBook(String symbol, TradeHistory tradeHistory, long tickSize) {
+        if (tickSize < 0) {
+            throw new IllegalArgumentException("Tick size must not be negative");
+        }
+        this.symbol = symbol;
+        this.tradeHistory = tradeHistory;
+        this.tickSize = tickSize;
+        this.orderPool = new ObjectPool<>(() -> NewOrder.withScaledPrice(symbol, Side.BUY, 0, 0L, ""), INITIAL_POOL_SIZE);
+    }
+
+    protected abstract PriceLevel getLevel(Side side, long price);
+
+    protected abstract PriceLevel getOrCreateLevel(Side side, long price);
+
+    protected abstract void removeLevel(PriceLevel priceLevel);
+
+    protected abstract PriceLevel getBestLevel(Side side);
+
+    //Next level on the same side with a worse price, or null if this is the last level
+    protected abstract PriceLevel getNextLevel(PriceLevel priceLevel);
+
+    @Override
+    public List<Trade> getTrade(String clOrdId) {
+        return tradeHistory.getTrades(clOrdId);
+    }
+
+    @Override
+    public long getTickSize() {
+        return tickSize;
+    }
+
+    @Override
+    public boolean isOnTickGrid(long price) {
+        return tickSize == 0 || price % tickSize == 0;
+    }
+
+    @Override
+    public boolean canHoldPrice(Side side, long price) {
+        return canHoldLevels(side, price, price);
+    }
+
+    //False if the side can not hold levels from lowPrice to highPrice next to its resting levels, only a bounded backend ever refuses
+    protected boolean canHoldLevels(Side side, long lowPrice, long highPrice) {
+        return true;
+    }
+
+    @Override
+    public int getLevelCount(Side side) {
+        int levelCount = 0;
+        for (PriceLevel priceLevel = getBestLevel(side); priceLevel != null; priceLevel = getNextLevel(priceLevel)) {
+            levelCount++;
+        }
+        return levelCount;
+    }
+
+    @Override
+    public int getRestingOrderCount(Side side) {
+        int orderCount = 0;
+        for (PriceLevel priceLevel = getBestLevel(side); priceLevel != null; priceLevel = getNextLevel(priceLevel)) {
+            orderCount += priceLevel.getOrderCount();
+        }
+        return orderCount;
+    }
+
+    @Override
+    public void setMetrics(EngineMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void setOrderStore(OrderStore orderStore) {
+        this.orderStore = orderStore;
+    }
+
+    @Override
+    public TopOfBook getTopOfBook() {
+        long bidPrice = getBestPrice(Side.BUY);
+        long askPrice = getBestPrice(Side.SELL);
+        int bidQty = getBestQuantity(Side.BUY);
+        int askQty = getBestQuantity(Side.SELL);
+        if (topOfBook == null || topOfBook.getScaledBestBidPrice() != bidPrice || topOfBook.getScaledBestAskPrice() != askPrice
+                || topOfBook.getBestBidQuantity() != bidQty || topOfBook.getBestAskQuantity() != askQty) {
+            topOfBook = TopOfBook.withScaledPrices(symbol, bidPrice, askPrice, bidQty, askQty);
+        }
+        return topOfBook;
+    }
+
+    @Override
+    public long getBestPrice(Side side) {
+        PriceLevel bestLevel = getBestLevel(side);
+        return bestLevel == null ? Prices.NO_PRICE : bestLevel.getPrice();
+    }
+
+    @Override
+    public int getBestQuantity(Side side) {
+        PriceLevel bestLevel = getBestLevel(side);
+        return bestLevel == null ? -1 : bestLevel.getTotalQty();
+    }
+
+    @Override
+    public int getQuantityAtPrice(Side side, long price) {
+        PriceLevel priceLevel = getLevel(side, price);
+        return priceLevel == null ? 0 : priceLevel.getTotalQty();
+    }
+
+    @Override
+    public int getOrderCountAtPrice(Side side, long price) {
+        PriceLevel priceLevel = getLevel(side, price);
+        return priceLevel == null ? 0 : priceLevel.getOrderCount();
+    }
+
+    @Override
+    public int getQueueAhead(long orderId) {
+        NewOrder oldestSlice = youngestSliceIndex.get(orderId);
+        if (oldestSlice == null) {
+            return -1;
+        }
+        while (oldestSlice.prevSlice != null) {
+            oldestSlice = oldestSlice.prevSlice;
+        }
+        return oldestSlice.level.getQueueAhead(oldestSlice);
+    }
+
+    /*
+        The snapshot is applied as a diff against the market data liquidity already in the book: changed levels are updated in place, new levels get a market data order
+        ahead of any client orders resting at that price and levels which left the snapshot lose their market data order.
+        Only the client orders which the new opposite touch now crosses are taken out and re-entered (bids first) so they can match, every other client order keeps its place.
+    */
+    @Override
+    public void onMarketOrderBookSnapshot(MarketDataBookSnapshot marketDataBookSnapshot) {
+        int bidDepth = marketDataBookSnapshot.getBidDepth();
+        int askDepth = marketDataBookSnapshot.getAskDepth();
+        //Checked up front so an invalid snapshot leaves the book untouched
+        for (int i = 0; i < bidDepth + askDepth; i++) {
+            if (!isOnTickGrid(marketDataBookSnapshot.getScaledPrice(i))) {
+                throw new IllegalArgumentException("Snapshot price " + Prices.toDouble(marketDataBookSnapshot.getScaledPrice(i)) + " of " + symbol
+                        + " is not a multiple of the tick size " + Prices.toDouble(tickSize));
+            }
+        }
+        checkCanHoldLevels(Side.BUY, marketDataBookSnapshot, 0, bidDepth);
+        checkCanHoldLevels(Side.SELL, marketDataBookSnapshot, bidDepth, askDepth);
+        marketDataSequence++;
+        //MarketDataSnapshot only has level 2 data so each priceLevel will only have 1 quantity, bids are held best last and asks best first
+        for (int i = bidDepth - 1; i >= 0; i--) {
+            applyMarketDataLevel(Side.BUY, marketDataBookSnapshot.getScaledPrice(i), marketDataBookSnapshot.getQuantity(i));
+        }
+        for (int i = bidDepth; i < bidDepth + askDepth; i++) {
+            applyMarketDataLevel(Side.SELL, marketDataBookSnapshot.getScaledPrice(i), marketDataBookSnapshot.getQuantity(i));
+        }
+        removeStaleMarketData(Side.BUY, marketDataBidPrices, marketDataBidCount);
+        removeStaleMarketData(Side.SELL, marketDataAskPrices, marketDataAskCount);
+        marketDataBidPrices = rememberMarketDataPrices(marketDataBidPrices, marketDataBookSnapshot, 0, bidDepth);
+        marketDataBidCount = bidDepth;
+        marketDataAskPrices = rememberMarketDataPrices(marketDataAskPrices, marketDataBookSnapshot, bidDepth, askDepth);
+        marketDataAskCount = askDepth;
+        //Re-enter our orders which the market has moved through and try to match again
+        reEnterCrossingClientOrders(Side.BUY);
+        reEnterCrossingClientOrders(Side.SELL);
+    }
+
+    private void checkCanHoldLevels(Side side, MarketDataBookSnapshot marketDataBookSnapshot, int from, int count) {
+        if (count == 0) {
+            return;
+        }
+        long lowPrice = Long.MAX_VALUE;
+        long highPrice = Long.MIN_VALUE;
+        for (int i = from; i < from + count; i++) {
+            lowPrice = Math.min(lowPrice, marketDataBookSnapshot.getScaledPrice(i));
+            highPrice = Math.max(highPrice, marketDataBookSnapshot.getScaledPrice(i));
+        }
+        if (!canHoldLevels(side, lowPrice, highPrice)) {
+            throw new IllegalArgumentException("Snapshot " + side + " prices " + Prices.toDouble(lowPrice) + " to " + Prices.toDouble(highPrice) + " of " + symbol
+                    + " are too far away from the resting levels");
+        }
+    }
+
+    //Exchange liquidity at a price always has queue priority over the client orders we are simulating there
+    private void applyMarketDataLevel(Side side, long price, int qty) {
+        PriceLevel priceLevel = getOrCreateLevel(side, price);
+        priceLevel.setExchangeQty(qty);
+        priceLevel.marketDataSequence = marketDataSequence;
+    }
+
+    //Levels of the previous snapshot which were not refreshed by this one have left the market
+    private void removeStaleMarketData(Side side, long previousPrices[], int previousCount) {
+        for (int i = 0; i < previousCount; i++) {
+            PriceLevel priceLevel = getLevel(side, previousPrices[i]);
+            if (priceLevel != null && priceLevel.marketDataSequence != marketDataSequence && priceLevel.hasExchangeQty()) {
+                priceLevel.removeExchangeQty();
+                removePriceLevelIfEmpty(priceLevel);
+            }
+        }
+    }
+
+    private static long[] rememberMarketDataPrices(long marketDataPrices[], MarketDataBookSnapshot marketDataBookSnapshot, int from, int count) {
+        if (marketDataPrices.length < count) {
+            marketDataPrices = new long[count];
+        }
+        for (int i = 0; i < count; i++) {
+            marketDataPrices[i] = marketDataBookSnapshot.getScaledPrice(from + i);
+        }
+        return marketDataPrices;
+    }
+
+    private void reEnterCrossingClientOrders(Side side) {
+        PriceLevel oppositeTopLevel = getBestLevel(oppositeSide(side));
+        if (oppositeTopLevel == null) {
+            return;
+        }
+        clientOrders.clear();
+        for (PriceLevel priceLevel = getBestLevel(side); priceLevel != null && !isLessAggressive(side, priceLevel.getPrice(), oppositeTopLevel.getPrice()); priceLevel = getNextLevel(priceLevel)) {
+            for (NewOrder order = priceLevel.getFirst(); order != null; order = order.next) {
+                clientOrders.add(order);
+            }
+        }
+        for (int i = 0; i < clientOrders.size(); i++) {
+            NewOrder order = clientOrders.get(i);
+            PriceLevel priceLevel = order.level;
+            unlinkFromOrderBook(order);
+            removePriceLevelIfEmpty(priceLevel);
+        }
+        for (int i = 0; i < clientOrders.size(); i++) {
+            enterOrder(clientOrders.get(i));
+        }
+        clientOrders.clear();
+    }
+
+    private NewOrder acquireOrder(Side side, int qty, long price, String clOrdId, long orderId) {
+        NewOrder order = orderPool.acquire();
+        order.init(symbol, side, qty, price, clOrdId);
+        order.orderId = orderId;
+        order.pooled = true;
+        return order;
+    }
+
+    protected static Side oppositeSide(Side side) {
+        return (side == Side.BUY) ? Side.SELL : Side.BUY;
+    }
+
+    @Override
+    public void enterOrder(NewOrder order) {
+        if (!orderValidator.isValid(order)) {
+            releaseIfPooled(order);
+            return;
+        }
+        PriceLevel oppositeTopLevel = getBestLevel(oppositeSide(order.getSide()));
+
+        if (oppositeTopLevel == null || isLessAggressive(order.getSide(), order.getScaledPrice(), oppositeTopLevel.getPrice())) {
+            //If less aggressive then opposite side top of the book, it is a resting order, so no need to try to match
+            addToOrderBook(order);
+        } else {
+            //If more aggressive than opposite side top of the book, then we try to match and add residual quantity to order book
+            boolean hasLeavesQty = matchOrder(order);
+            if (hasLeavesQty) {
+                //Add leftover quantity after match to order book
+                addToOrderBook(order);
+            } else {
+                //An amend up slice re-entered after a snapshot can be fully filled as an aggressor
+                releaseIfPooled(order);
+            }
+        }
+    }
+
+    private boolean isLessAggressive(Side side, long orderPrice, long oppositeOrderPrice) {
+        return (side == Side.BUY && orderPrice < oppositeOrderPrice
+                || side == Side.SELL && orderPrice > oppositeOrderPrice);
+    }
+
+    private boolean matchOrder(NewOrder order) {
+        int levelsWalked = 0;
+        int ordersMatched = 0;
+        PriceLevel oppositeSidePriceLevel = getBestLevel(oppositeSide(order.getSide()));
+        while (oppositeSidePriceLevel != null && !isLessAggressive(order.getSide(), order.getScaledPrice(), oppositeSidePriceLevel.getPrice())) {
+            levelsWalked++;
+            PriceLevel nextOppositeSidePriceLevel = getNextLevel(oppositeSidePriceLevel);
+            if (oppositeSidePriceLevel.hasExchangeQty()) {
+                //The exchange layer trades first, as one aggregate quantity
+                int tradeQty = Math.min(order.getQty(), oppositeSidePriceLevel.getExchangeQty());
+                order.reduceQty(tradeQty);
+                order.setOrderStatus(order.isFullyFilled() ? OrderStatus.FILLED : OrderStatus.PARTIALLY_FILLED);
+                oppositeSidePriceLevel.reduceExchangeQty(tradeQty);
+                generateTrade(order, null, oppositeSidePriceLevel.getPrice(), tradeQty);
+                ordersMatched++;
+                if (order.isFullyFilled()) {
+                    return fullyFilled(order, oppositeSidePriceLevel, levelsWalked, ordersMatched);
+                }
+            }
+            NewOrder oppositeOrder = oppositeSidePriceLevel.getFirst();
+            while (oppositeOrder != null) {
+                NewOrder nextOppositeOrder = oppositeOrder.next;
+                int tradeQty;
+                if (order.getQty() > oppositeOrder.getQty()) {
+                    tradeQty = oppositeOrder.getQty();
+                    updateBothSideOrders(order, OrderStatus.PARTIALLY_FILLED, oppositeOrder.getQty(), oppositeOrder, OrderStatus.FILLED, oppositeOrder.getQty());
+                } else if (order.getQty() < oppositeOrder.getQty()) {
+                    tradeQty = order.getQty();
+                    updateBothSideOrders(order, OrderStatus.FILLED, order.getQty(), oppositeOrder, OrderStatus.PARTIALLY_FILLED, order.getQty());
+                } else {
+                    tradeQty = order.getQty();
+                    updateBothSideOrders(order, OrderStatus.FILLED, order.getQty(), oppositeOrder, OrderStatus.FILLED, order.getQty());
+                }
+                generateTrade(order, oppositeOrder, oppositeOrder.getScaledPrice(), tradeQty);
+                ordersMatched++;
+                if (oppositeOrder.isFullyFilled()) {
+                    //Removed only after the trade is booked as a pooled opposite order may be recycled straight away
+                    long oppositeOrderId = oppositeOrder.orderId;
+                    String oppositeClOrdId = oppositeOrder.getClOrderId();
+                    removeFromOrderBook(oppositeOrder);
+                    notifyIfLastSliceFilled(oppositeOrderId, oppositeClOrdId);
+                }
+                if (order.isFullyFilled()) {
+                    return fullyFilled(order, oppositeSidePriceLevel, levelsWalked, ordersMatched);
+                }
+                oppositeOrder = nextOppositeOrder;
+            }
+            removePriceLevelIfEmpty(oppositeSidePriceLevel);
+            oppositeSidePriceLevel = nextOppositeSidePriceLevel;
+        }
+        recordMatch(levelsWalked, ordersMatched);
+        return true;
+    }
+
+    //The aggressor has no leaves quantity, so matchOrder ends with false
+    private boolean fullyFilled(NewOrder order, PriceLevel oppositeSidePriceLevel, int levelsWalked, int ordersMatched) {
+        removePriceLevelIfEmpty(oppositeSidePriceLevel);
+        recordMatch(levelsWalked, ordersMatched);
+        notifyIfLastSliceFilled(order.orderId, order.getClOrderId());
+        return false;
+    }
+
+    private void recordMatch(int levelsWalked, int ordersMatched) {
+        if (metrics != null) {
+            metrics.recordMatch(levelsWalked, ordersMatched);
+        }
+    }
+
+    //Lets the order store archive a client order once no slice of it rests on the book any more
+    private void notifyIfLastSliceFilled(long orderId, String clOrdId) {
+        if (orderStore != null && !youngestSliceIndex.containsKey(orderId)) {
+            orderStore.onOrderFilled(clOrdId);
+        }
+    }
+
+    private void removePriceLevelIfEmpty(PriceLevel priceLevel) {
+        if (priceLevel.isEmpty()) {
+            removeLevel(priceLevel);
+        }
+    }
+
+    private void addToOrderBook(NewOrder order) {
+        //If an existing price level exists, then add the new order at the end of the list, else a new price level is created for it
+        addToLevel(getOrCreateLevel(order.getSide(), order.getScaledPrice()), order);
+    }
+
+    private void addToLevel(PriceLevel priceLevel, NewOrder order) {
+        priceLevel.addLast(order);
+        //Client slices are chained per order id so amend and cancel can reach them without scanning the levels
+        NewOrder youngestSlice = youngestSliceIndex.put(order.orderId, order);
+        order.prevSlice = youngestSlice;
+        order.nextSlice = null;
+        if (youngestSlice != null) {
+            youngestSlice.nextSlice = order;
+        }
+    }
+
+    //Unlinks the order from the book and recycles it if it is pooled, the level itself is left for the caller to clean up
+    private void removeFromOrderBook(NewOrder order) {
+        unlinkFromOrderBook(order);
+        releaseIfPooled(order);
+    }
+
+    //Unlinks the order from its level and from the slice chain of its order id
+    private void unlinkFromOrderBook(NewOrder order) {
+        order.level.remove(order);
+        if (order.prevSlice != null) {
+            order.prevSlice.nextSlice = order.nextSlice;
+        }
+        if (order.nextSlice != null) {
+            order.nextSlice.prevSlice = order.prevSlice;
+        } else if (order.prevSlice != null) {
+            youngestSliceIndex.put(order.orderId, order.prevSlice);
+        } else {
+            youngestSliceIndex.remove(order.orderId);
+        }
+        order.prevSlice = null;
+        order.nextSlice = null;
+    }
+
+    private void releaseIfPooled(NewOrder order) {
+        if (order.pooled) {
+            order.parentOrder = null;
+            orderPool.release(order);
+        }
+    }
+
+    private void updateBothSideOrders(NewOrder order, OrderStatus orderStatus, int orderReduceQty, NewOrder oppositeOrder, OrderStatus oppositeOrderStatus, int oppOrderReduceQty) {
+        order.reduceQty(orderReduceQty);
+        order.setOrderStatus(orderStatus);
+        oppositeOrder.setOrderStatus(oppositeOrderStatus);
+        //The opposite order is always resting, its level aggregate has to follow the fill
+        oppositeOrder.level.reduceQty(oppositeOrder, oppOrderReduceQty);
+    }
+
+    @Override
+    public boolean hasPriceLevel(Side side, long price) {
+        return getLevel(side, price) != null;
+    }
+
+    @Override
+    public OrderStatus amendDownYoungestSliceAndCancelOutstandingSlicesAtLevel(AmendOrder order, NewOrder origOrder) {
+        PriceLevel sameSideLevel = getLevel(order.getSide(), order.getScaledPrice());
+        NewOrder sameSideOrder = youngestSliceIndex.get(origOrder.orderId);
+        int orderCount = 0;
+        while (sameSideOrder != null) {
+            NewOrder olderSlice = sameSideOrder.prevSlice;
+            //Amend down the youngest slice first
+            if (sameSideOrder.level == sameSideLevel) {
+                orderCount++;
+                if (orderCount == 1) {
+                    sameSideLevel.setQty(sameSideOrder, order.getQty());
+                    sameSideOrder.setOrderStatus(OrderStatus.AMENDED);
+                    order.setOrderStatus(OrderStatus.AMENDED);
+                } else {
+                    //Subsequent slices for this order need to be removed from this price level
+                    removeFromOrderBook(sameSideOrder);
+                }
+            }
+            sameSideOrder = olderSlice;
+        }
+        return OrderStatus.AMENDED;
+    }
+
+    @Override
+    public void addNewSliceAtSamePriceLevelWithRemainingQty(AmendOrder order, NewOrder origOrder) {
+        PriceLevel sameSideLevel = getLevel(order.getSide(), order.getScaledPrice());
+        if (sameSideLevel != null) {
+            //Find the original (oldest) slice of the order in the level and get its quantity
+            NewOrder origOrderSlice = null;
+            for (NewOrder slice = youngestSliceIndex.get(origOrder.orderId); slice != null; slice = slice.prevSlice) {
+                if (slice.level == sameSideLevel) {
+                    origOrderSlice = slice;
+                }
+            }
+            int newSliceOrderQty = order.getQty();
+            if (origOrderSlice != null) {
+                newSliceOrderQty = order.getQty() - origOrderSlice.getQty();
+            }
+            //We need to add a new slice at the end of the list of that price level with the clientOrderId as the original order
+            NewOrder newSlice = acquireOrder(order.getSide(), newSliceOrderQty, order.getScaledPrice(), order.getOrigClOrderId(), origOrder.orderId);
+            newSlice.parentOrder = origOrder;
+            addToLevel(sameSideLevel, newSlice);
+        }
+    }
+
+    @Override
+    public void removeOrder(Side side, long orderId) {
+        NewOrder slice = youngestSliceIndex.get(orderId);
+        while (slice != null) {
+            NewOrder olderSlice = slice.prevSlice;
+            if (slice.getSide() == side) {
+                PriceLevel priceLevel = slice.level;
+                removeFromOrderBook(slice);
+                removePriceLevelIfEmpty(priceLevel);
+            }
+            slice = olderSlice;
+        }
+    }
+
+    //oppositeOrder is null for a trade against the exchange layer
+    private void generateTrade(NewOrder order, NewOrder oppositeOrder, long price, int tradeQty) {
+        //Trades of a pooled slice are booked against its client order as the slice itself gets recycled
+        Order tradedOrder = (order.parentOrder != null) ? order.parentOrder : order;
+        Trade trade = tradeHistory.recordTrade(tradeQty, price, tradedOrder);
+        if (tradeHistory.isReportingFills()) {
+            //The aggressor is off the book while it matches, a filled opposite slice is still on it with no quantity left
+            tradeHistory.reportFills(trade, order, order.getQty() + getRestingQty(order.orderId), oppositeOrder, oppositeOrder == null ? 0 : getRestingQty(oppositeOrder.orderId));
+        }
+        if (logger.isLoggable(Level.FINE)) {
+            logger.log(Level.FINE, trade.toString());
+        }
+    }
+
+    //Quantity of every slice of the client order resting on the book
+    private int getRestingQty(long orderId) {
+        int restingQty = 0;
+        for (NewOrder slice = youngestSliceIndex.get(orderId); slice != null; slice = slice.prevSlice) {
+            restingQty += slice.getQty();
+        }
+        return restingQty;
+    }
+
+    @Override
+    public void writeCheckpoint(CheckpointWriter writer) throws IOException {
+        writeMarketDataPrices(writer, marketDataBidPrices, marketDataBidCount);
+        writeMarketDataPrices(writer, marketDataAskPrices, marketDataAskCount);
+        writeLevels(writer, Side.BUY);
+        writeLevels(writer, Side.SELL);
+    }
+
+    private static void writeMarketDataPrices(CheckpointWriter writer, long marketDataPrices[], int count) throws IOException {
+        writer.writeInt(count);
+        for (int i = 0; i < count; i++) {
+            writer.writeLong(marketDataPrices[i]);
+        }
+    }
+
+    //Levels best first with the exchange liquidity ahead of the client slices, amend up slices are recorded with the client order they report their trades against
+    private void writeLevels(CheckpointWriter writer, Side side) throws IOException {
+        int levelCount = 0;
+        for (PriceLevel priceLevel = getBestLevel(side); priceLevel != null; priceLevel = getNextLevel(priceLevel)) {
+            levelCount++;
+        }
+        writer.writeInt(levelCount);
+        for (PriceLevel priceLevel = getBestLevel(side); priceLevel != null; priceLevel = getNextLevel(priceLevel)) {
+            writer.writeLong(priceLevel.getPrice());
+            writer.writeInt(priceLevel.getOrderCount());
+            if (priceLevel.hasExchangeQty()) {
+                writer.writeInt(MARKET_DATA_ENTRY);
+                writer.writeInt(priceLevel.getExchangeQty());
+            }
+            for (NewOrder order = priceLevel.getFirst(); order != null; order = order.next) {
+                if (order.pooled) {
+                    writer.writeInt(SLICE_ENTRY);
+                    writer.writeString(order.getClOrderId());
+                    writer.writeInt(order.getQty());
+                    writer.writeOrderStatus(order.getOrderStatus());
+                    writer.writeOrder(order.parentOrder);
+                } else {
+                    writer.writeInt(CLIENT_ORDER_ENTRY);
+                    writer.writeOrder(order);
+                }
+            }
+        }
+    }
+
+    /*
+        Levels are filled in queue order, so the slices of a client order are chained in the same order within every level which is all amend and cancel rely on.
+        Market data levels are not stamped with a snapshot sequence, any stamp differs from the one of the next snapshot.
+    */
+    @Override
+    public void restoreCheckpoint(CheckpointReader reader) throws IOException {
+        if (getBestLevel(Side.BUY) != null || getBestLevel(Side.SELL) != null) {
+            throw new IllegalStateException("A checkpoint can only be restored into an empty book, " + symbol + " has resting orders");
+        }
+        marketDataBidCount = reader.readInt();
+        marketDataBidPrices = readMarketDataPrices(reader, marketDataBidCount);
+        marketDataAskCount = reader.readInt();
+        marketDataAskPrices = readMarketDataPrices(reader, marketDataAskCount);
+        restoreLevels(reader, Side.BUY);
+        restoreLevels(reader, Side.SELL);
+    }
+
+    private static long[] readMarketDataPrices(CheckpointReader reader, int count) throws IOException {
+        long marketDataPrices[] = new long[count];
+        for (int i = 0; i < count; i++) {
+            marketDataPrices[i] = reader.readLong();
+        }
+        return marketDataPrices;
+    }
+
+    private void restoreLevels(CheckpointReader reader, Side side) throws IOException {
+        int levelCount = reader.readInt();
+        for (int i = 0; i < levelCount; i++) {
+            long price = reader.readLong();
+            int entryCount = reader.readInt();
+            PriceLevel priceLevel = getOrCreateLevel(side, price);
+            for (int j = 0; j < entryCount; j++) {
+                int entryKind = reader.readInt();
+                if (entryKind == MARKET_DATA_ENTRY) {
+                    priceLevel.setExchangeQty(reader.readInt());
+                } else if (entryKind == SLICE_ENTRY) {
+                    String clOrdId = reader.readString();
+                    int qty = reader.readInt();
+                    NewOrder slice = acquireOrder(side, qty, price, clOrdId, 0);
+                    slice.setOrderStatus(reader.readOrderStatus());
+                    slice.parentOrder = reader.readOrder();
+                    slice.orderId = slice.parentOrder.orderId;
+                    addToLevel(priceLevel, slice);
+                } else {
+                    addToLevel(priceLevel, reader.readOrder());
+                }
+            }
+        }
+    }
+
+    @Override
+    public String dumpOrderBook() {
+        Map<Long, List<Integer>> bids = logPrinting.bids;
+        Map<Long, List<Integer>> asks = logPrinting.asks;
+        StringBuilder orderBookPrinter = logPrinting.orderBookPrinter;
+        clear(bids, asks, orderBookPrinter);
+        for (PriceLevel bidLevel = getBestLevel(Side.BUY); bidLevel != null; bidLevel = getNextLevel(bidLevel)) {
+            bids.put(bidLevel.getPrice(), quantitiesInQueueOrder(bidLevel));
+        }
+        for (PriceLevel askLevel = getBestLevel(Side.SELL); askLevel != null; askLevel = getNextLevel(askLevel)) {
+            asks.put(askLevel.getPrice(), quantitiesInQueueOrder(askLevel));
+        }
+        orderBookPrinter.append("___________________________").append("\n");
+        for (Map.Entry<Long, List<Integer>> entry : asks.entrySet()) {
+            appendForPrinting(orderBookPrinter, entry, orderBookPrinter.append("              "));
+        }
+        for (Map.Entry<Long, List<Integer>> entry : bids.entrySet()) {
+            appendForPrinting(orderBookPrinter, entry, orderBookPrinter);
+        }
+        orderBookPrinter.append("___________________________");
+        logger.info(orderBookPrinter.toString());
+        return orderBookPrinter.toString();
+    }
+
+    private List<Integer> quantitiesInQueueOrder(PriceLevel priceLevel) {
+        List<Integer> quantities = new ArrayList<>();
+        if (priceLevel.hasExchangeQty()) {
+            quantities.add(priceLevel.getExchangeQty());
+        }
+        for (NewOrder order = priceLevel.getFirst(); order != null; order = order.next) {
+            quantities.add(order.getQty());
+        }
+        return quantities;
+    }
+
+    private void appendForPrinting(StringBuilder orderBookPrinter, Map.Entry<Long, List<Integer>> entry, StringBuilder append) {
+        append.append(Prices.toDouble(entry.getKey())).append(" ");
+        StringBuilder perLevelPrinter = new StringBuilder();
+        if (entry.getValue().size() > 1) {
+            entry.getValue().forEach(qty -> perLevelPrinter.append(qty).append(" "));
+        } else {
+            entry.getValue().forEach(perLevelPrinter::append);
+        }
+        orderBookPrinter.append(perLevelPrinter.toString()).append("\n");
+    }
+
+    private void clear(Map<Long, List<Integer>> bids, Map<Long, List<Integer>> asks, StringBuilder orderBookPrinter) {
+        bids.clear();
+        asks.clear();
+        orderBookPrinter.setLength(0);
+    }
+
+    private class LogPrinting {
+        Map<Long, List<Integer>> bids = new TreeMap<>(Comparator.reverseOrder());
+        Map<Long, List<Integer>> asks = new TreeMap<>(Comparator.reverseOrder());
+        StringBuilder orderBookPrinter = new StringBuilder();
+    }
+
+}
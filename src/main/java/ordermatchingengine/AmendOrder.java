@@ -1,3 +1,5 @@
+package ordermatchingengine;
+
 public class AmendOrder extends NewOrder {
     private String origClOrderId;
 
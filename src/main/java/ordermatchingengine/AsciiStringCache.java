@@ -0,0 +1,60 @@
+package ordermatchingengine;
+
+import java.nio.ByteBuffer;
+
+/*
+    Turns fixed width ASCII fields of a buffer into Strings, handing out the String decoded last time when a field holds the same characters again.
+    Symbols and the clOrdIds which amends and cancels refer to have usually been seen before, so decoding them does not allocate.
+    The cache is direct mapped by a hash of the characters, a colliding field simply replaces the cached String. Not thread safe.
+*/
+public class AsciiStringCache {
+    private final String[] strings;
+    private final int mask;
+
+    AsciiStringCache(int capacity) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of 2, was " + capacity);
+        }
+        this.strings = new String[capacity];
+        this.mask = capacity - 1;
+    }
+
+    //Characters up to the first zero byte or the end of the field, null for an empty field. Bytes which are not ASCII read as '?'
+    String get(ByteBuffer buffer, int offset, int length) {
+        int valueLength = 0;
+        int hash = 0;
+        while (valueLength < length && buffer.get(offset + valueLength) != 0) {
+            hash = 31 * hash + buffer.get(offset + valueLength);
+            valueLength++;
+        }
+        if (valueLength == 0) {
+            return null;
+        }
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        String cached = strings[slot];
+        if (cached != null && matches(cached, buffer, offset, valueLength)) {
+            return cached;
+        }
+        char[] chars = new char[valueLength];
+        for (int i = 0; i < valueLength; i++) {
+            byte b = buffer.get(offset + i);
+            chars[i] = b < 0 ? '?' : (char) b;
+        }
+        String value = new String(chars);
+        strings[slot] = value;
+        return value;
+    }
+
+    private static boolean matches(String cached, ByteBuffer buffer, int offset, int valueLength) {
+        if (cached.length() != valueLength) {
+            return false;
+        }
+        for (int i = 0; i < valueLength; i++) {
+            byte b = buffer.get(offset + i);
+            if (cached.charAt(i) != (b < 0 ? '?' : b)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
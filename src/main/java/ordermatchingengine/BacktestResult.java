@@ -0,0 +1,108 @@
+package ordermatchingengine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/*
+    Fills and order statistics of a backtest scenario, collected as the event journal of the scenario's engine.
+    total() merges the results of several scenarios, fills are kept in scenario order.
+*/
+public class BacktestResult implements EventJournal {
+    private final String name;
+    private long acceptedOrders;
+    private long rejectedOrders;
+    private long amendedOrders;
+    private long cancelledOrders;
+    private long tradedQty;
+    private double tradedNotional;
+    private final List<Trade> fills = new ArrayList<>();
+
+    BacktestResult(String name) {
+        this.name = name;
+    }
+
+    static BacktestResult total(String name, List<BacktestResult> results) {
+        BacktestResult total = new BacktestResult(name);
+        for (BacktestResult result : results) {
+            total.acceptedOrders += result.acceptedOrders;
+            total.rejectedOrders += result.rejectedOrders;
+            total.amendedOrders += result.amendedOrders;
+            total.cancelledOrders += result.cancelledOrders;
+            total.tradedQty += result.tradedQty;
+            total.tradedNotional += result.tradedNotional;
+            total.fills.addAll(result.fills);
+        }
+        return total;
+    }
+
+    @Override
+    public void onOrderAccepted(NewOrder order) {
+        acceptedOrders++;
+    }
+
+    @Override
+    public void onOrderRejected(NewOrder order) {
+        rejectedOrders++;
+    }
+
+    @Override
+    public void onOrderAmended(AmendOrder order) {
+        amendedOrders++;
+    }
+
+    @Override
+    public void onOrderCancelled(CancelOrder order) {
+        cancelledOrders++;
+    }
+
+    @Override
+    public void onTrade(Trade trade) {
+        tradedQty += trade.getTradeQty();
+        tradedNotional += trade.getTradeQty() * trade.getTradePrice();
+        fills.add(trade);
+    }
+
+    @Override
+    public void onTopOfBookChanged(TopOfBook topOfBook) {
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getAcceptedOrders() {
+        return acceptedOrders;
+    }
+
+    public long getRejectedOrders() {
+        return rejectedOrders;
+    }
+
+    public long getAmendedOrders() {
+        return amendedOrders;
+    }
+
+    public long getCancelledOrders() {
+        return cancelledOrders;
+    }
+
+    public long getTradedQty() {
+        return tradedQty;
+    }
+
+    public double getTradedNotional() {
+        return tradedNotional;
+    }
+
+    //Trades of the aggressing orders in the order they happened
+    public List<Trade> getFills() {
+        return Collections.unmodifiableList(fills);
+    }
+
+    @Override
+    public String toString() {
+        return "BacktestResult [name=" + name + ", acceptedOrders=" + acceptedOrders + ", rejectedOrders=" + rejectedOrders + ", amendedOrders=" + amendedOrders
+                + ", cancelledOrders=" + cancelledOrders + ", fills=" + fills.size() + ", tradedQty=" + tradedQty + ", tradedNotional=" + tradedNotional + "]";
+    }
+}
@@ -0,0 +1,97 @@
+package ordermatchingengine;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/*
+    Runs independent backtest scenarios in parallel on a fork-join pool.
+    Every scenario gets an OrderMatchingEngineImpl of its own which lives on one worker thread only, so the books need no locking,
+    and a trade id range of its own, so the fills of all scenarios can be merged without clashing trade ids.
+    The results come back in scenario order whatever the order the scenarios finished in.
+*/
+public class BacktestRunner implements AutoCloseable {
+    //Size of the trade id range of one scenario
+    static final long TRADE_ID_RANGE_PER_SCENARIO = 1L << 32;
+    private final ForkJoinPool pool;
+    private final OrderBookType orderBookType;
+
+    BacktestRunner(int parallelism) {
+        this(parallelism, OrderBookType.TREE_MAP);
+    }
+
+    BacktestRunner(int parallelism, OrderBookType orderBookType) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism must be positive");
+        }
+        this.pool = new ForkJoinPool(parallelism);
+        this.orderBookType = orderBookType;
+    }
+
+    int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    //Blocks until every scenario has run, a scenario which fails fails the whole run
+    List<BacktestResult> run(List<? extends BacktestScenario> scenarios) {
+        if (scenarios.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return pool.invoke(new ScenarioTask(scenarios, 0, scenarios.size()));
+    }
+
+    //Runs the scenarios and merges their fills and statistics into one result
+    BacktestResult runAndMerge(String name, List<? extends BacktestScenario> scenarios) {
+        return BacktestResult.total(name, run(scenarios));
+    }
+
+    private BacktestResult runScenario(BacktestScenario scenario, int scenarioIndex) {
+        BacktestResult result = new BacktestResult(scenario.getName());
+        TradeHistory tradeHistory = new TradeHistory(TradeHistory.FIRST_TRADE_ID + scenarioIndex * TRADE_ID_RANGE_PER_SCENARIO, TradeHistory.UNBOUNDED);
+        try {
+            scenario.run(new OrderMatchingEngineImpl(orderBookType, tradeHistory, result));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Backtest scenario " + scenario.getName() + " failed", e);
+        }
+        return result;
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    //Splits the scenario range in halves until a single scenario is left
+    private final class ScenarioTask extends RecursiveTask<List<BacktestResult>> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<? extends BacktestScenario> scenarios;
+        private final int from;
+        private final int to;
+
+        ScenarioTask(List<? extends BacktestScenario> scenarios, int from, int to) {
+            this.scenarios = scenarios;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected List<BacktestResult> compute() {
+            if (to - from == 1) {
+                List<BacktestResult> results = new ArrayList<>(1);
+                results.add(runScenario(scenarios.get(from), from));
+                return results;
+            }
+            int middle = (from + to) >>> 1;
+            ScenarioTask second = new ScenarioTask(scenarios, middle, to);
+            second.fork();
+            List<BacktestResult> results = new ScenarioTask(scenarios, from, middle).compute();
+            results.addAll(second.join());
+            return results;
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package ordermatchingengine;
+
+import java.io.IOException;
+
+/*
+    One independent piece of a backtest, typically one symbol on one trading day with one set of algo parameters.
+    run streams the scenario's market data and algo orders into an engine of its own, which no other scenario touches.
+*/
+public interface BacktestScenario {
+    //Identifies the scenario in the results, e.g. "AAPL 2018-03-01 spread=2"
+    String getName();
+
+    void run(OrderMatchingEngine engine) throws IOException;
+}
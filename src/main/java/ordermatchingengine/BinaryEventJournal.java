@@ -0,0 +1,294 @@
+package ordermatchingengine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/*
+    EventJournal writing fixed size binary records to a file, see EventJournalDecoder for turning a journal into text.
+    The matching thread only encodes the record into a pre-allocated ring buffer slot, a writer thread copies the slots into large writes to the file.
+    If the writer falls behind by a whole ring the matching thread waits rather than dropping audit records.
+    Once a write failed the journal is degraded: records are dropped and counted instead of stalling or failing the matching thread, close() rethrows the failure.
+    Symbol and clOrdIds are stored as fixed width ASCII fields, canJournal tells the engine to reject orders whose fields do not fit.
+    The record of such a rejection is the only one holding a cut down field and is flagged TRUNCATED.
+    There must be a single journaling thread, i.e. one journal per engine or per shard.
+*/
+public class BinaryEventJournal implements EventJournal, AutoCloseable {
+    static final int RECORD_SIZE = 128;
+    static final byte ORDER_ACCEPTED = 1;
+    static final byte ORDER_REJECTED = 2;
+    static final byte ORDER_AMENDED = 3;
+    static final byte ORDER_CANCELLED = 4;
+    static final byte TRADE = 5;
+    static final byte TOP_OF_BOOK_CHANGED = 6;
+    //Record layout, all offsets in bytes
+    static final int TYPE_OFFSET = 0;
+    static final int SIDE_OFFSET = 1;
+    static final int ORDER_STATUS_OFFSET = 2;
+    static final int FLAGS_OFFSET = 3;
+    static final int QTY_OFFSET = 4;
+    static final int SEQUENCE_OFFSET = 8;
+    static final int TIMESTAMP_OFFSET = 16;
+    //Order or trade price, best bid price for top of book records
+    static final int PRICE_OFFSET = 24;
+    //Trade id, best ask price for top of book records
+    static final int TRADE_ID_OFFSET = 32;
+    static final int BID_QTY_OFFSET = 40;
+    static final int ASK_QTY_OFFSET = 44;
+    static final int SYMBOL_OFFSET = 48;
+    static final int SYMBOL_LENGTH = 16;
+    static final int CL_ORD_ID_OFFSET = 64;
+    static final int ORIG_CL_ORD_ID_OFFSET = 96;
+    static final int CL_ORD_ID_LENGTH = 32;
+    //Flag set when a symbol or clOrdId did not fit its field
+    static final byte TRUNCATED = 1;
+    private static final int RECORDS_PER_WRITE = 64;
+
+    private final Logger logger = Logger.getLogger(this.getClass().getName());
+    private final FileChannel fileChannel;
+    private final RingBuffer<ByteBuffer> records;
+    private final ByteBuffer writeBuffer = ByteBuffer.allocateDirect(RECORD_SIZE * RECORDS_PER_WRITE);
+    private final Thread writerThread;
+    private final NanoClock clock;
+    private long nextSequence;
+    private volatile long writtenSequence = -1;
+    private volatile IOException writeFailure;
+    //Records lost after a write failure, counted by both the matching and the writer thread
+    private final AtomicLong droppedRecordCount = new AtomicLong();
+
+    BinaryEventJournal(Path journalFile, int capacity, WaitStrategy writerWaitStrategy) throws IOException {
+        this(journalFile, capacity, writerWaitStrategy, NanoClock.SYSTEM);
+    }
+
+    //Order and top of book records are stamped with clock, trades keep the transact time the TradeHistory gave them
+    BinaryEventJournal(Path journalFile, int capacity, WaitStrategy writerWaitStrategy, NanoClock clock) throws IOException {
+        this.clock = clock;
+        this.fileChannel = FileChannel.open(journalFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        this.records = new RingBuffer<>(() -> ByteBuffer.allocate(RECORD_SIZE), capacity, false, writerWaitStrategy);
+        this.writerThread = new Thread(this::runWriter, "event-journal-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    @Override
+    public boolean canJournal(NewOrder order) {
+        return fits(order.getSymbol(), SYMBOL_LENGTH) && fits(order.getClOrderId(), CL_ORD_ID_LENGTH) && fits(origClOrdId(order), CL_ORD_ID_LENGTH);
+    }
+
+    private static boolean fits(String value, int length) {
+        if (value == null) {
+            return true;
+        }
+        if (value.length() > length) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) == 0 || value.charAt(i) > 127) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    //True once a write failed, records are dropped from then on
+    public boolean isDegraded() {
+        return writeFailure != null;
+    }
+
+    public long getDroppedRecordCount() {
+        return droppedRecordCount.get();
+    }
+
+    @Override
+    public void onOrderAccepted(NewOrder order) {
+        publishOrder(ORDER_ACCEPTED, order, OrderStatus.NEW, null);
+    }
+
+    @Override
+    public void onOrderRejected(NewOrder order) {
+        publishOrder(ORDER_REJECTED, order, OrderStatus.REJECTED, origClOrdId(order));
+    }
+
+    @Override
+    public void onOrderAmended(AmendOrder order) {
+        publishOrder(ORDER_AMENDED, order, OrderStatus.AMENDED, order.getOrigClOrderId());
+    }
+
+    @Override
+    public void onOrderCancelled(CancelOrder order) {
+        publishOrder(ORDER_CANCELLED, order, OrderStatus.CANCELLED, order.getOrigClOrderId());
+    }
+
+    private static String origClOrdId(NewOrder order) {
+        if (order instanceof AmendOrder) {
+            return ((AmendOrder) order).getOrigClOrderId();
+        }
+        if (order instanceof CancelOrder) {
+            return ((CancelOrder) order).getOrigClOrderId();
+        }
+        return null;
+    }
+
+    private void publishOrder(byte type, NewOrder order, OrderStatus orderStatus, String origClOrdId) {
+        if (dropped()) {
+            return;
+        }
+        long sequence = records.next();
+        ByteBuffer record = newRecord(sequence, type, clock.nanoTime(), order.getSymbol());
+        record.put(SIDE_OFFSET, sideCode(order.getSide()));
+        record.put(ORDER_STATUS_OFFSET, statusCode(orderStatus));
+        record.putInt(QTY_OFFSET, order.getQty());
+        record.putLong(PRICE_OFFSET, order.getScaledPrice());
+        putAscii(record, CL_ORD_ID_OFFSET, CL_ORD_ID_LENGTH, order.getClOrderId());
+        putAscii(record, ORIG_CL_ORD_ID_OFFSET, CL_ORD_ID_LENGTH, origClOrdId);
+        records.publish(sequence);
+    }
+
+    //Checked before claiming a record, so a failed writer never stalls the matching thread
+    private boolean dropped() {
+        if (writeFailure == null) {
+            return false;
+        }
+        droppedRecordCount.incrementAndGet();
+        return true;
+    }
+
+    @Override
+    public void onTrade(Trade trade) {
+        if (dropped()) {
+            return;
+        }
+        long sequence = records.next();
+        Order order = trade.getOrder();
+        ByteBuffer record = newRecord(sequence, TRADE, trade.getTransactTime(), order.getSymbol());
+        record.put(SIDE_OFFSET, sideCode(order.getSide()));
+        record.put(ORDER_STATUS_OFFSET, statusCode(order.getOrderStatus()));
+        record.putInt(QTY_OFFSET, trade.getTradeQty());
+        record.putLong(PRICE_OFFSET, trade.getScaledTradePrice());
+        record.putLong(TRADE_ID_OFFSET, trade.getTradeID());
+        putAscii(record, CL_ORD_ID_OFFSET, CL_ORD_ID_LENGTH, trade.getClOrdId());
+        records.publish(sequence);
+    }
+
+    @Override
+    public void onTopOfBookChanged(TopOfBook topOfBook) {
+        if (dropped()) {
+            return;
+        }
+        long sequence = records.next();
+        ByteBuffer record = newRecord(sequence, TOP_OF_BOOK_CHANGED, clock.nanoTime(), topOfBook.getSymbol());
+        record.putLong(PRICE_OFFSET, topOfBook.getScaledBestBidPrice());
+        record.putLong(TRADE_ID_OFFSET, topOfBook.getScaledBestAskPrice());
+        record.putInt(BID_QTY_OFFSET, topOfBook.getBestBidQuantity());
+        record.putInt(ASK_QTY_OFFSET, topOfBook.getBestAskQuantity());
+        records.publish(sequence);
+    }
+
+    private ByteBuffer newRecord(long sequence, byte type, long timestamp, String symbol) {
+        nextSequence = sequence + 1;
+        ByteBuffer record = records.get(sequence);
+        for (int i = 0; i < RECORD_SIZE; i += 8) {
+            record.putLong(i, 0);
+        }
+        record.put(TYPE_OFFSET, type);
+        record.putLong(SEQUENCE_OFFSET, sequence);
+        record.putLong(TIMESTAMP_OFFSET, timestamp);
+        putAscii(record, SYMBOL_OFFSET, SYMBOL_LENGTH, symbol);
+        return record;
+    }
+
+    //Values canJournal refused are cut down to the field with non-ASCII characters as '?' and the record is flagged TRUNCATED
+    private static void putAscii(ByteBuffer record, int offset, int length, String value) {
+        if (value == null) {
+            return;
+        }
+        if (!fits(value, length)) {
+            record.put(FLAGS_OFFSET, TRUNCATED);
+        }
+        int valueLength = Math.min(length, value.length());
+        for (int i = 0; i < valueLength; i++) {
+            char c = value.charAt(i);
+            record.put(offset + i, (c == 0 || c > 127) ? (byte) '?' : (byte) c);
+        }
+    }
+
+    //0 stands for no side / no status
+    private static byte sideCode(Side side) {
+        return side == null ? 0 : (byte) (side.ordinal() + 1);
+    }
+
+    private static byte statusCode(OrderStatus orderStatus) {
+        return orderStatus == null ? 0 : (byte) (orderStatus.ordinal() + 1);
+    }
+
+    //After a failure the writer keeps releasing slots without writing them, the matching thread may already wait for one
+    private void runWriter() {
+        long nextRecord = 0;
+        while (true) {
+            long availableRecord = records.waitFor(nextRecord);
+            if (availableRecord < 0) {
+                return;
+            }
+            if (writeFailure == null) {
+                try {
+                    write(nextRecord, availableRecord);
+                    writtenSequence = availableRecord;
+                } catch (IOException e) {
+                    writeFailure = e;
+                    logger.log(Level.SEVERE, "Event journal write failed, dropping records from now on", e);
+                }
+            }
+            if (writeFailure != null) {
+                droppedRecordCount.addAndGet(availableRecord - nextRecord + 1);
+            }
+            records.release(availableRecord);
+            nextRecord = availableRecord + 1;
+        }
+    }
+
+    private void write(long fromSequence, long toSequence) throws IOException {
+        for (long sequence = fromSequence; sequence <= toSequence; sequence++) {
+            ByteBuffer record = records.get(sequence);
+            record.clear();
+            writeBuffer.put(record);
+            if (!writeBuffer.hasRemaining()) {
+                flushWriteBuffer();
+            }
+        }
+        flushWriteBuffer();
+    }
+
+    private void flushWriteBuffer() throws IOException {
+        writeBuffer.flip();
+        while (writeBuffer.hasRemaining()) {
+            fileChannel.write(writeBuffer);
+        }
+        writeBuffer.clear();
+    }
+
+    //Waits until every record journaled so far is written, then stops the writer and closes the file
+    @Override
+    public void close() throws IOException {
+        while (writtenSequence < nextSequence - 1 && writeFailure == null) {
+            LockSupport.parkNanos(100_000);
+        }
+        records.halt();
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the journal writer", e);
+        }
+        fileChannel.force(false);
+        fileChannel.close();
+        if (writeFailure != null) {
+            throw writeFailure;
+        }
+    }
+}
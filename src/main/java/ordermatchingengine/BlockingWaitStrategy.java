@@ -0,0 +1,42 @@
+package ordermatchingengine;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+//Parks the waiting thread until a producer publishes, no CPU is used while idle at the cost of a lock per publish
+public class BlockingWaitStrategy implements WaitStrategy {
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition published = lock.newCondition();
+
+    @Override
+    public boolean waitFor(long sequence, RingBuffer<?> ringBuffer) {
+        if (ringBuffer.isPublished(sequence)) {
+            return true;
+        }
+        lock.lock();
+        try {
+            while (!ringBuffer.isPublished(sequence)) {
+                if (ringBuffer.isHalted()) {
+                    return false;
+                }
+                published.await();
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void signalAllWhenBlocking() {
+        lock.lock();
+        try {
+            published.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package ordermatchingengine;
+
+//Lowest latency, the waiting thread never gives up its core
+public class BusySpinWaitStrategy implements WaitStrategy {
+    @Override
+    public boolean waitFor(long sequence, RingBuffer<?> ringBuffer) {
+        while (!ringBuffer.isPublished(sequence)) {
+            if (ringBuffer.isHalted()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void signalAllWhenBlocking() {
+    }
+}
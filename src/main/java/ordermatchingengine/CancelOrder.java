@@ -1,3 +1,5 @@
+package ordermatchingengine;
+
 public class CancelOrder extends NewOrder {
     private String origClOrderId;
 
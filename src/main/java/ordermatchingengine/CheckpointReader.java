@@ -0,0 +1,72 @@
+package ordermatchingengine;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+//Reads a checkpoint written by CheckpointWriter, in the same order it was written
+public class CheckpointReader implements AutoCloseable {
+    private static final Side[] SIDES = Side.values();
+    private static final OrderStatus[] ORDER_STATUSES = OrderStatus.values();
+    private final DataInputStream in;
+    private final List<NewOrder> readOrders = new ArrayList<>();
+
+    CheckpointReader(Path file) throws IOException {
+        this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 64 * 1024));
+        if (in.readInt() != CheckpointWriter.MAGIC) {
+            in.close();
+            throw new IOException(file + " is not a checkpoint");
+        }
+        int version = in.readInt();
+        if (version != CheckpointWriter.VERSION) {
+            in.close();
+            throw new IOException("Checkpoint version " + version + " of " + file + " is not supported");
+        }
+    }
+
+    int readInt() throws IOException {
+        return in.readInt();
+    }
+
+    long readLong() throws IOException {
+        return in.readLong();
+    }
+
+    String readString() throws IOException {
+        return in.readUTF();
+    }
+
+    OrderStatus readOrderStatus() throws IOException {
+        return ORDER_STATUSES[in.readByte()];
+    }
+
+    //Returns the same object for every reference to an order, or null
+    NewOrder readOrder() throws IOException {
+        int index = in.readInt();
+        if (index == CheckpointWriter.NO_ORDER) {
+            return null;
+        }
+        if (index < readOrders.size()) {
+            return readOrders.get(index);
+        }
+        String symbol = in.readUTF();
+        Side side = SIDES[in.readByte()];
+        int qty = in.readInt();
+        long price = in.readLong();
+        NewOrder order = NewOrder.withScaledPrice(symbol, side, qty, price, in.readUTF());
+        order.setOrderStatus(readOrderStatus());
+        order.priceAmendReplacement = in.readBoolean();
+        order.orderId = in.readLong();
+        readOrders.add(order);
+        return order;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -0,0 +1,88 @@
+package ordermatchingengine;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.IdentityHashMap;
+
+/*
+    Writes an engine checkpoint, see OrderMatchingEngineImpl.writeCheckpoint and CheckpointReader.
+    An order is written in full the first time it is referenced and as its index afterwards, so an order which rests on a book and is held in the order store is restored as one object.
+    The checkpoint is written to a temporary file which commit() moves over the target, a crash while checkpointing leaves the previous checkpoint intact.
+*/
+public class CheckpointWriter implements AutoCloseable {
+    static final int MAGIC = 0x4f4d4543;
+    static final int VERSION = 4;
+    static final int NO_ORDER = -1;
+    private final Path file;
+    private final Path temporaryFile;
+    private final DataOutputStream out;
+    private final IdentityHashMap<NewOrder, Integer> writtenOrders = new IdentityHashMap<>();
+    private boolean committed;
+
+    CheckpointWriter(Path file) throws IOException {
+        this.file = file;
+        this.temporaryFile = file.resolveSibling(file.getFileName() + ".tmp");
+        this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryFile), 64 * 1024));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+    }
+
+    void writeInt(int value) throws IOException {
+        out.writeInt(value);
+    }
+
+    void writeLong(long value) throws IOException {
+        out.writeLong(value);
+    }
+
+    void writeString(String value) throws IOException {
+        out.writeUTF(value);
+    }
+
+    void writeOrderStatus(OrderStatus orderStatus) throws IOException {
+        out.writeByte(orderStatus.ordinal());
+    }
+
+    //order may be null
+    void writeOrder(NewOrder order) throws IOException {
+        if (order == null) {
+            out.writeInt(NO_ORDER);
+            return;
+        }
+        Integer index = writtenOrders.get(order);
+        if (index != null) {
+            out.writeInt(index);
+            return;
+        }
+        out.writeInt(writtenOrders.size());
+        writtenOrders.put(order, writtenOrders.size());
+        out.writeUTF(order.getSymbol());
+        out.writeByte(order.getSide().ordinal());
+        out.writeInt(order.getQty());
+        out.writeLong(order.getScaledPrice());
+        out.writeUTF(order.getClOrderId());
+        writeOrderStatus(order.getOrderStatus());
+        out.writeBoolean(order.priceAmendReplacement);
+        out.writeLong(order.orderId);
+    }
+
+    //Makes the checkpoint the current one
+    void commit() throws IOException {
+        out.close();
+        Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        committed = true;
+    }
+
+    //Without commit() the partly written checkpoint is thrown away
+    @Override
+    public void close() throws IOException {
+        if (!committed) {
+            out.close();
+            Files.deleteIfExists(temporaryFile);
+        }
+    }
+}
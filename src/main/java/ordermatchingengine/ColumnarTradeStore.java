@@ -0,0 +1,312 @@
+package ordermatchingengine;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/*
+    Trade store which keeps trade id, order, quantity, price and transact time in primitive columns outside the heap.
+    Trades go into segments of segmentCapacity trades, one direct buffer per segment with one column after the other.
+    At most maxMemorySegments segments stay in direct memory, older ones are spilled to a file in spillDirectory and read back with positional reads on its channel,
+    the direct buffer of the spilled segment is re-used for the next segment so direct memory never grows past the cap.
+    Beyond maxRetainedSegments the oldest segment is dropped, its channel closed and its file deleted, nothing stays mapped once a segment is gone.
+    The heap only holds one entry per order with retained trades (its clOrdId and its latest trade), every trade of an order links to the previous one so getTrades walks just that order's trades.
+    Orders whose last trade was in a dropped segment leave the index and their order id is re-used.
+    Not thread safe, written and read by the matching thread.
+*/
+public class ColumnarTradeStore implements AutoCloseable {
+    private static final int TRADE_ID_COLUMN = 0;
+    private static final int ORDER_COLUMN = 8;
+    private static final int QTY_COLUMN = 12;
+    private static final int PRICE_COLUMN = 16;
+    private static final int TRANSACT_TIME_COLUMN = 24;
+    //Store index of the previous trade of the same order, NO_TRADE for its first trade
+    private static final int PREVIOUS_TRADE_COLUMN = 32;
+    private static final int BYTES_PER_TRADE = 40;
+    private static final long NO_TRADE = -1;
+
+    private final Path spillDirectory;
+    private final int segmentCapacity;
+    private final int maxMemorySegments;
+    private final int maxRetainedSegments;
+    //Retained segments oldest first, the first one holds the trade with index firstSegment * segmentCapacity
+    private final List<Segment> segments = new ArrayList<>();
+    private long firstSegment;
+    private int memorySegmentCount;
+    //Index the next trade gets, indexes count from 0 over the lifetime of the store
+    private long tradeCount;
+    private final OpenHashMap<String, Integer> orderIds = new OpenHashMap<>();
+    //Per order id, the clOrdId is needed to remove the order from orderIds once its trades are dropped
+    private String[] clOrdIdOfOrder = new String[1024];
+    private long[] latestTradeOfOrder = new long[1024];
+    private int orderIdCount;
+    //Order ids of dropped orders, handed out again before new ones
+    private int[] freeOrderIds = new int[16];
+    private int freeOrderIdCount;
+    //Column of a spilled segment read back in one go when it is dropped
+    private ByteBuffer droppedOrderColumn;
+    //Single value read back from a spilled segment
+    private final ByteBuffer spilledValue = ByteBuffer.allocate(8);
+
+    ColumnarTradeStore(Path spillDirectory, int segmentCapacity, int maxMemorySegments, int maxRetainedSegments) throws IOException {
+        if (segmentCapacity <= 0 || maxMemorySegments <= 0) {
+            throw new IllegalArgumentException("segmentCapacity and maxMemorySegments must be positive");
+        }
+        if (maxRetainedSegments < maxMemorySegments) {
+            throw new IllegalArgumentException("maxRetainedSegments must be at least maxMemorySegments");
+        }
+        if ((long) segmentCapacity * BYTES_PER_TRADE > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("A segment of " + segmentCapacity + " trades does not fit into one buffer");
+        }
+        this.spillDirectory = Files.createDirectories(spillDirectory);
+        this.segmentCapacity = segmentCapacity;
+        this.maxMemorySegments = maxMemorySegments;
+        this.maxRetainedSegments = maxRetainedSegments;
+    }
+
+    private static final class Segment {
+        //Null once the segment has been spilled
+        private ByteBuffer buffer;
+        //Set once the segment has been spilled
+        private Path file;
+        private FileChannel channel;
+
+        Segment(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+    }
+
+    void add(Trade trade) {
+        add(trade.getTradeID(), trade.getClOrdId(), trade.getTradeQty(), trade.getScaledTradePrice(), trade.getTransactTime());
+    }
+
+    //Allocates only for the first trade of an order and when a new segment starts
+    void add(long tradeId, String clOrdId, int qty, long scaledPrice, long transactTime) {
+        int slot = (int) (tradeCount % segmentCapacity);
+        if (slot == 0) {
+            startSegment();
+        }
+        int orderId = orderId(clOrdId);
+        ByteBuffer buffer = segments.get(segments.size() - 1).buffer;
+        buffer.putLong(columnOffset(TRADE_ID_COLUMN, slot), tradeId);
+        buffer.putInt(columnOffset(ORDER_COLUMN, slot), orderId);
+        buffer.putInt(columnOffset(QTY_COLUMN, slot), qty);
+        buffer.putLong(columnOffset(PRICE_COLUMN, slot), scaledPrice);
+        buffer.putLong(columnOffset(TRANSACT_TIME_COLUMN, slot), transactTime);
+        buffer.putLong(columnOffset(PREVIOUS_TRADE_COLUMN, slot), latestTradeOfOrder[orderId]);
+        latestTradeOfOrder[orderId] = tradeCount++;
+    }
+
+    //Columns are laid out one after the other, a column of 8 byte values takes 8 * segmentCapacity bytes
+    private int columnOffset(int column, int slot) {
+        int valueSize = (column == ORDER_COLUMN || column == QTY_COLUMN) ? 4 : 8;
+        return column * segmentCapacity + slot * valueSize;
+    }
+
+    private int orderId(String clOrdId) {
+        Integer orderId = orderIds.get(clOrdId);
+        if (orderId != null) {
+            return orderId;
+        }
+        if (freeOrderIdCount > 0) {
+            orderId = freeOrderIds[--freeOrderIdCount];
+        } else {
+            orderId = orderIdCount++;
+            if (orderId == latestTradeOfOrder.length) {
+                latestTradeOfOrder = Arrays.copyOf(latestTradeOfOrder, orderId * 2);
+                clOrdIdOfOrder = Arrays.copyOf(clOrdIdOfOrder, orderId * 2);
+            }
+        }
+        orderIds.put(clOrdId, orderId);
+        clOrdIdOfOrder[orderId] = clOrdId;
+        latestTradeOfOrder[orderId] = NO_TRADE;
+        return orderId;
+    }
+
+    //Removes the orders of the dropped segment which have no younger trade, firstSegment already points past the dropped segment
+    private void dropOrdersOf(Segment droppedSegment) throws IOException {
+        ByteBuffer orderColumn = droppedSegment.buffer;
+        int orderColumnOffset = columnOffset(ORDER_COLUMN, 0);
+        if (orderColumn == null) {
+            if (droppedOrderColumn == null) {
+                droppedOrderColumn = ByteBuffer.allocate(4 * segmentCapacity);
+            }
+            orderColumn = droppedOrderColumn;
+            orderColumnOffset = 0;
+            orderColumn.clear();
+            read(droppedSegment.channel, orderColumn, columnOffset(ORDER_COLUMN, 0));
+        }
+        long firstRetainedTrade = firstSegment * segmentCapacity;
+        for (int slot = 0; slot < segmentCapacity; slot++) {
+            int orderId = orderColumn.getInt(orderColumnOffset + slot * 4);
+            if (clOrdIdOfOrder[orderId] != null && latestTradeOfOrder[orderId] < firstRetainedTrade) {
+                orderIds.remove(clOrdIdOfOrder[orderId]);
+                clOrdIdOfOrder[orderId] = null;
+                if (freeOrderIdCount == freeOrderIds.length) {
+                    freeOrderIds = Arrays.copyOf(freeOrderIds, freeOrderIdCount * 2);
+                }
+                freeOrderIds[freeOrderIdCount++] = orderId;
+            }
+        }
+    }
+
+    //Fills target from its position to its limit
+    private static void read(FileChannel channel, ByteBuffer target, long position) throws IOException {
+        long start = position - target.position();
+        while (target.hasRemaining()) {
+            if (channel.read(target, start + target.position()) < 0) {
+                throw new IOException("Spilled trade segment is shorter than expected");
+            }
+        }
+    }
+
+    private void startSegment() {
+        ByteBuffer buffer = null;
+        try {
+            if (segments.size() == maxRetainedSegments) {
+                Segment droppedSegment = segments.remove(0);
+                firstSegment++;
+                dropOrdersOf(droppedSegment);
+                if (droppedSegment.file == null) {
+                    buffer = droppedSegment.buffer;
+                    memorySegmentCount--;
+                } else {
+                    release(droppedSegment);
+                }
+            }
+            if (buffer == null && memorySegmentCount == maxMemorySegments) {
+                buffer = spill(segments.get(segments.size() - memorySegmentCount));
+                memorySegmentCount--;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to spill trades to " + spillDirectory, e);
+        }
+        if (buffer == null) {
+            buffer = ByteBuffer.allocateDirect(segmentCapacity * BYTES_PER_TRADE);
+        }
+        segments.add(new Segment(buffer));
+        memorySegmentCount++;
+    }
+
+    //Writes the segment to its file, which stays open for reading it back, and returns the freed direct buffer
+    private ByteBuffer spill(Segment segment) throws IOException {
+        long segmentNumber = firstSegment + segments.indexOf(segment);
+        Path file = spillDirectory.resolve(String.format("trades-%010d.seg", segmentNumber));
+        ByteBuffer buffer = segment.buffer;
+        FileChannel fileChannel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            ByteBuffer contents = buffer.duplicate();
+            contents.clear();
+            while (contents.hasRemaining()) {
+                fileChannel.write(contents);
+            }
+        } catch (IOException e) {
+            fileChannel.close();
+            throw e;
+        }
+        segment.buffer = null;
+        segment.channel = fileChannel;
+        segment.file = file;
+        return buffer;
+    }
+
+    private static void release(Segment segment) throws IOException {
+        try {
+            segment.channel.close();
+        } finally {
+            Files.deleteIfExists(segment.file);
+        }
+    }
+
+    private long getLong(Segment segment, int column, int slot) {
+        if (segment.buffer != null) {
+            return segment.buffer.getLong(columnOffset(column, slot));
+        }
+        readSpilledValue(segment, column, slot, 8);
+        return spilledValue.getLong(0);
+    }
+
+    private int getInt(Segment segment, int column, int slot) {
+        if (segment.buffer != null) {
+            return segment.buffer.getInt(columnOffset(column, slot));
+        }
+        readSpilledValue(segment, column, slot, 4);
+        return spilledValue.getInt(0);
+    }
+
+    private void readSpilledValue(Segment segment, int column, int slot, int valueSize) {
+        try {
+            spilledValue.clear().limit(valueSize);
+            read(segment.channel, spilledValue, columnOffset(column, slot));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read spilled trades from " + segment.file, e);
+        }
+    }
+
+    //Trades of the order which are still retained, oldest first, or null if there are none
+    public List<Trade> getTrades(String clOrdId) {
+        Integer orderId = orderIds.get(clOrdId);
+        if (orderId == null) {
+            return null;
+        }
+        long firstRetainedTrade = firstSegment * segmentCapacity;
+        List<Trade> trades = new ArrayList<>();
+        for (long index = latestTradeOfOrder[orderId]; index >= firstRetainedTrade; ) {
+            Segment segment = segments.get((int) (index / segmentCapacity - firstSegment));
+            int slot = (int) (index % segmentCapacity);
+            Trade trade = new Trade(0, 0, 0, null);
+            trade.init(getLong(segment, TRADE_ID_COLUMN, slot), getInt(segment, QTY_COLUMN, slot),
+                    getLong(segment, PRICE_COLUMN, slot), clOrdId, getLong(segment, TRANSACT_TIME_COLUMN, slot));
+            trades.add(trade);
+            index = getLong(segment, PREVIOUS_TRADE_COLUMN, slot);
+        }
+        if (trades.isEmpty()) {
+            return null;
+        }
+        Collections.reverse(trades);
+        return trades;
+    }
+
+    //Every trade added so far, including the ones which are no longer retained
+    public long getTradeCount() {
+        return tradeCount;
+    }
+
+    public long getRetainedTradeCount() {
+        return tradeCount - firstSegment * segmentCapacity;
+    }
+
+    public int getMemorySegmentCount() {
+        return memorySegmentCount;
+    }
+
+    public int getSpilledSegmentCount() {
+        return segments.size() - memorySegmentCount;
+    }
+
+    //Orders with retained trades, the ones the heap index holds
+    public int getIndexedOrderCount() {
+        return orderIds.size();
+    }
+
+    //Closes and deletes the spill files, the store is a cache of the session and not meant to be reopened
+    @Override
+    public void close() throws IOException {
+        for (Segment segment : segments) {
+            if (segment.file != null) {
+                release(segment);
+            }
+        }
+        segments.clear();
+        memorySegmentCount = 0;
+    }
+}
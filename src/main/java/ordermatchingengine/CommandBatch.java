@@ -0,0 +1,97 @@
+package ordermatchingengine;
+
+/*
+    Reusable batch of commands for one symbol, entered with OrderMatchingEngine.enter(CommandBatch).
+    The whole batch is matched in one go, afterwards the batch holds the status of every command, the trades of the whole batch and a single top of book.
+*/
+public class CommandBatch {
+    private final String symbol;
+    private EngineCommand commands[];
+    private OrderStatus orderStatuses[];
+    private int size;
+    private final TradeBatch trades = new TradeBatch();
+    private TopOfBook topOfBook;
+
+    CommandBatch(String symbol, int initialCapacity) {
+        this.symbol = symbol;
+        this.commands = new EngineCommand[Math.max(1, initialCapacity)];
+        this.orderStatuses = new OrderStatus[commands.length];
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    //The caller's order is entered as it is, so its status and quantity follow the matching just like with enter(NewOrder)
+    public CommandBatch addNewOrder(NewOrder order) {
+        nextCommand().newOrder(order);
+        return this;
+    }
+
+    public CommandBatch addNewOrder(Side side, int qty, double price, String clOrdId) {
+        nextCommand().newOrder(symbol, side, qty, Prices.toScaled(price), clOrdId);
+        return this;
+    }
+
+    public CommandBatch addAmendOrder(Side side, int qty, double price, String origClOrdId, String clOrdId) {
+        nextCommand().amendOrder(symbol, side, qty, Prices.toScaled(price), origClOrdId, clOrdId);
+        return this;
+    }
+
+    public CommandBatch addCancelOrder(Side side, String origClOrdId, String clOrdId) {
+        nextCommand().cancelOrder(symbol, side, origClOrdId, clOrdId);
+        return this;
+    }
+
+    private EngineCommand nextCommand() {
+        if (size == commands.length) {
+            EngineCommand grownCommands[] = new EngineCommand[commands.length * 2];
+            System.arraycopy(commands, 0, grownCommands, 0, size);
+            commands = grownCommands;
+            orderStatuses = new OrderStatus[commands.length];
+        }
+        if (commands[size] == null) {
+            commands[size] = new EngineCommand();
+        }
+        return commands[size++];
+    }
+
+    //Empties the batch so it can be filled again, the command slots are kept
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            orderStatuses[i] = null;
+        }
+        size = 0;
+        topOfBook = null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    EngineCommand getCommand(int index) {
+        return commands[index];
+    }
+
+    void setOrderStatus(int index, OrderStatus orderStatus) {
+        orderStatuses[index] = orderStatus;
+    }
+
+    void setTopOfBook(TopOfBook topOfBook) {
+        this.topOfBook = topOfBook;
+    }
+
+    //Status the engine returned for the command at this position of the batch
+    public OrderStatus getOrderStatus(int index) {
+        return orderStatuses[index];
+    }
+
+    public TradeBatch getTrades() {
+        return trades;
+    }
+
+    //Top of book once the whole batch was matched
+    public TopOfBook getTopOfBook() {
+        return topOfBook;
+    }
+}
@@ -0,0 +1,73 @@
+package ordermatchingengine;
+
+/*
+    Snapshot holding its own copy of the levels of another snapshot, refilled in place by copyFrom.
+    Lets a ring slot keep a snapshot past the call which handed it over, the caller may reuse its snapshot (e.g. the flyweight of MarketDataFileReader) right away.
+    The arrays only grow, so a slot which has seen the deepest snapshot copies every later one without allocating.
+*/
+public class CopiedMarketDataBookSnapshot extends MarketDataBookSnapshot {
+    private String symbol;
+    private long prices[] = new long[0];
+    private int quantities[] = new int[0];
+    private int bidDepth;
+    private int askDepth;
+
+    CopiedMarketDataBookSnapshot() {
+    }
+
+    void copyFrom(MarketDataBookSnapshot marketDataBookSnapshot) {
+        symbol = marketDataBookSnapshot.getSymbol();
+        bidDepth = marketDataBookSnapshot.getBidDepth();
+        askDepth = marketDataBookSnapshot.getAskDepth();
+        int depth = bidDepth + askDepth;
+        if (prices.length < depth) {
+            prices = new long[depth];
+            quantities = new int[depth];
+        }
+        for (int i = 0; i < depth; i++) {
+            prices[i] = marketDataBookSnapshot.getScaledPrice(i);
+            quantities[i] = marketDataBookSnapshot.getQuantity(i);
+        }
+    }
+
+    @Override
+    public String getSymbol() {
+        return symbol;
+    }
+
+    @Override
+    public int getBidDepth() {
+        return bidDepth;
+    }
+
+    @Override
+    public int getAskDepth() {
+        return askDepth;
+    }
+
+    @Override
+    public long getScaledPrice(int index) {
+        return prices[index];
+    }
+
+    @Override
+    public int getQuantity(int index) {
+        return quantities[index];
+    }
+
+    //Copied on every call, the arrays behind the snapshot are longer than its depth
+    @Override
+    public long[] getScaledPrices() {
+        long scaledPrices[] = new long[bidDepth + askDepth];
+        System.arraycopy(prices, 0, scaledPrices, 0, scaledPrices.length);
+        return scaledPrices;
+    }
+
+    //Copied on every call, the arrays behind the snapshot are longer than its depth
+    @Override
+    public int[] getQuantities() {
+        int copiedQuantities[] = new int[bidDepth + askDepth];
+        System.arraycopy(quantities, 0, copiedQuantities, 0, copiedQuantities.length);
+        return copiedQuantities;
+    }
+}
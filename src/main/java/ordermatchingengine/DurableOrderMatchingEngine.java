@@ -0,0 +1,210 @@
+package ordermatchingengine;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+    OrderMatchingEngine which appends every command, market data snapshots included, to a WriteAheadLog before applying it.
+    Opening it on the directory of an earlier run first replays that log, which rebuilds the exact books, clOrdIds and trades of the run:
+    trade ids are handed out in command order and every trade is stamped with the logged time of its command instead of the clock.
+    So a backtest which crashed can be restarted from its log and carries on where it stopped.
+    checkpoint() saves the books, clOrdIds and id counters along with the log position they reflect, a restart then restores the checkpoint and only replays
+    the commands logged after it. Trades are not part of a checkpoint, after such a restart getTrades only reports the trades of the replayed and new commands.
+    The engine checks a command completely before it changes a book, e.g. snapshot prices off the tick grid or out of reach of a price ladder, so a command which
+    throws has changed nothing. It is marked failed in the log and skipped by the replay like it was by the run. An ExecutionListener must not throw,
+    a command it stops part way through is replayed as if it had not been entered.
+*/
+public class DurableOrderMatchingEngine implements OrderMatchingEngine, AutoCloseable {
+    static final String CHECKPOINT_FILE = "checkpoint.bin";
+    private final Path checkpointFile;
+    private final WriteAheadLog writeAheadLog;
+    private final OrderMatchingEngineImpl orderMatchingEngine;
+    private final NanoClock clock;
+    //Time of the command being applied, the trade history reads its trade timestamps from here
+    private long commandTime;
+    private final EngineCommand command = new EngineCommand();
+    //Log positions of the commands of the batch being entered
+    private long batchLogPositions[] = new long[16];
+    private final long replayedCommandCount;
+
+    DurableOrderMatchingEngine(Path logDirectory, OrderBookType orderBookType) throws IOException {
+        this(logDirectory, orderBookType, WriteAheadLog.DEFAULT_SEGMENT_SIZE, NanoClock.SYSTEM);
+    }
+
+    DurableOrderMatchingEngine(Path logDirectory, OrderBookType orderBookType, int segmentSize, NanoClock clock) throws IOException {
+        this.writeAheadLog = new WriteAheadLog(logDirectory, segmentSize);
+        this.checkpointFile = logDirectory.resolve(CHECKPOINT_FILE);
+        this.clock = clock;
+        TradeHistory tradeHistory = new TradeHistory();
+        tradeHistory.setClock(() -> commandTime);
+        this.orderMatchingEngine = new OrderMatchingEngineImpl(orderBookType, tradeHistory);
+        long replayFromLogPosition = 0;
+        if (Files.exists(checkpointFile)) {
+            try (CheckpointReader reader = new CheckpointReader(checkpointFile)) {
+                replayFromLogPosition = reader.readLong();
+                orderMatchingEngine.restoreCheckpoint(reader);
+            }
+        }
+        this.replayedCommandCount = writeAheadLog.replay(replayFromLogPosition, (loggedCommand, timestamp) -> {
+            commandTime = timestamp;
+            orderMatchingEngine.apply(loggedCommand);
+        });
+    }
+
+    //Number of commands recovered from the log when the engine was opened, the ones covered by the checkpoint are not counted
+    long getReplayedCommandCount() {
+        return replayedCommandCount;
+    }
+
+    //Logs the command stamped with the current time, which becomes the time of its trades, and returns its log position
+    private long log(EngineCommand command) {
+        commandTime = clock.nanoTime();
+        return append(command);
+    }
+
+    private long append(EngineCommand command) {
+        try {
+            return writeAheadLog.append(command, commandTime);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not append to the write ahead log", e);
+        }
+    }
+
+    private void markFailed(long logPosition) {
+        try {
+            writeAheadLog.markFailed(logPosition);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not mark a failed command in the write ahead log", e);
+        }
+    }
+
+    @Override
+    public void onMdSnapshot(MarketDataBookSnapshot marketDataBookSnapshot) {
+        command.marketDataSnapshot(marketDataBookSnapshot);
+        long logPosition = log(command);
+        try {
+            orderMatchingEngine.onMdSnapshot(marketDataBookSnapshot);
+        } catch (RuntimeException e) {
+            markFailed(logPosition);
+            throw e;
+        }
+    }
+
+    @Override
+    public OrderStatus enter(NewOrder order) {
+        command.newOrder(order);
+        long logPosition = log(command);
+        try {
+            return orderMatchingEngine.enter(order);
+        } catch (RuntimeException e) {
+            markFailed(logPosition);
+            throw e;
+        }
+    }
+
+    @Override
+    public OrderStatus enter(AmendOrder order) {
+        command.amendOrder(order.getSymbol(), order.getSide(), order.getQty(), order.getScaledPrice(), order.getOrigClOrderId(), order.getClOrderId());
+        long logPosition = log(command);
+        try {
+            return orderMatchingEngine.enter(order);
+        } catch (RuntimeException e) {
+            markFailed(logPosition);
+            throw e;
+        }
+    }
+
+    @Override
+    public OrderStatus enter(CancelOrder order) {
+        command.cancelOrder(order.getSymbol(), order.getSide(), order.getOrigClOrderId(), order.getClOrderId());
+        command.qty = order.getQty();
+        command.price = order.getScaledPrice();
+        long logPosition = log(command);
+        try {
+            return orderMatchingEngine.enter(order);
+        } catch (RuntimeException e) {
+            markFailed(logPosition);
+            throw e;
+        }
+    }
+
+    /*
+        All commands of the batch share one timestamp, a replay applies them one by one which matches them the same way.
+        If a command throws, it and the commands after it were never applied and are marked failed.
+    */
+    @Override
+    public void enter(CommandBatch batch) {
+        commandTime = clock.nanoTime();
+        if (batchLogPositions.length < batch.size()) {
+            batchLogPositions = Arrays.copyOf(batchLogPositions, Math.max(batch.size(), batchLogPositions.length * 2));
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            batchLogPositions[i] = append(batch.getCommand(i));
+        }
+        try {
+            orderMatchingEngine.enter(batch);
+        } catch (RuntimeException e) {
+            for (int i = 0; i < batch.size(); i++) {
+                if (batch.getOrderStatus(i) == null) {
+                    markFailed(batchLogPositions[i]);
+                }
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public TopOfBook getTopOfBook(String symbol) {
+        return orderMatchingEngine.getTopOfBook(symbol);
+    }
+
+    @Override
+    public List<Trade> getTrades(Order order) {
+        return orderMatchingEngine.getTrades(order);
+    }
+
+    @Override
+    public int getQuantityAtLevel(String symbol, Side side, double price) {
+        return orderMatchingEngine.getQuantityAtLevel(symbol, side, price);
+    }
+
+    @Override
+    public int getOrderCountAtLevel(String symbol, Side side, double price) {
+        return orderMatchingEngine.getOrderCountAtLevel(symbol, side, price);
+    }
+
+    @Override
+    public String dumpOrderBook(String symbol) {
+        return orderMatchingEngine.dumpOrderBook(symbol);
+    }
+
+    //Only sees commands entered after it is set, the commands replayed on open are not reported again
+    @Override
+    public void setExecutionListener(ExecutionListener executionListener) {
+        orderMatchingEngine.setExecutionListener(executionListener);
+    }
+
+    //Checkpoints the engine as of the last logged command, the log is synced first so the checkpoint never refers to commands which could be lost
+    void checkpoint() throws IOException {
+        writeAheadLog.sync();
+        try (CheckpointWriter writer = new CheckpointWriter(checkpointFile)) {
+            writer.writeLong(writeAheadLog.getLogPosition());
+            orderMatchingEngine.writeCheckpoint(writer);
+            writer.commit();
+        }
+    }
+
+    //Flushes the log to disk so the commands so far survive a crash of the machine as well
+    void sync() {
+        writeAheadLog.sync();
+    }
+
+    @Override
+    public void close() {
+        writeAheadLog.close();
+    }
+}
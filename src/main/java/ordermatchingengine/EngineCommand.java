@@ -0,0 +1,83 @@
+package ordermatchingengine;
+
+/*
+    Mutable command slot of the OrderMatchingPipeline and ShardedOrderMatchingEngine ring buffers.
+    Producers fill in the fields of the command type they publish, the slot is reused once the matching thread has processed it.
+*/
+public class EngineCommand {
+    public enum Type {
+        NEW_ORDER, AMEND_ORDER, CANCEL_ORDER, MARKET_DATA_SNAPSHOT
+    }
+
+    Type type;
+    String symbol;
+    Side side;
+    int qty;
+    //Scaled price, see Prices
+    long price;
+    String clOrdId;
+    //Order being amended or cancelled
+    String origClOrdId;
+    MarketDataBookSnapshot marketDataBookSnapshot;
+    //Slot's own copy of a snapshot handed over with copyMarketDataSnapshot, created on first use
+    private CopiedMarketDataBookSnapshot copiedSnapshot;
+    //Caller's own order object for a new order, when null the engine creates the order from the fields
+    NewOrder order;
+
+    void newOrder(String symbol, Side side, int qty, long price, String clOrdId) {
+        set(Type.NEW_ORDER, symbol, side, qty, price, clOrdId, null);
+    }
+
+    void newOrder(NewOrder order) {
+        set(Type.NEW_ORDER, order.getSymbol(), order.getSide(), order.getQty(), order.getScaledPrice(), order.getClOrderId(), null);
+        this.order = order;
+    }
+
+    void amendOrder(String symbol, Side side, int qty, long price, String origClOrdId, String clOrdId) {
+        set(Type.AMEND_ORDER, symbol, side, qty, price, clOrdId, origClOrdId);
+    }
+
+    void cancelOrder(String symbol, Side side, String origClOrdId, String clOrdId) {
+        set(Type.CANCEL_ORDER, symbol, side, 0, 0, clOrdId, origClOrdId);
+    }
+
+    //Refers to the caller's snapshot, which has to stay unchanged for as long as the command is used
+    void marketDataSnapshot(MarketDataBookSnapshot marketDataBookSnapshot) {
+        set(Type.MARKET_DATA_SNAPSHOT, marketDataBookSnapshot.getSymbol(), null, 0, 0, null, null);
+        this.marketDataBookSnapshot = marketDataBookSnapshot;
+    }
+
+    //Copies the levels into the slot, for commands applied on another thread after the caller has moved on
+    void copyMarketDataSnapshot(MarketDataBookSnapshot marketDataBookSnapshot) {
+        set(Type.MARKET_DATA_SNAPSHOT, marketDataBookSnapshot.getSymbol(), null, 0, 0, null, null);
+        if (copiedSnapshot == null) {
+            copiedSnapshot = new CopiedMarketDataBookSnapshot();
+        }
+        copiedSnapshot.copyFrom(marketDataBookSnapshot);
+        this.marketDataBookSnapshot = copiedSnapshot;
+    }
+
+    private void set(Type type, String symbol, Side side, int qty, long price, String clOrdId, String origClOrdId) {
+        this.type = type;
+        this.symbol = symbol;
+        this.side = side;
+        this.qty = qty;
+        this.price = price;
+        this.clOrdId = clOrdId;
+        this.origClOrdId = origClOrdId;
+        this.marketDataBookSnapshot = null;
+        this.order = null;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public String getClOrdId() {
+        return clOrdId;
+    }
+}
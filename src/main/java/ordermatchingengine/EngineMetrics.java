@@ -0,0 +1,143 @@
+package ordermatchingengine;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/*
+    Hot path instrumentation of one OrderMatchingEngineImpl: latency histograms in nanoseconds of enter(NewOrder), enter(AmendOrder), enter(CancelOrder)
+    and onMdSnapshot, plus the price levels walked and resting orders matched per matchOrder call.
+    The live instance is only touched by the matching thread. OrderMatchingEngineImpl.getMetrics() returns a copy which also holds the depth of every book.
+*/
+public class EngineMetrics {
+    private final Histogram newOrderLatency;
+    private final Histogram amendOrderLatency;
+    private final Histogram cancelOrderLatency;
+    private final Histogram marketDataSnapshotLatency;
+    private final Histogram levelsWalkedPerMatch;
+    private final Histogram ordersMatchedPerMatch;
+    private final Map<String, BookDepth> bookDepths;
+
+    EngineMetrics() {
+        this(new Histogram(), new Histogram(), new Histogram(), new Histogram(), new Histogram(), new Histogram(), Collections.emptyMap());
+    }
+
+    private EngineMetrics(Histogram newOrderLatency, Histogram amendOrderLatency, Histogram cancelOrderLatency, Histogram marketDataSnapshotLatency,
+                          Histogram levelsWalkedPerMatch, Histogram ordersMatchedPerMatch, Map<String, BookDepth> bookDepths) {
+        this.newOrderLatency = newOrderLatency;
+        this.amendOrderLatency = amendOrderLatency;
+        this.cancelOrderLatency = cancelOrderLatency;
+        this.marketDataSnapshotLatency = marketDataSnapshotLatency;
+        this.levelsWalkedPerMatch = levelsWalkedPerMatch;
+        this.ordersMatchedPerMatch = ordersMatchedPerMatch;
+        this.bookDepths = bookDepths;
+    }
+
+    //Copy of the histograms together with the depths of the books at this point
+    EngineMetrics snapshot(Map<String, BookDepth> bookDepths) {
+        return new EngineMetrics(newOrderLatency.copy(), amendOrderLatency.copy(), cancelOrderLatency.copy(), marketDataSnapshotLatency.copy(),
+                levelsWalkedPerMatch.copy(), ordersMatchedPerMatch.copy(), Collections.unmodifiableMap(new TreeMap<>(bookDepths)));
+    }
+
+    void recordMatch(int levelsWalked, int ordersMatched) {
+        levelsWalkedPerMatch.record(levelsWalked);
+        ordersMatchedPerMatch.record(ordersMatched);
+    }
+
+    void reset() {
+        newOrderLatency.reset();
+        amendOrderLatency.reset();
+        cancelOrderLatency.reset();
+        marketDataSnapshotLatency.reset();
+        levelsWalkedPerMatch.reset();
+        ordersMatchedPerMatch.reset();
+    }
+
+    public Histogram getNewOrderLatency() {
+        return newOrderLatency;
+    }
+
+    public Histogram getAmendOrderLatency() {
+        return amendOrderLatency;
+    }
+
+    public Histogram getCancelOrderLatency() {
+        return cancelOrderLatency;
+    }
+
+    public Histogram getMarketDataSnapshotLatency() {
+        return marketDataSnapshotLatency;
+    }
+
+    //Opposite side levels an aggressive order traded against, including a level it only partly took
+    public Histogram getLevelsWalkedPerMatch() {
+        return levelsWalkedPerMatch;
+    }
+
+    //Resting orders and slices, market data included, an aggressive order traded against
+    public Histogram getOrdersMatchedPerMatch() {
+        return ordersMatchedPerMatch;
+    }
+
+    //Per symbol, empty on the live instance
+    public Map<String, BookDepth> getBookDepths() {
+        return bookDepths;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder metrics = new StringBuilder();
+        metrics.append("newOrder[ns] ").append(newOrderLatency).append('\n');
+        metrics.append("amendOrder[ns] ").append(amendOrderLatency).append('\n');
+        metrics.append("cancelOrder[ns] ").append(cancelOrderLatency).append('\n');
+        metrics.append("marketDataSnapshot[ns] ").append(marketDataSnapshotLatency).append('\n');
+        metrics.append("levelsWalkedPerMatch ").append(levelsWalkedPerMatch).append('\n');
+        metrics.append("ordersMatchedPerMatch ").append(ordersMatchedPerMatch).append('\n');
+        for (BookDepth bookDepth : bookDepths.values()) {
+            metrics.append(bookDepth).append('\n');
+        }
+        return metrics.toString();
+    }
+
+    //Price levels and resting orders (market data and client slices) per side of one book
+    public static final class BookDepth {
+        private final String symbol;
+        private final int bidLevels;
+        private final int bidOrders;
+        private final int askLevels;
+        private final int askOrders;
+
+        BookDepth(String symbol, int bidLevels, int bidOrders, int askLevels, int askOrders) {
+            this.symbol = symbol;
+            this.bidLevels = bidLevels;
+            this.bidOrders = bidOrders;
+            this.askLevels = askLevels;
+            this.askOrders = askOrders;
+        }
+
+        public String getSymbol() {
+            return symbol;
+        }
+
+        public int getBidLevels() {
+            return bidLevels;
+        }
+
+        public int getBidOrders() {
+            return bidOrders;
+        }
+
+        public int getAskLevels() {
+            return askLevels;
+        }
+
+        public int getAskOrders() {
+            return askOrders;
+        }
+
+        @Override
+        public String toString() {
+            return symbol + " bidLevels=" + bidLevels + " bidOrders=" + bidOrders + " askLevels=" + askLevels + " askOrders=" + askOrders;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package ordermatchingengine;
+
+/*
+    Mutable result slot of the OrderMatchingPipeline, one result is published per command with the same sequence.
+    ShardedOrderMatchingEngine hands each shard's own result slot to its EngineResultHandler, the sequence is the one of the command in its shard's ring.
+    Trades holds copies of the fills the command generated, written into the slot by the matching thread, and is only valid while the result is being handled.
+    The copies never reference the TradeHistory, whose Trade objects are recycled once enough newer fills happened with a bounded history.
+*/
+public class EngineResult {
+    long sequence;
+    EngineCommand.Type type;
+    String symbol;
+    String clOrdId;
+    OrderStatus orderStatus;
+    TopOfBook topOfBook;
+    final TradeBatch trades = new TradeBatch();
+    //Last result of a batch of commands the matching thread processed in one go
+    boolean endOfBatch;
+    //Market data snapshot which a later snapshot of the same symbol replaced before it was applied
+    boolean conflated;
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public EngineCommand.Type getType() {
+        return type;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public String getClOrdId() {
+        return clOrdId;
+    }
+
+    //Status returned by the engine, null for market data snapshots
+    public OrderStatus getOrderStatus() {
+        return orderStatus;
+    }
+
+    public TopOfBook getTopOfBook() {
+        return topOfBook;
+    }
+
+    public TradeBatch getTrades() {
+        return trades;
+    }
+
+    public boolean isEndOfBatch() {
+        return endOfBatch;
+    }
+
+    public boolean isConflated() {
+        return conflated;
+    }
+}
@@ -0,0 +1,9 @@
+package ordermatchingengine;
+
+public interface EngineResultHandler {
+    EngineResultHandler NONE = result -> {
+    };
+
+    //The result slot is reused once this returns, so anything needed later has to be copied out
+    void onResult(EngineResult result);
+}
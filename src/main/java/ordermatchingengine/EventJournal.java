@@ -0,0 +1,52 @@
+package ordermatchingengine;
+
+/*
+    Audit trail of what the engine did, fed by the matching thread.
+    New orders are journaled when they are accepted (before they match), amends and cancels once they are processed, trades as they happen
+    and the top of book whenever it changed after a command or snapshot.
+*/
+public interface EventJournal {
+    EventJournal NONE = new EventJournal() {
+        @Override
+        public void onOrderAccepted(NewOrder order) {
+        }
+
+        @Override
+        public void onOrderRejected(NewOrder order) {
+        }
+
+        @Override
+        public void onOrderAmended(AmendOrder order) {
+        }
+
+        @Override
+        public void onOrderCancelled(CancelOrder order) {
+        }
+
+        @Override
+        public void onTrade(Trade trade) {
+        }
+
+        @Override
+        public void onTopOfBookChanged(TopOfBook topOfBook) {
+        }
+    };
+
+    //False if the journal could not record the order faithfully, e.g. a clOrdId longer than its records hold, the engine then rejects the order
+    default boolean canJournal(NewOrder order) {
+        return true;
+    }
+
+    void onOrderAccepted(NewOrder order);
+
+    //Rejected new orders, amends and cancels
+    void onOrderRejected(NewOrder order);
+
+    void onOrderAmended(AmendOrder order);
+
+    void onOrderCancelled(CancelOrder order);
+
+    void onTrade(Trade trade);
+
+    void onTopOfBookChanged(TopOfBook topOfBook);
+}
@@ -0,0 +1,114 @@
+package ordermatchingengine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/*
+    Offline reader of a BinaryEventJournal file, renders one line of text per record:
+    sequence timestamp TYPE symbol followed by the fields of the record type.
+    Usage: java EventJournalDecoder <journal file>
+*/
+public class EventJournalDecoder {
+    private static final Side[] SIDES = Side.values();
+    private static final OrderStatus[] ORDER_STATUSES = OrderStatus.values();
+
+    private EventJournalDecoder() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: java EventJournalDecoder <journal file>");
+            System.exit(1);
+        }
+        decode(Paths.get(args[0]), System.out);
+    }
+
+    //A trailing partial record, e.g. of a journal which was not closed, is ignored
+    static void decode(Path journalFile, Appendable out) throws IOException {
+        ByteBuffer record = ByteBuffer.allocate(BinaryEventJournal.RECORD_SIZE);
+        try (FileChannel fileChannel = FileChannel.open(journalFile, StandardOpenOption.READ)) {
+            while (true) {
+                record.clear();
+                while (record.hasRemaining()) {
+                    if (fileChannel.read(record) < 0) {
+                        return;
+                    }
+                }
+                out.append(decode(record)).append('\n');
+            }
+        }
+    }
+
+    static String decode(ByteBuffer record) {
+        StringBuilder line = new StringBuilder();
+        line.append(record.getLong(BinaryEventJournal.SEQUENCE_OFFSET)).append(' ')
+                .append(record.getLong(BinaryEventJournal.TIMESTAMP_OFFSET)).append(' ');
+        byte type = record.get(BinaryEventJournal.TYPE_OFFSET);
+        switch (type) {
+            case BinaryEventJournal.ORDER_ACCEPTED:
+                appendOrder(line.append("ORDER_ACCEPTED "), record);
+                break;
+            case BinaryEventJournal.ORDER_REJECTED:
+                appendOrder(line.append("ORDER_REJECTED "), record);
+                appendOrigClOrdId(line, record);
+                break;
+            case BinaryEventJournal.ORDER_AMENDED:
+                appendOrder(line.append("ORDER_AMENDED "), record);
+                appendOrigClOrdId(line, record);
+                break;
+            case BinaryEventJournal.ORDER_CANCELLED:
+                appendOrder(line.append("ORDER_CANCELLED "), record);
+                appendOrigClOrdId(line, record);
+                break;
+            case BinaryEventJournal.TRADE:
+                appendOrder(line.append("TRADE "), record);
+                line.append(" tradeId=").append(record.getLong(BinaryEventJournal.TRADE_ID_OFFSET));
+                break;
+            case BinaryEventJournal.TOP_OF_BOOK_CHANGED:
+                line.append("TOP_OF_BOOK_CHANGED ").append(getAscii(record, BinaryEventJournal.SYMBOL_OFFSET, BinaryEventJournal.SYMBOL_LENGTH))
+                        .append(" bid=").append(record.getInt(BinaryEventJournal.BID_QTY_OFFSET))
+                        .append('@').append(Prices.toDouble(record.getLong(BinaryEventJournal.PRICE_OFFSET)))
+                        .append(" ask=").append(record.getInt(BinaryEventJournal.ASK_QTY_OFFSET))
+                        .append('@').append(Prices.toDouble(record.getLong(BinaryEventJournal.TRADE_ID_OFFSET)));
+                break;
+            default:
+                line.append("UNKNOWN type=").append(type);
+        }
+        if ((record.get(BinaryEventJournal.FLAGS_OFFSET) & BinaryEventJournal.TRUNCATED) != 0) {
+            line.append(" truncated");
+        }
+        return line.toString();
+    }
+
+    private static void appendOrder(StringBuilder line, ByteBuffer record) {
+        line.append(getAscii(record, BinaryEventJournal.SYMBOL_OFFSET, BinaryEventJournal.SYMBOL_LENGTH))
+                .append(' ').append(decode(SIDES, record.get(BinaryEventJournal.SIDE_OFFSET)))
+                .append(" qty=").append(record.getInt(BinaryEventJournal.QTY_OFFSET))
+                .append(" price=").append(Prices.toDouble(record.getLong(BinaryEventJournal.PRICE_OFFSET)))
+                .append(" status=").append(decode(ORDER_STATUSES, record.get(BinaryEventJournal.ORDER_STATUS_OFFSET)))
+                .append(" clOrdId=").append(getAscii(record, BinaryEventJournal.CL_ORD_ID_OFFSET, BinaryEventJournal.CL_ORD_ID_LENGTH));
+    }
+
+    private static void appendOrigClOrdId(StringBuilder line, ByteBuffer record) {
+        String origClOrdId = getAscii(record, BinaryEventJournal.ORIG_CL_ORD_ID_OFFSET, BinaryEventJournal.CL_ORD_ID_LENGTH);
+        if (!origClOrdId.isEmpty()) {
+            line.append(" origClOrdId=").append(origClOrdId);
+        }
+    }
+
+    private static Object decode(Enum<?>[] values, byte code) {
+        return code == 0 ? "-" : values[code - 1];
+    }
+
+    private static String getAscii(ByteBuffer record, int offset, int length) {
+        StringBuilder value = new StringBuilder(length);
+        for (int i = 0; i < length && record.get(offset + i) != 0; i++) {
+            value.append((char) record.get(offset + i));
+        }
+        return value.toString();
+    }
+}
@@ -0,0 +1,12 @@
+package ordermatchingengine;
+
+/*
+    Push alternative to polling getTrades: called synchronously on the matching thread for every order state change and fill.
+    The report is one re-used object which is refilled for the next event, a listener which keeps anything has to copy it.
+*/
+public interface ExecutionListener {
+    ExecutionListener NONE = report -> {
+    };
+
+    void onExecutionReport(ExecutionReport report);
+}
@@ -0,0 +1,115 @@
+package ordermatchingengine;
+
+/*
+    Mutable event handed to an ExecutionListener, refilled by the engine for every event.
+    A fill is reported for the aggressing order and, when it is one of ours, for the resting order it traded against, both with the same trade id.
+    The status and leaves quantity of a fill are those of the whole client order, an order amended up is only FILLED once none of its slices is left.
+*/
+public class ExecutionReport {
+    public enum Type {
+        ORDER_ACCEPTED, ORDER_REJECTED, ORDER_AMENDED, ORDER_CANCELLED, FILL
+    }
+
+    private Type type;
+    private String symbol;
+    private Side side;
+    private String clOrdId;
+    private String origClOrdId;
+    private OrderStatus orderStatus;
+    private int leavesQty;
+    private int lastQty;
+    private long lastPrice;
+    private long tradeId;
+    private long transactTime;
+    private boolean aggressor;
+
+    void order(Type type, Order order, String origClOrdId, OrderStatus orderStatus) {
+        set(type, order.getSymbol(), order.getSide(), order.getClOrderId(), origClOrdId, orderStatus, order.getQty());
+        this.lastQty = 0;
+        this.lastPrice = 0;
+        this.tradeId = 0;
+        this.transactTime = 0;
+        this.aggressor = false;
+    }
+
+    //order is the filled aggressor or resting slice, leavesQty what is left of its client order over all of its slices
+    void fill(Trade trade, Order order, int leavesQty, boolean aggressor) {
+        set(Type.FILL, order.getSymbol(), order.getSide(), order.getClOrderId(), null, leavesQty == 0 ? OrderStatus.FILLED : OrderStatus.PARTIALLY_FILLED, leavesQty);
+        this.lastQty = trade.getTradeQty();
+        this.lastPrice = trade.getScaledTradePrice();
+        this.tradeId = trade.getTradeID();
+        this.transactTime = trade.getTransactTime();
+        this.aggressor = aggressor;
+    }
+
+    private void set(Type type, String symbol, Side side, String clOrdId, String origClOrdId, OrderStatus orderStatus, int leavesQty) {
+        this.type = type;
+        this.symbol = symbol;
+        this.side = side;
+        this.clOrdId = clOrdId;
+        this.origClOrdId = origClOrdId;
+        this.orderStatus = orderStatus;
+        this.leavesQty = leavesQty;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public Side getSide() {
+        return side;
+    }
+
+    public String getClOrdId() {
+        return clOrdId;
+    }
+
+    //Order an amend or cancel refers to, null for other reports
+    public String getOrigClOrdId() {
+        return origClOrdId;
+    }
+
+    public OrderStatus getOrderStatus() {
+        return orderStatus;
+    }
+
+    //Open quantity after the event, for a fill of an amended up order the quantity left in all of its slices
+    public int getLeavesQty() {
+        return leavesQty;
+    }
+
+    public int getLastQty() {
+        return lastQty;
+    }
+
+    public double getLastPrice() {
+        return Prices.toDouble(lastPrice);
+    }
+
+    public long getScaledLastPrice() {
+        return lastPrice;
+    }
+
+    public long getTradeId() {
+        return tradeId;
+    }
+
+    public long getTransactTime() {
+        return transactTime;
+    }
+
+    public boolean isAggressor() {
+        return aggressor;
+    }
+
+    @Override
+    public String toString() {
+        return "ExecutionReport [type=" + type + ", symbol=" + symbol + ", side=" + side + ", clOrdId=" + clOrdId + ", origClOrdId=" + origClOrdId
+                + ", orderStatus=" + orderStatus + ", leavesQty=" + leavesQty + ", lastQty=" + lastQty + ", lastPrice=" + getLastPrice()
+                + ", tradeId=" + tradeId + ", aggressor=" + aggressor + "]";
+    }
+}
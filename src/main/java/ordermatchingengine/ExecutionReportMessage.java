@@ -0,0 +1,114 @@
+package ordermatchingengine;
+
+import java.nio.ByteBuffer;
+
+/*
+    Flyweight over an execution report message of the OrderEntryCodec, encode copies an ExecutionReport of the engine into the wrapped message.
+    Layout: type, side, order status, report type, aggressor flag, leaves and last qty, scaled last price, trade id, transact time, symbol, clOrdId and origClOrdId.
+    Unknown codes read as null instead of failing, isValid checks them all.
+*/
+public class ExecutionReportMessage {
+    private static final int SIDE_OFFSET = 1;
+    private static final int ORDER_STATUS_OFFSET = 2;
+    private static final int REPORT_TYPE_OFFSET = 3;
+    private static final int AGGRESSOR_OFFSET = 4;
+    private static final int LEAVES_QTY_OFFSET = 8;
+    private static final int LAST_QTY_OFFSET = 12;
+    private static final int LAST_PRICE_OFFSET = 16;
+    private static final int TRADE_ID_OFFSET = 24;
+    private static final int TRANSACT_TIME_OFFSET = 32;
+    private static final int SYMBOL_OFFSET = 40;
+    private static final int CL_ORD_ID_OFFSET = 56;
+    private static final int ORIG_CL_ORD_ID_OFFSET = 88;
+    private static final ExecutionReport.Type[] REPORT_TYPES = ExecutionReport.Type.values();
+    private final AsciiStringCache strings;
+    private ByteBuffer buffer;
+    private int offset;
+
+    ExecutionReportMessage() {
+        this(new AsciiStringCache(4096));
+    }
+
+    ExecutionReportMessage(AsciiStringCache strings) {
+        this.strings = strings;
+    }
+
+    ExecutionReportMessage wrap(ByteBuffer buffer, int offset) {
+        this.buffer = buffer;
+        this.offset = offset;
+        return this;
+    }
+
+    void encode(ExecutionReport report) {
+        OrderEntryCodec.clear(buffer, offset, OrderEntryCodec.EXECUTION_REPORT);
+        buffer.put(offset + SIDE_OFFSET, OrderEntryCodec.sideCode(report.getSide()));
+        buffer.put(offset + ORDER_STATUS_OFFSET, OrderEntryCodec.statusCode(report.getOrderStatus()));
+        buffer.put(offset + REPORT_TYPE_OFFSET, (byte) report.getType().ordinal());
+        buffer.put(offset + AGGRESSOR_OFFSET, report.isAggressor() ? (byte) 1 : (byte) 0);
+        buffer.putInt(offset + LEAVES_QTY_OFFSET, report.getLeavesQty());
+        buffer.putInt(offset + LAST_QTY_OFFSET, report.getLastQty());
+        buffer.putLong(offset + LAST_PRICE_OFFSET, report.getScaledLastPrice());
+        buffer.putLong(offset + TRADE_ID_OFFSET, report.getTradeId());
+        buffer.putLong(offset + TRANSACT_TIME_OFFSET, report.getTransactTime());
+        OrderEntryCodec.putAscii(buffer, offset + SYMBOL_OFFSET, OrderEntryCodec.SYMBOL_LENGTH, report.getSymbol());
+        OrderEntryCodec.putAscii(buffer, offset + CL_ORD_ID_OFFSET, OrderEntryCodec.CL_ORD_ID_LENGTH, report.getClOrdId());
+        OrderEntryCodec.putAscii(buffer, offset + ORIG_CL_ORD_ID_OFFSET, OrderEntryCodec.CL_ORD_ID_LENGTH, report.getOrigClOrdId());
+    }
+
+    //Execution report with a known report type, status and side, the side is only missing for reports on messages rejected for their side
+    public boolean isValid() {
+        byte sideCode = buffer.get(offset + SIDE_OFFSET);
+        return OrderEntryCodec.messageType(buffer, offset) == OrderEntryCodec.EXECUTION_REPORT && getReportType() != null && getOrderStatus() != null
+                && (sideCode == 0 || OrderEntryCodec.isSideCode(sideCode));
+    }
+
+    //Null if the report type code is unknown
+    public ExecutionReport.Type getReportType() {
+        byte reportTypeCode = buffer.get(offset + REPORT_TYPE_OFFSET);
+        return reportTypeCode >= 0 && reportTypeCode < REPORT_TYPES.length ? REPORT_TYPES[reportTypeCode] : null;
+    }
+
+    public String getSymbol() {
+        return strings.get(buffer, offset + SYMBOL_OFFSET, OrderEntryCodec.SYMBOL_LENGTH);
+    }
+
+    public Side getSide() {
+        return OrderEntryCodec.side(buffer.get(offset + SIDE_OFFSET));
+    }
+
+    public String getClOrdId() {
+        return strings.get(buffer, offset + CL_ORD_ID_OFFSET, OrderEntryCodec.CL_ORD_ID_LENGTH);
+    }
+
+    public String getOrigClOrdId() {
+        return strings.get(buffer, offset + ORIG_CL_ORD_ID_OFFSET, OrderEntryCodec.CL_ORD_ID_LENGTH);
+    }
+
+    public OrderStatus getOrderStatus() {
+        return OrderEntryCodec.orderStatus(buffer.get(offset + ORDER_STATUS_OFFSET));
+    }
+
+    public int getLeavesQty() {
+        return buffer.getInt(offset + LEAVES_QTY_OFFSET);
+    }
+
+    public int getLastQty() {
+        return buffer.getInt(offset + LAST_QTY_OFFSET);
+    }
+
+    public long getScaledLastPrice() {
+        return buffer.getLong(offset + LAST_PRICE_OFFSET);
+    }
+
+    public long getTradeId() {
+        return buffer.getLong(offset + TRADE_ID_OFFSET);
+    }
+
+    public long getTransactTime() {
+        return buffer.getLong(offset + TRANSACT_TIME_OFFSET);
+    }
+
+    public boolean isAggressor() {
+        return buffer.get(offset + AGGRESSOR_OFFSET) != 0;
+    }
+}
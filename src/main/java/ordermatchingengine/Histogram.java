@@ -0,0 +1,120 @@
+package ordermatchingengine;
+
+import java.util.Arrays;
+
+/*
+    Log bucketed histogram of non negative long values in the style of HdrHistogram, used for latencies in nanoseconds and for counts per call.
+    Values below 64 get a bucket each, above that every power of two is split into 32 buckets, so a value is known to within about 3%.
+    All buckets are allocated up front, record() only increments counters and never allocates.
+    Not thread safe, a histogram is written and read by one thread, copy() hands a consistent view to another.
+*/
+public class Histogram {
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int HALF_SUB_BUCKET_BITS = SUB_BUCKET_BITS - 1;
+    private static final int BUCKET_COUNT = bucketIndex(Long.MAX_VALUE) + 1;
+
+    private final long[] counts = new long[BUCKET_COUNT];
+    private long count;
+    private long min = Long.MAX_VALUE;
+    private long max;
+    private long total;
+
+    //Values below SUB_BUCKET_COUNT are exact, above that the top SUB_BUCKET_BITS bits of the value pick the bucket
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - HALF_SUB_BUCKET_BITS;
+        return (shift << HALF_SUB_BUCKET_BITS) + (int) (value >>> shift);
+    }
+
+    //Smallest value which falls into the bucket
+    static long bucketLowestValue(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = (index >>> HALF_SUB_BUCKET_BITS) - 1;
+        return (long) ((index & ((1 << HALF_SUB_BUCKET_BITS) - 1)) + (1 << HALF_SUB_BUCKET_BITS)) << shift;
+    }
+
+    static long bucketHighestValue(int index) {
+        return index == BUCKET_COUNT - 1 ? Long.MAX_VALUE : bucketLowestValue(index + 1) - 1;
+    }
+
+    //Negative values, e.g. from a clock stepping back, are recorded as 0
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        counts[bucketIndex(value)]++;
+        count++;
+        total += value;
+        if (value < min) {
+            min = value;
+        }
+        if (value > max) {
+            max = value;
+        }
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    //0 when nothing was recorded
+    public long getMin() {
+        return count == 0 ? 0 : min;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public double getMean() {
+        return count == 0 ? 0 : (double) total / count;
+    }
+
+    //Highest value of the bucket holding the percentile (0-100), never more than the largest recorded value
+    public long getValueAtPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("percentile must be between 0 and 100");
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(bucketHighestValue(i), max);
+            }
+        }
+        return max;
+    }
+
+    public void reset() {
+        Arrays.fill(counts, 0);
+        count = 0;
+        min = Long.MAX_VALUE;
+        max = 0;
+        total = 0;
+    }
+
+    public Histogram copy() {
+        Histogram copy = new Histogram();
+        System.arraycopy(counts, 0, copy.counts, 0, BUCKET_COUNT);
+        copy.count = count;
+        copy.min = min;
+        copy.max = max;
+        copy.total = total;
+        return copy;
+    }
+
+    @Override
+    public String toString() {
+        return "count=" + count + " min=" + getMin() + " p50=" + getValueAtPercentile(50) + " p90=" + getValueAtPercentile(90) + " p99=" + getValueAtPercentile(99)
+                + " p99.9=" + getValueAtPercentile(99.9) + " max=" + max + " mean=" + String.format("%.1f", getMean());
+    }
+}
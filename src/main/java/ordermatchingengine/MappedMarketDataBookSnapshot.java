@@ -0,0 +1,90 @@
+package ordermatchingengine;
+
+import java.nio.ByteBuffer;
+
+/*
+    Flyweight view of one snapshot record of a market data file, see MarketDataFileReader.
+    Prices and quantities are read straight from the mapped file, the view is re-pointed at the next record when the reader moves on.
+    It is only valid until then: consumers which keep the snapshot or hand it to another thread need a copy(), OrderMatchingPipeline copies it into its command slot by itself.
+*/
+public class MappedMarketDataBookSnapshot extends MarketDataBookSnapshot {
+    private String symbol;
+    private int symbolId;
+    private long timestamp;
+    private int bidDepth;
+    private int askDepth;
+    private ByteBuffer buffer;
+    //Offset of the first price in the window, the quantities follow the prices
+    private int pricesOffset;
+
+    MappedMarketDataBookSnapshot() {
+    }
+
+    void wrap(String symbol, int symbolId, long timestamp, int bidDepth, int askDepth, ByteBuffer buffer, int pricesOffset) {
+        this.symbol = symbol;
+        this.symbolId = symbolId;
+        this.timestamp = timestamp;
+        this.bidDepth = bidDepth;
+        this.askDepth = askDepth;
+        this.buffer = buffer;
+        this.pricesOffset = pricesOffset;
+    }
+
+    @Override
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public int getSymbolId() {
+        return symbolId;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public int getBidDepth() {
+        return bidDepth;
+    }
+
+    @Override
+    public int getAskDepth() {
+        return askDepth;
+    }
+
+    @Override
+    public long getScaledPrice(int index) {
+        return buffer.getLong(pricesOffset + index * 8);
+    }
+
+    @Override
+    public int getQuantity(int index) {
+        return buffer.getInt(pricesOffset + (bidDepth + askDepth) * 8 + index * 4);
+    }
+
+    //Copied out of the file on every call
+    @Override
+    public long[] getScaledPrices() {
+        long prices[] = new long[bidDepth + askDepth];
+        for (int i = 0; i < prices.length; i++) {
+            prices[i] = getScaledPrice(i);
+        }
+        return prices;
+    }
+
+    //Copied out of the file on every call
+    @Override
+    public int[] getQuantities() {
+        int quantities[] = new int[bidDepth + askDepth];
+        for (int i = 0; i < quantities.length; i++) {
+            quantities[i] = getQuantity(i);
+        }
+        return quantities;
+    }
+
+    //Heap snapshot of the current record which stays valid after the reader has moved on
+    public MarketDataBookSnapshot copy() {
+        return new MarketDataBookSnapshot(symbol, getScaledPrices(), getQuantities(), bidDepth, askDepth);
+    }
+}
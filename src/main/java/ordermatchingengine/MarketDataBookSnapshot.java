@@ -0,0 +1,98 @@
+package ordermatchingengine;
+
+/*
+    Level 2 snapshot of one symbol with an explicit depth per side.
+    Prices and quantities are flat arrays in ascending price order, the first bidDepth entries are the bids (best bid last) followed by askDepth asks (best ask first),
+    so the book loads a snapshot of any depth straight from the arrays.
+    The book reads a snapshot through getScaledPrice(i)/getQuantity(i) only, which lets MappedMarketDataBookSnapshot serve them straight from a mapped file.
+*/
+public class MarketDataBookSnapshot {
+    private final String symbol;
+    private final long prices[];
+    private final int quantities[];
+    private final int bidDepth;
+    private final int askDepth;
+
+    //Bids and asks of equal depth, i.e. the first half of the arrays are bids and the second half asks
+    MarketDataBookSnapshot(String symbol, double prices[], int quantities[]) {
+        this(symbol, prices, quantities, prices.length / 2, prices.length - prices.length / 2);
+    }
+
+    MarketDataBookSnapshot(String symbol, double prices[], int quantities[], int bidDepth, int askDepth) {
+        this(symbol, toScaledPrices(prices), quantities, bidDepth, askDepth);
+    }
+
+    MarketDataBookSnapshot(String symbol, long scaledPrices[], int quantities[]) {
+        this(symbol, scaledPrices, quantities, scaledPrices.length / 2, scaledPrices.length - scaledPrices.length / 2);
+    }
+
+    MarketDataBookSnapshot(String symbol, long scaledPrices[], int quantities[], int bidDepth, int askDepth) {
+        if (bidDepth < 0 || askDepth < 0 || scaledPrices.length < bidDepth + askDepth || quantities.length < bidDepth + askDepth) {
+            throw new IllegalArgumentException("Snapshot of " + symbol + " needs " + (bidDepth + askDepth) + " prices and quantities for depth " + bidDepth + "x" + askDepth);
+        }
+        this.symbol = symbol;
+        this.prices = scaledPrices;
+        this.quantities = quantities;
+        this.bidDepth = bidDepth;
+        this.askDepth = askDepth;
+    }
+
+    //For flyweight subclasses which override every getter
+    MarketDataBookSnapshot() {
+        this.symbol = null;
+        this.prices = null;
+        this.quantities = null;
+        this.bidDepth = 0;
+        this.askDepth = 0;
+    }
+
+    private static long[] toScaledPrices(double prices[]) {
+        long scaledPrices[] = new long[prices.length];
+        for (int i = 0; i < prices.length; i++) {
+            scaledPrices[i] = Prices.toScaled(prices[i]);
+        }
+        return scaledPrices;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    //A mapped snapshot copies its prices on every getScaledPrices(), so they are fetched once
+    public double[] getPrices() {
+        long scaledPrices[] = getScaledPrices();
+        double doublePrices[] = new double[scaledPrices.length];
+        for (int i = 0; i < doublePrices.length; i++) {
+            doublePrices[i] = Prices.toDouble(scaledPrices[i]);
+        }
+        return doublePrices;
+    }
+
+    public long[] getScaledPrices() {
+        return prices;
+    }
+
+    public int[] getQuantities() {
+        return quantities;
+    }
+
+    //Scaled price of level index in the bids-then-asks order described above
+    public long getScaledPrice(int index) {
+        return prices[index];
+    }
+
+    public int getQuantity(int index) {
+        return quantities[index];
+    }
+
+    //Number of bid levels, held at indices bidDepth - 1 (best) down to 0
+    public int getBidDepth() {
+        return bidDepth;
+    }
+
+    //Number of ask levels, held at indices bidDepth (best) up to bidDepth + askDepth - 1
+    public int getAskDepth() {
+        return askDepth;
+    }
+
+}
@@ -0,0 +1,139 @@
+package ordermatchingengine;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+    Streams the snapshots of a file written by MarketDataFileWriter through a MappedMarketDataBookSnapshot flyweight.
+    The file is mapped in windows of windowSize bytes which move forward with the reader, so files far larger than the heap (or 2GB) are read sequentially
+    with only the current window mapped and without copying or allocating per snapshot.
+    A record cut short at the end of the file, e.g. by a writer which did not finish, ends the stream.
+*/
+public class MarketDataFileReader implements AutoCloseable {
+    static final int DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+    private final FileChannel fileChannel;
+    private final long fileSize;
+    private final int windowSize;
+    private MappedByteBuffer window;
+    //File offset of the window and of the next record
+    private long windowOffset;
+    private long position;
+    private final List<String> symbols = new ArrayList<>();
+    private final MappedMarketDataBookSnapshot snapshot = new MappedMarketDataBookSnapshot();
+
+    MarketDataFileReader(Path file) throws IOException {
+        this(file, DEFAULT_WINDOW_SIZE);
+    }
+
+    MarketDataFileReader(Path file, int windowSize) throws IOException {
+        if (windowSize < 1024) {
+            throw new IllegalArgumentException("windowSize must be at least 1024 bytes");
+        }
+        this.fileChannel = FileChannel.open(file, StandardOpenOption.READ);
+        this.fileSize = fileChannel.size();
+        this.windowSize = windowSize;
+        if (!isAvailable(8) || window.getInt(0) != MarketDataFileWriter.MAGIC) {
+            fileChannel.close();
+            throw new IOException(file + " is not a market data file");
+        }
+        if (window.getInt(4) != MarketDataFileWriter.VERSION) {
+            fileChannel.close();
+            throw new IOException("Market data file version " + window.getInt(4) + " of " + file + " is not supported");
+        }
+        position = 8;
+    }
+
+    //Maps a new window starting at the current position if the next size bytes are not inside the current one, false if the file ends before
+    private boolean isAvailable(int size) throws IOException {
+        if (position + size > fileSize) {
+            return false;
+        }
+        if (window == null || position + size > windowOffset + window.limit()) {
+            if (size > windowSize) {
+                throw new IOException("Record of " + size + " bytes at " + position + " does not fit into a window of " + windowSize + " bytes");
+            }
+            windowOffset = position;
+            window = fileChannel.map(FileChannel.MapMode.READ_ONLY, windowOffset, Math.min(windowSize, fileSize - windowOffset));
+        }
+        return true;
+    }
+
+    //Moves the snapshot() view to the next snapshot, false at the end of the file
+    boolean next() throws IOException {
+        while (isAvailable(1)) {
+            byte recordType = window.get((int) (position - windowOffset));
+            if (recordType == MarketDataFileWriter.SYMBOL_RECORD) {
+                if (!readSymbol()) {
+                    return false;
+                }
+            } else if (recordType == MarketDataFileWriter.SNAPSHOT_RECORD) {
+                return readSnapshot();
+            } else {
+                throw new IOException("Unknown record type " + recordType + " at " + position);
+            }
+        }
+        return false;
+    }
+
+    private boolean readSymbol() throws IOException {
+        if (!isAvailable(9)) {
+            return false;
+        }
+        int offset = (int) (position - windowOffset);
+        int length = window.getInt(offset + 5);
+        if (!isAvailable(9 + length * 2)) {
+            return false;
+        }
+        offset = (int) (position - windowOffset);
+        char chars[] = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = window.getChar(offset + 9 + i * 2);
+        }
+        symbols.add(new String(chars));
+        position += 9 + length * 2;
+        return true;
+    }
+
+    private boolean readSnapshot() throws IOException {
+        if (!isAvailable(MarketDataFileWriter.SNAPSHOT_HEADER_SIZE)) {
+            return false;
+        }
+        int offset = (int) (position - windowOffset);
+        int bidDepth = window.getInt(offset + 13);
+        int askDepth = window.getInt(offset + 17);
+        int recordSize = MarketDataFileWriter.SNAPSHOT_HEADER_SIZE + (bidDepth + askDepth) * 12;
+        if (!isAvailable(recordSize)) {
+            return false;
+        }
+        offset = (int) (position - windowOffset);
+        int symbolId = window.getInt(offset + 1);
+        snapshot.wrap(symbols.get(symbolId), symbolId, window.getLong(offset + 5), bidDepth, askDepth, window, offset + MarketDataFileWriter.SNAPSHOT_HEADER_SIZE);
+        position += recordSize;
+        return true;
+    }
+
+    //The current snapshot, only valid until the next call to next()
+    MappedMarketDataBookSnapshot snapshot() {
+        return snapshot;
+    }
+
+    //Feeds every remaining snapshot to the engine, which has to apply it before returning (see MappedMarketDataBookSnapshot)
+    long feed(OrderMatchingEngine orderMatchingEngine) throws IOException {
+        long snapshotCount = 0;
+        while (next()) {
+            orderMatchingEngine.onMdSnapshot(snapshot);
+            snapshotCount++;
+        }
+        return snapshotCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        fileChannel.close();
+    }
+}
@@ -0,0 +1,89 @@
+package ordermatchingengine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+    Writes L2 snapshots into the binary market data file read by MarketDataFileReader.
+    File: int MAGIC | int VERSION | records, a record starts with its type byte:
+    SYMBOL_RECORD: int symbolId | int length | chars, written the first time a symbol is seen
+    SNAPSHOT_RECORD: int symbolId | long timestamp | int bidDepth | int askDepth | long scaled prices[bidDepth + askDepth] | int quantities[bidDepth + askDepth]
+    Prices and quantities are in MarketDataBookSnapshot order, bids first.
+*/
+public class MarketDataFileWriter implements AutoCloseable {
+    static final int MAGIC = 0x4f4d4d44;
+    static final int VERSION = 1;
+    static final byte SYMBOL_RECORD = 1;
+    static final byte SNAPSHOT_RECORD = 2;
+    static final int SNAPSHOT_HEADER_SIZE = 1 + 4 + 8 + 4 + 4;
+    private static final int BUFFER_SIZE = 1024 * 1024;
+    private final FileChannel fileChannel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final Map<String, Integer> symbolIds = new HashMap<>();
+
+    MarketDataFileWriter(Path file) throws IOException {
+        this.fileChannel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+    }
+
+    void write(long timestamp, MarketDataBookSnapshot snapshot) throws IOException {
+        Integer symbolId = symbolIds.get(snapshot.getSymbol());
+        if (symbolId == null) {
+            symbolId = symbolIds.size();
+            symbolIds.put(snapshot.getSymbol(), symbolId);
+            writeSymbol(symbolId, snapshot.getSymbol());
+        }
+        int depth = snapshot.getBidDepth() + snapshot.getAskDepth();
+        ensureCapacity(SNAPSHOT_HEADER_SIZE + depth * 12);
+        buffer.put(SNAPSHOT_RECORD);
+        buffer.putInt(symbolId);
+        buffer.putLong(timestamp);
+        buffer.putInt(snapshot.getBidDepth());
+        buffer.putInt(snapshot.getAskDepth());
+        for (int i = 0; i < depth; i++) {
+            buffer.putLong(snapshot.getScaledPrice(i));
+        }
+        for (int i = 0; i < depth; i++) {
+            buffer.putInt(snapshot.getQuantity(i));
+        }
+    }
+
+    private void writeSymbol(int symbolId, String symbol) throws IOException {
+        ensureCapacity(1 + 4 + 4 + symbol.length() * 2);
+        buffer.put(SYMBOL_RECORD);
+        buffer.putInt(symbolId);
+        buffer.putInt(symbol.length());
+        for (int i = 0; i < symbol.length(); i++) {
+            buffer.putChar(symbol.charAt(i));
+        }
+    }
+
+    private void ensureCapacity(int recordSize) throws IOException {
+        if (recordSize > BUFFER_SIZE) {
+            throw new IllegalArgumentException("Record of " + recordSize + " bytes is larger than the write buffer");
+        }
+        if (buffer.remaining() < recordSize) {
+            flush();
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            fileChannel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        fileChannel.close();
+    }
+}
@@ -0,0 +1,11 @@
+package ordermatchingengine;
+
+/*
+    Source of the nanosecond timestamps the engine stamps on trades.
+    Replacing it lets a replay reproduce the timestamps of the original run.
+*/
+public interface NanoClock {
+    NanoClock SYSTEM = System::nanoTime;
+
+    long nanoTime();
+}
@@ -0,0 +1,149 @@
+package ordermatchingengine;
+
+import java.util.Objects;
+
+public class NewOrder implements Order {
+    private String symbol;
+    private Side side;
+    private String clOrderId;
+    private OrderStatus orderStatus;
+    private int qty;
+    private long price;
+    //Dense id the engine gave the clOrderId when the order was entered, slices and price amend replacements carry the id of their client order
+    long orderId;
+    //Intrusive links, only maintained by the PriceLevel this order is queued on
+    NewOrder prev;
+    NewOrder next;
+    PriceLevel level;
+    //Links to the other slices of the same clOrderId resting on the book, oldest slice first
+    NewOrder prevSlice;
+    NewOrder nextSlice;
+    //Set for orders owned by a book ObjectPool (amend up slices), these are recycled once they leave the book
+    boolean pooled;
+    //Client order an amend up slice was created for, trades of the slice are reported against it
+    NewOrder parentOrder;
+    //Created by the engine for a price amend, unlike the client's own order it can be re-priced in place by the next price amend
+    boolean priceAmendReplacement;
+    //Neighbours in the archive of the OrderStore while this order is archived there
+    NewOrder olderArchived;
+    NewOrder youngerArchived;
+
+    NewOrder(String symbol, Side side, int quantity, double price, String clientOrderId) {
+        this.clOrderId = clientOrderId;
+        this.symbol = symbol;
+        this.side = side;
+        this.qty = quantity;
+        this.price = Prices.toScaled(price);
+        this.orderStatus = OrderStatus.NONE;
+    }
+
+    //Re-initialises a recycled order taken from an ObjectPool
+    void init(String symbol, Side side, int quantity, long scaledPrice, String clientOrderId) {
+        this.symbol = symbol;
+        this.side = side;
+        this.qty = quantity;
+        this.price = scaledPrice;
+        this.clOrderId = clientOrderId;
+        this.orderStatus = OrderStatus.NONE;
+        this.parentOrder = null;
+    }
+
+    static NewOrder withScaledPrice(String symbol, Side side, int quantity, long scaledPrice, String clientOrderId) {
+        NewOrder order = new NewOrder(symbol, side, quantity, 0, clientOrderId);
+        order.setScaledPrice(scaledPrice);
+        return order;
+    }
+
+    @Override
+    public boolean isMoreAggressive(Order oppositeOrder) {
+        return (this.getSide() == Side.BUY && this.price >= oppositeOrder.getScaledPrice()
+                || this.getSide() == Side.SELL && this.price <= oppositeOrder.getScaledPrice());
+    }
+
+    @Override
+    public boolean isFullyFilled() {
+        return this.getQty() <= 0;
+    }
+
+    @Override
+    public void reduceQty(int qty) {
+        this.qty = this.qty - qty;
+    }
+
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        NewOrder order = (NewOrder) o;
+        return qty == order.qty &&
+                price == order.price &&
+                Objects.equals(symbol, order.symbol) &&
+                side == order.side &&
+                Objects.equals(clOrderId, order.clOrderId) &&
+                orderStatus == order.orderStatus;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(symbol, side, qty, price, clOrderId, orderStatus);
+    }
+
+    public int getQty() {
+        return qty;
+    }
+
+    public void setQty(int qty) {
+        this.qty = qty;
+    }
+
+    @Override
+    public String toString() {
+        return "Order [ symbol=" + symbol
+                + ", qty="
+                + qty + ", price=" + getPrice() + ", orderStatus=" + orderStatus + ", side=" + side
+                + ", clOrderId=" + clOrderId + "]";
+    }
+
+    public double getPrice() {
+        return Prices.toDouble(price);
+    }
+
+    public void setPrice(double price) {
+        this.price = Prices.toScaled(price);
+    }
+
+    public long getScaledPrice() {
+        return price;
+    }
+
+    public void setScaledPrice(long scaledPrice) {
+        this.price = scaledPrice;
+    }
+
+    public Side getSide() {
+        return side;
+    }
+
+    public String getClOrderId() {
+        return clOrderId;
+    }
+
+    public void setClOrderId(String clOrderId) {
+        this.clOrderId = clOrderId;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public OrderStatus getOrderStatus() {
+        return orderStatus;
+    }
+
+    public void setOrderStatus(OrderStatus orderStatus) {
+        this.orderStatus = orderStatus;
+    }
+
+
+}
\ No newline at end of file
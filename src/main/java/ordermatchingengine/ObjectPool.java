@@ -0,0 +1,41 @@
+package ordermatchingengine;
+
+import java.util.function.Supplier;
+
+/*
+    Array backed free list of recycled objects.
+    New objects are only created by the factory while the pool is empty, so once the working set has been created acquire/release allocate nothing.
+*/
+public class ObjectPool<T> {
+    private final Supplier<T> factory;
+    private Object[] freeObjects;
+    private int freeCount;
+
+    ObjectPool(Supplier<T> factory, int initialCapacity) {
+        this.factory = factory;
+        this.freeObjects = new Object[Math.max(1, initialCapacity)];
+    }
+
+    @SuppressWarnings("unchecked")
+    public T acquire() {
+        if (freeCount == 0) {
+            return factory.get();
+        }
+        T object = (T) freeObjects[--freeCount];
+        freeObjects[freeCount] = null;
+        return object;
+    }
+
+    public void release(T object) {
+        if (freeCount == freeObjects.length) {
+            Object[] grownFreeObjects = new Object[freeObjects.length * 2];
+            System.arraycopy(freeObjects, 0, grownFreeObjects, 0, freeCount);
+            freeObjects = grownFreeObjects;
+        }
+        freeObjects[freeCount++] = object;
+    }
+
+    public int getFreeCount() {
+        return freeCount;
+    }
+}
@@ -0,0 +1,151 @@
+package ordermatchingengine;
+
+import java.util.Arrays;
+
+/*
+    Open addressing hash map with linear probing and backward shift deletion.
+    Unlike HashMap it does not allocate an entry object per key, so put/remove on the hot path create no garbage once the table has grown to its working size.
+    Null keys and null values are not supported, get returns null for a missing key.
+*/
+public class OpenHashMap<K, V> {
+    private Object[] keys;
+    private Object[] values;
+    private int mask;
+    private int size;
+    private int resizeThreshold;
+
+    OpenHashMap() {
+        this(16);
+    }
+
+    OpenHashMap(int expectedSize) {
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        //Table is kept at most half full so probe sequences stay short
+        int tableSize = 2;
+        while (tableSize < expectedSize * 2) {
+            tableSize <<= 1;
+        }
+        return tableSize;
+    }
+
+    private void allocate(int tableSize) {
+        keys = new Object[tableSize];
+        values = new Object[tableSize];
+        mask = tableSize - 1;
+        resizeThreshold = tableSize / 2;
+    }
+
+    private int indexOf(Object key) {
+        int hash = key.hashCode();
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        for (int i = indexOf(key); keys[i] != null; i = (i + 1) & mask) {
+            if (keys[i].equals(key)) {
+                return (V) values[i];
+            }
+        }
+        return null;
+    }
+
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V put(K key, V value) {
+        int i = indexOf(key);
+        for (; keys[i] != null; i = (i + 1) & mask) {
+            if (keys[i].equals(key)) {
+                V previousValue = (V) values[i];
+                values[i] = value;
+                return previousValue;
+            }
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size > resizeThreshold) {
+            rehash();
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V remove(Object key) {
+        for (int i = indexOf(key); keys[i] != null; i = (i + 1) & mask) {
+            if (keys[i].equals(key)) {
+                V previousValue = (V) values[i];
+                closeHole(i);
+                size--;
+                return previousValue;
+            }
+        }
+        return null;
+    }
+
+    //Moves later entries of the probe sequence back into the freed slot so that lookups never stop early at a hole
+    private void closeHole(int hole) {
+        for (int i = (hole + 1) & mask; keys[i] != null; i = (i + 1) & mask) {
+            int home = indexOf(keys[i]);
+            boolean homeIsBetweenHoleAndSlot = (hole <= i) ? (hole < home && home <= i) : (hole < home || home <= i);
+            if (!homeIsBetweenHoleAndSlot) {
+                keys[hole] = keys[i];
+                values[hole] = values[i];
+                hole = i;
+            }
+        }
+        keys[hole] = null;
+        values[hole] = null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void rehash() {
+        Object[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(oldKeys.length * 2);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                int j = indexOf(oldKeys[i]);
+                while (keys[j] != null) {
+                    j = (j + 1) & mask;
+                }
+                keys[j] = oldKeys[i];
+                values[j] = oldValues[i];
+            }
+        }
+    }
+
+    //Slot by slot iteration without an iterator object: slots 0 to capacity() - 1, keyAt returns null for an empty slot
+    public int capacity() {
+        return keys.length;
+    }
+
+    @SuppressWarnings("unchecked")
+    public K keyAt(int slot) {
+        return (K) keys[slot];
+    }
+
+    @SuppressWarnings("unchecked")
+    public V valueAt(int slot) {
+        return (V) values[slot];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, null);
+        Arrays.fill(values, null);
+        size = 0;
+    }
+}
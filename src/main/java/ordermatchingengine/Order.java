@@ -1,3 +1,5 @@
+package ordermatchingengine;
+
 public interface Order {
     boolean isMoreAggressive(Order oppositeOrder);
 
@@ -11,6 +13,8 @@ public interface Order {
 
     double getPrice();
 
+    long getScaledPrice();
+
     Side getSide();
 
     String getSymbol();
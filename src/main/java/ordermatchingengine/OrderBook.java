@@ -0,0 +1,65 @@
+package ordermatchingengine;
+
+import java.io.IOException;
+import java.util.List;
+
+public interface OrderBook {
+    void onMarketOrderBookSnapshot(MarketDataBookSnapshot marketDataBookSnapshot);
+
+    void enterOrder(NewOrder order);
+
+    //Scaled tick size of the book, 0 if prices are not restricted to a tick grid
+    long getTickSize();
+
+    //Orders at a price off the tick grid are rejected by the engine, snapshots containing one are refused
+    boolean isOnTickGrid(long price);
+
+    //False if a level at the price can not be added next to the levels resting on the side, the engine rejects such orders and amends
+    boolean canHoldPrice(Side side, long price);
+
+    boolean hasPriceLevel(Side side, long price);
+
+    OrderStatus amendDownYoungestSliceAndCancelOutstandingSlicesAtLevel(AmendOrder order, NewOrder origOrder);
+
+    void addNewSliceAtSamePriceLevelWithRemainingQty(AmendOrder order, NewOrder origOrder);
+
+    //Removes every slice of the client order with orderId on the side
+    void removeOrder(Side side, long orderId);
+
+    TopOfBook getTopOfBook();
+
+    //Best scaled price of the side or Prices.NO_PRICE when the side is empty
+    long getBestPrice(Side side);
+
+    //Accumulated quantity at the best price of the side or -1 when the side is empty
+    int getBestQuantity(Side side);
+
+    int getQuantityAtPrice(Side side, long price);
+
+    int getOrderCountAtPrice(Side side, long price);
+
+    //Quantity which trades before the oldest resting slice of the client order with orderId, -1 if none of it rests
+    int getQueueAhead(long orderId);
+
+    List<Trade> getTrade(String clOrdId);
+
+    //Number of price levels of the side
+    int getLevelCount(Side side);
+
+    //Resting market data orders and client slices over all levels of the side
+    int getRestingOrderCount(Side side);
+
+    //Every match is recorded into metrics, null turns the recording off
+    void setMetrics(EngineMetrics metrics);
+
+    //Told about every client order whose last resting slice got filled, null if nobody listens
+    void setOrderStore(OrderStore orderStore);
+
+    String dumpOrderBook();
+
+    //Levels with their market data liquidity and client slices in queue order, plus the prices of the last snapshot
+    void writeCheckpoint(CheckpointWriter writer) throws IOException;
+
+    //Rebuilds an empty book from writeCheckpoint's output
+    void restoreCheckpoint(CheckpointReader reader) throws IOException;
+}
@@ -0,0 +1,33 @@
+package ordermatchingengine;
+
+public enum OrderBookType {
+    //Price levels kept in a TreeMap keyed by price, any price is accepted unless a tick size is given
+    TREE_MAP {
+        @Override
+        OrderBook newOrderBook(String symbol, TradeHistory tradeHistory, long tickSize) {
+            return new TreeMapOrderBook(symbol, tradeHistory, tickSize);
+        }
+    },
+    //Price levels kept in an array indexed by tick offset from a reference price, levels are recycled so it does not allocate once warmed up
+    PRICE_LADDER {
+        @Override
+        OrderBook newOrderBook(String symbol, TradeHistory tradeHistory, long tickSize) {
+            return new PriceLadderOrderBook(symbol, tradeHistory, tickSize == NO_TICK_SIZE ? Prices.toScaled(PriceLadderOrderBook.DEFAULT_TICK_SIZE) : tickSize,
+                    PriceLadderOrderBook.DEFAULT_LADDER_SIZE);
+        }
+    };
+
+    //No tick size configured, the book type's default applies
+    static final long NO_TICK_SIZE = 0;
+
+    OrderBook newOrderBook(String symbol) {
+        return newOrderBook(symbol, new TradeHistory());
+    }
+
+    OrderBook newOrderBook(String symbol, TradeHistory tradeHistory) {
+        return newOrderBook(symbol, tradeHistory, NO_TICK_SIZE);
+    }
+
+    //tickSize is scaled
+    abstract OrderBook newOrderBook(String symbol, TradeHistory tradeHistory, long tickSize);
+}
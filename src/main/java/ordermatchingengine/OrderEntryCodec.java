@@ -0,0 +1,90 @@
+package ordermatchingengine;
+
+import java.nio.ByteBuffer;
+
+/*
+    Fixed layout binary messages of the order entry boundary: new, amend and cancel orders in, execution reports and top of book out.
+    Every message is MESSAGE_SIZE bytes with its type in the first byte, so a stream of messages needs no further framing.
+    Messages are read and written in place through the flyweights OrderEntryMessage, ExecutionReportMessage and TopOfBookMessage.
+    Symbols and clOrdIds are fixed width ASCII fields padded with zeros, encoding a value longer than SYMBOL_LENGTH or CL_ORD_ID_LENGTH or with non-ASCII characters fails.
+    Decoding never fails on the bytes of a message: unknown side, status and type codes read as null and isValid tells whether a whole message can be used.
+*/
+public final class OrderEntryCodec {
+    static final int MESSAGE_SIZE = 128;
+    static final int TYPE_OFFSET = 0;
+    static final byte NEW_ORDER = 1;
+    static final byte AMEND_ORDER = 2;
+    static final byte CANCEL_ORDER = 3;
+    static final byte EXECUTION_REPORT = 4;
+    static final byte TOP_OF_BOOK = 5;
+    static final int SYMBOL_LENGTH = 16;
+    static final int CL_ORD_ID_LENGTH = 32;
+    private static final Side[] SIDES = Side.values();
+    private static final OrderStatus[] ORDER_STATUSES = OrderStatus.values();
+
+    private OrderEntryCodec() {
+    }
+
+    static byte messageType(ByteBuffer buffer, int offset) {
+        return buffer.get(offset + TYPE_OFFSET);
+    }
+
+    //Zeroes the message and sets its type
+    static void clear(ByteBuffer buffer, int offset, byte type) {
+        for (int i = 0; i < MESSAGE_SIZE; i += 8) {
+            buffer.putLong(offset + i, 0);
+        }
+        buffer.put(offset + TYPE_OFFSET, type);
+    }
+
+    //A null value is written as an empty field
+    static void putAscii(ByteBuffer buffer, int offset, int length, String value) {
+        int valueLength = value == null ? 0 : value.length();
+        if (valueLength > length) {
+            throw new IllegalArgumentException("'" + value + "' is longer than its field of " + length + " characters");
+        }
+        for (int i = 0; i < valueLength; i++) {
+            char c = value.charAt(i);
+            if (c == 0 || c > 127) {
+                throw new IllegalArgumentException("'" + value + "' has a NUL or non-ASCII character at " + i);
+            }
+            buffer.put(offset + i, (byte) c);
+        }
+        for (int i = valueLength; i < length; i++) {
+            buffer.put(offset + i, (byte) 0);
+        }
+    }
+
+    //0 stands for no side / no status
+    static byte sideCode(Side side) {
+        return side == null ? 0 : (byte) (side.ordinal() + 1);
+    }
+
+    //Null for 0 and for codes no side has
+    static Side side(byte sideCode) {
+        return isSideCode(sideCode) ? SIDES[sideCode - 1] : null;
+    }
+
+    static boolean isSideCode(byte sideCode) {
+        return sideCode >= 1 && sideCode <= SIDES.length;
+    }
+
+    static byte statusCode(OrderStatus orderStatus) {
+        return orderStatus == null ? 0 : (byte) (orderStatus.ordinal() + 1);
+    }
+
+    //Null for 0 and for codes no status has
+    static OrderStatus orderStatus(byte statusCode) {
+        return statusCode >= 1 && statusCode <= ORDER_STATUSES.length ? ORDER_STATUSES[statusCode - 1] : null;
+    }
+
+    //True if the field holds ASCII characters only, bytes with the high bit set are not ASCII
+    static boolean isAscii(ByteBuffer buffer, int offset, int length) {
+        for (int i = 0; i < length; i++) {
+            if (buffer.get(offset + i) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,113 @@
+package ordermatchingengine;
+
+import java.nio.ByteBuffer;
+
+/*
+    Flyweight over a new, amend or cancel message of the OrderEntryCodec, wrap points it at a message in a buffer, e.g. straight in a receive buffer.
+    Layout: type, side, qty, scaled price, symbol, clOrdId and for amends and cancels the clOrdId of the order they refer to.
+    Reading the symbol and clOrdIds goes through an AsciiStringCache, so a flyweight must stay on one thread.
+    A message off the wire is only applied when isValid, the getters never fail but read unknown codes as null.
+*/
+public class OrderEntryMessage {
+    private static final int SIDE_OFFSET = 1;
+    private static final int QTY_OFFSET = 4;
+    private static final int PRICE_OFFSET = 8;
+    private static final int SYMBOL_OFFSET = 16;
+    private static final int CL_ORD_ID_OFFSET = 32;
+    private static final int ORIG_CL_ORD_ID_OFFSET = 64;
+    private final AsciiStringCache strings;
+    private ByteBuffer buffer;
+    private int offset;
+
+    OrderEntryMessage() {
+        this(new AsciiStringCache(4096));
+    }
+
+    OrderEntryMessage(AsciiStringCache strings) {
+        this.strings = strings;
+    }
+
+    OrderEntryMessage wrap(ByteBuffer buffer, int offset) {
+        this.buffer = buffer;
+        this.offset = offset;
+        return this;
+    }
+
+    void newOrder(String symbol, Side side, int qty, long price, String clOrdId) {
+        set(OrderEntryCodec.NEW_ORDER, symbol, side, qty, price, clOrdId, null);
+    }
+
+    void amendOrder(String symbol, Side side, int qty, long price, String origClOrdId, String clOrdId) {
+        set(OrderEntryCodec.AMEND_ORDER, symbol, side, qty, price, clOrdId, origClOrdId);
+    }
+
+    void cancelOrder(String symbol, Side side, String origClOrdId, String clOrdId) {
+        set(OrderEntryCodec.CANCEL_ORDER, symbol, side, 0, 0, clOrdId, origClOrdId);
+    }
+
+    private void set(byte type, String symbol, Side side, int qty, long price, String clOrdId, String origClOrdId) {
+        OrderEntryCodec.clear(buffer, offset, type);
+        buffer.put(offset + SIDE_OFFSET, OrderEntryCodec.sideCode(side));
+        buffer.putInt(offset + QTY_OFFSET, qty);
+        buffer.putLong(offset + PRICE_OFFSET, price);
+        OrderEntryCodec.putAscii(buffer, offset + SYMBOL_OFFSET, OrderEntryCodec.SYMBOL_LENGTH, symbol);
+        OrderEntryCodec.putAscii(buffer, offset + CL_ORD_ID_OFFSET, OrderEntryCodec.CL_ORD_ID_LENGTH, clOrdId);
+        OrderEntryCodec.putAscii(buffer, offset + ORIG_CL_ORD_ID_OFFSET, OrderEntryCodec.CL_ORD_ID_LENGTH, origClOrdId);
+    }
+
+    /*
+        Known type, a side, a non empty ASCII symbol and clOrdId, for amends and cancels a non empty ASCII origClOrdId.
+        New orders and amends also need a positive qty and price, cancels ignore both.
+    */
+    public boolean isValid() {
+        byte type = getType();
+        if (type != OrderEntryCodec.NEW_ORDER && type != OrderEntryCodec.AMEND_ORDER && type != OrderEntryCodec.CANCEL_ORDER) {
+            return false;
+        }
+        if (type != OrderEntryCodec.CANCEL_ORDER && (getQty() <= 0 || getScaledPrice() <= 0)) {
+            return false;
+        }
+        return OrderEntryCodec.isSideCode(buffer.get(offset + SIDE_OFFSET))
+                && isNonEmptyAscii(SYMBOL_OFFSET, OrderEntryCodec.SYMBOL_LENGTH)
+                && isNonEmptyAscii(CL_ORD_ID_OFFSET, OrderEntryCodec.CL_ORD_ID_LENGTH)
+                && (type == OrderEntryCodec.NEW_ORDER ? OrderEntryCodec.isAscii(buffer, offset + ORIG_CL_ORD_ID_OFFSET, OrderEntryCodec.CL_ORD_ID_LENGTH)
+                        : isNonEmptyAscii(ORIG_CL_ORD_ID_OFFSET, OrderEntryCodec.CL_ORD_ID_LENGTH));
+    }
+
+    //An empty field starts with the zero padding and reads as null
+    private boolean isNonEmptyAscii(int fieldOffset, int length) {
+        return buffer.get(offset + fieldOffset) != 0 && OrderEntryCodec.isAscii(buffer, offset + fieldOffset, length);
+    }
+
+    //One of OrderEntryCodec.NEW_ORDER, AMEND_ORDER or CANCEL_ORDER for a valid message
+    public byte getType() {
+        return OrderEntryCodec.messageType(buffer, offset);
+    }
+
+    public String getSymbol() {
+        return strings.get(buffer, offset + SYMBOL_OFFSET, OrderEntryCodec.SYMBOL_LENGTH);
+    }
+
+    //Null if the side code is unknown
+    public Side getSide() {
+        return OrderEntryCodec.side(buffer.get(offset + SIDE_OFFSET));
+    }
+
+    public int getQty() {
+        return buffer.getInt(offset + QTY_OFFSET);
+    }
+
+    //Scaled price, see Prices
+    public long getScaledPrice() {
+        return buffer.getLong(offset + PRICE_OFFSET);
+    }
+
+    public String getClOrdId() {
+        return strings.get(buffer, offset + CL_ORD_ID_OFFSET, OrderEntryCodec.CL_ORD_ID_LENGTH);
+    }
+
+    //Null for new orders
+    public String getOrigClOrdId() {
+        return strings.get(buffer, offset + ORIG_CL_ORD_ID_OFFSET, OrderEntryCodec.CL_ORD_ID_LENGTH);
+    }
+}
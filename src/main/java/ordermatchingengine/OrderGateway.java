@@ -0,0 +1,444 @@
+package ordermatchingengine;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/*
+    Non-blocking TCP order entry in front of an engine, so several client processes can trade against one simulated venue.
+    Clients send OrderEntryCodec new, amend and cancel messages and get ExecutionReportMessages back, for their own orders and for fills of their resting orders.
+    The engine knows every order by its clOrdId alone, so a clOrdId belongs to the session which entered it until the order is filled, cancelled or rejected:
+    a new order re-using a live clOrdId and an amend or cancel of another session's order are rejected without reaching the book.
+    The orders a session still has on the book when it disconnects are cancelled, nobody could amend them or receive their fills any more.
+    One IO thread serves every session through a selector: whole messages are copied from the direct receive buffer of a session into an inbound ring buffer,
+    a dedicated matching thread drains that ring in batches and applies the messages in place, its execution reports go through an outbound ring back to the IO thread,
+    which writes all reports of a session with one gathering write straight from the ring slots.
+    The IO thread never waits for the matching thread: it only forwards as many messages as the inbound ring has room for and leaves the rest in the receive buffer,
+    which in turn stops reading from that socket. A session whose unsent reports exceed SEND_BUFFER_SIZE is disconnected as a slow consumer.
+    The gateway installs its own ExecutionListener on the engine and nothing else may touch the engine while the gateway runs, so market data has to be applied before it starts.
+*/
+public class OrderGateway implements AutoCloseable {
+    static final int RECEIVE_BUFFER_SIZE = 64 * 1024;
+    static final int SEND_BUFFER_SIZE = 1 << 20;
+    private static final int MAX_GATHERED_REPORTS = 64;
+    private final Logger logger = Logger.getLogger(this.getClass().getName());
+    private final OrderMatchingEngineImpl orderMatchingEngine;
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+    private final RingBuffer<Slot> inbound;
+    private final RingBuffer<Slot> outbound;
+    private final Thread ioThread;
+    private final Thread matchingThread;
+    private volatile boolean running = true;
+    //Only used by the IO thread
+    private final List<Session> sessions = new ArrayList<>();
+    private final List<Session> sessionsWithReports = new ArrayList<>();
+    private long nextReportSequence;
+    private int nextSessionId;
+    //Closed sessions the matching thread has not been told about yet, as the inbound ring was full
+    private final List<Session> closedSessions = new ArrayList<>();
+    //Only used by the matching thread
+    private final OrderEntryMessage message = new OrderEntryMessage();
+    private final ExecutionReportMessage reportMessage = new ExecutionReportMessage();
+    //Session of every live order by clOrdId, so fills of resting orders find their way back. Removed once the order is filled, cancelled or rejected
+    private final OpenHashMap<String, Session> orderOwners = new OpenHashMap<>();
+    private Session currentSession;
+    private final List<String> disconnectedClOrdIds = new ArrayList<>();
+    private final CancelOrder disconnectCancelOrder = new CancelOrder("", Side.BUY, 0, 0, "", "");
+
+    //A message in a ring slot together with the session it came from or goes to, or the notice that a session has closed
+    private static class Slot {
+        final ByteBuffer buffer;
+        Session session;
+        boolean sessionClosed;
+
+        Slot(ByteBuffer memory) {
+            memory.limit(memory.position() + OrderEntryCodec.MESSAGE_SIZE);
+            this.buffer = memory.slice();
+            memory.position(memory.limit());
+            memory.limit(memory.capacity());
+        }
+    }
+
+    private static class Session {
+        final int sessionId;
+        final SocketChannel channel;
+        final SelectionKey key;
+        final ByteBuffer receiveBuffer = ByteBuffer.allocateDirect(RECEIVE_BUFFER_SIZE);
+        //Reports the socket did not take yet, in write mode
+        final ByteBuffer sendBuffer = ByteBuffer.allocateDirect(SEND_BUFFER_SIZE);
+        final ByteBuffer[] gatheredReports = new ByteBuffer[MAX_GATHERED_REPORTS];
+        int gatheredReportCount;
+        boolean closed;
+
+        Session(int sessionId, SocketChannel channel, Selector selector) throws IOException {
+            this.sessionId = sessionId;
+            this.channel = channel;
+            this.key = channel.register(selector, SelectionKey.OP_READ, this);
+        }
+    }
+
+    //Binds to the address, port 0 picks a free port, see getLocalAddress
+    OrderGateway(OrderMatchingEngineImpl orderMatchingEngine, InetSocketAddress bindAddress, int capacity, WaitStrategy matchingWaitStrategy) throws IOException {
+        this.orderMatchingEngine = orderMatchingEngine;
+        ByteBuffer inboundMemory = ByteBuffer.allocateDirect(capacity * OrderEntryCodec.MESSAGE_SIZE);
+        ByteBuffer outboundMemory = ByteBuffer.allocateDirect(capacity * OrderEntryCodec.MESSAGE_SIZE);
+        this.inbound = new RingBuffer<>(() -> new Slot(inboundMemory), capacity, false, matchingWaitStrategy);
+        //The IO thread polls the outbound ring whenever the selector wakes up, it never waits on it
+        this.outbound = new RingBuffer<>(() -> new Slot(outboundMemory), capacity, false, new YieldingWaitStrategy());
+        this.selector = Selector.open();
+        this.serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(bindAddress);
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        orderMatchingEngine.setExecutionListener(this::onExecutionReport);
+        this.matchingThread = new Thread(this::runMatchingLoop, "gateway-matching");
+        this.matchingThread.setDaemon(true);
+        this.ioThread = new Thread(this::runIoLoop, "gateway-io");
+        this.ioThread.setDaemon(true);
+        this.matchingThread.start();
+        this.ioThread.start();
+    }
+
+    public InetSocketAddress getLocalAddress() throws IOException {
+        return (InetSocketAddress) serverChannel.getLocalAddress();
+    }
+
+    private void runIoLoop() {
+        try {
+            while (running) {
+                selector.select();
+                Iterator<SelectionKey> selectedKeys = selector.selectedKeys().iterator();
+                while (selectedKeys.hasNext()) {
+                    SelectionKey key = selectedKeys.next();
+                    selectedKeys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+                    Session session = (Session) key.attachment();
+                    if (key.isWritable()) {
+                        writePendingReports(session);
+                    }
+                    if (!session.closed && key.isReadable()) {
+                        read(session);
+                    }
+                }
+                //Messages left in receive buffers while the inbound ring was full
+                for (int i = 0; i < sessions.size(); i++) {
+                    forwardMessages(sessions.get(i));
+                }
+                sendReports();
+                forwardDisconnects();
+            }
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Order gateway stopped", e);
+        } finally {
+            for (int i = sessions.size() - 1; i >= 0; i--) {
+                close(sessions.get(i));
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        Session session = new Session(nextSessionId++, channel, selector);
+        sessions.add(session);
+        logger.info("Session " + session.sessionId + " connected from " + channel.getRemoteAddress());
+    }
+
+    private void read(Session session) {
+        try {
+            if (session.channel.read(session.receiveBuffer) < 0) {
+                close(session);
+                return;
+            }
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Session " + session.sessionId + " failed to read", e);
+            close(session);
+            return;
+        }
+        forwardMessages(session);
+    }
+
+    //Forwards the whole messages in the receive buffer the inbound ring has room for, a partial message waits for the rest of its bytes
+    private void forwardMessages(Session session) {
+        ByteBuffer receiveBuffer = session.receiveBuffer;
+        if (session.closed || receiveBuffer.position() < OrderEntryCodec.MESSAGE_SIZE) {
+            return;
+        }
+        receiveBuffer.flip();
+        int messageCount = Math.min(receiveBuffer.remaining() / OrderEntryCodec.MESSAGE_SIZE, inbound.remainingCapacity());
+        for (int i = 0; i < messageCount; i++) {
+            long sequence = inbound.next();
+            Slot slot = inbound.get(sequence);
+            int position = receiveBuffer.position();
+            for (int offset = 0; offset < OrderEntryCodec.MESSAGE_SIZE; offset += 8) {
+                slot.buffer.putLong(offset, receiveBuffer.getLong(position + offset));
+            }
+            receiveBuffer.position(position + OrderEntryCodec.MESSAGE_SIZE);
+            slot.session = session;
+            slot.sessionClosed = false;
+            inbound.publish(sequence);
+        }
+        receiveBuffer.compact();
+    }
+
+    //Queued behind every message the closed session got to forward, so the matching thread cancels its orders last
+    private void forwardDisconnects() {
+        while (!closedSessions.isEmpty() && inbound.remainingCapacity() > 0) {
+            long sequence = inbound.next();
+            Slot slot = inbound.get(sequence);
+            slot.session = closedSessions.remove(closedSessions.size() - 1);
+            slot.sessionClosed = true;
+            inbound.publish(sequence);
+        }
+    }
+
+    //Writes every report published so far, all reports of a session in one gathering write, before the slots go back to the matching thread
+    private void sendReports() {
+        long firstSequence = nextReportSequence;
+        while (outbound.isPublished(nextReportSequence)) {
+            Slot slot = outbound.get(nextReportSequence);
+            Session session = slot.session;
+            if (!session.closed) {
+                if (session.gatheredReportCount == MAX_GATHERED_REPORTS) {
+                    flush(session);
+                }
+                if (session.gatheredReportCount == 0) {
+                    sessionsWithReports.add(session);
+                }
+                slot.buffer.clear();
+                session.gatheredReports[session.gatheredReportCount++] = slot.buffer;
+            }
+            nextReportSequence++;
+        }
+        for (int i = 0; i < sessionsWithReports.size(); i++) {
+            flush(sessionsWithReports.get(i));
+        }
+        sessionsWithReports.clear();
+        if (nextReportSequence > firstSequence) {
+            outbound.release(nextReportSequence - 1);
+        }
+    }
+
+    //Reports the socket does not take right away are copied into the send buffer, later reports queue up behind them to keep the order
+    private void flush(Session session) {
+        int reportCount = session.gatheredReportCount;
+        session.gatheredReportCount = 0;
+        if (session.closed || reportCount == 0) {
+            return;
+        }
+        ByteBuffer[] reports = session.gatheredReports;
+        try {
+            if (session.sendBuffer.position() == 0) {
+                session.channel.write(reports, 0, reportCount);
+            }
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Session " + session.sessionId + " failed to write", e);
+            close(session);
+            return;
+        }
+        for (int i = 0; i < reportCount; i++) {
+            if (reports[i].remaining() > session.sendBuffer.remaining()) {
+                logger.warning("Session " + session.sessionId + " is not reading its execution reports, disconnecting");
+                close(session);
+                return;
+            }
+            session.sendBuffer.put(reports[i]);
+            reports[i] = null;
+        }
+        if (session.sendBuffer.position() > 0) {
+            session.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        }
+    }
+
+    private void writePendingReports(Session session) {
+        ByteBuffer sendBuffer = session.sendBuffer;
+        sendBuffer.flip();
+        try {
+            session.channel.write(sendBuffer);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Session " + session.sessionId + " failed to write", e);
+            close(session);
+            return;
+        } finally {
+            sendBuffer.compact();
+        }
+        if (sendBuffer.position() == 0) {
+            session.key.interestOps(SelectionKey.OP_READ);
+        }
+    }
+
+    private void close(Session session) {
+        if (session.closed) {
+            return;
+        }
+        session.closed = true;
+        session.key.cancel();
+        sessions.remove(session);
+        try {
+            session.channel.close();
+        } catch (IOException e) {
+            logger.log(Level.FINE, "Session " + session.sessionId + " failed to close", e);
+        }
+        logger.info("Session " + session.sessionId + " disconnected");
+        //Once the gateway is closing the engine is not touched any more
+        if (running) {
+            closedSessions.add(session);
+        }
+    }
+
+    private void runMatchingLoop() {
+        long nextSequence = 0;
+        try {
+            while (true) {
+                long availableSequence = inbound.waitFor(nextSequence);
+                if (availableSequence < 0) {
+                    return;
+                }
+                for (long sequence = nextSequence; sequence <= availableSequence; sequence++) {
+                    match(inbound.get(sequence));
+                }
+                inbound.release(availableSequence);
+                nextSequence = availableSequence + 1;
+                selector.wakeup();
+            }
+        } catch (IllegalStateException e) {
+            //Outbound ring halted while waiting for space, the gateway is closing
+        }
+    }
+
+    private void match(Slot slot) {
+        currentSession = slot.session;
+        message.wrap(slot.buffer, 0);
+        try {
+            if (slot.sessionClosed) {
+                cancelOrdersOf(currentSession);
+            } else if (!message.isValid()) {
+                orderMatchingEngine.reject(message);
+            } else if (message.getType() == OrderEntryCodec.NEW_ORDER) {
+                enterNewOrder();
+            } else if (message.getOrigClOrdId() == null || orderOwners.get(message.getOrigClOrdId()) != currentSession) {
+                //Amends and cancels only reach orders of the session
+                orderMatchingEngine.reject(message);
+            } else {
+                orderMatchingEngine.apply(message);
+            }
+        } catch (IllegalStateException e) {
+            if (outbound.isHalted()) {
+                throw e;
+            }
+            logger.log(Level.SEVERE, "Failed to apply message of type " + message.getType() + " from session " + currentSession.sessionId, e);
+        } catch (RuntimeException e) {
+            logger.log(Level.SEVERE, "Failed to apply message of type " + message.getType() + " from session " + currentSession.sessionId, e);
+        }
+    }
+
+    //The owner is known before the order can trade, so fills of an order resting after a partial fill already find it
+    private void enterNewOrder() {
+        String clOrdId = message.getClOrdId();
+        if (clOrdId == null || orderOwners.containsKey(clOrdId)) {
+            orderMatchingEngine.reject(message);
+            return;
+        }
+        orderOwners.put(clOrdId, currentSession);
+        OrderStatus orderStatus;
+        try {
+            orderStatus = orderMatchingEngine.apply(message);
+        } catch (RuntimeException e) {
+            orderOwners.remove(clOrdId);
+            if (!outbound.isHalted()) {
+                orderMatchingEngine.reject(message);
+            }
+            throw e;
+        }
+        if (orderStatus == OrderStatus.REJECTED) {
+            orderOwners.remove(clOrdId);
+        }
+    }
+
+    //The cancel reports go to the closed session and are dropped by the IO thread
+    private void cancelOrdersOf(Session session) {
+        for (int slot = 0; slot < orderOwners.capacity(); slot++) {
+            if (orderOwners.valueAt(slot) == session) {
+                disconnectedClOrdIds.add(orderOwners.keyAt(slot));
+            }
+        }
+        for (int i = 0; i < disconnectedClOrdIds.size(); i++) {
+            String clOrdId = disconnectedClOrdIds.get(i);
+            NewOrder order = orderMatchingEngine.getOrderStore().get(clOrdId);
+            if (order != null) {
+                disconnectCancelOrder.init(order.getSymbol(), order.getSide(), order.getQty(), order.getScaledPrice(), clOrdId);
+                disconnectCancelOrder.setOrigClOrderId(clOrdId);
+                orderMatchingEngine.enter(disconnectCancelOrder);
+            }
+            orderOwners.remove(clOrdId);
+        }
+        disconnectedClOrdIds.clear();
+    }
+
+    //Reports go to the session of the message being matched, except for fills of resting orders which go to the session which entered them
+    private void onExecutionReport(ExecutionReport report) {
+        Session session = (report.getType() == ExecutionReport.Type.FILL && !report.isAggressor()) ? orderOwners.get(report.getClOrdId()) : currentSession;
+        //The status of a fill is the one of the whole order, an order amended up is only FILLED once its last slice is
+        if (report.getType() == ExecutionReport.Type.FILL && report.getOrderStatus() == OrderStatus.FILLED) {
+            orderOwners.remove(report.getClOrdId());
+        } else if (report.getType() == ExecutionReport.Type.ORDER_CANCELLED) {
+            orderOwners.remove(report.getOrigClOrdId());
+        }
+        if (session == null) {
+            return;
+        }
+        if (outbound.remainingCapacity() == 0) {
+            //The IO thread only drains the ring once woken up, normally at the end of a batch
+            selector.wakeup();
+        }
+        long sequence = outbound.next();
+        Slot slot = outbound.get(sequence);
+        slot.session = session;
+        reportMessage.wrap(slot.buffer, 0).encode(report);
+        outbound.publish(sequence);
+    }
+
+    //Orders whose clOrdId is still taken, only safe to read once the gateway is closed
+    int getLiveOrderCount() {
+        return orderOwners.size();
+    }
+
+    //Stops both threads and disconnects every session, messages which have not been matched yet are dropped
+    @Override
+    public void close() throws IOException {
+        running = false;
+        inbound.halt();
+        outbound.halt();
+        selector.wakeup();
+        try {
+            ioThread.join();
+            matchingThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the gateway threads", e);
+        }
+        serverChannel.close();
+        selector.close();
+    }
+}
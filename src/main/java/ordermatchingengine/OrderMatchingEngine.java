@@ -0,0 +1,29 @@
+package ordermatchingengine;
+
+import java.util.List;
+
+public interface OrderMatchingEngine {
+    void onMdSnapshot(MarketDataBookSnapshot marketDataBookSnapshot);
+
+    OrderStatus enter(NewOrder order);
+
+    OrderStatus enter(AmendOrder order);
+
+    OrderStatus enter(CancelOrder order);
+
+    //Matches every command of the batch and fills in their statuses, the batch's trades and its top of book
+    void enter(CommandBatch batch);
+
+    TopOfBook getTopOfBook(String symbol);
+
+    List<Trade> getTrades(Order order);
+
+    int getQuantityAtLevel(String symbol, Side side, double price);
+
+    int getOrderCountAtLevel(String symbol, Side side, double price);
+
+    String dumpOrderBook(String symbol);
+
+    //Pushes order state changes and fills as they happen, ExecutionListener.NONE turns it off
+    void setExecutionListener(ExecutionListener executionListener);
+}
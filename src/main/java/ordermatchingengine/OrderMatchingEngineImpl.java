@@ -0,0 +1,569 @@
+package ordermatchingengine;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public class OrderMatchingEngineImpl implements OrderMatchingEngine {
+    //Live and recently finished orders by clOrdId, amends and cancels reference the original clOrdId
+    private final OrderStore orderStore;
+    private Logger logger = Logger.getLogger(this.getClass().getCanonicalName());
+    //Symbols are resolved to their id once per call, books and per symbol state sit in arrays indexed by symbol id
+    private final SymbolTable symbolTable = new SymbolTable();
+    private OrderBook[] orderBooks = new OrderBook[16];
+    //Scaled tick size per symbol id given to its book when it is created, OrderBookType.NO_TICK_SIZE for the book type's default
+    private long[] tickSizes = new long[16];
+    //Order id the next new clOrdId gets, a re-used clOrdId keeps the id of the order it referred to
+    private long nextOrderId = 1;
+    private final OrderBookType orderBookType;
+    private final TradeHistory tradeHistory;
+    //Orders created for price amends, given back once their clOrdId is cancelled or re-used
+    private final ObjectPool<NewOrder> replacementOrderPool = new ObjectPool<>(() -> NewOrder.withScaledPrice("", Side.BUY, 0, 0L, ""), 16);
+    //Re-filled for every amend and cancel command, the engine does not keep hold of them
+    private final AmendOrder commandAmendOrder = new AmendOrder("", Side.BUY, 0, 0, "", "");
+    private final CancelOrder commandCancelOrder = new CancelOrder("", Side.BUY, 0, 0, "", "");
+    private final EventJournal eventJournal;
+    private final OrderValidator orderValidator = new OrderValidatorImpl();
+    //Carries the fields of an order entry message which failed validation into its rejection
+    private final NewOrder invalidMessageOrder = NewOrder.withScaledPrice("", Side.BUY, 0, 0L, "");
+    //Top of book last written to the event journal per symbol, only maintained while journaling
+    private TopOfBook[] journaledTopOfBook = new TopOfBook[16];
+    private ExecutionListener executionListener = ExecutionListener.NONE;
+    private final ExecutionReport executionReport = new ExecutionReport();
+    //Null until enableMetrics, the hot path then only pays for a null check
+    private EngineMetrics metrics;
+    private NanoClock metricsClock;
+    private long metricsDumpIntervalNanos;
+    private long nextMetricsDump;
+
+    OrderMatchingEngineImpl(String symbol) {
+        this(symbol, OrderBookType.TREE_MAP);
+    }
+
+    OrderMatchingEngineImpl(String symbol, OrderBookType orderBookType) {
+        this(symbol, orderBookType, TradeHistory.UNBOUNDED);
+    }
+
+    //maxRetainedTrades bounds the trade history, the oldest trades are recycled once it is reached
+    OrderMatchingEngineImpl(String symbol, OrderBookType orderBookType, int maxRetainedTrades) {
+        this(orderBookType, new TradeHistory(maxRetainedTrades));
+        getOrCreateOrderBook(symbol);
+    }
+
+    //Books are created on the first order or snapshot of a symbol and record their trades into tradeHistory
+    OrderMatchingEngineImpl(OrderBookType orderBookType, TradeHistory tradeHistory) {
+        this(orderBookType, tradeHistory, EventJournal.NONE);
+    }
+
+    //Accepted, rejected, amended and cancelled orders, trades and top of book changes are written to eventJournal
+    OrderMatchingEngineImpl(OrderBookType orderBookType, TradeHistory tradeHistory, EventJournal eventJournal) {
+        this(orderBookType, tradeHistory, eventJournal, new OrderStore());
+    }
+
+    //Filled orders are answered from orderStore's archive until it evicts them
+    OrderMatchingEngineImpl(OrderBookType orderBookType, TradeHistory tradeHistory, EventJournal eventJournal, OrderStore orderStore) {
+        this.orderBookType = orderBookType;
+        this.orderStore = orderStore;
+        this.tradeHistory = tradeHistory;
+        this.eventJournal = eventJournal;
+        tradeHistory.setEventJournal(eventJournal);
+    }
+
+    private int internSymbol(String symbol) {
+        int symbolId = symbolTable.intern(symbol);
+        if (symbolId == orderBooks.length) {
+            orderBooks = Arrays.copyOf(orderBooks, symbolId * 2);
+            tickSizes = Arrays.copyOf(tickSizes, symbolId * 2);
+            journaledTopOfBook = Arrays.copyOf(journaledTopOfBook, symbolId * 2);
+        }
+        return symbolId;
+    }
+
+    private OrderBook getOrCreateOrderBook(String symbol) {
+        int symbolId = internSymbol(symbol);
+        OrderBook orderBook = orderBooks[symbolId];
+        if (orderBook == null) {
+            orderBook = orderBookType.newOrderBook(symbol, tradeHistory, tickSizes[symbolId]);
+            orderBook.setMetrics(metrics);
+            orderBook.setOrderStore(orderStore);
+            orderBooks[symbolId] = orderBook;
+        }
+        return orderBook;
+    }
+
+    /*
+        Orders of the symbol have to be priced at a multiple of tickSize, snapshots of it too. Has to be set before the book has any levels.
+        Without a tick size a TREE_MAP book accepts any price and a PRICE_LADDER book uses PriceLadderOrderBook.DEFAULT_TICK_SIZE.
+    */
+    void setTickSize(String symbol, double tickSize) {
+        if (Prices.toScaled(tickSize) <= 0) {
+            throw new IllegalArgumentException("Tick size of " + symbol + " must be positive, was " + tickSize);
+        }
+        setScaledTickSize(symbol, Prices.toScaled(tickSize));
+    }
+
+    private void setScaledTickSize(String symbol, long tickSize) {
+        int symbolId = internSymbol(symbol);
+        OrderBook orderBook = orderBooks[symbolId];
+        if (orderBook != null && orderBook.getTickSize() != tickSize) {
+            if (orderBook.getLevelCount(Side.BUY) + orderBook.getLevelCount(Side.SELL) > 0) {
+                throw new IllegalStateException("Tick size of " + symbol + " can not change while its book has levels");
+            }
+            //The empty book is simply created again with the new tick size
+            orderBooks[symbolId] = null;
+        }
+        tickSizes[symbolId] = tickSize;
+    }
+
+    //Null if the symbol has no book yet
+    private OrderBook getOrderBook(String symbol) {
+        int symbolId = symbolTable.idOf(symbol);
+        return symbolId == SymbolTable.NO_SYMBOL ? null : orderBooks[symbolId];
+    }
+
+    @Override
+    /*
+        This is our current orderbook where we have our client orders
+        If we get a market snapshot where the market has moved, we atleast need to try to see if there is any possibility to match our existing orders
+        This matching engine is running in a backtesting environment to test algo behaviour , so anyways my understanding is that it will get market data and it just
+        needs to match the existing orders it has at whichever levels. So the assumption is market data which it receives does not include the orders it receives from the algo
+    */
+    public void onMdSnapshot(MarketDataBookSnapshot marketDataBookSnapshot) {
+        if (metrics == null) {
+            applyMdSnapshot(marketDataBookSnapshot);
+            return;
+        }
+        long start = metricsClock.nanoTime();
+        applyMdSnapshot(marketDataBookSnapshot);
+        recordLatency(metrics.getMarketDataSnapshotLatency(), start);
+    }
+
+    private void applyMdSnapshot(MarketDataBookSnapshot marketDataBookSnapshot) {
+        //The book diffs the snapshot against its market data liquidity and re-enters only our orders which the market has moved through
+        getOrCreateOrderBook(marketDataBookSnapshot.getSymbol()).onMarketOrderBookSnapshot(marketDataBookSnapshot);
+        journalTopOfBook(marketDataBookSnapshot.getSymbol());
+    }
+
+    @Override
+    public OrderStatus enter(NewOrder order) {
+        if (metrics == null) {
+            return enterNewOrder(order);
+        }
+        long start = metricsClock.nanoTime();
+        OrderStatus orderStatus = enterNewOrder(order);
+        recordLatency(metrics.getNewOrderLatency(), start);
+        return orderStatus;
+    }
+
+    private OrderStatus enterNewOrder(NewOrder order) {
+        log(order, "Entering ");
+        if (order.getQty() <= 0 || order.getScaledPrice() <= 0 || !orderValidator.isValid(order) || !eventJournal.canJournal(order)
+                || !canHoldPrice(getOrCreateOrderBook(order.getSymbol()), order.getSide(), order.getScaledPrice())) {
+            eventJournal.onOrderRejected(order);
+            report(ExecutionReport.Type.ORDER_REJECTED, order, null, OrderStatus.REJECTED);
+            return OrderStatus.REJECTED;
+        }
+        enterValidOrder(order);
+        journalTopOfBook(order.getSymbol());
+        return OrderStatus.NEW;
+    }
+
+    //Checked before the book is touched, a price the book can not hold would otherwise fail with the order half applied
+    private static boolean canHoldPrice(OrderBook orderBook, Side side, long price) {
+        return orderBook.isOnTickGrid(price) && orderBook.canHoldPrice(side, price);
+    }
+
+    //Also used to re-enter orders on a price amend, which are journaled as the amend
+    private void enterValidOrder(NewOrder order) {
+        NewOrder previousOrder = orderStore.put(order.getClOrderId(), order);
+        order.orderId = (previousOrder != null) ? previousOrder.orderId : nextOrderId++;
+        releaseReplacementOrder(previousOrder, order);
+        order.setOrderStatus(OrderStatus.NEW);
+        if (!order.priceAmendReplacement) {
+            eventJournal.onOrderAccepted(order);
+            report(ExecutionReport.Type.ORDER_ACCEPTED, order, null, OrderStatus.NEW);
+        }
+        OrderBook orderBook = getOrCreateOrderBook(order.getSymbol());
+        orderBook.enterOrder(order);
+    }
+
+    @Override
+    public OrderStatus enter(AmendOrder order) {
+        if (metrics == null) {
+            return enterAmendOrder(order);
+        }
+        long start = metricsClock.nanoTime();
+        OrderStatus orderStatus = enterAmendOrder(order);
+        recordLatency(metrics.getAmendOrderLatency(), start);
+        return orderStatus;
+    }
+
+    private OrderStatus enterAmendOrder(AmendOrder order) {
+        log(order, "Amending ");
+        OrderStatus orderStatus = amend(order);
+        if (orderStatus == OrderStatus.REJECTED) {
+            eventJournal.onOrderRejected(order);
+            report(ExecutionReport.Type.ORDER_REJECTED, order, order.getOrigClOrderId(), OrderStatus.REJECTED);
+        } else {
+            eventJournal.onOrderAmended(order);
+            report(ExecutionReport.Type.ORDER_AMENDED, order, order.getOrigClOrderId(), orderStatus);
+            journalTopOfBook(order.getSymbol());
+        }
+        return orderStatus;
+    }
+
+    private OrderStatus amend(AmendOrder order) {
+        OrderBook orderBook = getOrderBook(order.getSymbol());
+
+        NewOrder origOrder = orderStore.get(order.getOrigClOrderId());
+        if (orderBook == null || origOrder == null || !orderValidator.isValid(order) || !eventJournal.canJournal(order) || origOrder.getOrderStatus() == OrderStatus.FILLED || order.getQty() <= 0 || order.getScaledPrice() <= 0) {
+            return OrderStatus.REJECTED;
+        }
+        if (origOrder.getScaledPrice() != order.getScaledPrice() && !canHoldPrice(orderBook, order.getSide(), order.getScaledPrice())) {
+            return OrderStatus.REJECTED;
+        }
+
+        //If no price change
+        if (origOrder.getScaledPrice() == order.getScaledPrice()) {
+            //If quantity amend down only we need to adjust original order
+            if (order.getQty() < origOrder.getQty() && orderBook.hasPriceLevel(order.getSide(), order.getScaledPrice())) {
+                return orderBook.amendDownYoungestSliceAndCancelOutstandingSlicesAtLevel(order, origOrder);
+            } else if (order.getQty() > origOrder.getQty()) {
+                orderBook.addNewSliceAtSamePriceLevelWithRemainingQty(order, origOrder);
+            } else {//If both quantity and price are equal then there is nothing to amend, so we return
+                return OrderStatus.REJECTED;
+            }
+        } else {
+            //Both price and quantity amend will lead to loss of queue priority
+            // NewOrder looses queuePriority on price amend
+            // 1. Cancel the original order slices
+            // 2. Add the new order at appropriate level
+            removeExistingSliceAndReEnterOrderBookOnLoosingQueuePriority(order, origOrder, orderBook);
+            return OrderStatus.AMENDED;
+        }
+        return OrderStatus.AMENDED;
+    }
+
+    private void removeExistingSliceAndReEnterOrderBookOnLoosingQueuePriority(AmendOrder order, NewOrder origOrder, OrderBook orderBook) {
+        orderBook.removeOrder(order.getSide(), origOrder.orderId);
+        if (origOrder.priceAmendReplacement && origOrder.level == null && origOrder.getSide() == order.getSide() && origOrder.getSymbol().equals(order.getSymbol())) {
+            //The replacement from an earlier price amend is off the book now and was never handed out, so it is simply re-priced
+            origOrder.setQty(order.getQty());
+            origOrder.setScaledPrice(order.getScaledPrice());
+            enterValidOrder(origOrder);
+        } else {
+            NewOrder replacementOrder = replacementOrderPool.acquire();
+            replacementOrder.init(order.getSymbol(), order.getSide(), order.getQty(), order.getScaledPrice(), order.getOrigClOrderId());
+            replacementOrder.priceAmendReplacement = true;
+            enterValidOrder(replacementOrder);
+        }
+    }
+
+    //A replacement order which is no longer reachable through the order store and no longer resting can be recycled
+    private void releaseReplacementOrder(NewOrder previousOrder, NewOrder currentOrder) {
+        if (previousOrder != null && previousOrder != currentOrder && previousOrder.priceAmendReplacement && previousOrder.level == null) {
+            replacementOrderPool.release(previousOrder);
+        }
+    }
+
+    @Override
+    public OrderStatus enter(CancelOrder order) {
+        if (metrics == null) {
+            return enterCancelOrder(order);
+        }
+        long start = metricsClock.nanoTime();
+        OrderStatus orderStatus = enterCancelOrder(order);
+        recordLatency(metrics.getCancelOrderLatency(), start);
+        return orderStatus;
+    }
+
+    private OrderStatus enterCancelOrder(CancelOrder order) {
+        log(order, "Cancelling ");
+        OrderBook orderBook = getOrderBook(order.getSymbol());
+        //An order of a symbol without a book can not exist, the clOrdId belongs to an order of another symbol
+        NewOrder origOrder = (orderBook != null && orderValidator.isValid(order) && eventJournal.canJournal(order)) ? orderStore.remove(order.getOrigClOrderId()) : null;
+        if (origOrder == null) {
+            eventJournal.onOrderRejected(order);
+            report(ExecutionReport.Type.ORDER_REJECTED, order, order.getOrigClOrderId(), OrderStatus.REJECTED);
+            return OrderStatus.REJECTED;
+        }
+        orderBook.removeOrder(order.getSide(), origOrder.orderId);
+        releaseReplacementOrder(origOrder, null);
+        eventJournal.onOrderCancelled(order);
+        report(ExecutionReport.Type.ORDER_CANCELLED, order, order.getOrigClOrderId(), OrderStatus.CANCELLED);
+        journalTopOfBook(order.getSymbol());
+        return OrderStatus.CANCELLED;
+    }
+
+    private void report(ExecutionReport.Type type, Order order, String origClOrdId, OrderStatus orderStatus) {
+        if (executionListener != ExecutionListener.NONE) {
+            executionReport.order(type, order, origClOrdId, orderStatus);
+            executionListener.onExecutionReport(executionReport);
+        }
+    }
+
+    /*
+        Every accepted, rejected, amended and cancelled order and every fill is pushed to executionListener on the matching thread as it happens.
+        New orders are reported before their fills, amends and cancels once they are done.
+    */
+    @Override
+    public void setExecutionListener(ExecutionListener executionListener) {
+        this.executionListener = executionListener;
+        tradeHistory.setExecutionListener(executionListener);
+    }
+
+    private void recordLatency(Histogram latency, long start) {
+        long end = metricsClock.nanoTime();
+        latency.record(end - start);
+        if (metricsDumpIntervalNanos > 0 && end - nextMetricsDump >= 0) {
+            nextMetricsDump = end + metricsDumpIntervalNanos;
+            logger.log(Level.INFO, "Engine metrics\n" + getMetrics());
+        }
+    }
+
+    /*
+        Starts timing enter/amend/cancel/onMdSnapshot with clock and recording the levels walked and orders matched per match.
+        With a positive dumpIntervalNanos the matching thread also logs getMetrics() at INFO once that much time has passed after an operation.
+    */
+    void enableMetrics(NanoClock clock, long dumpIntervalNanos) {
+        if (metrics == null) {
+            metrics = new EngineMetrics();
+            for (int symbolId = 0; symbolId < symbolTable.size(); symbolId++) {
+                orderBooks[symbolId].setMetrics(metrics);
+            }
+        }
+        metricsClock = clock;
+        metricsDumpIntervalNanos = dumpIntervalNanos;
+        nextMetricsDump = clock.nanoTime() + dumpIntervalNanos;
+    }
+
+    void enableMetrics() {
+        enableMetrics(NanoClock.SYSTEM, 0);
+    }
+
+    OrderStore getOrderStore() {
+        return orderStore;
+    }
+
+    //Copy of the metrics recorded so far with the current depth of every book, null while metrics are not enabled
+    EngineMetrics getMetrics() {
+        if (metrics == null) {
+            return null;
+        }
+        Map<String, EngineMetrics.BookDepth> bookDepths = new HashMap<>();
+        for (int symbolId = 0; symbolId < symbolTable.size(); symbolId++) {
+            String symbol = symbolTable.symbolOf(symbolId);
+            OrderBook orderBook = orderBooks[symbolId];
+            bookDepths.put(symbol, new EngineMetrics.BookDepth(symbol, orderBook.getLevelCount(Side.BUY),
+                    orderBook.getRestingOrderCount(Side.BUY), orderBook.getLevelCount(Side.SELL), orderBook.getRestingOrderCount(Side.SELL)));
+        }
+        return metrics.snapshot(bookDepths);
+    }
+
+    //Starts the histograms afresh, e.g. after a warm up
+    void resetMetrics() {
+        if (metrics != null) {
+            metrics.reset();
+        }
+    }
+
+    //The book hands out the same TopOfBook object until its prices or quantities change
+    private void journalTopOfBook(String symbol) {
+        if (eventJournal == EventJournal.NONE) {
+            return;
+        }
+        int symbolId = symbolTable.idOf(symbol);
+        TopOfBook topOfBook = orderBooks[symbolId].getTopOfBook();
+        if (topOfBook != journaledTopOfBook[symbolId]) {
+            journaledTopOfBook[symbolId] = topOfBook;
+            eventJournal.onTopOfBookChanged(topOfBook);
+        }
+    }
+
+    private void log(CancelOrder order, String s) {
+        if (!logger.isLoggable(Level.FINE)) {
+            return;
+        }
+        logger.log(Level.FINE, s + order.getSide() + " order for quantity=" + order.getQty() + " price=" + order.getPrice()
+                + " newClOrdId=" + order.getClOrderId());
+    }
+
+    private void log(AmendOrder order, String s) {
+        if (!logger.isLoggable(Level.FINE)) {
+            return;
+        }
+        logger.log(Level.FINE, s + order.getSide() + " order for quantity=" + order.getQty() + " price=" + order.getPrice()
+                + " oldClOrdId=" + order.getOrigClOrderId() + " newClOrdId=" + order.getClOrderId());
+    }
+
+    private void log(NewOrder order, String msg) {
+        if (!logger.isLoggable(Level.FINE)) {
+            return;
+        }
+        logger.log(Level.FINE, msg + order.getSide() + " order for quantity=" + order.getQty() + " price=" + order.getPrice() + " clientOrderId=" + order.getClOrderId());
+    }
+
+    /*
+        The whole batch is matched before anything is published: the statuses are stored per command, the trades of every command are appended
+        to the batch as they are matched and the top of book is only taken after the last command.
+    */
+    @Override
+    public void enter(CommandBatch batch) {
+        batch.getTrades().clear();
+        tradeHistory.setTradeBatch(batch.getTrades());
+        //Commands a failure stopped the batch before keep a null status
+        for (int i = 0; i < batch.size(); i++) {
+            batch.setOrderStatus(i, null);
+        }
+        try {
+            for (int i = 0; i < batch.size(); i++) {
+                batch.setOrderStatus(i, apply(batch.getCommand(i)));
+            }
+        } finally {
+            tradeHistory.setTradeBatch(null);
+        }
+        batch.setTopOfBook(hasOrderBook(batch.getSymbol()) ? getTopOfBook(batch.getSymbol()) : null);
+    }
+
+    //Applies a command, market data snapshots have no status and return null
+    OrderStatus apply(EngineCommand command) {
+        switch (command.type) {
+            case NEW_ORDER:
+                return enter(command.order != null ? command.order : NewOrder.withScaledPrice(command.symbol, command.side, command.qty, command.price, command.clOrdId));
+            case AMEND_ORDER:
+                commandAmendOrder.init(command.symbol, command.side, command.qty, command.price, command.clOrdId);
+                commandAmendOrder.setOrigClOrderId(command.origClOrdId);
+                return enter(commandAmendOrder);
+            case CANCEL_ORDER:
+                commandCancelOrder.init(command.symbol, command.side, command.qty, command.price, command.clOrdId);
+                commandCancelOrder.setOrigClOrderId(command.origClOrdId);
+                return enter(commandCancelOrder);
+            default:
+                onMdSnapshot(command.marketDataBookSnapshot);
+                return null;
+        }
+    }
+
+    /*
+        Applies a binary order entry message in place, amends and cancels reuse the same command objects as apply(EngineCommand).
+        Only a new order is turned into a NewOrder, as that is the object which rests in the book.
+    */
+    OrderStatus apply(OrderEntryMessage message) {
+        if (!message.isValid()) {
+            return reject(message);
+        }
+        switch (message.getType()) {
+            case OrderEntryCodec.NEW_ORDER:
+                return enter(NewOrder.withScaledPrice(message.getSymbol(), message.getSide(), message.getQty(), message.getScaledPrice(), message.getClOrdId()));
+            case OrderEntryCodec.AMEND_ORDER:
+                commandAmendOrder.init(message.getSymbol(), message.getSide(), message.getQty(), message.getScaledPrice(), message.getClOrdId());
+                commandAmendOrder.setOrigClOrderId(message.getOrigClOrdId());
+                return enter(commandAmendOrder);
+            case OrderEntryCodec.CANCEL_ORDER:
+                commandCancelOrder.init(message.getSymbol(), message.getSide(), message.getQty(), message.getScaledPrice(), message.getClOrdId());
+                commandCancelOrder.setOrigClOrderId(message.getOrigClOrdId());
+                return enter(commandCancelOrder);
+            default:
+                throw new IllegalArgumentException("Not an order entry message, type " + message.getType());
+        }
+    }
+
+    //Rejects the message without applying it, journaled and reported like any rejected order. Also used by a gateway which refuses a message
+    OrderStatus reject(OrderEntryMessage message) {
+        invalidMessageOrder.init(message.getSymbol(), message.getSide(), message.getQty(), message.getScaledPrice(), message.getClOrdId());
+        invalidMessageOrder.setOrderStatus(OrderStatus.REJECTED);
+        eventJournal.onOrderRejected(invalidMessageOrder);
+        report(ExecutionReport.Type.ORDER_REJECTED, invalidMessageOrder, message.getOrigClOrdId(), OrderStatus.REJECTED);
+        return OrderStatus.REJECTED;
+    }
+
+    boolean hasOrderBook(String symbol) {
+        return getOrderBook(symbol) != null;
+    }
+
+    TradeHistory getTradeHistory() {
+        return tradeHistory;
+    }
+
+    /*
+        Writes every book, the live and archived orders and the trade and order id counters to file, restoreCheckpoint on a new engine carries on from exactly this state.
+        Trades which already happened are not part of the checkpoint, getTrades only reports trades made after the restore.
+    */
+    void writeCheckpoint(Path file) throws IOException {
+        try (CheckpointWriter writer = new CheckpointWriter(file)) {
+            writeCheckpoint(writer);
+            writer.commit();
+        }
+    }
+
+    void writeCheckpoint(CheckpointWriter writer) throws IOException {
+        writer.writeLong(tradeHistory.getNextTradeId());
+        writer.writeLong(nextOrderId);
+        writer.writeInt(symbolTable.size());
+        for (int symbolId = 0; symbolId < symbolTable.size(); symbolId++) {
+            writer.writeString(symbolTable.symbolOf(symbolId));
+            writer.writeLong(orderBooks[symbolId].getTickSize());
+            orderBooks[symbolId].writeCheckpoint(writer);
+        }
+        orderStore.writeCheckpoint(writer);
+    }
+
+    //Only an engine which has not seen any orders yet can be restored
+    void restoreCheckpoint(Path file) throws IOException {
+        try (CheckpointReader reader = new CheckpointReader(file)) {
+            restoreCheckpoint(reader);
+        }
+    }
+
+    void restoreCheckpoint(CheckpointReader reader) throws IOException {
+        if (!orderStore.isEmpty()) {
+            throw new IllegalStateException("A checkpoint can only be restored into an engine without orders");
+        }
+        tradeHistory.setNextTradeId(reader.readLong());
+        nextOrderId = reader.readLong();
+        int orderBookCount = reader.readInt();
+        for (int i = 0; i < orderBookCount; i++) {
+            String symbol = reader.readString();
+            setScaledTickSize(symbol, reader.readLong());
+            getOrCreateOrderBook(symbol).restoreCheckpoint(reader);
+        }
+        orderStore.restoreCheckpoint(reader);
+    }
+
+    @Override
+    public TopOfBook getTopOfBook(String symbol) {
+        return getOrderBook(symbol).getTopOfBook();
+    }
+
+    @Override
+    public List<Trade> getTrades(Order order) {
+        return getTrades(order.getSymbol(), order.getClOrderId());
+    }
+
+    public List<Trade> getTrades(String symbol, String clOrdId) {
+        return getOrderBook(symbol).getTrade(clOrdId);
+    }
+
+    @Override
+    public int getQuantityAtLevel(String symbol, Side side, double price) {
+        return getOrderBook(symbol).getQuantityAtPrice(side, Prices.toScaled(price));
+    }
+
+    @Override
+    public int getOrderCountAtLevel(String symbol, Side side, double price) {
+        return getOrderBook(symbol).getOrderCountAtPrice(side, Prices.toScaled(price));
+    }
+
+    //Exchange liquidity and our own slices ahead of the order at its price, -1 if the order does not rest on the book
+    public int getQueueAhead(String symbol, String clOrdId) {
+        NewOrder order = orderStore.get(clOrdId);
+        return order == null ? -1 : getOrderBook(symbol).getQueueAhead(order.orderId);
+    }
+
+    @Override
+    public String dumpOrderBook(String symbol) {
+        return getOrderBook(symbol).dumpOrderBook();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,185 @@
+package ordermatchingengine;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/*
+    Decouples the order router from matching: commands are written into a pre-allocated ring buffer and applied by a dedicated matching thread,
+    whose results (status, trades and top of book) come back through a second ring buffer with the same sequence as the command.
+    The matching thread drains every command published so far in one batch, the last result of a batch is flagged as endOfBatch.
+    The engine is only touched by the matching thread. Results have to be consumed from a single thread, otherwise the matching thread stalls once the result ring is full.
+    Snapshots are copied into their command slot, a caller may reuse its snapshot (e.g. the flyweight of MarketDataFileReader) as soon as onMdSnapshot returns.
+    With conflateMarketData only the latest snapshot per symbol of a batch is applied, at the place of the first snapshot of that symbol in the batch,
+    the others are conflated: they still get a result but are not applied. A batch only grows once the matching thread falls behind the producers,
+    so conflation keeps the book at the live edge of the market under load and never kicks in otherwise.
+*/
+public class OrderMatchingPipeline implements AutoCloseable {
+    private final Logger logger = Logger.getLogger(this.getClass().getName());
+    private final OrderMatchingEngineImpl orderMatchingEngine;
+    private final TradeHistory tradeHistory;
+    private final RingBuffer<EngineCommand> commands;
+    private final RingBuffer<EngineResult> results;
+    private final Thread matchingThread;
+    private long nextResultSequence;
+    private final boolean conflateMarketData;
+    //Latest snapshot per symbol of the batch being processed, only used by the matching thread. The copies stay in their slots until the whole batch is released
+    private final OpenHashMap<String, MarketDataBookSnapshot> latestSnapshots = new OpenHashMap<>();
+    //Only written by the matching thread
+    private volatile long conflatedSnapshotCount;
+
+    OrderMatchingPipeline(OrderMatchingEngineImpl orderMatchingEngine, int capacity, boolean multiProducer, WaitStrategy matchingWaitStrategy, WaitStrategy resultWaitStrategy) {
+        this(orderMatchingEngine, capacity, multiProducer, matchingWaitStrategy, resultWaitStrategy, false);
+    }
+
+    OrderMatchingPipeline(OrderMatchingEngineImpl orderMatchingEngine, int capacity, boolean multiProducer, WaitStrategy matchingWaitStrategy, WaitStrategy resultWaitStrategy,
+                          boolean conflateMarketData) {
+        this.orderMatchingEngine = orderMatchingEngine;
+        this.conflateMarketData = conflateMarketData;
+        this.tradeHistory = orderMatchingEngine.getTradeHistory();
+        this.commands = new RingBuffer<>(EngineCommand::new, capacity, multiProducer, matchingWaitStrategy);
+        this.results = new RingBuffer<>(EngineResult::new, capacity, false, resultWaitStrategy);
+        this.matchingThread = new Thread(this::runMatchingLoop, "matching-pipeline");
+        this.matchingThread.setDaemon(true);
+        this.matchingThread.start();
+    }
+
+    //Each publish method returns the sequence the result will carry
+    public long enterNewOrder(String symbol, Side side, int qty, double price, String clOrdId) {
+        long sequence = commands.next();
+        commands.get(sequence).newOrder(symbol, side, qty, Prices.toScaled(price), clOrdId);
+        commands.publish(sequence);
+        return sequence;
+    }
+
+    public long enterAmendOrder(String symbol, Side side, int qty, double price, String origClOrdId, String clOrdId) {
+        long sequence = commands.next();
+        commands.get(sequence).amendOrder(symbol, side, qty, Prices.toScaled(price), origClOrdId, clOrdId);
+        commands.publish(sequence);
+        return sequence;
+    }
+
+    public long enterCancelOrder(String symbol, Side side, String origClOrdId, String clOrdId) {
+        long sequence = commands.next();
+        commands.get(sequence).cancelOrder(symbol, side, origClOrdId, clOrdId);
+        commands.publish(sequence);
+        return sequence;
+    }
+
+    public long onMdSnapshot(MarketDataBookSnapshot marketDataBookSnapshot) {
+        long sequence = commands.next();
+        commands.get(sequence).copyMarketDataSnapshot(marketDataBookSnapshot);
+        commands.publish(sequence);
+        return sequence;
+    }
+
+    //Hands every result published so far to the handler without waiting, returns how many there were
+    public int pollResults(EngineResultHandler resultHandler) {
+        int resultCount = 0;
+        while (results.isPublished(nextResultSequence)) {
+            resultHandler.onResult(results.get(nextResultSequence));
+            results.release(nextResultSequence);
+            nextResultSequence++;
+            resultCount++;
+        }
+        return resultCount;
+    }
+
+    //Snapshots which were superseded by a later one of the same symbol before the matching thread got to them
+    public long getConflatedSnapshotCount() {
+        return conflatedSnapshotCount;
+    }
+
+    //Waits with the result wait strategy until at least one result is published and then behaves like pollResults
+    public int takeResults(EngineResultHandler resultHandler) {
+        if (results.waitFor(nextResultSequence) < 0) {
+            return 0;
+        }
+        return pollResults(resultHandler);
+    }
+
+    private void runMatchingLoop() {
+        long nextSequence = 0;
+        try {
+            while (true) {
+                long availableSequence = commands.waitFor(nextSequence);
+                if (availableSequence < 0) {
+                    return;
+                }
+                if (conflateMarketData) {
+                    collectLatestSnapshots(nextSequence, availableSequence);
+                }
+                for (long sequence = nextSequence; sequence <= availableSequence; sequence++) {
+                    process(commands.get(sequence), sequence, sequence == availableSequence);
+                }
+                commands.release(availableSequence);
+                nextSequence = availableSequence + 1;
+            }
+        } catch (IllegalStateException e) {
+            //Result ring halted while waiting for space, the pipeline is closing
+        }
+    }
+
+    private void collectLatestSnapshots(long fromSequence, long toSequence) {
+        for (long sequence = fromSequence; sequence <= toSequence; sequence++) {
+            EngineCommand command = commands.get(sequence);
+            if (command.type == EngineCommand.Type.MARKET_DATA_SNAPSHOT) {
+                latestSnapshots.put(command.symbol, command.marketDataBookSnapshot);
+            }
+        }
+    }
+
+    //The first snapshot of a symbol in the batch takes the latest one's place, the later ones find nothing left and are conflated
+    private boolean conflate(EngineCommand command) {
+        if (!conflateMarketData || command.type != EngineCommand.Type.MARKET_DATA_SNAPSHOT) {
+            return false;
+        }
+        MarketDataBookSnapshot latestSnapshot = latestSnapshots.remove(command.symbol);
+        if (latestSnapshot == null) {
+            conflatedSnapshotCount++;
+            return true;
+        }
+        command.marketDataBookSnapshot = latestSnapshot;
+        return false;
+    }
+
+    private void process(EngineCommand command, long sequence, boolean endOfBatch) {
+        long resultSequence = results.next();
+        EngineResult result = results.get(resultSequence);
+        OrderStatus orderStatus = null;
+        boolean conflated = conflate(command);
+        result.trades.clear();
+        tradeHistory.setTradeBatch(result.trades);
+        try {
+            if (!conflated) {
+                orderStatus = orderMatchingEngine.apply(command);
+            }
+        } catch (RuntimeException e) {
+            logger.log(Level.SEVERE, "Failed to apply " + command.getType() + " for " + command.getSymbol(), e);
+            orderStatus = OrderStatus.REJECTED;
+        } finally {
+            tradeHistory.setTradeBatch(null);
+        }
+        result.sequence = sequence;
+        result.type = command.type;
+        result.symbol = command.symbol;
+        result.clOrdId = command.clOrdId;
+        result.orderStatus = orderStatus;
+        result.topOfBook = orderMatchingEngine.hasOrderBook(command.symbol) ? orderMatchingEngine.getTopOfBook(command.symbol) : null;
+        result.endOfBatch = endOfBatch;
+        result.conflated = conflated;
+        results.publish(resultSequence);
+    }
+
+    //Stops the matching thread, commands which have not been matched yet are dropped
+    @Override
+    public void close() {
+        commands.halt();
+        results.halt();
+        try {
+            matchingThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the matching thread", e);
+        }
+    }
+}
@@ -1,3 +1,5 @@
+package ordermatchingengine;
+
 public enum OrderStatus {
     NONE,
     NEW,
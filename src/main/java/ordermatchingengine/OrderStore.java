@@ -0,0 +1,136 @@
+package ordermatchingengine;
+
+import java.io.IOException;
+
+/*
+    Orders of one engine by clOrdId, split into live orders and an archive of finished ones.
+    An order which is FILLED and has no slice left on the book is moved to the archive, so the live map only holds what can still trade
+    and stays small however many orders a session has seen. The archive keeps the last maxArchivedOrders finished orders, oldest evicted first,
+    so an amend or cancel of a recently filled order is answered exactly as before. Once an order is evicted it is unknown to the engine.
+*/
+public class OrderStore {
+    static final int DEFAULT_MAX_ARCHIVED_ORDERS = 1 << 16;
+    private final OpenHashMap<String, NewOrder> liveOrders = new OpenHashMap<>();
+    private final OpenHashMap<String, NewOrder> archivedOrders = new OpenHashMap<>();
+    private final int maxArchivedOrders;
+    //Archived orders are chained through NewOrder.olderArchived and youngerArchived, the oldest one is evicted first
+    private NewOrder oldestArchived;
+    private NewOrder youngestArchived;
+
+    OrderStore() {
+        this(DEFAULT_MAX_ARCHIVED_ORDERS);
+    }
+
+    OrderStore(int maxArchivedOrders) {
+        if (maxArchivedOrders < 0) {
+            throw new IllegalArgumentException("maxArchivedOrders must not be negative");
+        }
+        this.maxArchivedOrders = maxArchivedOrders;
+    }
+
+    //Live order first, then the archive
+    NewOrder get(String clOrdId) {
+        NewOrder order = liveOrders.get(clOrdId);
+        return order != null ? order : archivedOrders.get(clOrdId);
+    }
+
+    //Returns the order the clOrdId referred to before, live or archived
+    NewOrder put(String clOrdId, NewOrder order) {
+        NewOrder previousOrder = liveOrders.put(clOrdId, order);
+        NewOrder archivedOrder = removeArchived(clOrdId);
+        return previousOrder != null ? previousOrder : archivedOrder;
+    }
+
+    NewOrder remove(String clOrdId) {
+        NewOrder order = liveOrders.remove(clOrdId);
+        return order != null ? order : removeArchived(clOrdId);
+    }
+
+    //Called by the book once the last resting slice of clOrdId is gone through a fill, the order moves to the archive if it is FILLED
+    void onOrderFilled(String clOrdId) {
+        NewOrder order = liveOrders.get(clOrdId);
+        if (order != null && order.getOrderStatus() == OrderStatus.FILLED) {
+            liveOrders.remove(clOrdId);
+            archive(clOrdId, order);
+        }
+    }
+
+    private void archive(String clOrdId, NewOrder order) {
+        if (maxArchivedOrders == 0) {
+            return;
+        }
+        if (archivedOrders.size() == maxArchivedOrders) {
+            removeArchived(oldestArchived.getClOrderId());
+        }
+        order.olderArchived = youngestArchived;
+        order.youngerArchived = null;
+        if (youngestArchived != null) {
+            youngestArchived.youngerArchived = order;
+        } else {
+            oldestArchived = order;
+        }
+        youngestArchived = order;
+        archivedOrders.put(clOrdId, order);
+    }
+
+    private NewOrder removeArchived(String clOrdId) {
+        NewOrder order = archivedOrders.remove(clOrdId);
+        if (order == null) {
+            return null;
+        }
+        if (order.olderArchived != null) {
+            order.olderArchived.youngerArchived = order.youngerArchived;
+        } else {
+            oldestArchived = order.youngerArchived;
+        }
+        if (order.youngerArchived != null) {
+            order.youngerArchived.olderArchived = order.olderArchived;
+        } else {
+            youngestArchived = order.olderArchived;
+        }
+        order.olderArchived = null;
+        order.youngerArchived = null;
+        return order;
+    }
+
+    boolean isEmpty() {
+        return liveOrders.isEmpty() && archivedOrders.isEmpty();
+    }
+
+    public int getLiveOrderCount() {
+        return liveOrders.size();
+    }
+
+    public int getArchivedOrderCount() {
+        return archivedOrders.size();
+    }
+
+    //Live orders followed by the archive oldest first, so restoreCheckpoint rebuilds the archive in the same eviction order
+    void writeCheckpoint(CheckpointWriter writer) throws IOException {
+        writer.writeInt(liveOrders.size());
+        for (int slot = 0; slot < liveOrders.capacity(); slot++) {
+            if (liveOrders.keyAt(slot) != null) {
+                writer.writeString(liveOrders.keyAt(slot));
+                writer.writeOrder(liveOrders.valueAt(slot));
+            }
+        }
+        writer.writeInt(archivedOrders.size());
+        for (NewOrder order = oldestArchived; order != null; order = order.youngerArchived) {
+            writer.writeOrder(order);
+        }
+    }
+
+    //Only into an empty store
+    void restoreCheckpoint(CheckpointReader reader) throws IOException {
+        int liveOrderCount = reader.readInt();
+        for (int i = 0; i < liveOrderCount; i++) {
+            String clOrdId = reader.readString();
+            liveOrders.put(clOrdId, reader.readOrder());
+        }
+        int archivedOrderCount = reader.readInt();
+        for (int i = 0; i < archivedOrderCount; i++) {
+            NewOrder order = reader.readOrder();
+            archive(order.getClOrderId(), order);
+        }
+    }
+}
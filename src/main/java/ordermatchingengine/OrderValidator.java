@@ -1,3 +1,5 @@
+package ordermatchingengine;
+
 public interface OrderValidator {
     boolean isValid(Order order);
 }
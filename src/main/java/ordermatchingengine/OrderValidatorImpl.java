@@ -1,7 +1,10 @@
+package ordermatchingengine;
+
 public class OrderValidatorImpl implements OrderValidator {
     //Left empty (Open for adding checks for high low checks, limit up down checks, stock suspension checks,lot size checks
     @Override
     public boolean isValid(Order order) {
-        return true;
+        //Without a side an order would be matched against the wrong side of the book
+        return order.getSide() != null;
     }
 }
@@ -0,0 +1,209 @@
+package ordermatchingengine;
+
+import java.util.ArrayDeque;
+
+/*
+    Book backend keeping each side as an array of price levels indexed by the tick offset from a reference price.
+    Level lookup is a single array index and the best/worst occupied slots are tracked, so matching and cancels never walk a tree.
+    Prices have to be on the tick grid, the engine rejects orders and snapshots off it, and the ladder is re-centred (and grown if needed) when a price falls outside of it.
+    A side spans at most MAX_LADDER_SIZE / 2 ticks, orders and snapshots reaching further are refused before they touch the book.
+    Scaled prices map to ticks with a single integer division, no boxing and no floating point rounding.
+*/
+public class PriceLadderOrderBook extends AbstractOrderBook {
+    static final double DEFAULT_TICK_SIZE = 0.01;
+    static final int DEFAULT_LADDER_SIZE = 1024;
+    private static final int MAX_LADDER_SIZE = 1 << 24;
+    private final long tickSize;
+    private final Ladder bidLadder;
+    private final Ladder askLadder;
+
+    PriceLadderOrderBook(String symbol) {
+        this(symbol, new TradeHistory());
+    }
+
+    PriceLadderOrderBook(String symbol, TradeHistory tradeHistory) {
+        this(symbol, tradeHistory, Prices.toScaled(DEFAULT_TICK_SIZE), DEFAULT_LADDER_SIZE);
+    }
+
+    //tickSize is scaled
+    PriceLadderOrderBook(String symbol, TradeHistory tradeHistory, long tickSize, int ladderSize) {
+        super(symbol, tradeHistory, tickSize);
+        if (tickSize <= 0 || ladderSize <= 0) {
+            throw new IllegalArgumentException("Tick size and ladder size must be positive");
+        }
+        this.tickSize = tickSize;
+        this.bidLadder = new Ladder(Side.BUY, ladderSize);
+        this.askLadder = new Ladder(Side.SELL, ladderSize);
+    }
+
+    private Ladder getSameSideLadder(Side side) {
+        return (side == Side.BUY) ? bidLadder : askLadder;
+    }
+
+    private long toTick(long price) {
+        return Math.floorDiv(price, tickSize);
+    }
+
+    //A price off the grid shares its tick with the grid price below it, so the level found has to carry the exact price
+    @Override
+    protected PriceLevel getLevel(Side side, long price) {
+        PriceLevel priceLevel = getSameSideLadder(side).get(toTick(price));
+        return (priceLevel == null || priceLevel.getPrice() != price) ? null : priceLevel;
+    }
+
+    @Override
+    protected boolean canHoldLevels(Side side, long lowPrice, long highPrice) {
+        return getSameSideLadder(side).canHold(toTick(lowPrice), toTick(highPrice));
+    }
+
+    @Override
+    protected PriceLevel getOrCreateLevel(Side side, long price) {
+        return getSameSideLadder(side).getOrCreate(toTick(price), price);
+    }
+
+    @Override
+    protected void removeLevel(PriceLevel priceLevel) {
+        getSameSideLadder(priceLevel.getSide()).remove(toTick(priceLevel.getPrice()));
+    }
+
+    @Override
+    protected PriceLevel getBestLevel(Side side) {
+        return getSameSideLadder(side).best();
+    }
+
+    @Override
+    protected PriceLevel getNextLevel(PriceLevel priceLevel) {
+        return getSameSideLadder(priceLevel.getSide()).next(toTick(priceLevel.getPrice()));
+    }
+
+    private static final class Ladder {
+        private final Side side;
+        //Moving one slot towards a worse price, bids get worse going down and asks going up
+        private final int worseStep;
+        private final ArrayDeque<PriceLevel> freeLevels = new ArrayDeque<>();
+        private PriceLevel[] levels;
+        private long baseTick;
+        private int bestIndex = -1;
+        private int worstIndex = -1;
+        private int levelCount;
+
+        Ladder(Side side, int ladderSize) {
+            this.side = side;
+            this.worseStep = (side == Side.BUY) ? -1 : 1;
+            this.levels = new PriceLevel[ladderSize];
+        }
+
+        private boolean isBetter(int index, int otherIndex) {
+            return (side == Side.BUY) ? index > otherIndex : index < otherIndex;
+        }
+
+        PriceLevel get(long tick) {
+            long index = tick - baseTick;
+            if (levelCount == 0 || index < 0 || index >= levels.length) {
+                return null;
+            }
+            return levels[(int) index];
+        }
+
+        PriceLevel getOrCreate(long tick, long price) {
+            ensureInRange(tick);
+            int index = (int) (tick - baseTick);
+            PriceLevel priceLevel = levels[index];
+            if (priceLevel == null) {
+                priceLevel = freeLevels.isEmpty() ? new PriceLevel(side, price) : freeLevels.pop();
+                priceLevel.setPrice(price);
+                levels[index] = priceLevel;
+                if (levelCount++ == 0) {
+                    bestIndex = index;
+                    worstIndex = index;
+                } else if (isBetter(index, bestIndex)) {
+                    bestIndex = index;
+                } else if (isBetter(worstIndex, index)) {
+                    worstIndex = index;
+                }
+            } else if (priceLevel.getPrice() != price) {
+                throw new IllegalArgumentException("Price " + Prices.toDouble(price) + " is not on the tick grid of level " + Prices.toDouble(priceLevel.getPrice()));
+            }
+            return priceLevel;
+        }
+
+        void remove(long tick) {
+            int index = (int) (tick - baseTick);
+            freeLevels.push(levels[index]);
+            levels[index] = null;
+            if (--levelCount == 0) {
+                bestIndex = -1;
+                worstIndex = -1;
+            } else if (index == bestIndex) {
+                bestIndex = scan(index + worseStep, worseStep);
+            } else if (index == worstIndex) {
+                worstIndex = scan(index - worseStep, -worseStep);
+            }
+        }
+
+        PriceLevel best() {
+            return bestIndex < 0 ? null : levels[bestIndex];
+        }
+
+        PriceLevel next(long tick) {
+            int index = (int) (tick - baseTick);
+            if (index == worstIndex) {
+                return null;
+            }
+            return levels[scan(index + worseStep, worseStep)];
+        }
+
+        //Only called while at least one more level is occupied in the scan direction
+        private int scan(int index, int step) {
+            while (levels[index] == null) {
+                index += step;
+            }
+            return index;
+        }
+
+        //Ticks the ladder already spans are always held, otherwise ensureInRange can grow the ladder as long as this holds
+        boolean canHold(long lowTick, long highTick) {
+            if (levelCount == 0) {
+                return highTick - lowTick + 1 <= MAX_LADDER_SIZE / 2;
+            }
+            if (lowTick - baseTick >= 0 && highTick - baseTick < levels.length) {
+                return true;
+            }
+            lowTick = Math.min(lowTick, baseTick + Math.min(bestIndex, worstIndex));
+            highTick = Math.max(highTick, baseTick + Math.max(bestIndex, worstIndex));
+            return highTick - lowTick + 1 <= MAX_LADDER_SIZE / 2;
+        }
+
+        //canHold is checked before anything is applied, so this only throws on a caller which skipped it
+        private void ensureInRange(long tick) {
+            if (levelCount == 0) {
+                //Nothing is resting on this side, so simply anchor the ladder around the new price
+                baseTick = tick - levels.length / 2;
+                return;
+            }
+            long index = tick - baseTick;
+            if (index >= 0 && index < levels.length) {
+                return;
+            }
+            long lowTick = Math.min(tick, baseTick + Math.min(bestIndex, worstIndex));
+            long highTick = Math.max(tick, baseTick + Math.max(bestIndex, worstIndex));
+            int ladderSize = levels.length;
+            while (highTick - lowTick + 1 > ladderSize / 2) {
+                ladderSize *= 2;
+                if (ladderSize > MAX_LADDER_SIZE) {
+                    throw new IllegalStateException("Price tick " + tick + " is too far away from the resting " + side + " levels");
+                }
+            }
+            long newBaseTick = (lowTick + highTick) / 2 - ladderSize / 2;
+            PriceLevel[] newLevels = new PriceLevel[ladderSize];
+            int shift = (int) (baseTick - newBaseTick);
+            for (int i = Math.min(bestIndex, worstIndex); i <= Math.max(bestIndex, worstIndex); i++) {
+                newLevels[i + shift] = levels[i];
+            }
+            levels = newLevels;
+            baseTick = newBaseTick;
+            bestIndex += shift;
+            worstIndex += shift;
+        }
+    }
+}
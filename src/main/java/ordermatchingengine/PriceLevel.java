@@ -0,0 +1,151 @@
+package ordermatchingengine;
+
+/*
+    One price of a book in two layers: the exchange layer is the aggregate quantity the last market data snapshot showed at this price,
+    the own order layer is the time ordered queue of our client slices resting behind it. Exchange liquidity always has queue priority.
+    The queue is intrusive: the prev/next links live on the orders themselves, so unlinking an order whose position is known is constant time.
+    Total quantity and order count cover both layers and are kept up to date on every insert, fill, amend and removal so they never need to be re-summed.
+*/
+public class PriceLevel {
+    private final Side side;
+    private long price;
+    private NewOrder head;
+    private NewOrder tail;
+    private int totalQty;
+    private int orderCount;
+    private boolean hasExchangeQty;
+    private int exchangeQty;
+    //Sequence of the last market data snapshot which refreshed this level, maintained by the book
+    long marketDataSequence;
+
+    PriceLevel(Side side, long price) {
+        this.side = side;
+        this.price = price;
+    }
+
+    public Side getSide() {
+        return side;
+    }
+
+    //Scaled price, see Prices
+    public long getPrice() {
+        return price;
+    }
+
+    //Levels are reused by the price ladder when a slot is re-activated at a different price
+    void setPrice(long price) {
+        this.price = price;
+    }
+
+    //Oldest client slice at this level, i.e. the one with the highest queue priority after the exchange liquidity
+    public NewOrder getFirst() {
+        return head;
+    }
+
+    //Youngest client slice at this level
+    public NewOrder getLast() {
+        return tail;
+    }
+
+    public int getTotalQty() {
+        return totalQty;
+    }
+
+    //Number of queued slices, market data liquidity at this level counts as one
+    public int getOrderCount() {
+        return orderCount;
+    }
+
+    public boolean isEmpty() {
+        return head == null && !hasExchangeQty;
+    }
+
+    //True while the last snapshot's liquidity at this price has not been taken out completely, even if it showed a quantity of 0
+    public boolean hasExchangeQty() {
+        return hasExchangeQty;
+    }
+
+    public int getExchangeQty() {
+        return exchangeQty;
+    }
+
+    //Replaces the exchange liquidity in place, no client slice is touched
+    void setExchangeQty(int qty) {
+        if (!hasExchangeQty) {
+            hasExchangeQty = true;
+            orderCount++;
+        }
+        totalQty += qty - exchangeQty;
+        exchangeQty = qty;
+    }
+
+    void removeExchangeQty() {
+        if (hasExchangeQty) {
+            hasExchangeQty = false;
+            orderCount--;
+            totalQty -= exchangeQty;
+            exchangeQty = 0;
+        }
+    }
+
+    //A fill against the exchange liquidity, which leaves the level once nothing is left of it
+    void reduceExchangeQty(int qty) {
+        exchangeQty -= qty;
+        totalQty -= qty;
+        if (exchangeQty == 0) {
+            removeExchangeQty();
+        }
+    }
+
+    //Quantity which trades before the slice: the exchange liquidity and the client slices queued ahead of it
+    public int getQueueAhead(NewOrder order) {
+        int queueAhead = exchangeQty;
+        for (NewOrder ahead = order.prev; ahead != null; ahead = ahead.prev) {
+            queueAhead += ahead.getQty();
+        }
+        return queueAhead;
+    }
+
+    void addLast(NewOrder order) {
+        order.level = this;
+        order.prev = tail;
+        order.next = null;
+        if (tail == null) {
+            head = order;
+        } else {
+            tail.next = order;
+        }
+        tail = order;
+        totalQty += order.getQty();
+        orderCount++;
+    }
+
+    void remove(NewOrder order) {
+        if (order.prev == null) {
+            head = order.next;
+        } else {
+            order.prev.next = order.next;
+        }
+        if (order.next == null) {
+            tail = order.prev;
+        } else {
+            order.next.prev = order.prev;
+        }
+        order.prev = null;
+        order.next = null;
+        order.level = null;
+        totalQty -= order.getQty();
+        orderCount--;
+    }
+
+    //Quantity changes of queued orders have to go through the level so that the aggregate stays in step
+    void reduceQty(NewOrder order, int qty) {
+        order.reduceQty(qty);
+        totalQty -= qty;
+    }
+
+    void setQty(NewOrder order, int qty) {
+        totalQty += qty - order.getQty();
+        order.setQty(qty);
+    }
+}
@@ -0,0 +1,22 @@
+package ordermatchingengine;
+
+/*
+    Prices travel through the engine as longs scaled by PRICE_SCALE (fixed point with 6 decimals).
+    Conversion from and to double only happens at the API edge, so level lookups and the matching loop only use integer compares.
+*/
+public final class Prices {
+    public static final long PRICE_SCALE = 1_000_000L;
+    //Scaled value of the -1 price reported for an empty side of the book
+    public static final long NO_PRICE = -PRICE_SCALE;
+
+    private Prices() {
+    }
+
+    public static long toScaled(double price) {
+        return Math.round(price * PRICE_SCALE);
+    }
+
+    public static double toDouble(long scaledPrice) {
+        return (double) scaledPrice / PRICE_SCALE;
+    }
+}
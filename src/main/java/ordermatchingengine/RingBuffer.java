@@ -0,0 +1,102 @@
+package ordermatchingengine;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/*
+    Bounded ring of pre-allocated mutable slots between one or more producers and a single consumer.
+    A producer claims a sequence with next(), fills the slot returned by get() and makes it visible with publish(), so no object is handed over per message.
+    Every slot remembers the sequence last published into it, which lets several producers publish out of order while the consumer still reads strictly in sequence.
+    Producers wait while the ring is full, i.e. until the consumer has released the slot they are about to reuse.
+*/
+public class RingBuffer<T> {
+    private final Object[] slots;
+    private final int mask;
+    private final boolean multiProducer;
+    private final WaitStrategy waitStrategy;
+    //Last claimed sequence, only used atomically when there are several producers
+    private final AtomicLong claimedSequence = new AtomicLong(-1);
+    private long singleProducerClaimedSequence = -1;
+    private final AtomicLongArray publishedSequences;
+    //Last sequence the consumer is done with, slots up to it may be overwritten
+    private final AtomicLong releasedSequence = new AtomicLong(-1);
+    private volatile boolean halted;
+
+    RingBuffer(Supplier<T> slotFactory, int capacity, boolean multiProducer, WaitStrategy waitStrategy) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Ring buffer capacity must be a power of two");
+        }
+        this.slots = new Object[capacity];
+        this.mask = capacity - 1;
+        this.multiProducer = multiProducer;
+        this.waitStrategy = waitStrategy;
+        this.publishedSequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = slotFactory.get();
+            publishedSequences.set(i, -1);
+        }
+    }
+
+    public int getCapacity() {
+        return slots.length;
+    }
+
+    //Claims the next sequence, waiting while the ring is full
+    public long next() {
+        long sequence = multiProducer ? claimedSequence.incrementAndGet() : ++singleProducerClaimedSequence;
+        while (sequence - slots.length > releasedSequence.get()) {
+            if (halted) {
+                throw new IllegalStateException("Ring buffer has been halted");
+            }
+            LockSupport.parkNanos(1);
+        }
+        return sequence;
+    }
+
+    //Sequences which can be claimed without waiting, only meaningful with a single producer
+    public int remainingCapacity() {
+        return (int) (slots.length - (singleProducerClaimedSequence - releasedSequence.get()));
+    }
+
+    @SuppressWarnings("unchecked")
+    public T get(long sequence) {
+        return (T) slots[(int) sequence & mask];
+    }
+
+    public void publish(long sequence) {
+        publishedSequences.set((int) sequence & mask, sequence);
+        waitStrategy.signalAllWhenBlocking();
+    }
+
+    public boolean isPublished(long sequence) {
+        return publishedSequences.get((int) sequence & mask) == sequence;
+    }
+
+    //Waits for the sequence and returns the last sequence published without a gap after it, or -1 if the ring was halted
+    public long waitFor(long sequence) {
+        if (!waitStrategy.waitFor(sequence, this)) {
+            return -1;
+        }
+        long availableSequence = sequence;
+        while (availableSequence - sequence < mask && isPublished(availableSequence + 1)) {
+            availableSequence++;
+        }
+        return availableSequence;
+    }
+
+    //Hands every slot up to the sequence back to the producers
+    public void release(long sequence) {
+        releasedSequence.lazySet(sequence);
+    }
+
+    public void halt() {
+        halted = true;
+        waitStrategy.signalAllWhenBlocking();
+    }
+
+    public boolean isHalted() {
+        return halted;
+    }
+}
@@ -0,0 +1,307 @@
+package ordermatchingengine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/*
+    Spreads symbols over a fixed number of shards, each shard owns an OrderMatchingEngineImpl which is only ever touched by the shard's single worker thread.
+    A symbol is always routed to the same shard, so its book sees every request in submission order and needs no locking.
+    Every shard hands out trade ids from its own range, trade ids stay unique across the engine without a shared counter.
+    Orders and market data snapshots are copied into a pre-allocated slot of the shard's RingBuffer and the caller carries on right away,
+    so the shards match in parallel and a caller may reuse its snapshot (e.g. the flyweight of MarketDataFileReader) as soon as onMdSnapshot returns.
+    Their outcome arrives asynchronously, through the ExecutionListener and the EngineResultHandler, both called on the shard threads.
+    Queries and command batches, whose results the caller reads from the return value or the batch, queue up behind the shard's commands and block the caller until the shard got to them.
+*/
+public class ShardedOrderMatchingEngine implements OrderMatchingEngine, AutoCloseable {
+    //Size of the trade id range of one shard
+    static final long TRADE_ID_RANGE_PER_SHARD = 1L << 40;
+    static final int DEFAULT_RING_CAPACITY = 1024;
+    private final Shard[] shards;
+    private volatile boolean closed;
+
+    ShardedOrderMatchingEngine(int shardCount) {
+        this(shardCount, OrderBookType.TREE_MAP, TradeHistory.UNBOUNDED);
+    }
+
+    ShardedOrderMatchingEngine(int shardCount, OrderBookType orderBookType, int maxRetainedTrades) {
+        this(shardCount, orderBookType, maxRetainedTrades, DEFAULT_RING_CAPACITY, EngineResultHandler.NONE);
+    }
+
+    //The result handler gets a result per order and snapshot on the shard threads, a handler shared by the shards has to be thread safe
+    ShardedOrderMatchingEngine(int shardCount, OrderBookType orderBookType, int maxRetainedTrades, int ringCapacity, EngineResultHandler resultHandler) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("shardCount must be positive");
+        }
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            TradeHistory tradeHistory = new TradeHistory(TradeHistory.FIRST_TRADE_ID + i * TRADE_ID_RANGE_PER_SHARD, maxRetainedTrades);
+            shards[i] = new Shard(i, new OrderMatchingEngineImpl(orderBookType, tradeHistory), ringCapacity, resultHandler);
+        }
+    }
+
+    int getShardCount() {
+        return shards.length;
+    }
+
+    //Shard owning the symbol, stable for the lifetime of the engine
+    int shardOf(String symbol) {
+        return (symbol.hashCode() & Integer.MAX_VALUE) % shards.length;
+    }
+
+    private Shard shardFor(String symbol) {
+        return shards[shardOf(symbol)];
+    }
+
+    @Override
+    public void onMdSnapshot(MarketDataBookSnapshot marketDataBookSnapshot) {
+        Shard shard = shardFor(marketDataBookSnapshot.getSymbol());
+        long sequence = shard.claim();
+        shard.commands.get(sequence).copyMarketDataSnapshot(marketDataBookSnapshot);
+        shard.commands.publish(sequence);
+    }
+
+    //The order is matched later on the shard thread, NONE is returned and the status is reported to the listener and the result handler
+    @Override
+    public OrderStatus enter(NewOrder order) {
+        Shard shard = shardFor(order.getSymbol());
+        long sequence = shard.claim();
+        shard.commands.get(sequence).newOrder(order.getSymbol(), order.getSide(), order.getQty(), order.getScaledPrice(), order.getClOrderId());
+        shard.commands.publish(sequence);
+        return OrderStatus.NONE;
+    }
+
+    @Override
+    public OrderStatus enter(AmendOrder order) {
+        Shard shard = shardFor(order.getSymbol());
+        long sequence = shard.claim();
+        shard.commands.get(sequence).amendOrder(order.getSymbol(), order.getSide(), order.getQty(), order.getScaledPrice(), order.getOrigClOrderId(), order.getClOrderId());
+        shard.commands.publish(sequence);
+        return OrderStatus.NONE;
+    }
+
+    @Override
+    public OrderStatus enter(CancelOrder order) {
+        Shard shard = shardFor(order.getSymbol());
+        long sequence = shard.claim();
+        shard.commands.get(sequence).cancelOrder(order.getSymbol(), order.getSide(), order.getOrigClOrderId(), order.getClOrderId());
+        shard.commands.publish(sequence);
+        return OrderStatus.NONE;
+    }
+
+    //The whole batch is handed to the owning shard in one go, the caller waits as the shard fills in the batch
+    @Override
+    public void enter(CommandBatch batch) {
+        Shard shard = shardFor(batch.getSymbol());
+        shard.call(() -> {
+            shard.engine.enter(batch);
+            return null;
+        });
+    }
+
+    @Override
+    public TopOfBook getTopOfBook(String symbol) {
+        Shard shard = shardFor(symbol);
+        return shard.call(() -> shard.engine.getTopOfBook(symbol));
+    }
+
+    @Override
+    public List<Trade> getTrades(Order order) {
+        return getTrades(order.getSymbol(), order.getClOrderId());
+    }
+
+    //Copies of the trades, the shard recycles its own Trade objects with a bounded history
+    public List<Trade> getTrades(String symbol, String clOrdId) {
+        Shard shard = shardFor(symbol);
+        return shard.call(() -> copyOf(shard.engine.getTrades(symbol, clOrdId)));
+    }
+
+    private static List<Trade> copyOf(List<Trade> trades) {
+        if (trades == null) {
+            return null;
+        }
+        List<Trade> copies = new ArrayList<>(trades.size());
+        for (Trade trade : trades) {
+            Trade copy = new Trade(0, 0, 0, null);
+            copy.copyOf(trade);
+            copies.add(copy);
+        }
+        return copies;
+    }
+
+    @Override
+    public int getQuantityAtLevel(String symbol, Side side, double price) {
+        Shard shard = shardFor(symbol);
+        return shard.call(() -> shard.engine.getQuantityAtLevel(symbol, side, price));
+    }
+
+    @Override
+    public int getOrderCountAtLevel(String symbol, Side side, double price) {
+        Shard shard = shardFor(symbol);
+        return shard.call(() -> shard.engine.getOrderCountAtLevel(symbol, side, price));
+    }
+
+    @Override
+    public String dumpOrderBook(String symbol) {
+        Shard shard = shardFor(symbol);
+        return shard.call(() -> shard.engine.dumpOrderBook(symbol));
+    }
+
+    //Every shard calls the listener on its own thread, a listener shared by the shards has to be thread safe
+    @Override
+    public void setExecutionListener(ExecutionListener executionListener) {
+        for (Shard shard : shards) {
+            shard.call(() -> {
+                shard.engine.setExecutionListener(executionListener);
+                return null;
+            });
+        }
+    }
+
+    //Lets the queued requests finish and stops the shard threads, requests entered afterwards fail
+    @Override
+    public void close() {
+        closed = true;
+        for (Shard shard : shards) {
+            shard.enqueue(() -> {
+                shard.stopped = true;
+                return null;
+            });
+        }
+        try {
+            for (Shard shard : shards) {
+                shard.thread.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the matching shards", e);
+        }
+        for (Shard shard : shards) {
+            shard.commands.halt();
+        }
+    }
+
+    //Command slot of a shard, a query is run on the shard thread in place of the command
+    private static final class ShardCommand extends EngineCommand {
+        private FutureTask<?> query;
+    }
+
+    private final class Shard {
+        private final Logger logger = Logger.getLogger(this.getClass().getName());
+        private final OrderMatchingEngineImpl engine;
+        private final TradeHistory tradeHistory;
+        private final RingBuffer<ShardCommand> commands;
+        private final EngineResultHandler resultHandler;
+        //Only used by the shard thread
+        private final EngineResult result = new EngineResult();
+        private final Thread thread;
+        //Set by the last query close() queues, only used by the shard thread
+        private boolean stopped;
+
+        Shard(int shardId, OrderMatchingEngineImpl engine, int ringCapacity, EngineResultHandler resultHandler) {
+            this.engine = engine;
+            this.tradeHistory = engine.getTradeHistory();
+            this.resultHandler = resultHandler;
+            this.commands = new RingBuffer<>(ShardCommand::new, ringCapacity, true, new BlockingWaitStrategy());
+            this.thread = new Thread(this::runMatchingLoop, "matching-shard-" + shardId);
+            this.thread.setDaemon(true);
+            this.thread.start();
+        }
+
+        //Claims the slot of the next command, the slot holds no query
+        long claim() {
+            if (closed) {
+                throw new IllegalStateException("Sharded engine has been closed");
+            }
+            long sequence = commands.next();
+            commands.get(sequence).query = null;
+            return sequence;
+        }
+
+        //Queues the request behind the shard's commands, waits for it and rethrows what the shard threw
+        <T> T call(Callable<T> request) {
+            if (closed) {
+                throw new IllegalStateException("Sharded engine has been closed");
+            }
+            return enqueue(request);
+        }
+
+        private <T> T enqueue(Callable<T> request) {
+            FutureTask<T> query = new FutureTask<>(request);
+            long sequence = commands.next();
+            commands.get(sequence).query = query;
+            commands.publish(sequence);
+            try {
+                return query.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for the matching shard", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+
+        private void runMatchingLoop() {
+            long nextSequence = 0;
+            while (!stopped) {
+                long availableSequence = commands.waitFor(nextSequence);
+                if (availableSequence < 0) {
+                    return;
+                }
+                for (long sequence = nextSequence; sequence <= availableSequence; sequence++) {
+                    process(commands.get(sequence), sequence, sequence == availableSequence);
+                }
+                commands.release(availableSequence);
+                nextSequence = availableSequence + 1;
+            }
+        }
+
+        private void process(ShardCommand command, long sequence, boolean endOfBatch) {
+            if (command.query != null) {
+                command.query.run();
+                command.query = null;
+                return;
+            }
+            if (resultHandler == EngineResultHandler.NONE) {
+                apply(command);
+                return;
+            }
+            result.trades.clear();
+            tradeHistory.setTradeBatch(result.trades);
+            try {
+                result.orderStatus = apply(command);
+            } finally {
+                tradeHistory.setTradeBatch(null);
+            }
+            result.sequence = sequence;
+            result.type = command.type;
+            result.symbol = command.symbol;
+            result.clOrdId = command.clOrdId;
+            result.topOfBook = engine.hasOrderBook(command.symbol) ? engine.getTopOfBook(command.symbol) : null;
+            result.endOfBatch = endOfBatch;
+            result.conflated = false;
+            try {
+                resultHandler.onResult(result);
+            } catch (RuntimeException e) {
+                logger.log(Level.SEVERE, "Result handler failed on " + command.getType() + " for " + command.getSymbol(), e);
+            }
+        }
+
+        //Nobody waits for a command, what it throws is logged and reported as a rejection
+        private OrderStatus apply(EngineCommand command) {
+            try {
+                return engine.apply(command);
+            } catch (RuntimeException e) {
+                logger.log(Level.SEVERE, "Failed to apply " + command.getType() + " for " + command.getSymbol(), e);
+                return OrderStatus.REJECTED;
+            }
+        }
+    }
+}
@@ -1,3 +1,5 @@
+package ordermatchingengine;
+
 public enum Side {
     BUY, SELL
 }
@@ -0,0 +1,39 @@
+package ordermatchingengine;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+    Interns the symbols an engine has seen into dense ids 0, 1, 2... in order of first use, so per symbol state can sit in arrays indexed by symbol id.
+    A symbol is resolved once at the API edge, everything behind it works with the int id.
+*/
+public class SymbolTable {
+    static final int NO_SYMBOL = -1;
+    private final OpenHashMap<String, Integer> symbolIds = new OpenHashMap<>();
+    private final List<String> symbols = new ArrayList<>();
+
+    //Id of symbol, a new one if it has not been seen before
+    int intern(String symbol) {
+        Integer symbolId = symbolIds.get(symbol);
+        if (symbolId != null) {
+            return symbolId;
+        }
+        symbolIds.put(symbol, symbols.size());
+        symbols.add(symbol);
+        return symbols.size() - 1;
+    }
+
+    //NO_SYMBOL if symbol has not been interned
+    int idOf(String symbol) {
+        Integer symbolId = symbolIds.get(symbol);
+        return symbolId == null ? NO_SYMBOL : symbolId;
+    }
+
+    String symbolOf(int symbolId) {
+        return symbols.get(symbolId);
+    }
+
+    int size() {
+        return symbols.size();
+    }
+}
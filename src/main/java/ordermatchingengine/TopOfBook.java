@@ -0,0 +1,79 @@
+package ordermatchingengine;
+
+import java.util.Objects;
+
+public class TopOfBook {
+    private final String symbol;
+    private final long bestBidPrice;
+    private final long bestAskPrice;
+    private final int bestBidQuantity;
+    private final int bestAskQuantity;
+
+    TopOfBook(String symbol, double bestBidPrice, double bestAskPrice, int bestBidQuantity, int bestAskQuantity) {
+        this(symbol, Prices.toScaled(bestBidPrice), Prices.toScaled(bestAskPrice), bestBidQuantity, bestAskQuantity);
+    }
+
+    private TopOfBook(String symbol, long bestBidPrice, long bestAskPrice, int bestBidQuantity, int bestAskQuantity) {
+        this.symbol = symbol;
+        this.bestBidPrice = bestBidPrice;
+        this.bestAskPrice = bestAskPrice;
+        this.bestBidQuantity = bestBidQuantity;
+        this.bestAskQuantity = bestAskQuantity;
+    }
+
+    static TopOfBook withScaledPrices(String symbol, long bestBidPrice, long bestAskPrice, int bestBidQuantity, int bestAskQuantity) {
+        return new TopOfBook(symbol, bestBidPrice, bestAskPrice, bestBidQuantity, bestAskQuantity);
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public double getBestBidPrice() {
+        return Prices.toDouble(bestBidPrice);
+    }
+
+    public double getBestAskPrice() {
+        return Prices.toDouble(bestAskPrice);
+    }
+
+    public long getScaledBestBidPrice() {
+        return bestBidPrice;
+    }
+
+    public long getScaledBestAskPrice() {
+        return bestAskPrice;
+    }
+
+    public int getBestBidQuantity() {
+        return bestBidQuantity;
+    }
+
+    public int getBestAskQuantity() {
+        return bestAskQuantity;
+    }
+
+    @Override
+    public String toString() {
+        return "TopOfBook{" +
+                "bestBidPrice=" + getBestBidPrice() +
+                ", bestAskPrice=" + getBestAskPrice() +
+                ", bestBidQuantity=" + bestBidQuantity +
+                ", bestAskQuantity=" + bestAskQuantity +
+                '}';
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        TopOfBook topOfBook = (TopOfBook) o;
+        return bestBidPrice == topOfBook.bestBidPrice &&
+                bestAskPrice == topOfBook.bestAskPrice;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(bestBidPrice, bestAskPrice);
+    }
+}
@@ -0,0 +1,66 @@
+package ordermatchingengine;
+
+import java.nio.ByteBuffer;
+
+/*
+    Flyweight over a top of book message of the OrderEntryCodec.
+    Layout: type, best bid and ask qty, scaled best bid and ask price and symbol.
+*/
+public class TopOfBookMessage {
+    private static final int BID_QTY_OFFSET = 4;
+    private static final int ASK_QTY_OFFSET = 8;
+    private static final int BID_PRICE_OFFSET = 16;
+    private static final int ASK_PRICE_OFFSET = 24;
+    private static final int SYMBOL_OFFSET = 32;
+    private final AsciiStringCache strings;
+    private ByteBuffer buffer;
+    private int offset;
+
+    TopOfBookMessage() {
+        this(new AsciiStringCache(256));
+    }
+
+    TopOfBookMessage(AsciiStringCache strings) {
+        this.strings = strings;
+    }
+
+    TopOfBookMessage wrap(ByteBuffer buffer, int offset) {
+        this.buffer = buffer;
+        this.offset = offset;
+        return this;
+    }
+
+    void encode(TopOfBook topOfBook) {
+        OrderEntryCodec.clear(buffer, offset, OrderEntryCodec.TOP_OF_BOOK);
+        buffer.putInt(offset + BID_QTY_OFFSET, topOfBook.getBestBidQuantity());
+        buffer.putInt(offset + ASK_QTY_OFFSET, topOfBook.getBestAskQuantity());
+        buffer.putLong(offset + BID_PRICE_OFFSET, topOfBook.getScaledBestBidPrice());
+        buffer.putLong(offset + ASK_PRICE_OFFSET, topOfBook.getScaledBestAskPrice());
+        OrderEntryCodec.putAscii(buffer, offset + SYMBOL_OFFSET, OrderEntryCodec.SYMBOL_LENGTH, topOfBook.getSymbol());
+    }
+
+    public String getSymbol() {
+        return strings.get(buffer, offset + SYMBOL_OFFSET, OrderEntryCodec.SYMBOL_LENGTH);
+    }
+
+    public int getBestBidQuantity() {
+        return buffer.getInt(offset + BID_QTY_OFFSET);
+    }
+
+    public int getBestAskQuantity() {
+        return buffer.getInt(offset + ASK_QTY_OFFSET);
+    }
+
+    public long getScaledBestBidPrice() {
+        return buffer.getLong(offset + BID_PRICE_OFFSET);
+    }
+
+    public long getScaledBestAskPrice() {
+        return buffer.getLong(offset + ASK_PRICE_OFFSET);
+    }
+
+    //Decodes into a heap TopOfBook, for callers of the object API
+    TopOfBook toTopOfBook() {
+        return TopOfBook.withScaledPrices(getSymbol(), getScaledBestBidPrice(), getScaledBestAskPrice(), getBestBidQuantity(), getBestAskQuantity());
+    }
+}
@@ -0,0 +1,129 @@
+package ordermatchingengine;
+
+public class Trade {
+    private long tradeID;
+    private int tradeQty;
+    private long tradePrice;
+    private long transactTime;
+    private Order order;
+    private String clOrdId;
+    //Side of the order which traded, null for trades read back from a store
+    private Side side;
+    //Links to the neighbouring trades of the same order, maintained by TradeHistory
+    Trade olderTradeOfOrder;
+    Trade youngerTradeOfOrder;
+
+    Trade(long tradeID, int tradeQty, long tradePrice, Order order) {
+        init(tradeID, tradeQty, tradePrice, order, System.nanoTime());
+    }
+
+    //Re-initialises a recycled trade
+    void init(long tradeID, int tradeQty, long tradePrice, Order order, long transactTime) {
+        this.tradeID = tradeID;
+        this.tradeQty = tradeQty;
+        this.tradePrice = tradePrice;
+        this.order = order;
+        this.clOrdId = (order == null) ? null : order.getClOrderId();
+        this.side = (order == null) ? null : order.getSide();
+        this.transactTime = transactTime;
+    }
+
+    //Copy of the fields of another trade, e.g. for a TradeBatch, the copy does not reference the order which the matching thread keeps mutating
+    void copyOf(Trade trade) {
+        init(trade.tradeID, trade.tradeQty, trade.tradePrice, (Order) null, trade.transactTime);
+        this.clOrdId = trade.clOrdId;
+        this.side = trade.side;
+    }
+
+    //Trade read back from a store, only the clOrdId of its order is known
+    void init(long tradeID, int tradeQty, long tradePrice, String clOrdId, long transactTime) {
+        init(tradeID, tradeQty, tradePrice, (Order) null, transactTime);
+        this.clOrdId = clOrdId;
+    }
+
+    public String getClOrdId() {
+        return clOrdId;
+    }
+
+    public Side getSide() {
+        return side;
+    }
+
+    public long getTradeID() {
+        return tradeID;
+    }
+
+    public void setTradeID(long tradeID) {
+        this.tradeID = tradeID;
+    }
+
+    public int getTradeQty() {
+        return tradeQty;
+    }
+
+    public void setTradeQty(int tradeQty) {
+        this.tradeQty = tradeQty;
+    }
+
+    @Override
+    public String toString() {
+        return "Trade [tradeID=" + tradeID + ", tradeQty=" + tradeQty + ", tradePrice=" + getTradePrice() + ", transactTime=" + transactTime
+                + ", order=" + order + "]";
+    }
+
+    @Override
+    public int hashCode() {
+        final int prime = 31;
+        int result = 1;
+        result = prime * result + ((order == null) ? 0 : order.hashCode());
+        result = prime * result + (int) (tradePrice ^ (tradePrice >>> 32));
+        result = prime * result + tradeQty;
+        result = prime * result + (int) (tradeID ^ (tradeID >>> 32));
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (obj == null)
+            return false;
+        if (getClass() != obj.getClass())
+            return false;
+        Trade other = (Trade) obj;
+        if (order == null) {
+            if (other.order != null)
+                return false;
+        } else if (!order.equals(other.order))
+            return false;
+        return tradePrice == other.tradePrice && tradeQty == other.tradeQty && tradeID == other.tradeID;
+    }
+
+    public double getTradePrice() {
+        return Prices.toDouble(tradePrice);
+    }
+
+    public void setTradePrice(double tradePrice) {
+        this.tradePrice = Prices.toScaled(tradePrice);
+    }
+
+    public long getScaledTradePrice() {
+        return tradePrice;
+    }
+
+    public long getTransactTime() {
+        return transactTime;
+    }
+
+    public void setTransactTime(long transactTime) {
+        this.transactTime = transactTime;
+    }
+
+    public Order getOrder() {
+        return order;
+    }
+
+    public void setOrder(Order order) {
+        this.order = order;
+    }
+}
\ No newline at end of file
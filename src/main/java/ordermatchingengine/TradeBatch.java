@@ -0,0 +1,36 @@
+package ordermatchingengine;
+
+import java.util.Arrays;
+
+/*
+    Reusable batch of the trades a command or a batch of commands generated, the TradeHistory appends every fill to it while the commands are matched.
+    The batch keeps its own pre-allocated copies of the fills, so it holds every trade of the commands however many trades the history retains.
+    A copy carries the price, qty, trade id, clOrdId and side of the fill but no Order, the order keeps changing on the matching thread.
+*/
+public class TradeBatch {
+    private Trade trades[] = new Trade[4];
+    private int tradeCount;
+
+    public int getTradeCount() {
+        return tradeCount;
+    }
+
+    public Trade getTrade(int index) {
+        return trades[index];
+    }
+
+    //Copies the fill into the next trade of the batch, trade objects are only allocated while the batch grows
+    void add(Trade trade) {
+        if (tradeCount == trades.length) {
+            trades = Arrays.copyOf(trades, tradeCount * 2);
+        }
+        if (trades[tradeCount] == null) {
+            trades[tradeCount] = new Trade(0, 0, 0, null);
+        }
+        trades[tradeCount++].copyOf(trade);
+    }
+
+    void clear() {
+        tradeCount = 0;
+    }
+}
@@ -0,0 +1,198 @@
+package ordermatchingengine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/*
+    Trades generated by the books of one engine, indexed by clOrdId.
+    At most maxRetainedTrades trades are kept, once the history is full the oldest Trade object is recycled for the newest fill, so a bounded history generates no garbage.
+    With NO_RETENTION nothing is kept at all, getTrades always returns null and fills are only seen through the event journal and the execution listener.
+    A ColumnarTradeStore set with setTradeStore receives every trade and answers getTrades instead, so NO_RETENTION plus a store keeps the fills off the heap.
+*/
+public class TradeHistory {
+    static final int UNBOUNDED = Integer.MAX_VALUE;
+    static final int NO_RETENTION = 0;
+    static final long FIRST_TRADE_ID = 10000;
+    private long tradeId;
+    private final int maxRetainedTrades;
+    //Retained trades in generation order, used as a ring once it has reached maxRetainedTrades
+    private Trade[] trades;
+    private int oldestTrade;
+    private int tradeCount;
+    private long recordedTradeCount;
+    //Youngest trade per clOrdId, older trades of the order are reached through Trade.olderTradeOfOrder
+    private final OpenHashMap<String, Trade> youngestTradePerOrder = new OpenHashMap<>();
+    //Every trade is journaled as it is recorded, independent of how many trades are retained
+    private EventJournal eventJournal = EventJournal.NONE;
+    private NanoClock clock = NanoClock.SYSTEM;
+    private ExecutionListener executionListener = ExecutionListener.NONE;
+    private final ExecutionReport executionReport = new ExecutionReport();
+    //Re-used for every trade when no trades are retained
+    private final Trade unretainedTrade = new Trade(0, 0, 0, null);
+    private ColumnarTradeStore tradeStore;
+    //Batch every recorded trade is appended to, null while no batch is collecting
+    private TradeBatch tradeBatch;
+
+    TradeHistory() {
+        this(UNBOUNDED);
+    }
+
+    TradeHistory(int maxRetainedTrades) {
+        this(FIRST_TRADE_ID, maxRetainedTrades);
+    }
+
+    //firstTradeId lets several histories hand out trade ids from disjoint ranges
+    TradeHistory(long firstTradeId, int maxRetainedTrades) {
+        if (maxRetainedTrades < 0) {
+            throw new IllegalArgumentException("maxRetainedTrades must not be negative");
+        }
+        this.tradeId = firstTradeId;
+        this.maxRetainedTrades = maxRetainedTrades;
+        this.trades = new Trade[Math.min(maxRetainedTrades, 1024)];
+    }
+
+    Trade recordTrade(int tradeQty, long tradePrice, Order order) {
+        if (maxRetainedTrades == NO_RETENTION) {
+            unretainedTrade.init(tradeId++, tradeQty, tradePrice, order, clock.nanoTime());
+            recordedTradeCount++;
+            if (tradeStore != null) {
+                tradeStore.add(unretainedTrade);
+            }
+            if (tradeBatch != null) {
+                tradeBatch.add(unretainedTrade);
+            }
+            eventJournal.onTrade(unretainedTrade);
+            return unretainedTrade;
+        }
+        Trade trade;
+        if (tradeCount == maxRetainedTrades) {
+            trade = trades[oldestTrade];
+            forget(trade);
+            oldestTrade = (oldestTrade + 1) % trades.length;
+            tradeCount--;
+        } else {
+            if (tradeCount == trades.length) {
+                grow();
+            }
+            trade = new Trade(0, 0, 0, null);
+        }
+        trade.init(tradeId++, tradeQty, tradePrice, order, clock.nanoTime());
+        trades[(oldestTrade + tradeCount) % trades.length] = trade;
+        tradeCount++;
+        recordedTradeCount++;
+
+        Trade youngestTrade = youngestTradePerOrder.put(order.getClOrderId(), trade);
+        trade.olderTradeOfOrder = youngestTrade;
+        if (youngestTrade != null) {
+            youngestTrade.youngerTradeOfOrder = trade;
+        }
+        if (tradeStore != null) {
+            tradeStore.add(trade);
+        }
+        if (tradeBatch != null) {
+            tradeBatch.add(trade);
+        }
+        eventJournal.onTrade(trade);
+        return trade;
+    }
+
+    void setEventJournal(EventJournal eventJournal) {
+        this.eventJournal = eventJournal;
+    }
+
+    //Every trade recorded from now on is also appended to tradeBatch, independent of the retention, null stops collecting
+    void setTradeBatch(TradeBatch tradeBatch) {
+        this.tradeBatch = tradeBatch;
+    }
+
+    void setTradeStore(ColumnarTradeStore tradeStore) {
+        this.tradeStore = tradeStore;
+    }
+
+    void setExecutionListener(ExecutionListener executionListener) {
+        this.executionListener = executionListener;
+    }
+
+    //False while nobody listens, the books then skip working out the leaves quantities of a fill
+    boolean isReportingFills() {
+        return executionListener != ExecutionListener.NONE;
+    }
+
+    //Fill reports of the aggressor and of the resting order with the open quantity of their whole client order, restingOrder is null when it was market data liquidity
+    void reportFills(Trade trade, Order aggressor, int aggressorLeavesQty, Order restingOrder, int restingLeavesQty) {
+        if (executionListener == ExecutionListener.NONE) {
+            return;
+        }
+        executionReport.fill(trade, aggressor, aggressorLeavesQty, true);
+        executionListener.onExecutionReport(executionReport);
+        if (restingOrder != null) {
+            executionReport.fill(trade, restingOrder, restingLeavesQty, false);
+            executionListener.onExecutionReport(executionReport);
+        }
+    }
+
+    //Id the next trade will get, checkpoints carry it over so trade ids keep counting after a restore
+    long getNextTradeId() {
+        return tradeId;
+    }
+
+    void setNextTradeId(long nextTradeId) {
+        this.tradeId = nextTradeId;
+    }
+
+    //Clock for the transact time of new trades
+    void setClock(NanoClock clock) {
+        this.clock = clock;
+    }
+
+    //The oldest retained trade is always the oldest trade of its own order as well
+    private void forget(Trade trade) {
+        if (trade.youngerTradeOfOrder == null) {
+            youngestTradePerOrder.remove(trade.getClOrdId());
+        } else {
+            trade.youngerTradeOfOrder.olderTradeOfOrder = null;
+            trade.youngerTradeOfOrder = null;
+        }
+    }
+
+    private void grow() {
+        Trade[] grownTrades = new Trade[(int) Math.min((long) maxRetainedTrades, trades.length * 2L)];
+        for (int i = 0; i < tradeCount; i++) {
+            grownTrades[i] = trades[(oldestTrade + i) % trades.length];
+        }
+        trades = grownTrades;
+        oldestTrade = 0;
+    }
+
+    //Trades of the order oldest first, or null if the order has no retained trades
+    public List<Trade> getTrades(String clOrdId) {
+        if (tradeStore != null) {
+            return tradeStore.getTrades(clOrdId);
+        }
+        Trade youngestTrade = youngestTradePerOrder.get(clOrdId);
+        if (youngestTrade == null) {
+            return null;
+        }
+        List<Trade> orderTrades = new ArrayList<>();
+        for (Trade trade = youngestTrade; trade != null; trade = trade.olderTradeOfOrder) {
+            orderTrades.add(trade);
+        }
+        Collections.reverse(orderTrades);
+        return orderTrades;
+    }
+
+    public int getRetainedTradeCount() {
+        return tradeCount;
+    }
+
+    //Retained trade by position, 0 is the oldest retained trade
+    public Trade getRetainedTrade(int index) {
+        return trades[(oldestTrade + index) % trades.length];
+    }
+
+    //Every trade recorded so far, including the ones no longer retained
+    public long getRecordedTradeCount() {
+        return recordedTradeCount;
+    }
+}
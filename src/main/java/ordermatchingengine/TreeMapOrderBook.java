@@ -0,0 +1,62 @@
+package ordermatchingengine;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class TreeMapOrderBook extends AbstractOrderBook {
+    private TreeMap<Long, PriceLevel> bidLevels = new TreeMap<>(Comparator.reverseOrder());
+    private TreeMap<Long, PriceLevel> askLevels = new TreeMap<>(Comparator.naturalOrder());
+
+    TreeMapOrderBook(String symbol) {
+        this(symbol, new TradeHistory());
+    }
+
+    TreeMapOrderBook(String symbol, TradeHistory tradeHistory) {
+        this(symbol, tradeHistory, 0);
+    }
+
+    //tickSize is scaled, 0 accepts any price
+    TreeMapOrderBook(String symbol, TradeHistory tradeHistory, long tickSize) {
+        super(symbol, tradeHistory, tickSize);
+    }
+
+    private TreeMap<Long, PriceLevel> getSameSideLevels(Side side) {
+        return (side == Side.BUY) ? this.bidLevels : this.askLevels;
+    }
+
+    @Override
+    protected PriceLevel getLevel(Side side, long price) {
+        return getSameSideLevels(side).get(price);
+    }
+
+    @Override
+    protected PriceLevel getOrCreateLevel(Side side, long price) {
+        TreeMap<Long, PriceLevel> sameSideLevels = getSameSideLevels(side);
+        PriceLevel priceLevel = sameSideLevels.get(price);
+        if (priceLevel == null) {
+            //It means the it is a new price which is not there in the order book at this point, we need to create a new price level
+            priceLevel = new PriceLevel(side, price);
+            sameSideLevels.put(price, priceLevel);
+        }
+        return priceLevel;
+    }
+
+    @Override
+    protected void removeLevel(PriceLevel priceLevel) {
+        getSameSideLevels(priceLevel.getSide()).remove(priceLevel.getPrice());
+    }
+
+    @Override
+    protected PriceLevel getBestLevel(Side side) {
+        Map.Entry<Long, PriceLevel> bestEntry = getSameSideLevels(side).firstEntry();
+        return bestEntry == null ? null : bestEntry.getValue();
+    }
+
+    @Override
+    protected PriceLevel getNextLevel(PriceLevel priceLevel) {
+        //Both maps are ordered best price first, so the next higher key is the next worse price
+        Map.Entry<Long, PriceLevel> nextEntry = getSameSideLevels(priceLevel.getSide()).higherEntry(priceLevel.getPrice());
+        return nextEntry == null ? null : nextEntry.getValue();
+    }
+}
@@ -0,0 +1,13 @@
+package ordermatchingengine;
+
+/*
+    How a ring buffer consumer waits for the next sequence to be published.
+    Trades latency for CPU: busy spin burns a core, yielding gives the core away between checks and blocking parks the thread until a producer signals.
+*/
+public interface WaitStrategy {
+    //Returns once the sequence is published, false if the ring buffer was halted while waiting
+    boolean waitFor(long sequence, RingBuffer<?> ringBuffer);
+
+    //Called by producers after every publish so blocked consumers can wake up
+    void signalAllWhenBlocking();
+}
@@ -0,0 +1,296 @@
+package ordermatchingengine;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/*
+    Append only log of engine commands in memory mapped segment files of segmentSize bytes (wal-0000000000.log, wal-0000000001.log, ...).
+    A record is: int length | byte type | long timestamp | symbol | side | qty | price | clOrdId | origClOrdId | snapshot depths, prices and quantities.
+    The length is written after the rest of the record, so a record cut short by a crash reads as length 0 which is the end of the log.
+    A record which does not fit into the rest of a segment goes to the next one, the old segment is closed with a SEGMENT_END length.
+    Appending writes into the mapped pages only: a crash of the process loses nothing, sync() is needed to survive a crash of the machine.
+    A command which failed when it was applied is marked FAILED in its type byte afterwards, replay skips it so a bad command can not stop the log from being opened.
+*/
+public class WriteAheadLog implements AutoCloseable {
+    static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+    private static final int SEGMENT_END = -1;
+    private static final int LENGTH_SIZE = 4;
+    private static final int NULL_STRING = -1;
+    //Set in the type byte of a record whose command threw when it was applied
+    private static final byte FAILED = (byte) 0x80;
+    private static final EngineCommand.Type[] TYPES = EngineCommand.Type.values();
+    private static final Side[] SIDES = Side.values();
+
+    private final Path directory;
+    private final int segmentSize;
+    private MappedByteBuffer segment;
+    private int segmentIndex;
+    //Append position in the current segment
+    private int position;
+    private boolean replayed;
+
+    interface CommandHandler {
+        void onCommand(EngineCommand command, long timestamp);
+    }
+
+    //Opens the log in directory, creating it if needed, appends continue after the last complete record
+    WriteAheadLog(Path directory, int segmentSize) throws IOException {
+        if (segmentSize < 1024) {
+            throw new IllegalArgumentException("segmentSize must be at least 1024 bytes");
+        }
+        this.directory = Files.createDirectories(directory);
+        this.segmentSize = segmentSize;
+        openSegment(0);
+        while (true) {
+            int length = segment.getInt(position);
+            if (length == SEGMENT_END) {
+                openSegment(segmentIndex + 1);
+            } else if (length == 0) {
+                break;
+            } else {
+                position += length;
+            }
+        }
+        //Whatever follows the last complete record is a partly written record, it is wiped so it can never be read as part of a later record
+        for (int i = position; i < segmentSize; i++) {
+            if (segment.get(i) != 0) {
+                segment.put(i, (byte) 0);
+            }
+        }
+    }
+
+    private void openSegment(int index) throws IOException {
+        try (FileChannel fileChannel = FileChannel.open(segmentFile(index), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            segment = fileChannel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+        segmentIndex = index;
+        position = 0;
+    }
+
+    private Path segmentFile(int index) {
+        return directory.resolve(String.format("wal-%010d.log", index));
+    }
+
+    //Position after the last appended record, segment index in the upper and offset in the lower 32 bits
+    long getLogPosition() {
+        return logPosition(segmentIndex, position);
+    }
+
+    private static long logPosition(int segmentIndex, int position) {
+        return ((long) segmentIndex << 32) | position;
+    }
+
+    long replay(CommandHandler handler) throws IOException {
+        return replay(0, handler);
+    }
+
+    /*
+        Calls handler for every command logged from fromLogPosition on, in log order, the command object is re-used between calls.
+        Commands marked failed are skipped and not counted.
+        Only allowed once and before the first append, replay creates new symbol, clOrdId and snapshot objects for every record.
+    */
+    long replay(long fromLogPosition, CommandHandler handler) throws IOException {
+        if (replayed) {
+            throw new IllegalStateException("Write ahead log of " + directory + " has already been replayed");
+        }
+        if (fromLogPosition < 0 || fromLogPosition > getLogPosition()) {
+            throw new IllegalArgumentException("Log position " + fromLogPosition + " is beyond the end of the write ahead log of " + directory);
+        }
+        replayed = true;
+        int endSegmentIndex = segmentIndex;
+        int endPosition = position;
+        EngineCommand command = new EngineCommand();
+        long commandCount = 0;
+        int readSegmentIndex = (int) (fromLogPosition >>> 32);
+        MappedByteBuffer readSegment = readSegmentIndex == endSegmentIndex ? segment : mapForReplay(readSegmentIndex);
+        int readPosition = (int) fromLogPosition;
+        while (readSegmentIndex != endSegmentIndex || readPosition != endPosition) {
+            int length = readSegment.getInt(readPosition);
+            if (length == SEGMENT_END) {
+                readSegmentIndex++;
+                readSegment = readSegmentIndex == endSegmentIndex ? segment : mapForReplay(readSegmentIndex);
+                readPosition = 0;
+            } else if ((readSegment.get(readPosition + LENGTH_SIZE) & FAILED) != 0) {
+                readPosition += length;
+            } else {
+                long timestamp = decode(readSegment, readPosition, command);
+                readPosition += length;
+                handler.onCommand(command, timestamp);
+                commandCount++;
+            }
+        }
+        return commandCount;
+    }
+
+    private MappedByteBuffer mapForReplay(int index) throws IOException {
+        try (FileChannel fileChannel = FileChannel.open(segmentFile(index), StandardOpenOption.READ)) {
+            return fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, segmentSize);
+        }
+    }
+
+    //Returns the log position of the record, see markFailed
+    long append(EngineCommand command, long timestamp) throws IOException {
+        replayed = true;
+        int length = recordLength(command);
+        if (length + LENGTH_SIZE > segmentSize) {
+            throw new IllegalArgumentException("Command of " + length + " bytes does not fit into a write ahead log segment of " + segmentSize + " bytes");
+        }
+        //Room for a length is always left after a record, for the zero length of the end of the log or for SEGMENT_END
+        if (position + length + LENGTH_SIZE > segmentSize) {
+            segment.putInt(position, SEGMENT_END);
+            segment.force();
+            openSegment(segmentIndex + 1);
+        }
+        int recordPosition = position;
+        position += LENGTH_SIZE;
+        segment.put(position++, (byte) command.type.ordinal());
+        putLong(timestamp);
+        putString(command.symbol);
+        segment.put(position++, command.side == null ? 0 : (byte) (command.side.ordinal() + 1));
+        putInt(command.qty);
+        putLong(command.price);
+        putString(command.clOrdId);
+        putString(command.origClOrdId);
+        if (command.type == EngineCommand.Type.MARKET_DATA_SNAPSHOT) {
+            MarketDataBookSnapshot snapshot = command.marketDataBookSnapshot;
+            int depth = snapshot.getBidDepth() + snapshot.getAskDepth();
+            putInt(snapshot.getBidDepth());
+            putInt(snapshot.getAskDepth());
+            for (int i = 0; i < depth; i++) {
+                putLong(snapshot.getScaledPrice(i));
+                putInt(snapshot.getQuantity(i));
+            }
+        }
+        segment.putInt(recordPosition, length);
+        return logPosition(segmentIndex, recordPosition);
+    }
+
+    //Marks the record appended at logPosition as failed, the record may be in an earlier segment if a batch spanned two
+    void markFailed(long logPosition) throws IOException {
+        int recordSegmentIndex = (int) (logPosition >>> 32);
+        int typePosition = (int) logPosition + LENGTH_SIZE;
+        if (recordSegmentIndex == segmentIndex) {
+            segment.put(typePosition, (byte) (segment.get(typePosition) | FAILED));
+            return;
+        }
+        try (FileChannel fileChannel = FileChannel.open(segmentFile(recordSegmentIndex), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer recordSegment = fileChannel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+            recordSegment.put(typePosition, (byte) (recordSegment.get(typePosition) | FAILED));
+            recordSegment.force();
+        }
+    }
+
+    private static int recordLength(EngineCommand command) {
+        int length = LENGTH_SIZE + 1 + 8 + stringLength(command.symbol) + 1 + 4 + 8 + stringLength(command.clOrdId) + stringLength(command.origClOrdId);
+        if (command.type == EngineCommand.Type.MARKET_DATA_SNAPSHOT) {
+            length += 8 + (command.marketDataBookSnapshot.getBidDepth() + command.marketDataBookSnapshot.getAskDepth()) * 12;
+        }
+        return length;
+    }
+
+    private static int stringLength(String value) {
+        return 4 + (value == null ? 0 : value.length() * 2);
+    }
+
+    private void putInt(int value) {
+        segment.putInt(position, value);
+        position += 4;
+    }
+
+    private void putLong(long value) {
+        segment.putLong(position, value);
+        position += 8;
+    }
+
+    private void putString(String value) {
+        if (value == null) {
+            putInt(NULL_STRING);
+            return;
+        }
+        putInt(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            segment.putChar(position, value.charAt(i));
+            position += 2;
+        }
+    }
+
+    //Fills command from the record at position and returns the record's timestamp
+    private static long decode(MappedByteBuffer buffer, int position, EngineCommand command) throws IOException {
+        int cursor = position + LENGTH_SIZE;
+        byte typeCode = buffer.get(cursor++);
+        if (typeCode < 0 || typeCode >= TYPES.length) {
+            throw new IOException("Unknown command type " + typeCode + " in the write ahead log record at " + position);
+        }
+        EngineCommand.Type type = TYPES[typeCode];
+        long timestamp = buffer.getLong(cursor);
+        cursor += 8;
+        String symbol = getString(buffer, cursor);
+        cursor += stringLength(symbol);
+        byte sideCode = buffer.get(cursor++);
+        if (sideCode < 0 || sideCode > SIDES.length) {
+            throw new IOException("Unknown side " + sideCode + " in the write ahead log record at " + position);
+        }
+        //0 stands for a command without a side
+        Side side = sideCode == 0 ? null : SIDES[sideCode - 1];
+        int qty = buffer.getInt(cursor);
+        cursor += 4;
+        long price = buffer.getLong(cursor);
+        cursor += 8;
+        String clOrdId = getString(buffer, cursor);
+        cursor += stringLength(clOrdId);
+        String origClOrdId = getString(buffer, cursor);
+        cursor += stringLength(origClOrdId);
+        switch (type) {
+            case NEW_ORDER:
+                command.newOrder(symbol, side, qty, price, clOrdId);
+                break;
+            case AMEND_ORDER:
+                command.amendOrder(symbol, side, qty, price, origClOrdId, clOrdId);
+                break;
+            case CANCEL_ORDER:
+                command.cancelOrder(symbol, side, origClOrdId, clOrdId);
+                command.qty = qty;
+                command.price = price;
+                break;
+            default:
+                int bidDepth = buffer.getInt(cursor);
+                int askDepth = buffer.getInt(cursor + 4);
+                cursor += 8;
+                long prices[] = new long[bidDepth + askDepth];
+                int quantities[] = new int[bidDepth + askDepth];
+                for (int i = 0; i < prices.length; i++) {
+                    prices[i] = buffer.getLong(cursor);
+                    quantities[i] = buffer.getInt(cursor + 8);
+                    cursor += 12;
+                }
+                command.marketDataSnapshot(new MarketDataBookSnapshot(symbol, prices, quantities, bidDepth, askDepth));
+        }
+        return timestamp;
+    }
+
+    private static String getString(MappedByteBuffer buffer, int position) {
+        int length = buffer.getInt(position);
+        if (length == NULL_STRING) {
+            return null;
+        }
+        char chars[] = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = buffer.getChar(position + 4 + i * 2);
+        }
+        return new String(chars);
+    }
+
+    //Flushes the mapped pages of the current segment to disk, earlier segments were flushed when they were left
+    void sync() {
+        segment.force();
+    }
+
+    @Override
+    public void close() {
+        sync();
+    }
+}
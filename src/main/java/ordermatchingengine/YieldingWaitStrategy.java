@@ -0,0 +1,26 @@
+package ordermatchingengine;
+
+//Spins for a while and then yields the core between checks, a compromise when there are fewer cores than busy threads
+public class YieldingWaitStrategy implements WaitStrategy {
+    private static final int SPIN_TRIES = 100;
+
+    @Override
+    public boolean waitFor(long sequence, RingBuffer<?> ringBuffer) {
+        int spinTries = SPIN_TRIES;
+        while (!ringBuffer.isPublished(sequence)) {
+            if (ringBuffer.isHalted()) {
+                return false;
+            }
+            if (spinTries > 0) {
+                spinTries--;
+            } else {
+                Thread.yield();
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void signalAllWhenBlocking() {
+    }
+}
@@ -0,0 +1,145 @@
+package ordermatchingengine;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class BacktestRunnerTest {
+    private static final String[] SYMBOLS = new String[]{"AAPL", "MSFT", "IBM", "GOOG"};
+    private static final String[] DAYS = new String[]{"2018-03-01", "2018-03-02", "2018-03-05"};
+    private static final int[] SPREADS = new int[]{0, 1, 2};
+
+    //Random walk market data for one symbol and day, the algo quotes around the mid spread ticks away and crosses now and then
+    private static final class AlgoScenario implements BacktestScenario {
+        private final String symbol;
+        private final String day;
+        private final int spread;
+
+        AlgoScenario(String symbol, String day, int spread) {
+            this.symbol = symbol;
+            this.day = day;
+            this.spread = spread;
+        }
+
+        @Override
+        public String getName() {
+            return symbol + " " + day + " spread=" + spread;
+        }
+
+        @Override
+        public void run(OrderMatchingEngine engine) {
+            Random random = new Random((symbol + day).hashCode());
+            double prices[] = new double[10];
+            int quantities[] = new int[10];
+            int mid = 100;
+            for (int step = 0; step < 300; step++) {
+                mid += random.nextInt(3) - 1;
+                for (int level = 0; level < 5; level++) {
+                    prices[level] = mid - 5 + level;
+                    prices[5 + level] = mid + 1 + level;
+                    quantities[level] = 100 + random.nextInt(400);
+                    quantities[5 + level] = 100 + random.nextInt(400);
+                }
+                engine.onMdSnapshot(new MarketDataBookSnapshot(symbol, prices, quantities));
+                Side side = random.nextBoolean() ? Side.BUY : Side.SELL;
+                int ticks = random.nextInt(4) == 0 ? 2 : -spread;
+                double price = side == Side.BUY ? mid + ticks : mid - ticks;
+                String clOrdId = getName() + "-" + step;
+                engine.enter(new NewOrder(symbol, side, 50 + random.nextInt(300), price, clOrdId));
+                if (step % 5 == 4) {
+                    engine.enter(new CancelOrder(symbol, side, 0, price, clOrdId, clOrdId + "-C"));
+                }
+            }
+        }
+    }
+
+    private static List<BacktestScenario> sweep() {
+        List<BacktestScenario> scenarios = new ArrayList<>();
+        for (String symbol : SYMBOLS) {
+            for (String day : DAYS) {
+                for (int spread : SPREADS) {
+                    scenarios.add(new AlgoScenario(symbol, day, spread));
+                }
+            }
+        }
+        return scenarios;
+    }
+
+    @Test
+    public void parallelRunGivesTheSameResultsAsASequentialRun() {
+        List<BacktestScenario> scenarios = sweep();
+        List<BacktestResult> sequential;
+        List<BacktestResult> parallel;
+        try (BacktestRunner runner = new BacktestRunner(1)) {
+            sequential = runner.run(scenarios);
+        }
+        try (BacktestRunner runner = new BacktestRunner(8, OrderBookType.PRICE_LADDER)) {
+            parallel = runner.run(scenarios);
+        }
+
+        assertEquals(scenarios.size(), parallel.size());
+        for (int i = 0; i < scenarios.size(); i++) {
+            BacktestResult expected = sequential.get(i);
+            BacktestResult actual = parallel.get(i);
+            assertEquals(scenarios.get(i).getName(), actual.getName());
+            assertEquals(300, actual.getAcceptedOrders() + actual.getRejectedOrders());
+            assertEquals(expected.getAcceptedOrders(), actual.getAcceptedOrders());
+            assertEquals(expected.getCancelledOrders(), actual.getCancelledOrders());
+            assertEquals(expected.getTradedQty(), actual.getTradedQty());
+            assertEquals(expected.getTradedNotional(), actual.getTradedNotional(), 1e-6);
+            assertEquals(expected.getFills().size(), actual.getFills().size());
+            for (int j = 0; j < expected.getFills().size(); j++) {
+                Trade expectedFill = expected.getFills().get(j);
+                Trade actualFill = actual.getFills().get(j);
+                assertEquals(expectedFill.getTradeID(), actualFill.getTradeID());
+                assertEquals(expectedFill.getClOrdId(), actualFill.getClOrdId());
+                assertEquals(expectedFill.getTradeQty(), actualFill.getTradeQty());
+                assertEquals(expectedFill.getScaledTradePrice(), actualFill.getScaledTradePrice());
+            }
+            assertTrue(actual.getFills().isEmpty()
+                    || actual.getFills().get(0).getTradeID() >= TradeHistory.FIRST_TRADE_ID + i * BacktestRunner.TRADE_ID_RANGE_PER_SCENARIO);
+        }
+
+        BacktestResult total = BacktestResult.total("sweep", parallel);
+        long tradedQty = 0;
+        long fills = 0;
+        for (BacktestResult result : parallel) {
+            tradedQty += result.getTradedQty();
+            fills += result.getFills().size();
+        }
+        assertTrue(fills > 0);
+        assertEquals(tradedQty, total.getTradedQty());
+        assertEquals(fills, total.getFills().size());
+        assertEquals(fills, total.getFills().stream().mapToLong(Trade::getTradeID).distinct().count());
+    }
+
+    @Test
+    public void aFailingScenarioFailsTheRun() {
+        List<BacktestScenario> scenarios = sweep();
+        scenarios.add(3, new BacktestScenario() {
+            @Override
+            public String getName() {
+                return "missing market data";
+            }
+
+            @Override
+            public void run(OrderMatchingEngine engine) throws IOException {
+                throw new IOException("no such file");
+            }
+        });
+        try (BacktestRunner runner = new BacktestRunner(4)) {
+            runner.run(scenarios);
+            fail("The failing scenario should fail the run");
+        } catch (UncheckedIOException e) {
+            assertTrue(e.getMessage().contains("missing market data"));
+        }
+    }
+}
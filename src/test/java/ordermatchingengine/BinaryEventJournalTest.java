@@ -0,0 +1,128 @@
+package ordermatchingengine;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+
+public class BinaryEventJournalTest {
+    private Path journalFile;
+    private long time;
+    //Every read of the clock moves it on by 1000ns
+    private NanoClock clock = () -> time += 1000;
+
+    @After
+    public void deleteJournal() throws IOException {
+        if (journalFile != null) {
+            Files.deleteIfExists(journalFile);
+        }
+    }
+
+    //Decoded records without the timestamp, which is the second token of every line
+    private List<String> decodeWithoutTimestamps() throws IOException {
+        StringBuilder decoded = new StringBuilder();
+        EventJournalDecoder.decode(journalFile, decoded);
+        List<String> records = new ArrayList<>();
+        for (String line : decoded.toString().split("\n")) {
+            String[] tokens = line.split(" ", 3);
+            records.add(tokens[0] + " " + tokens[2]);
+        }
+        return records;
+    }
+
+    @Test
+    public void ordersTradesAndTopOfBookChangesAreJournaledAndDecoded() throws Exception {
+        journalFile = Files.createTempFile("events", ".journal");
+        //A ring smaller than the number of records, so the engine has to wait for the writer at least once
+        BinaryEventJournal eventJournal = new BinaryEventJournal(journalFile, 4, new BlockingWaitStrategy());
+        OrderMatchingEngineImpl orderMatchingEngine = new OrderMatchingEngineImpl(OrderBookType.TREE_MAP, new TradeHistory(), eventJournal);
+        orderMatchingEngine.onMdSnapshot(TestMarketData.snapshot("AAPL"));
+        assertEquals(OrderStatus.NEW, orderMatchingEngine.enter(new NewOrder("AAPL", Side.BUY, 600, 104, "CLIENT1")));
+        assertEquals(OrderStatus.NEW, orderMatchingEngine.enter(new NewOrder("AAPL", Side.BUY, 50, 99, "CLIENT2")));
+        assertEquals(OrderStatus.AMENDED, orderMatchingEngine.enter(new AmendOrder("AAPL", Side.BUY, 50, 100, "CLIENT2", "CLIENT2_AMEND")));
+        assertEquals(OrderStatus.CANCELLED, orderMatchingEngine.enter(new CancelOrder("AAPL", Side.BUY, 50, 100, "CLIENT2", "CLIENT2_CANCEL")));
+        assertEquals(OrderStatus.REJECTED, orderMatchingEngine.enter(new CancelOrder("AAPL", Side.BUY, 50, 100, "UNKNOWN", "CLIENT3_CANCEL")));
+        eventJournal.close();
+
+        List<String> records = decodeWithoutTimestamps();
+        assertEquals(9, records.size());
+        assertEquals("0 TOP_OF_BOOK_CHANGED AAPL bid=100@101.0 ask=500@103.0", records.get(0));
+        assertEquals("1 ORDER_ACCEPTED AAPL BUY qty=600 price=104.0 status=NEW clOrdId=CLIENT1", records.get(1));
+        assertEquals("2 TRADE AAPL BUY qty=500 price=103.0 status=PARTIALLY_FILLED clOrdId=CLIENT1 tradeId=10000", records.get(2));
+        assertEquals("3 TRADE AAPL BUY qty=100 price=104.0 status=FILLED clOrdId=CLIENT1 tradeId=10001", records.get(3));
+        assertEquals("4 TOP_OF_BOOK_CHANGED AAPL bid=100@101.0 ask=900@104.0", records.get(4));
+        assertEquals("5 ORDER_ACCEPTED AAPL BUY qty=50 price=99.0 status=NEW clOrdId=CLIENT2", records.get(5));
+        assertEquals("6 ORDER_AMENDED AAPL BUY qty=50 price=100.0 status=AMENDED clOrdId=CLIENT2_AMEND origClOrdId=CLIENT2", records.get(6));
+        assertEquals("7 ORDER_CANCELLED AAPL BUY qty=50 price=100.0 status=CANCELLED clOrdId=CLIENT2_CANCEL origClOrdId=CLIENT2", records.get(7));
+        assertEquals("8 ORDER_REJECTED AAPL BUY qty=50 price=100.0 status=REJECTED clOrdId=CLIENT3_CANCEL origClOrdId=UNKNOWN", records.get(8));
+    }
+
+    @Test
+    public void ordersAndTopOfBookChangesAreStampedWithTheJournalClock() throws Exception {
+        journalFile = Files.createTempFile("events", ".journal");
+        BinaryEventJournal eventJournal = new BinaryEventJournal(journalFile, 4, new BlockingWaitStrategy(), clock);
+        OrderMatchingEngineImpl orderMatchingEngine = new OrderMatchingEngineImpl(OrderBookType.TREE_MAP, new TradeHistory(), eventJournal);
+        orderMatchingEngine.onMdSnapshot(TestMarketData.snapshot("AAPL"));
+        orderMatchingEngine.enter(new NewOrder("AAPL", Side.BUY, 50, 99, "CLIENT1"));
+        eventJournal.close();
+
+        StringBuilder decoded = new StringBuilder();
+        EventJournalDecoder.decode(journalFile, decoded);
+        assertEquals("0 1000 TOP_OF_BOOK_CHANGED AAPL bid=100@101.0 ask=500@103.0\n"
+                + "1 2000 ORDER_ACCEPTED AAPL BUY qty=50 price=99.0 status=NEW clOrdId=CLIENT1\n", decoded.toString());
+    }
+
+    @Test
+    public void ordersWhoseClOrdIdsDoNotFitARecordAreRejectedAndTheRejectionIsFlaggedTruncated() throws Exception {
+        journalFile = Files.createTempFile("events", ".journal");
+        BinaryEventJournal eventJournal = new BinaryEventJournal(journalFile, 4, new BlockingWaitStrategy());
+        OrderMatchingEngineImpl orderMatchingEngine = new OrderMatchingEngineImpl(OrderBookType.TREE_MAP, new TradeHistory(), eventJournal);
+        orderMatchingEngine.onMdSnapshot(TestMarketData.snapshot("AAPL"));
+        String longClOrdId = "CLIENT1-0123456789-0123456789-0123456789";
+        assertEquals(OrderStatus.REJECTED, orderMatchingEngine.enter(new NewOrder("AAPL", Side.BUY, 600, 104, longClOrdId)));
+        assertEquals(OrderStatus.REJECTED, orderMatchingEngine.enter(new NewOrder("AAPL", Side.BUY, 600, 104, "CLIENT\u00e92")));
+        assertEquals(OrderStatus.NEW, orderMatchingEngine.enter(new NewOrder("AAPL", Side.BUY, 50, 99, "CLIENT3")));
+        assertEquals(OrderStatus.REJECTED, orderMatchingEngine.enter(new CancelOrder("AAPL", Side.BUY, 50, 99, "CLIENT3", longClOrdId)));
+        eventJournal.close();
+
+        //Nothing traded, the rejected buy would have crossed the book
+        assertEquals(new TopOfBook("AAPL", 101, 103, 150, 500), orderMatchingEngine.getTopOfBook("AAPL"));
+        List<String> records = decodeWithoutTimestamps();
+        assertEquals(5, records.size());
+        assertEquals("1 ORDER_REJECTED AAPL BUY qty=600 price=104.0 status=REJECTED clOrdId=" + longClOrdId.substring(0, BinaryEventJournal.CL_ORD_ID_LENGTH) + " truncated", records.get(1));
+        assertEquals("2 ORDER_REJECTED AAPL BUY qty=600 price=104.0 status=REJECTED clOrdId=CLIENT?2 truncated", records.get(2));
+        assertEquals("4 ORDER_REJECTED AAPL BUY qty=50 price=99.0 status=REJECTED clOrdId=" + longClOrdId.substring(0, BinaryEventJournal.CL_ORD_ID_LENGTH) + " origClOrdId=CLIENT3 truncated", records.get(4));
+    }
+
+    //Writes to /dev/full fail with "No space left on device"
+    @Test
+    public void writeFailureDegradesTheJournalInsteadOfFailingTheMatchingThread() throws Exception {
+        Path fullDevice = Paths.get("/dev/full");
+        assumeTrue(Files.isWritable(fullDevice));
+        BinaryEventJournal eventJournal = new BinaryEventJournal(fullDevice, 4, new BlockingWaitStrategy());
+        OrderMatchingEngineImpl orderMatchingEngine = new OrderMatchingEngineImpl(OrderBookType.TREE_MAP, new TradeHistory(), eventJournal);
+        orderMatchingEngine.onMdSnapshot(TestMarketData.snapshot("AAPL"));
+        //Far more records than the ring holds, the matching thread would wait forever or fail if the writer stopped releasing slots
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(OrderStatus.NEW, orderMatchingEngine.enter(new NewOrder("AAPL", Side.BUY, 1, 99, "CLIENT" + i)));
+        }
+        assertTrue(eventJournal.isDegraded());
+        assertTrue(eventJournal.getDroppedRecordCount() > 0);
+        assertEquals(1300, orderMatchingEngine.getQuantityAtLevel("AAPL", Side.BUY, 99));
+        try {
+            eventJournal.close();
+            fail("The write failure should be rethrown");
+        } catch (IOException expected) {
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package ordermatchingengine;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ColumnarTradeStoreTest {
+    private static final int SEGMENT_CAPACITY = 16;
+    private Path spillDirectory;
+
+    @Before
+    public void createSpillDirectory() throws IOException {
+        spillDirectory = Files.createTempDirectory("trades");
+    }
+
+    @After
+    public void deleteSpillDirectory() throws IOException {
+        try (Stream<Path> files = Files.walk(spillDirectory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    private long spillFileCount() throws IOException {
+        try (Stream<Path> files = Files.list(spillDirectory)) {
+            return files.count();
+        }
+    }
+
+    @Test
+    public void tradesAreFoundByOrderInMemorySpilledAndUntilTheyAreDropped() throws IOException {
+        Random random = new Random(11);
+        List<long[]> added = new ArrayList<>();
+        List<String> addedClOrdIds = new ArrayList<>();
+        try (ColumnarTradeStore tradeStore = new ColumnarTradeStore(spillDirectory, SEGMENT_CAPACITY, 2, 5)) {
+            for (int i = 0; i < 10 * SEGMENT_CAPACITY + 3; i++) {
+                String clOrdId = "CLIENT" + random.nextInt(7);
+                long trade[] = new long[]{10000 + i, 1 + random.nextInt(1000), Prices.toScaled(90 + random.nextInt(20)), 1000L * i};
+                tradeStore.add(trade[0], clOrdId, (int) trade[1], trade[2], trade[3]);
+                added.add(trade);
+                addedClOrdIds.add(clOrdId);
+            }
+            //11 segments started, the oldest 6 dropped, of the 5 retained the youngest 2 are in memory
+            assertEquals(2, tradeStore.getMemorySegmentCount());
+            assertEquals(3, tradeStore.getSpilledSegmentCount());
+            assertEquals(3, spillFileCount());
+            assertEquals(10 * SEGMENT_CAPACITY + 3, tradeStore.getTradeCount());
+            assertEquals(4 * SEGMENT_CAPACITY + 3, tradeStore.getRetainedTradeCount());
+
+            int firstRetainedTrade = 6 * SEGMENT_CAPACITY;
+            for (int order = 0; order < 7; order++) {
+                String clOrdId = "CLIENT" + order;
+                List<Trade> trades = tradeStore.getTrades(clOrdId);
+                int found = 0;
+                for (int i = firstRetainedTrade; i < added.size(); i++) {
+                    if (addedClOrdIds.get(i).equals(clOrdId)) {
+                        Trade trade = trades.get(found++);
+                        assertEquals(added.get(i)[0], trade.getTradeID());
+                        assertEquals(added.get(i)[1], trade.getTradeQty());
+                        assertEquals(added.get(i)[2], trade.getScaledTradePrice());
+                        assertEquals(added.get(i)[3], trade.getTransactTime());
+                        assertEquals(clOrdId, trade.getClOrdId());
+                    }
+                }
+                assertEquals(found, trades.size());
+            }
+            assertNull(tradeStore.getTrades("UNKNOWN"));
+        }
+        assertEquals(0, spillFileCount());
+    }
+
+    //Every order trades twice in a row, so most orders only have trades in segments which were dropped long ago
+    @Test
+    public void ordersOfDroppedSegmentsLeaveTheIndexAndTheirIdsAreReused() throws IOException {
+        try (ColumnarTradeStore tradeStore = new ColumnarTradeStore(spillDirectory, SEGMENT_CAPACITY, 1, 3)) {
+            //A long lived order whose trades keep it in the index while the orders around it come and go
+            String longLivedClOrdId = "LONG-LIVED";
+            for (int i = 0; i < 100 * SEGMENT_CAPACITY; i += 2) {
+                String clOrdId = (i % SEGMENT_CAPACITY == 0) ? longLivedClOrdId : "CLIENT" + i / 2;
+                tradeStore.add(i, clOrdId, 1, Prices.toScaled(100), i);
+                tradeStore.add(i + 1, clOrdId, 2, Prices.toScaled(100), i + 1);
+            }
+            //The 3 retained segments hold the trades of 7 short lived orders each plus the long lived one
+            assertEquals(3 * SEGMENT_CAPACITY / 2 - 2, tradeStore.getIndexedOrderCount());
+            assertNull(tradeStore.getTrades("CLIENT1"));
+            List<Trade> trades = tradeStore.getTrades("CLIENT" + (100 * SEGMENT_CAPACITY - 2) / 2);
+            assertEquals(2, trades.size());
+            assertEquals(100 * SEGMENT_CAPACITY - 2, trades.get(0).getTradeID());
+            assertEquals(100 * SEGMENT_CAPACITY - 1, trades.get(1).getTradeID());
+            //Only the trades of the retained segments, two from every segment
+            assertEquals(6, tradeStore.getTrades(longLivedClOrdId).size());
+            assertEquals(97 * SEGMENT_CAPACITY, tradeStore.getTrades(longLivedClOrdId).get(0).getTradeID());
+        }
+    }
+
+    @Test
+    public void engineAnswersGetTradesFromTheStoreWithoutRetainingTradesOnTheHeap() throws IOException {
+        OrderMatchingEngineImpl heapEngine = new OrderMatchingEngineImpl("AAPL", OrderBookType.PRICE_LADDER);
+        TradeHistory tradeHistory = new TradeHistory(TradeHistory.NO_RETENTION);
+        OrderMatchingEngineImpl storeEngine = new OrderMatchingEngineImpl(OrderBookType.PRICE_LADDER, tradeHistory);
+        try (ColumnarTradeStore tradeStore = new ColumnarTradeStore(spillDirectory, SEGMENT_CAPACITY, 1, Integer.MAX_VALUE)) {
+            tradeHistory.setTradeStore(tradeStore);
+            for (int i = 0; i < 300; i++) {
+                String clOrdId = "CLIENT" + i % 40;
+                for (OrderMatchingEngineImpl orderMatchingEngine : new OrderMatchingEngineImpl[]{heapEngine, storeEngine}) {
+                    orderMatchingEngine.onMdSnapshot(TestMarketData.snapshot("AAPL"));
+                    orderMatchingEngine.enter(new NewOrder("AAPL", Side.BUY, 100 + i, 103 + i % 3, clOrdId));
+                }
+            }
+            assertEquals(0, tradeHistory.getRetainedTradeCount());
+            assertEquals(heapEngine.getTradeHistory().getRecordedTradeCount(), tradeStore.getTradeCount());
+            assertEquals(tradeStore.getTradeCount() / SEGMENT_CAPACITY, tradeStore.getSpilledSegmentCount());
+            for (int order = 0; order < 40; order++) {
+                List<Trade> expected = heapEngine.getTrades("AAPL", "CLIENT" + order);
+                List<Trade> actual = storeEngine.getTrades("AAPL", "CLIENT" + order);
+                assertEquals(expected.size(), actual.size());
+                for (int i = 0; i < expected.size(); i++) {
+                    assertEquals(expected.get(i).getTradeID(), actual.get(i).getTradeID());
+                    assertEquals(expected.get(i).getTradeQty(), actual.get(i).getTradeQty());
+                    assertEquals(expected.get(i).getTradePrice(), actual.get(i).getTradePrice(), 0);
+                    assertEquals(expected.get(i).getClOrdId(), actual.get(i).getClOrdId());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package ordermatchingengine;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class DurableOrderMatchingEngineTest {
+    private static final int SEGMENT_SIZE = 1024;
+    private Path logDirectory;
+    //Hands out 1000, 2000, ... so the recovered timestamps can be told apart from the ones of a new run
+    private long time;
+    private NanoClock clock = () -> time += 1000;
+
+    @Before
+    public void createLogDirectory() throws IOException {
+        logDirectory = Files.createTempDirectory("wal");
+    }
+
+    @After
+    public void deleteLogDirectory() throws IOException {
+        try (Stream<Path> files = Files.walk(logDirectory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    private DurableOrderMatchingEngine openEngine(OrderBookType orderBookType) throws IOException {
+        return new DurableOrderMatchingEngine(logDirectory, orderBookType, SEGMENT_SIZE, clock);
+    }
+
+    private void runSession(DurableOrderMatchingEngine orderMatchingEngine) {
+        for (int i = 0; i < 10; i++) {
+            orderMatchingEngine.onMdSnapshot(TestMarketData.snapshot("AAPL"));
+            orderMatchingEngine.enter(new NewOrder("AAPL", Side.BUY, 600, 104, "CLIENT1-" + i));
+            orderMatchingEngine.enter(new NewOrder("AAPL", Side.BUY, 50, 99, "CLIENT2-" + i));
+            orderMatchingEngine.enter(new AmendOrder("AAPL", Side.BUY, 80, 99, "CLIENT2-" + i, "CLIENT2-UP-" + i));
+            orderMatchingEngine.enter(new AmendOrder("AAPL", Side.BUY, 80, 101, "CLIENT2-" + i, "CLIENT2-PX-" + i));
+            orderMatchingEngine.enter(new NewOrder("AAPL", Side.SELL, 150, 98, "CLIENT3-" + i));
+        }
+        orderMatchingEngine.enter(new CancelOrder("AAPL", Side.BUY, 80, 101, "CLIENT2-9", "CLIENT2-CXL"));
+        orderMatchingEngine.enter(new CommandBatch("AAPL", 2)
+                .addNewOrder(Side.SELL, 20, 97, "CLIENT4")
+                .addNewOrder(Side.BUY, 30, 104, "CLIENT5"));
+    }
+
+    private void assertSameTrades(List<Trade> expectedTrades, List<Trade> trades) {
+        assertNotNull(expectedTrades);
+        assertEquals(expectedTrades.size(), trades.size());
+        for (int i = 0; i < expectedTrades.size(); i++) {
+            assertEquals(expectedTrades.get(i).getTradeID(), trades.get(i).getTradeID());
+            assertEquals(expectedTrades.get(i).getTradeQty(), trades.get(i).getTradeQty());
+            assertEquals(expectedTrades.get(i).getScaledTradePrice(), trades.get(i).getScaledTradePrice());
+            assertEquals(expectedTrades.get(i).getTransactTime(), trades.get(i).getTransactTime());
+        }
+    }
+
+    private void replayRebuildsBooksAndTradesWithTheOriginalIdsAndTimes(OrderBookType orderBookType) throws IOException {
+        DurableOrderMatchingEngine orderMatchingEngine = openEngine(orderBookType);
+        assertEquals(0, orderMatchingEngine.getReplayedCommandCount());
+        runSession(orderMatchingEngine);
+        String dump = orderMatchingEngine.dumpOrderBook("AAPL");
+        TopOfBook topOfBook = orderMatchingEngine.getTopOfBook("AAPL");
+        //Simulates the crash, the engine is dropped without close
+        try (Stream<Path> segments = Files.list(logDirectory)) {
+            assertTrue(segments.count() > 1);
+        }
+
+        DurableOrderMatchingEngine recoveredEngine = openEngine(orderBookType);
+        assertEquals(63, recoveredEngine.getReplayedCommandCount());
+        assertEquals(dump, recoveredEngine.dumpOrderBook("AAPL"));
+        assertEquals(topOfBook, recoveredEngine.getTopOfBook("AAPL"));
+        assertEquals(topOfBook.getBestBidQuantity(), recoveredEngine.getTopOfBook("AAPL").getBestBidQuantity());
+        assertEquals(topOfBook.getBestAskQuantity(), recoveredEngine.getTopOfBook("AAPL").getBestAskQuantity());
+        for (String clOrdId : new String[]{"CLIENT1-0", "CLIENT1-9", "CLIENT3-0", "CLIENT3-7", "CLIENT4", "CLIENT5"}) {
+            NewOrder order = new NewOrder("AAPL", Side.BUY, 1, 1, clOrdId);
+            assertSameTrades(orderMatchingEngine.getTrades(order), recoveredEngine.getTrades(order));
+        }
+
+        //The recovered engine carries on logging and numbering trades after the last logged command
+        long lastTradeId = orderMatchingEngine.getTrades(new NewOrder("AAPL", Side.BUY, 30, 104, "CLIENT5")).get(0).getTradeID();
+        NewOrder newOrder = new NewOrder("AAPL", Side.SELL, 10, 90, "CLIENT6");
+        recoveredEngine.enter(newOrder);
+        assertEquals(lastTradeId + 1, recoveredEngine.getTrades(newOrder).get(0).getTradeID());
+        recoveredEngine.close();
+        DurableOrderMatchingEngine reopenedEngine = openEngine(orderBookType);
+        assertEquals(64, reopenedEngine.getReplayedCommandCount());
+        assertEquals(recoveredEngine.dumpOrderBook("AAPL"), reopenedEngine.dumpOrderBook("AAPL"));
+        assertSameTrades(recoveredEngine.getTrades(newOrder), reopenedEngine.getTrades(newOrder));
+        reopenedEngine.close();
+    }
+
+    @Test
+    public void restartRestoresTheCheckpointAndReplaysOnlyTheLogTail() throws IOException {
+        DurableOrderMatchingEngine orderMatchingEngine = openEngine(OrderBookType.PRICE_LADDER);
+        runSession(orderMatchingEngine);
+        orderMatchingEngine.checkpoint();
+        orderMatchingEngine.enter(new AmendOrder("AAPL", Side.BUY, 40, 101, "CLIENT2-8", "CLIENT2-8-DOWN"));
+        NewOrder aggressiveSell = new NewOrder("AAPL", Side.SELL, 200, 101, "CLIENT7");
+        orderMatchingEngine.enter(aggressiveSell);
+        String dump = orderMatchingEngine.dumpOrderBook("AAPL");
+
+        DurableOrderMatchingEngine recoveredEngine = openEngine(OrderBookType.PRICE_LADDER);
+        assertEquals(2, recoveredEngine.getReplayedCommandCount());
+        assertEquals(dump, recoveredEngine.dumpOrderBook("AAPL"));
+        assertSameTrades(orderMatchingEngine.getTrades(aggressiveSell), recoveredEngine.getTrades(aggressiveSell));
+        recoveredEngine.close();
+    }
+
+    @Test
+    public void replayRebuildsTreeMapBooksAndTradesWithTheOriginalIdsAndTimes() throws IOException {
+        replayRebuildsBooksAndTradesWithTheOriginalIdsAndTimes(OrderBookType.TREE_MAP);
+    }
+
+    @Test
+    public void replayRebuildsPriceLadderBooksAndTradesWithTheOriginalIdsAndTimes() throws IOException {
+        replayRebuildsBooksAndTradesWithTheOriginalIdsAndTimes(OrderBookType.PRICE_LADDER);
+    }
+
+    @Test
+    public void amendAndCancelForASymbolWithoutABookAreRejected() throws IOException {
+        DurableOrderMatchingEngine orderMatchingEngine = openEngine(OrderBookType.TREE_MAP);
+        orderMatchingEngine.onMdSnapshot(TestMarketData.snapshot("AAPL"));
+        orderMatchingEngine.enter(new NewOrder("AAPL", Side.BUY, 50, 99, "CLIENT1"));
+        assertEquals(OrderStatus.REJECTED, orderMatchingEngine.enter(new AmendOrder("MSFT", Side.BUY, 80, 99, "CLIENT1", "CLIENT1-UP")));
+        assertEquals(OrderStatus.REJECTED, orderMatchingEngine.enter(new CancelOrder("MSFT", Side.BUY, 50, 99, "CLIENT1", "CLIENT1-CXL")));
+        assertEquals(350, orderMatchingEngine.getQuantityAtLevel("AAPL", Side.BUY, 99));
+        orderMatchingEngine.close();
+
+        DurableOrderMatchingEngine recoveredEngine = openEngine(OrderBookType.TREE_MAP);
+        assertEquals(4, recoveredEngine.getReplayedCommandCount());
+        assertEquals(350, recoveredEngine.getQuantityAtLevel("AAPL", Side.BUY, 99));
+        recoveredEngine.close();
+    }
+
+    //101.005 is off the default tick grid of a price ladder
+    @Test
+    public void commandWhichFailedIsSkippedByTheReplayInsteadOfFailingTheOpen() throws IOException {
+        DurableOrderMatchingEngine orderMatchingEngine = openEngine(OrderBookType.PRICE_LADDER);
+        orderMatchingEngine.onMdSnapshot(TestMarketData.snapshot("AAPL"));
+        try {
+            orderMatchingEngine.onMdSnapshot(new MarketDataBookSnapshot("AAPL", new double[]{101.005, 103}, new int[]{100, 100}));
+            fail("A snapshot off the tick grid should be refused");
+        } catch (IllegalArgumentException expected) {
+        }
+        orderMatchingEngine.enter(new NewOrder("AAPL", Side.BUY, 50, 99, "CLIENT1"));
+        String dump = orderMatchingEngine.dumpOrderBook("AAPL");
+        orderMatchingEngine.close();
+
+        DurableOrderMatchingEngine recoveredEngine = openEngine(OrderBookType.PRICE_LADDER);
+        assertEquals(2, recoveredEngine.getReplayedCommandCount());
+        assertEquals(dump, recoveredEngine.dumpOrderBook("AAPL"));
+        recoveredEngine.close();
+    }
+
+    //The asks of the second snapshot span more ticks than a ladder side holds, it used to throw with its bids already applied and the replay skipped it
+    @Test
+    public void commandWhichFailedLeftTheBookAsTheReplayRebuildsIt() throws IOException {
+        DurableOrderMatchingEngine orderMatchingEngine = openEngine(OrderBookType.PRICE_LADDER);
+        orderMatchingEngine.onMdSnapshot(TestMarketData.snapshot("AAPL"));
+        orderMatchingEngine.enter(new NewOrder("AAPL", Side.BUY, 50, 99, "CLIENT1"));
+        String dump = orderMatchingEngine.dumpOrderBook("AAPL");
+        try {
+            orderMatchingEngine.onMdSnapshot(new MarketDataBookSnapshot("AAPL", new double[]{96, 95, 103, 100000}, new int[]{100, 100, 100, 100}));
+            fail("A snapshot too wide for the ladder should be refused");
+        } catch (IllegalArgumentException expected) {
+        }
+        assertEquals(dump, orderMatchingEngine.dumpOrderBook("AAPL"));
+        orderMatchingEngine.close();
+
+        DurableOrderMatchingEngine recoveredEngine = openEngine(OrderBookType.PRICE_LADDER);
+        assertEquals(2, recoveredEngine.getReplayedCommandCount());
+        assertEquals(dump, recoveredEngine.dumpOrderBook("AAPL"));
+        recoveredEngine.close();
+    }
+}
@@ -0,0 +1,131 @@
+package ordermatchingengine;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class EngineMetricsTest {
+    private OrderMatchingEngineImpl orderMatchingEngine = new OrderMatchingEngineImpl("AAPL", OrderBookType.PRICE_LADDER);
+    //Every read of the clock moves it on by 1000ns, so every operation takes exactly 1000ns
+    private long time;
+    private NanoClock clock = () -> time += 1000;
+
+    @Test
+    public void histogramBucketsAreContiguousAndWithinThreePercent() {
+        for (int i = 0; i < Histogram.bucketIndex(Long.MAX_VALUE); i++) {
+            assertEquals(i, Histogram.bucketIndex(Histogram.bucketLowestValue(i)));
+            assertEquals(i, Histogram.bucketIndex(Histogram.bucketHighestValue(i)));
+            assertEquals(Histogram.bucketHighestValue(i) + 1, Histogram.bucketLowestValue(i + 1));
+            long lowest = Histogram.bucketLowestValue(i);
+            assertTrue(Histogram.bucketHighestValue(i) - lowest <= lowest / 32);
+        }
+        assertEquals(Long.MAX_VALUE, Histogram.bucketHighestValue(Histogram.bucketIndex(Long.MAX_VALUE)));
+    }
+
+    @Test
+    public void histogramPercentilesMatchTheRecordedValues() {
+        Histogram histogram = new Histogram();
+        assertEquals(0, histogram.getValueAtPercentile(99));
+        Random random = new Random(7);
+        long values[] = new long[10000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = 100 + random.nextInt(1000000);
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+        assertEquals(values.length, histogram.getCount());
+        assertEquals(values[0], histogram.getMin());
+        assertEquals(values[values.length - 1], histogram.getMax());
+        for (double percentile : new double[]{50, 90, 99, 99.9}) {
+            long exact = values[(int) Math.ceil(percentile / 100 * values.length) - 1];
+            long reported = histogram.getValueAtPercentile(percentile);
+            assertTrue(percentile + ": " + reported + " vs " + exact, reported >= exact && reported <= exact + exact / 32);
+        }
+        assertEquals(histogram.getMax(), histogram.getValueAtPercentile(100));
+
+        Histogram copy = histogram.copy();
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(values.length, copy.getCount());
+    }
+
+    @Test
+    public void engineRecordsLatenciesMatchWorkAndBookDepth() {
+        assertNull(orderMatchingEngine.getMetrics());
+        orderMatchingEngine.enableMetrics(clock, 0);
+        orderMatchingEngine.onMdSnapshot(TestMarketData.snapshot("AAPL"));
+        //Takes all of 103 and part of 104
+        orderMatchingEngine.enter(new NewOrder("AAPL", Side.BUY, 600, 104, "CLIENT1"));
+        orderMatchingEngine.enter(new NewOrder("AAPL", Side.BUY, 100, 99, "CLIENT2"));
+        orderMatchingEngine.enter(new AmendOrder("AAPL", Side.BUY, 200, 99, "CLIENT2", "CLIENT2-UP"));
+        orderMatchingEngine.enter(new NewOrder("AAPL", Side.BUY, 100, 98, "CLIENT3"));
+        orderMatchingEngine.enter(new CancelOrder("AAPL", Side.BUY, 100, 98, "CLIENT3", "CLIENT3-CXL"));
+
+        EngineMetrics metrics = orderMatchingEngine.getMetrics();
+        assertEquals(3, metrics.getNewOrderLatency().getCount());
+        assertEquals(1000, metrics.getNewOrderLatency().getValueAtPercentile(99));
+        assertEquals(1, metrics.getAmendOrderLatency().getCount());
+        assertEquals(1, metrics.getCancelOrderLatency().getCount());
+        assertEquals(1, metrics.getMarketDataSnapshotLatency().getCount());
+        assertEquals(1000, metrics.getMarketDataSnapshotLatency().getMax());
+        assertEquals(1, metrics.getLevelsWalkedPerMatch().getCount());
+        assertEquals(2, metrics.getLevelsWalkedPerMatch().getMax());
+        assertEquals(2, metrics.getOrdersMatchedPerMatch().getMax());
+
+        EngineMetrics.BookDepth bookDepth = metrics.getBookDepths().get("AAPL");
+        assertEquals(5, bookDepth.getBidLevels());
+        //Market data at every bid level plus the two slices of CLIENT2 at 99
+        assertEquals(7, bookDepth.getBidOrders());
+        assertEquals(4, bookDepth.getAskLevels());
+        assertEquals(4, bookDepth.getAskOrders());
+
+        //The copy does not move on with the engine
+        orderMatchingEngine.enter(new NewOrder("AAPL", Side.BUY, 100, 98, "CLIENT4"));
+        assertEquals(3, metrics.getNewOrderLatency().getCount());
+        orderMatchingEngine.resetMetrics();
+        assertEquals(0, orderMatchingEngine.getMetrics().getNewOrderLatency().getCount());
+    }
+
+    @Test
+    public void metricsAreLoggedOnceTheDumpIntervalHasPassed() {
+        List<String> dumps = new ArrayList<>();
+        Handler handler = new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                dumps.add(record.getMessage());
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        Logger logger = Logger.getLogger(OrderMatchingEngineImpl.class.getCanonicalName());
+        logger.addHandler(handler);
+        try {
+            //Each snapshot reads the clock twice, so the 10000ns interval passes every fifth snapshot
+            orderMatchingEngine.enableMetrics(clock, 10000);
+            for (int i = 0; i < 10; i++) {
+                orderMatchingEngine.onMdSnapshot(TestMarketData.snapshot("AAPL"));
+            }
+        } finally {
+            logger.removeHandler(handler);
+        }
+        assertEquals(2, dumps.size());
+        assertTrue(dumps.get(1), dumps.get(1).contains("marketDataSnapshot[ns] count=10 "));
+        assertTrue(dumps.get(1), dumps.get(1).contains("AAPL bidLevels=5 bidOrders=5 askLevels=5 askOrders=5"));
+    }
+}
@@ -0,0 +1,94 @@
+package ordermatchingengine;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ExecutionListenerTest {
+    private List<String> reports = new ArrayList<>();
+    //The report object is re-used, so the listener keeps its text
+    private ExecutionListener listener = report -> reports.add(report.getType() + " " + report.getSide() + " " + report.getClOrdId() + " " + report.getOrigClOrdId()
+            + " " + report.getOrderStatus() + " leaves=" + report.getLeavesQty() + " last=" + report.getLastQty() + "@" + report.getLastPrice()
+            + " tradeId=" + report.getTradeId() + " aggressor=" + report.isAggressor());
+
+    private void runSession(OrderMatchingEngine orderMatchingEngine) {
+        orderMatchingEngine.setExecutionListener(listener);
+        orderMatchingEngine.onMdSnapshot(TestMarketData.snapshot("AAPL"));
+        orderMatchingEngine.enter(new NewOrder("AAPL", Side.SELL, 200, 102, "CLIENT_SELL"));
+        //Takes our sell at 102 and 400 of the market's 500 at 103
+        orderMatchingEngine.enter(new NewOrder("AAPL", Side.BUY, 600, 103, "CLIENT_BUY"));
+        orderMatchingEngine.enter(new AmendOrder("AAPL", Side.BUY, 700, 103, "CLIENT_BUY", "CLIENT_BUY_UP"));
+        orderMatchingEngine.enter(new NewOrder("AAPL", Side.BUY, 100, 99, "CLIENT_PASSIVE"));
+        orderMatchingEngine.enter(new AmendOrder("AAPL", Side.BUY, 50, 99, "CLIENT_PASSIVE", "CLIENT_PASSIVE_DOWN"));
+        orderMatchingEngine.enter(new CancelOrder("AAPL", Side.BUY, 50, 99, "CLIENT_PASSIVE", "CLIENT_PASSIVE_CXL"));
+        orderMatchingEngine.enter(new CancelOrder("AAPL", Side.BUY, 50, 99, "UNKNOWN", "UNKNOWN_CXL"));
+        orderMatchingEngine.enter(new NewOrder("AAPL", Side.BUY, 0, 99, "EMPTY"));
+    }
+
+    private static final List<String> EXPECTED_REPORTS = Arrays.asList(
+            "ORDER_ACCEPTED SELL CLIENT_SELL null NEW leaves=200 last=0@0.0 tradeId=0 aggressor=false",
+            "ORDER_ACCEPTED BUY CLIENT_BUY null NEW leaves=600 last=0@0.0 tradeId=0 aggressor=false",
+            "FILL BUY CLIENT_BUY null PARTIALLY_FILLED leaves=400 last=200@102.0 tradeId=10000 aggressor=true",
+            "FILL SELL CLIENT_SELL null FILLED leaves=0 last=200@102.0 tradeId=10000 aggressor=false",
+            "FILL BUY CLIENT_BUY null FILLED leaves=0 last=400@103.0 tradeId=10001 aggressor=true",
+            "ORDER_REJECTED BUY CLIENT_BUY_UP CLIENT_BUY REJECTED leaves=700 last=0@0.0 tradeId=0 aggressor=false",
+            "ORDER_ACCEPTED BUY CLIENT_PASSIVE null NEW leaves=100 last=0@0.0 tradeId=0 aggressor=false",
+            "ORDER_AMENDED BUY CLIENT_PASSIVE_DOWN CLIENT_PASSIVE AMENDED leaves=50 last=0@0.0 tradeId=0 aggressor=false",
+            "ORDER_CANCELLED BUY CLIENT_PASSIVE_CXL CLIENT_PASSIVE CANCELLED leaves=50 last=0@0.0 tradeId=0 aggressor=false",
+            "ORDER_REJECTED BUY UNKNOWN_CXL UNKNOWN REJECTED leaves=50 last=0@0.0 tradeId=0 aggressor=false",
+            "ORDER_REJECTED BUY EMPTY null REJECTED leaves=0 last=0@0.0 tradeId=0 aggressor=false");
+
+    @Test
+    public void ordersAndFillsOfBothSidesArePushedAsTheyHappen() {
+        runSession(new OrderMatchingEngineImpl("AAPL"));
+        assertEquals(EXPECTED_REPORTS, reports);
+    }
+
+    //The amend up leaves a second slice of 100 resting, the first fill used to report CLIENT_A as FILLED with nothing left
+    @Test
+    public void fillsReportTheStatusAndLeavesOfTheWholeAmendedOrder() {
+        OrderMatchingEngineImpl orderMatchingEngine = new OrderMatchingEngineImpl("AAPL");
+        orderMatchingEngine.enter(new NewOrder("AAPL", Side.BUY, 100, 99, "CLIENT_A"));
+        orderMatchingEngine.enter(new AmendOrder("AAPL", Side.BUY, 200, 99, "CLIENT_A", "CLIENT_A_UP"));
+        orderMatchingEngine.setExecutionListener(listener);
+        orderMatchingEngine.enter(new NewOrder("AAPL", Side.SELL, 100, 99, "CLIENT_B"));
+        orderMatchingEngine.enter(new NewOrder("AAPL", Side.SELL, 150, 99, "CLIENT_C"));
+
+        assertEquals(Arrays.asList(
+                "ORDER_ACCEPTED SELL CLIENT_B null NEW leaves=100 last=0@0.0 tradeId=0 aggressor=false",
+                "FILL SELL CLIENT_B null FILLED leaves=0 last=100@99.0 tradeId=10000 aggressor=true",
+                "FILL BUY CLIENT_A null PARTIALLY_FILLED leaves=100 last=100@99.0 tradeId=10000 aggressor=false",
+                "ORDER_ACCEPTED SELL CLIENT_C null NEW leaves=150 last=0@0.0 tradeId=0 aggressor=false",
+                "FILL SELL CLIENT_C null PARTIALLY_FILLED leaves=50 last=100@99.0 tradeId=10001 aggressor=true",
+                "FILL BUY CLIENT_A null FILLED leaves=0 last=100@99.0 tradeId=10001 aggressor=false"), reports);
+    }
+
+    @Test
+    public void fillsAreStillReportedWhenNoTradesAreRetained() {
+        TradeHistory tradeHistory = new TradeHistory(TradeHistory.NO_RETENTION);
+        OrderMatchingEngineImpl orderMatchingEngine = new OrderMatchingEngineImpl(OrderBookType.PRICE_LADDER, tradeHistory);
+        runSession(orderMatchingEngine);
+        assertEquals(EXPECTED_REPORTS, reports);
+        assertNull(orderMatchingEngine.getTrades("AAPL", "CLIENT_BUY"));
+        assertEquals(0, tradeHistory.getRetainedTradeCount());
+        assertEquals(2, tradeHistory.getRecordedTradeCount());
+        assertEquals(10002, tradeHistory.getNextTradeId());
+    }
+
+    @Test
+    public void shardedEngineReportsFromTheShardThreads() throws InterruptedException {
+        long firstTradeId;
+        try (ShardedOrderMatchingEngine orderMatchingEngine = new ShardedOrderMatchingEngine(2)) {
+            runSession(orderMatchingEngine);
+            //AAPL lives on one shard, whose trade id range depends on which shard that is
+            firstTradeId = TradeHistory.FIRST_TRADE_ID + orderMatchingEngine.shardOf("AAPL") * ShardedOrderMatchingEngine.TRADE_ID_RANGE_PER_SHARD;
+        }
+        assertEquals(EXPECTED_REPORTS.get(2).replace("10000", Long.toString(firstTradeId)), reports.get(2));
+        assertEquals(EXPECTED_REPORTS.size(), reports.size());
+    }
+}
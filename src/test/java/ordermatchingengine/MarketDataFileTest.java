@@ -0,0 +1,110 @@
+package ordermatchingengine;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MarketDataFileTest {
+    private Path marketDataFile;
+
+    @After
+    public void deleteMarketDataFile() throws IOException {
+        if (marketDataFile != null) {
+            Files.deleteIfExists(marketDataFile);
+        }
+    }
+
+    //Snapshots around 100 with a random depth per side, alternating between two symbols
+    private List<MarketDataBookSnapshot> randomSnapshots(int count) {
+        Random random = new Random(7);
+        List<MarketDataBookSnapshot> snapshots = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            int bidDepth = 1 + random.nextInt(20);
+            int askDepth = 1 + random.nextInt(20);
+            double prices[] = new double[bidDepth + askDepth];
+            int quantities[] = new int[bidDepth + askDepth];
+            double mid = 100 + random.nextInt(5);
+            for (int level = 0; level < bidDepth; level++) {
+                prices[bidDepth - 1 - level] = mid - 1 - level;
+            }
+            for (int level = 0; level < askDepth; level++) {
+                prices[bidDepth + level] = mid + 1 + level;
+            }
+            for (int level = 0; level < quantities.length; level++) {
+                quantities[level] = 100 * (1 + random.nextInt(10));
+            }
+            snapshots.add(new MarketDataBookSnapshot(i % 2 == 0 ? "AAPL" : "MSFT", prices, quantities, bidDepth, askDepth));
+        }
+        return snapshots;
+    }
+
+    private void write(List<MarketDataBookSnapshot> snapshots) throws IOException {
+        marketDataFile = Files.createTempFile("marketdata", ".bin");
+        try (MarketDataFileWriter writer = new MarketDataFileWriter(marketDataFile)) {
+            for (int i = 0; i < snapshots.size(); i++) {
+                writer.write(1_000_000L * i, snapshots.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void snapshotsAreReadBackThroughTheFlyweightAcrossMappedWindows() throws IOException {
+        List<MarketDataBookSnapshot> snapshots = randomSnapshots(500);
+        write(snapshots);
+        //A small window makes the reader re-map many times and records end up on window boundaries
+        try (MarketDataFileReader reader = new MarketDataFileReader(marketDataFile, 1024)) {
+            for (int i = 0; i < snapshots.size(); i++) {
+                assertTrue(reader.next());
+                MappedMarketDataBookSnapshot snapshot = reader.snapshot();
+                assertEquals(snapshots.get(i).getSymbol(), snapshot.getSymbol());
+                assertEquals(i % 2, snapshot.getSymbolId());
+                assertEquals(1_000_000L * i, snapshot.getTimestamp());
+                assertEquals(snapshots.get(i).getBidDepth(), snapshot.getBidDepth());
+                assertEquals(snapshots.get(i).getAskDepth(), snapshot.getAskDepth());
+                assertArrayEquals(snapshots.get(i).getScaledPrices(), snapshot.getScaledPrices());
+                assertArrayEquals(snapshots.get(i).getQuantities(), snapshot.getQuantities());
+            }
+            assertFalse(reader.next());
+        }
+    }
+
+    @Test
+    public void engineFedFromTheFileBuildsTheSameBooksAsFromHeapSnapshots() throws IOException {
+        List<MarketDataBookSnapshot> snapshots = randomSnapshots(200);
+        write(snapshots);
+        OrderMatchingEngineImpl expectedEngine = new OrderMatchingEngineImpl(OrderBookType.PRICE_LADDER, new TradeHistory());
+        OrderMatchingEngineImpl orderMatchingEngine = new OrderMatchingEngineImpl(OrderBookType.PRICE_LADDER, new TradeHistory());
+        for (MarketDataBookSnapshot snapshot : snapshots) {
+            expectedEngine.onMdSnapshot(snapshot);
+        }
+        try (MarketDataFileReader reader = new MarketDataFileReader(marketDataFile)) {
+            assertEquals(200, reader.feed(orderMatchingEngine));
+        }
+        assertEquals(expectedEngine.dumpOrderBook("AAPL"), orderMatchingEngine.dumpOrderBook("AAPL"));
+        assertEquals(expectedEngine.dumpOrderBook("MSFT"), orderMatchingEngine.dumpOrderBook("MSFT"));
+    }
+
+    @Test
+    public void truncatedLastRecordEndsTheStream() throws IOException {
+        write(randomSnapshots(3));
+        byte content[] = Files.readAllBytes(marketDataFile);
+        Files.write(marketDataFile, Arrays.copyOf(content, content.length - 5));
+        try (MarketDataFileReader reader = new MarketDataFileReader(marketDataFile)) {
+            assertTrue(reader.next());
+            assertTrue(reader.next());
+            assertFalse(reader.next());
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package ordermatchingengine;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class OrderEntryCodecTest {
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(4 * OrderEntryCodec.MESSAGE_SIZE);
+
+    @Test
+    public void orderEntryMessagesRoundTripThroughTheBuffer() {
+        OrderEntryMessage message = new OrderEntryMessage();
+        message.wrap(buffer, 0).newOrder("AAPL", Side.BUY, 100, Prices.toScaled(101.5), "CLIENT1");
+        message.wrap(buffer, OrderEntryCodec.MESSAGE_SIZE).amendOrder("AAPL", Side.BUY, 200, Prices.toScaled(101.5), "CLIENT1", "CLIENT2");
+        message.wrap(buffer, 2 * OrderEntryCodec.MESSAGE_SIZE).cancelOrder("AAPL", Side.BUY, "CLIENT1", "CLIENT3");
+
+        message.wrap(buffer, 0);
+        assertEquals(OrderEntryCodec.NEW_ORDER, message.getType());
+        assertEquals("AAPL", message.getSymbol());
+        assertEquals(Side.BUY, message.getSide());
+        assertEquals(100, message.getQty());
+        assertEquals(Prices.toScaled(101.5), message.getScaledPrice());
+        assertEquals("CLIENT1", message.getClOrdId());
+        assertNull(message.getOrigClOrdId());
+
+        message.wrap(buffer, OrderEntryCodec.MESSAGE_SIZE);
+        assertEquals(OrderEntryCodec.AMEND_ORDER, message.getType());
+        assertEquals(200, message.getQty());
+        assertEquals("CLIENT1", message.getOrigClOrdId());
+        assertEquals("CLIENT2", message.getClOrdId());
+
+        message.wrap(buffer, 2 * OrderEntryCodec.MESSAGE_SIZE);
+        assertEquals(OrderEntryCodec.CANCEL_ORDER, message.getType());
+        assertEquals("CLIENT1", message.getOrigClOrdId());
+        assertEquals("CLIENT3", message.getClOrdId());
+    }
+
+    @Test
+    public void repeatedSymbolsAndClOrdIdsDecodeToTheSameString() {
+        OrderEntryMessage message = new OrderEntryMessage();
+        message.wrap(buffer, 0).newOrder("AAPL", Side.SELL, 100, Prices.toScaled(103), "CLIENT1");
+        message.wrap(buffer, OrderEntryCodec.MESSAGE_SIZE).cancelOrder("AAPL", Side.SELL, "CLIENT1", "CLIENT2");
+
+        String symbol = message.wrap(buffer, 0).getSymbol();
+        String clOrdId = message.getClOrdId();
+        message.wrap(buffer, OrderEntryCodec.MESSAGE_SIZE);
+        assertSame(symbol, message.getSymbol());
+        assertSame(clOrdId, message.getOrigClOrdId());
+    }
+
+    @Test
+    public void longOrNonAsciiFieldsAreRefusedInsteadOfTruncated() {
+        OrderEntryMessage message = new OrderEntryMessage();
+        for (String[] fields : new String[][]{{"A_VERY_LONG_SYMBOL_NAME", "CLIENT1"}, {"AAPL", "CLIENT1-0123456789-0123456789-0123"}, {"AAPL", "CLIENT\u00e91"}}) {
+            try {
+                message.wrap(buffer, 0).newOrder(fields[0], Side.BUY, 1, 1, fields[1]);
+                fail(fields[0] + " " + fields[1] + " should not fit a message");
+            } catch (IllegalArgumentException expected) {
+            }
+        }
+        message.wrap(buffer, 0).newOrder("AAPL_LONG_SYMBOL", Side.BUY, 1, 1, "CLIENT1-0123456789-0123456789-01");
+        assertEquals("AAPL_LONG_SYMBOL", message.getSymbol());
+        assertEquals("CLIENT1-0123456789-0123456789-01", message.getClOrdId());
+    }
+
+    @Test
+    public void unknownCodesReadAsNullAndMakeTheMessageInvalid() {
+        OrderEntryMessage message = new OrderEntryMessage().wrap(buffer, 0);
+        message.newOrder("AAPL", Side.BUY, 100, Prices.toScaled(100), "CLIENT1");
+        assertTrue(message.isValid());
+        for (byte sideCode : new byte[]{0, 3, -1}) {
+            buffer.put(1, sideCode);
+            assertNull(message.getSide());
+            assertFalse(message.isValid());
+        }
+        message.newOrder("AAPL", Side.BUY, 100, Prices.toScaled(100), "CLIENT1");
+        buffer.put(0, (byte) 9);
+        assertFalse(message.isValid());
+        message.newOrder("AAPL", Side.BUY, 100, Prices.toScaled(100), "CLIENT1");
+        buffer.put(32 + 6, (byte) 0xE9);
+        assertFalse(message.isValid());
+        assertEquals("CLIENT?", message.getClOrdId());
+
+        ExecutionReport report = new ExecutionReport();
+        report.order(ExecutionReport.Type.ORDER_ACCEPTED, new NewOrder("AAPL", Side.BUY, 100, 100, "CLIENT1"), null, OrderStatus.NEW);
+        ExecutionReportMessage reportMessage = new ExecutionReportMessage().wrap(buffer, OrderEntryCodec.MESSAGE_SIZE);
+        reportMessage.encode(report);
+        assertTrue(reportMessage.isValid());
+        buffer.put(OrderEntryCodec.MESSAGE_SIZE + 3, (byte) 99);
+        assertNull(reportMessage.getReportType());
+        assertFalse(reportMessage.isValid());
+        buffer.put(OrderEntryCodec.MESSAGE_SIZE + 3, (byte) ExecutionReport.Type.ORDER_ACCEPTED.ordinal());
+        buffer.put(OrderEntryCodec.MESSAGE_SIZE + 2, (byte) 99);
+        assertNull(reportMessage.getOrderStatus());
+        assertFalse(reportMessage.isValid());
+    }
+
+    //A buy without a side used to sweep the asks whatever its limit
+    @Test
+    public void engineRejectsInvalidMessagesWithoutTouchingTheBook() {
+        OrderMatchingEngineImpl engine = new OrderMatchingEngineImpl("AAPL");
+        engine.onMdSnapshot(new MarketDataBookSnapshot("AAPL", new double[]{99, 101}, new int[]{300, 500}));
+        List<ExecutionReport.Type> reports = new ArrayList<>();
+        engine.setExecutionListener(report -> reports.add(report.getType()));
+        OrderEntryMessage message = new OrderEntryMessage().wrap(buffer, 0);
+
+        message.newOrder("AAPL", Side.BUY, 100, Prices.toScaled(100), "CLIENT1");
+        buffer.put(1, (byte) 0);
+        assertEquals(OrderStatus.REJECTED, engine.apply(message));
+        message.newOrder("AAPL", Side.BUY, 100, Prices.toScaled(100), "CLIENT2");
+        buffer.put(0, (byte) 9);
+        assertEquals(OrderStatus.REJECTED, engine.apply(message));
+        assertEquals(OrderStatus.REJECTED, engine.enter(new NewOrder("AAPL", null, 100, 200, "CLIENT3")));
+
+        assertEquals(Arrays.asList(ExecutionReport.Type.ORDER_REJECTED, ExecutionReport.Type.ORDER_REJECTED, ExecutionReport.Type.ORDER_REJECTED), reports);
+        assertEquals(new TopOfBook("AAPL", 99, 101, 300, 500), engine.getTopOfBook("AAPL"));
+    }
+
+    //A buy of -100 used to rest and print trades of -100 against sells, an empty symbol threw from inside the engine
+    @Test
+    public void messagesWithoutQtyPriceSymbolOrClOrdIdAreInvalid() {
+        OrderEntryMessage message = new OrderEntryMessage().wrap(buffer, 0);
+        message.newOrder("AAPL", Side.BUY, -100, Prices.toScaled(100), "CLIENT1");
+        assertFalse(message.isValid());
+        message.newOrder("AAPL", Side.BUY, 0, Prices.toScaled(100), "CLIENT1");
+        assertFalse(message.isValid());
+        message.newOrder("AAPL", Side.BUY, 100, -Prices.toScaled(100), "CLIENT1");
+        assertFalse(message.isValid());
+        message.amendOrder("AAPL", Side.BUY, -100, Prices.toScaled(100), "CLIENT1", "CLIENT2");
+        assertFalse(message.isValid());
+        message.amendOrder("AAPL", Side.BUY, 100, 0, "CLIENT1", "CLIENT2");
+        assertFalse(message.isValid());
+        message.newOrder("", Side.BUY, 100, Prices.toScaled(100), "CLIENT1");
+        assertFalse(message.isValid());
+        message.newOrder("AAPL", Side.BUY, 100, Prices.toScaled(100), "");
+        assertFalse(message.isValid());
+        message.cancelOrder("AAPL", Side.BUY, "", "CLIENT2");
+        assertFalse(message.isValid());
+        message.cancelOrder("AAPL", Side.BUY, "CLIENT1", "CLIENT2");
+        assertTrue(message.isValid());
+
+        OrderMatchingEngineImpl engine = new OrderMatchingEngineImpl("AAPL");
+        engine.onMdSnapshot(new MarketDataBookSnapshot("AAPL", new double[]{99, 101}, new int[]{300, 500}));
+        message.newOrder("AAPL", Side.BUY, -100, Prices.toScaled(100), "CLIENT1");
+        assertEquals(OrderStatus.REJECTED, engine.apply(message));
+        message.newOrder("", Side.BUY, 100, Prices.toScaled(100), "CLIENT2");
+        assertEquals(OrderStatus.REJECTED, engine.apply(message));
+        assertEquals(OrderStatus.REJECTED, engine.enter(NewOrder.withScaledPrice("AAPL", Side.BUY, -100, Prices.toScaled(100), "CLIENT3")));
+        assertEquals(OrderStatus.REJECTED, engine.enter(NewOrder.withScaledPrice("AAPL", Side.BUY, 100, -Prices.toScaled(100), "CLIENT4")));
+        assertEquals(new TopOfBook("AAPL", 99, 101, 300, 500), engine.getTopOfBook("AAPL"));
+    }
+
+    @Test
+    public void engineReportsAndTopOfBookRoundTripThroughTheBuffer() {
+        OrderMatchingEngineImpl engine = new OrderMatchingEngineImpl("AAPL");
+        ExecutionReportMessage reportMessage = new ExecutionReportMessage();
+        engine.setExecutionListener(report -> {
+            if (report.getType() == ExecutionReport.Type.FILL && report.isAggressor()) {
+                reportMessage.wrap(buffer, 2 * OrderEntryCodec.MESSAGE_SIZE).encode(report);
+            }
+        });
+        engine.onMdSnapshot(new MarketDataBookSnapshot("AAPL", new double[]{99, 101}, new int[]{300, 500}));
+
+        OrderEntryMessage message = new OrderEntryMessage();
+        message.wrap(buffer, 0).newOrder("AAPL", Side.BUY, 100, Prices.toScaled(100), "CLIENT1");
+        message.wrap(buffer, OrderEntryCodec.MESSAGE_SIZE).newOrder("AAPL", Side.SELL, 100, Prices.toScaled(100), "CLIENT2");
+        assertEquals(OrderStatus.NEW, engine.apply(message.wrap(buffer, 0)));
+        engine.apply(message.wrap(buffer, OrderEntryCodec.MESSAGE_SIZE));
+
+        ExecutionReportMessage aggressorFill = new ExecutionReportMessage().wrap(buffer, 2 * OrderEntryCodec.MESSAGE_SIZE);
+        assertEquals(ExecutionReport.Type.FILL, aggressorFill.getReportType());
+        assertEquals("AAPL", aggressorFill.getSymbol());
+        assertEquals(Side.SELL, aggressorFill.getSide());
+        assertEquals("CLIENT2", aggressorFill.getClOrdId());
+        assertEquals(100, aggressorFill.getLastQty());
+        assertEquals(Prices.toScaled(100), aggressorFill.getScaledLastPrice());
+        assertEquals(OrderStatus.FILLED, aggressorFill.getOrderStatus());
+        assertTrue(aggressorFill.isAggressor());
+
+        TopOfBookMessage topOfBookMessage = new TopOfBookMessage().wrap(buffer, 0);
+        topOfBookMessage.encode(engine.getTopOfBook("AAPL"));
+        assertEquals(engine.getTopOfBook("AAPL"), topOfBookMessage.toTopOfBook());
+    }
+
+    @Test
+    public void engineConsumesMessagesLikeTheObjectApi() {
+        OrderMatchingEngineImpl objectEngine = new OrderMatchingEngineImpl("AAPL");
+        OrderMatchingEngineImpl messageEngine = new OrderMatchingEngineImpl("AAPL");
+        MarketDataBookSnapshot snapshot = new MarketDataBookSnapshot("AAPL", new double[]{100, 101, 103, 104}, new int[]{300, 100, 500, 1000});
+        objectEngine.onMdSnapshot(snapshot);
+        messageEngine.onMdSnapshot(snapshot);
+        OrderEntryMessage message = new OrderEntryMessage().wrap(buffer, 0);
+
+        assertEquals(objectEngine.enter(new NewOrder("AAPL", Side.BUY, 100, 101, "CLIENT1")), apply(messageEngine, message, OrderEntryCodec.NEW_ORDER, Side.BUY, 100, 101, null, "CLIENT1"));
+        assertEquals(objectEngine.enter(new AmendOrder("AAPL", Side.BUY, 300, 101, "CLIENT1", "CLIENT2")), apply(messageEngine, message, OrderEntryCodec.AMEND_ORDER, Side.BUY, 300, 101, "CLIENT1", "CLIENT2"));
+        assertEquals(objectEngine.enter(new AmendOrder("AAPL", Side.BUY, 150, 101, "CLIENT1", "CLIENT3")), apply(messageEngine, message, OrderEntryCodec.AMEND_ORDER, Side.BUY, 150, 101, "CLIENT1", "CLIENT3"));
+        assertEquals(objectEngine.enter(new NewOrder("AAPL", Side.SELL, 600, 103, "CLIENT4")), apply(messageEngine, message, OrderEntryCodec.NEW_ORDER, Side.SELL, 600, 103, null, "CLIENT4"));
+        assertEquals(objectEngine.enter(new NewOrder("AAPL", Side.BUY, 700, 103, "CLIENT5")), apply(messageEngine, message, OrderEntryCodec.NEW_ORDER, Side.BUY, 700, 103, null, "CLIENT5"));
+        assertEquals(objectEngine.enter(new CancelOrder("AAPL", Side.BUY, 0, 0, "CLIENT1", "CLIENT6")), apply(messageEngine, message, OrderEntryCodec.CANCEL_ORDER, Side.BUY, 0, 0, "CLIENT1", "CLIENT6"));
+        assertEquals(objectEngine.enter(new CancelOrder("AAPL", Side.SELL, 0, 0, "UNKNOWN", "CLIENT7")), apply(messageEngine, message, OrderEntryCodec.CANCEL_ORDER, Side.SELL, 0, 0, "UNKNOWN", "CLIENT7"));
+
+        assertEquals(objectEngine.dumpOrderBook("AAPL"), messageEngine.dumpOrderBook("AAPL"));
+        assertEquals(objectEngine.getTopOfBook("AAPL"), messageEngine.getTopOfBook("AAPL"));
+        assertFalse(messageEngine.dumpOrderBook("AAPL").isEmpty());
+    }
+
+    private static OrderStatus apply(OrderMatchingEngineImpl engine, OrderEntryMessage message, byte type, Side side, int qty, double price, String origClOrdId, String clOrdId) {
+        if (type == OrderEntryCodec.NEW_ORDER) {
+            message.newOrder("AAPL", side, qty, Prices.toScaled(price), clOrdId);
+        } else if (type == OrderEntryCodec.AMEND_ORDER) {
+            message.amendOrder("AAPL", side, qty, Prices.toScaled(price), origClOrdId, clOrdId);
+        } else {
+            message.cancelOrder("AAPL", side, origClOrdId, clOrdId);
+        }
+        return engine.apply(message);
+    }
+}
@@ -0,0 +1,289 @@
+package ordermatchingengine;
+
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class OrderGatewayTest {
+    //Blocking loopback client, reads time out so a lost report fails the test instead of hanging it
+    private static class Client implements AutoCloseable {
+        private final Socket socket;
+        private final OutputStream out;
+        private final DataInputStream in;
+        private final ByteBuffer sendBuffer;
+        private final byte[] report = new byte[OrderEntryCodec.MESSAGE_SIZE];
+        private final OrderEntryMessage message = new OrderEntryMessage();
+        private final ExecutionReportMessage reportMessage = new ExecutionReportMessage().wrap(ByteBuffer.wrap(report), 0);
+        private int bufferedMessages;
+
+        Client(InetSocketAddress address, int maxBufferedMessages) throws IOException {
+            socket = new Socket(address.getAddress(), address.getPort());
+            socket.setTcpNoDelay(true);
+            socket.setSoTimeout(10_000);
+            out = socket.getOutputStream();
+            in = new DataInputStream(socket.getInputStream());
+            sendBuffer = ByteBuffer.allocate(maxBufferedMessages * OrderEntryCodec.MESSAGE_SIZE);
+        }
+
+        OrderEntryMessage nextMessage() {
+            return message.wrap(sendBuffer, bufferedMessages++ * OrderEntryCodec.MESSAGE_SIZE);
+        }
+
+        //Sends the messages buffered so far in one write
+        void send() throws IOException {
+            out.write(sendBuffer.array(), 0, bufferedMessages * OrderEntryCodec.MESSAGE_SIZE);
+            out.flush();
+            bufferedMessages = 0;
+        }
+
+        ExecutionReportMessage readReport() throws IOException {
+            in.readFully(report);
+            return reportMessage;
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+
+    private static OrderGateway newGateway(OrderMatchingEngineImpl engine) throws IOException {
+        return new OrderGateway(engine, new InetSocketAddress("127.0.0.1", 0), 1024, new YieldingWaitStrategy());
+    }
+
+    @Test
+    public void fillOfARestingOrderIsReportedToTheSessionWhichEnteredIt() throws Exception {
+        OrderMatchingEngineImpl engine = new OrderMatchingEngineImpl("AAPL");
+        try (OrderGateway gateway = newGateway(engine);
+             Client buyer = new Client(gateway.getLocalAddress(), 1);
+             Client seller = new Client(gateway.getLocalAddress(), 1)) {
+            buyer.nextMessage().newOrder("AAPL", Side.BUY, 100, Prices.toScaled(100), "BUYER1");
+            buyer.send();
+            ExecutionReportMessage report = buyer.readReport();
+            assertEquals(ExecutionReport.Type.ORDER_ACCEPTED, report.getReportType());
+            assertEquals("BUYER1", report.getClOrdId());
+
+            seller.nextMessage().newOrder("AAPL", Side.SELL, 100, Prices.toScaled(100), "SELLER1");
+            seller.send();
+            assertEquals(ExecutionReport.Type.ORDER_ACCEPTED, seller.readReport().getReportType());
+            report = seller.readReport();
+            assertEquals(ExecutionReport.Type.FILL, report.getReportType());
+            assertEquals("SELLER1", report.getClOrdId());
+            assertTrue(report.isAggressor());
+
+            report = buyer.readReport();
+            assertEquals(ExecutionReport.Type.FILL, report.getReportType());
+            assertEquals("BUYER1", report.getClOrdId());
+            assertEquals(OrderStatus.FILLED, report.getOrderStatus());
+            assertEquals(100, report.getLastQty());
+            assertEquals(Prices.toScaled(100), report.getScaledLastPrice());
+            assertFalse(report.isAggressor());
+
+            //The filled order no longer holds its clOrdId, so there is nothing left to cancel
+            buyer.nextMessage().cancelOrder("AAPL", Side.BUY, "BUYER1", "BUYER2");
+            buyer.send();
+            assertEquals(ExecutionReport.Type.ORDER_REJECTED, buyer.readReport().getReportType());
+        }
+    }
+
+    @Test
+    public void sessionsCanNotReuseOrTouchTheClOrdIdsOfAnotherSession() throws Exception {
+        OrderMatchingEngineImpl engine = new OrderMatchingEngineImpl("AAPL");
+        OrderGateway gateway = newGateway(engine);
+        try (Client owner = new Client(gateway.getLocalAddress(), 1);
+             Client other = new Client(gateway.getLocalAddress(), 1)) {
+            owner.nextMessage().newOrder("AAPL", Side.BUY, 100, Prices.toScaled(100), "ORDER1");
+            owner.send();
+            assertEquals(ExecutionReport.Type.ORDER_ACCEPTED, owner.readReport().getReportType());
+
+            other.nextMessage().newOrder("AAPL", Side.BUY, 50, Prices.toScaled(99), "ORDER1");
+            other.send();
+            assertEquals(ExecutionReport.Type.ORDER_REJECTED, other.readReport().getReportType());
+            other.nextMessage().cancelOrder("AAPL", Side.BUY, "ORDER1", "CANCEL1");
+            other.send();
+            assertEquals(ExecutionReport.Type.ORDER_REJECTED, other.readReport().getReportType());
+            other.nextMessage().amendOrder("AAPL", Side.BUY, 10, Prices.toScaled(100), "ORDER1", "AMEND1");
+            other.send();
+            assertEquals(ExecutionReport.Type.ORDER_REJECTED, other.readReport().getReportType());
+            //The same clOrdId twice in one session is a duplicate as well
+            owner.nextMessage().newOrder("AAPL", Side.BUY, 10, Prices.toScaled(98), "ORDER1");
+            owner.send();
+            assertEquals(ExecutionReport.Type.ORDER_REJECTED, owner.readReport().getReportType());
+
+            //The fill still goes to the owner, after which the clOrdId is free again
+            other.nextMessage().newOrder("AAPL", Side.SELL, 100, Prices.toScaled(100), "ORDER2");
+            other.send();
+            assertEquals(ExecutionReport.Type.ORDER_ACCEPTED, other.readReport().getReportType());
+            assertEquals(ExecutionReport.Type.FILL, other.readReport().getReportType());
+            ExecutionReportMessage report = owner.readReport();
+            assertEquals(ExecutionReport.Type.FILL, report.getReportType());
+            assertEquals(100, report.getLastQty());
+            other.nextMessage().newOrder("AAPL", Side.BUY, 50, Prices.toScaled(99), "ORDER1");
+            other.send();
+            assertEquals(ExecutionReport.Type.ORDER_ACCEPTED, other.readReport().getReportType());
+            other.nextMessage().cancelOrder("AAPL", Side.BUY, "ORDER1", "CANCEL2");
+            other.send();
+            assertEquals(ExecutionReport.Type.ORDER_CANCELLED, other.readReport().getReportType());
+        } finally {
+            gateway.close();
+        }
+        //Filled, cancelled and rejected orders no longer hold their clOrdId
+        assertEquals(0, gateway.getLiveOrderCount());
+        assertEquals(new TopOfBook("AAPL", -1, -1, -1, -1), engine.getTopOfBook("AAPL"));
+    }
+
+    //The amend up rests a second slice of ORDER1, its fill used to find no owner once the first slice filled
+    @Test
+    public void anOrderAmendedUpKeepsItsOwnerUntilItsLastSliceIsFilled() throws Exception {
+        OrderMatchingEngineImpl engine = new OrderMatchingEngineImpl("AAPL");
+        OrderGateway gateway = newGateway(engine);
+        try (Client owner = new Client(gateway.getLocalAddress(), 1);
+             Client other = new Client(gateway.getLocalAddress(), 1)) {
+            owner.nextMessage().newOrder("AAPL", Side.BUY, 100, Prices.toScaled(100), "ORDER1");
+            owner.send();
+            assertEquals(ExecutionReport.Type.ORDER_ACCEPTED, owner.readReport().getReportType());
+            owner.nextMessage().amendOrder("AAPL", Side.BUY, 200, Prices.toScaled(100), "ORDER1", "AMEND1");
+            owner.send();
+            assertEquals(ExecutionReport.Type.ORDER_AMENDED, owner.readReport().getReportType());
+
+            for (String clOrdId : new String[]{"ORDER2", "ORDER3"}) {
+                other.nextMessage().newOrder("AAPL", Side.SELL, 100, Prices.toScaled(100), clOrdId);
+                other.send();
+                assertEquals(ExecutionReport.Type.ORDER_ACCEPTED, other.readReport().getReportType());
+                assertEquals(ExecutionReport.Type.FILL, other.readReport().getReportType());
+                ExecutionReportMessage report = owner.readReport();
+                assertEquals(ExecutionReport.Type.FILL, report.getReportType());
+                assertEquals("ORDER1", report.getClOrdId());
+                assertEquals(clOrdId.equals("ORDER2") ? OrderStatus.PARTIALLY_FILLED : OrderStatus.FILLED, report.getOrderStatus());
+                assertEquals(clOrdId.equals("ORDER2") ? 100 : 0, report.getLeavesQty());
+            }
+        } finally {
+            gateway.close();
+        }
+        assertEquals(0, gateway.getLiveOrderCount());
+    }
+
+    @Test
+    public void ordersOfADisconnectedSessionAreCancelled() throws Exception {
+        OrderMatchingEngineImpl engine = new OrderMatchingEngineImpl("AAPL");
+        OrderGateway gateway = newGateway(engine);
+        try (Client other = new Client(gateway.getLocalAddress(), 1)) {
+            try (Client owner = new Client(gateway.getLocalAddress(), 1)) {
+                owner.nextMessage().newOrder("AAPL", Side.BUY, 100, Prices.toScaled(100), "ORDER1");
+                owner.send();
+                assertEquals(ExecutionReport.Type.ORDER_ACCEPTED, owner.readReport().getReportType());
+            }
+            //ORDER1 is a duplicate until the gateway has cancelled it
+            ExecutionReport.Type reportType = ExecutionReport.Type.ORDER_REJECTED;
+            for (int attempt = 0; attempt < 10_000 && reportType == ExecutionReport.Type.ORDER_REJECTED; attempt++) {
+                other.nextMessage().newOrder("AAPL", Side.BUY, 50, Prices.toScaled(99), "ORDER1");
+                other.send();
+                reportType = other.readReport().getReportType();
+            }
+            assertEquals(ExecutionReport.Type.ORDER_ACCEPTED, reportType);
+        } finally {
+            gateway.close();
+        }
+        assertEquals(0, engine.getQuantityAtLevel("AAPL", Side.BUY, 100));
+        assertEquals(new TopOfBook("AAPL", 99, -1, 50, -1), engine.getTopOfBook("AAPL"));
+    }
+
+    private static class FailingEngine extends OrderMatchingEngineImpl {
+        FailingEngine() {
+            super("AAPL");
+        }
+
+        @Override
+        OrderStatus apply(OrderEntryMessage message) {
+            if ("FAILING".equals(message.getClOrdId())) {
+                throw new IllegalStateException("Engine failure");
+            }
+            return super.apply(message);
+        }
+    }
+
+    //The engine failing part way used to leave the clOrdId taken and the client without a report
+    @Test
+    public void aNewOrderTheEngineFailsOnIsRejectedAndFreesItsClOrdId() throws Exception {
+        OrderMatchingEngineImpl engine = new FailingEngine();
+        OrderGateway gateway = newGateway(engine);
+        try (Client client = new Client(gateway.getLocalAddress(), 1)) {
+            client.nextMessage().newOrder("AAPL", Side.BUY, 100, Prices.toScaled(100), "FAILING");
+            client.send();
+            ExecutionReportMessage report = client.readReport();
+            assertEquals(ExecutionReport.Type.ORDER_REJECTED, report.getReportType());
+            assertEquals("FAILING", report.getClOrdId());
+        } finally {
+            gateway.close();
+        }
+        assertEquals(0, gateway.getLiveOrderCount());
+    }
+
+    //Every session buys and sells the same quantity at one price, so once all orders are in every order ends up filled
+    @Test
+    public void manySessionsTradeAgainstEachOtherOverLoopback() throws Exception {
+        int sessionCount = 32;
+        int ordersPerSession = 2_000;
+        int ordersPerWrite = 50;
+        int qty = 10;
+        OrderMatchingEngineImpl engine = new OrderMatchingEngineImpl("AAPL");
+        ExecutorService clients = Executors.newFixedThreadPool(sessionCount);
+        try (OrderGateway gateway = newGateway(engine)) {
+            InetSocketAddress address = gateway.getLocalAddress();
+            List<Future<long[]>> results = new ArrayList<>();
+            for (int s = 0; s < sessionCount; s++) {
+                int sessionIndex = s;
+                results.add(clients.submit(() -> {
+                    long accepted = 0;
+                    long filledQty = 0;
+                    try (Client client = new Client(address, ordersPerWrite)) {
+                        for (int sent = 0; sent < ordersPerSession; ) {
+                            for (int i = 0; i < ordersPerWrite; i++, sent++) {
+                                //Sessions start on opposite sides so orders cross between sessions
+                                Side side = (sent + sessionIndex) % 2 == 0 ? Side.BUY : Side.SELL;
+                                client.nextMessage().newOrder("AAPL", side, qty, Prices.toScaled(100), "S" + sessionIndex + "-" + sent);
+                            }
+                            client.send();
+                            while (accepted < sent) {
+                                ExecutionReportMessage report = client.readReport();
+                                if (report.getReportType() == ExecutionReport.Type.ORDER_ACCEPTED) {
+                                    accepted++;
+                                } else if (report.getReportType() == ExecutionReport.Type.FILL) {
+                                    filledQty += report.getLastQty();
+                                }
+                            }
+                        }
+                        while (filledQty < (long) ordersPerSession * qty) {
+                            ExecutionReportMessage report = client.readReport();
+                            if (report.getReportType() == ExecutionReport.Type.FILL) {
+                                filledQty += report.getLastQty();
+                            }
+                        }
+                    }
+                    return new long[]{accepted, filledQty};
+                }));
+            }
+            for (Future<long[]> result : results) {
+                assertEquals(ordersPerSession, result.get()[0]);
+                assertEquals((long) ordersPerSession * qty, result.get()[1]);
+            }
+        } finally {
+            clients.shutdownNow();
+        }
+        assertEquals(new TopOfBook("AAPL", -1, -1, -1, -1), engine.getTopOfBook("AAPL"));
+    }
+}
@@ -0,0 +1,165 @@
+package ordermatchingengine;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+//Checks that a warmed up price ladder engine does not allocate on enter/amend/cancel/onMdSnapshot, including fills and a bounded trade history
+public class OrderMatchingEngineAllocationTest {
+    //Long enough for C2 to settle, deoptimizations during the measurement show up as a few hundred allocated bytes
+    private static final int WARMUP_ITERATIONS = 50000;
+    private static final int MEASURED_ITERATIONS = 2000;
+    private static final int MEASUREMENT_ROUNDS = 5;
+    private MarketDataBookSnapshot snapshot = TestMarketData.snapshot("AAPL");
+    private OrderMatchingEngineImpl orderMatchingEngine = new OrderMatchingEngineImpl("AAPL", OrderBookType.PRICE_LADDER, 64);
+    //Orders are created once and re-sent, a real client would recycle its messages the same way
+    private NewOrder aggressiveBuy = new NewOrder("AAPL", Side.BUY, 150, 103, "AGGRESSIVE_BUY");
+    private NewOrder aggressiveSell = new NewOrder("AAPL", Side.SELL, 50, 97, "AGGRESSIVE_SELL");
+    private NewOrder passiveBuy = new NewOrder("AAPL", Side.BUY, 100, 99, "PASSIVE_BUY");
+    private AmendOrder passiveBuyModUp = new AmendOrder("AAPL", Side.BUY, 200, 99, "PASSIVE_BUY", "PASSIVE_BUY_UP");
+    private AmendOrder passiveBuyModDown = new AmendOrder("AAPL", Side.BUY, 50, 99, "PASSIVE_BUY", "PASSIVE_BUY_DOWN");
+    private AmendOrder passiveBuyModPriceDown = new AmendOrder("AAPL", Side.BUY, 100, 98, "PASSIVE_BUY", "PASSIVE_BUY_PX_DOWN");
+    private AmendOrder passiveBuyModPriceUp = new AmendOrder("AAPL", Side.BUY, 100, 99, "PASSIVE_BUY", "PASSIVE_BUY_PX_UP");
+    private CancelOrder passiveBuyCancel = new CancelOrder("AAPL", Side.BUY, 100, 99, "PASSIVE_BUY", "PASSIVE_BUY_CXL");
+    private Level rootLogLevel;
+
+    @Before
+    public void silenceLogging() {
+        Logger rootLogger = Logger.getLogger("");
+        rootLogLevel = rootLogger.getLevel();
+        rootLogger.setLevel(Level.OFF);
+    }
+
+    @After
+    public void restoreLogging() {
+        Logger.getLogger("").setLevel(rootLogLevel);
+    }
+
+    private void runCycle() {
+        orderMatchingEngine.onMdSnapshot(snapshot);
+        aggressiveBuy.setQty(150);
+        orderMatchingEngine.enter(aggressiveBuy);
+        aggressiveSell.setQty(50);
+        orderMatchingEngine.enter(aggressiveSell);
+        passiveBuy.setQty(100);
+        orderMatchingEngine.enter(passiveBuy);
+        orderMatchingEngine.enter(passiveBuyModUp);
+        orderMatchingEngine.enter(passiveBuyModDown);
+        orderMatchingEngine.enter(passiveBuyModPriceDown);
+        orderMatchingEngine.enter(passiveBuyModPriceUp);
+        orderMatchingEngine.enter(passiveBuyCancel);
+    }
+
+    private com.sun.management.ThreadMXBean allocationMXBean;
+    private long threadId;
+    private long measurementOverhead;
+
+    private void startAllocationMeasurement() {
+        java.lang.management.ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        assumeTrue(threadMXBean instanceof com.sun.management.ThreadMXBean);
+        allocationMXBean = (com.sun.management.ThreadMXBean) threadMXBean;
+        assumeTrue(allocationMXBean.isThreadAllocatedMemorySupported() && allocationMXBean.isThreadAllocatedMemoryEnabled());
+        threadId = Thread.currentThread().getId();
+        //Reading the counter may allocate itself, so that cost is measured first and taken off
+        long start = allocationMXBean.getThreadAllocatedBytes(threadId);
+        measurementOverhead = allocationMXBean.getThreadAllocatedBytes(threadId) - start;
+    }
+
+    private long allocatedBytesSince(long start) {
+        return allocationMXBean.getThreadAllocatedBytes(threadId) - start - measurementOverhead;
+    }
+
+    /*
+        A late C2 recompilation or deoptimization can still show up as a few hundred bytes in one round, so the best of a few rounds is taken.
+        Garbage created by the engine itself shows up in every round.
+    */
+    @Test
+    public void steadyStateEnterAmendCancelAndSnapshotAllocateNothing() {
+        assertCyclesAllocateNothing();
+    }
+
+    @Test
+    public void recordingMetricsAllocatesNothing() {
+        orderMatchingEngine.enableMetrics();
+        assertCyclesAllocateNothing();
+        //Three new orders and one snapshot per cycle
+        assertTrue(orderMatchingEngine.getMetrics().getNewOrderLatency().getCount() >= 3L * (WARMUP_ITERATIONS + MEASURED_ITERATIONS));
+        assertTrue(orderMatchingEngine.getMetrics().getLevelsWalkedPerMatch().getCount() >= 2L * (WARMUP_ITERATIONS + MEASURED_ITERATIONS));
+    }
+
+    @Test
+    public void reportingExecutionsAllocatesNothing() {
+        long filledQty[] = new long[1];
+        orderMatchingEngine.setExecutionListener(report -> filledQty[0] += report.getLastQty());
+        assertCyclesAllocateNothing();
+        //Each cycle fills the 150 bought and the 50 sold
+        assertTrue(filledQty[0] >= 200L * (WARMUP_ITERATIONS + MEASURED_ITERATIONS));
+    }
+
+    private void assertCyclesAllocateNothing() {
+        startAllocationMeasurement();
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            runCycle();
+        }
+        long fewestAllocatedBytes = Long.MAX_VALUE;
+        for (int round = 0; round < MEASUREMENT_ROUNDS && fewestAllocatedBytes > 0; round++) {
+            long start = allocationMXBean.getThreadAllocatedBytes(threadId);
+            for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+                runCycle();
+            }
+            fewestAllocatedBytes = Math.min(fewestAllocatedBytes, allocatedBytesSince(start));
+        }
+
+        assertEquals(0, fewestAllocatedBytes);
+        assertEquals(150, orderMatchingEngine.getTrades(aggressiveBuy).get(0).getTradeQty());
+        assertEquals(103.0, orderMatchingEngine.getTrades(aggressiveBuy).get(0).getTradePrice(), 0);
+    }
+
+    @Test
+    public void snapshotsFedFromAMappedMarketDataFileAllocateNothing() throws IOException {
+        startAllocationMeasurement();
+        Path marketDataFile = Files.createTempFile("marketdata", ".bin");
+        try {
+            try (MarketDataFileWriter writer = new MarketDataFileWriter(marketDataFile)) {
+                double prices[] = TestMarketData.prices();
+                int quantities[] = TestMarketData.quantities();
+                for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+                    quantities[i % quantities.length] = 100 + i;
+                    writer.write(i, new MarketDataBookSnapshot("AAPL", prices, quantities));
+                }
+            }
+            for (int i = 0; i < WARMUP_ITERATIONS / MEASURED_ITERATIONS; i++) {
+                try (MarketDataFileReader reader = new MarketDataFileReader(marketDataFile)) {
+                    reader.feed(orderMatchingEngine);
+                }
+            }
+            long fewestAllocatedBytes = Long.MAX_VALUE;
+            for (int round = 0; round < MEASUREMENT_ROUNDS && fewestAllocatedBytes > 0; round++) {
+                try (MarketDataFileReader reader = new MarketDataFileReader(marketDataFile)) {
+                    //The first record defines the symbol, reading it creates the symbol String once per file
+                    reader.next();
+                    orderMatchingEngine.onMdSnapshot(reader.snapshot());
+                    long start = allocationMXBean.getThreadAllocatedBytes(threadId);
+                    while (reader.next()) {
+                        orderMatchingEngine.onMdSnapshot(reader.snapshot());
+                    }
+                    fewestAllocatedBytes = Math.min(fewestAllocatedBytes, allocatedBytesSince(start));
+                }
+            }
+            assertEquals(0, fewestAllocatedBytes);
+        } finally {
+            Files.deleteIfExists(marketDataFile);
+        }
+    }
+}
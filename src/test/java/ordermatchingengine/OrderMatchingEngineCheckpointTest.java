@@ -0,0 +1,117 @@
+package ordermatchingengine;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class OrderMatchingEngineCheckpointTest {
+    private static final String[] SYMBOLS = {"AAPL", "MSFT"};
+    private Path checkpointFile;
+
+    @After
+    public void deleteCheckpoint() throws IOException {
+        if (checkpointFile != null) {
+            Files.deleteIfExists(checkpointFile);
+        }
+    }
+
+    //Random flow of snapshots, new orders, quantity and price amends and cancels over a few clOrdIds so orders get sliced, filled and re-used
+    private void enterRandomCommand(Random random, int step, OrderMatchingEngineImpl... orderMatchingEngines) {
+        String symbol = SYMBOLS[random.nextInt(SYMBOLS.length)];
+        Side side = random.nextBoolean() ? Side.BUY : Side.SELL;
+        int qty = 10 * (1 + random.nextInt(30));
+        double price = 97 + random.nextInt(11);
+        String clOrdId = symbol + "-" + random.nextInt(12);
+        int command = random.nextInt(10);
+        for (OrderMatchingEngineImpl orderMatchingEngine : orderMatchingEngines) {
+            if (command == 0) {
+                orderMatchingEngine.onMdSnapshot(TestMarketData.snapshot(symbol));
+            } else if (command <= 4) {
+                orderMatchingEngine.enter(new NewOrder(symbol, side, qty, price, clOrdId));
+            } else if (command <= 8) {
+                orderMatchingEngine.enter(new AmendOrder(symbol, side, qty, command <= 6 ? price : 99, clOrdId, "AMEND-" + step));
+            } else {
+                orderMatchingEngine.enter(new CancelOrder(symbol, side, qty, price, clOrdId, "CANCEL-" + step));
+            }
+        }
+    }
+
+    private void assertSameState(OrderMatchingEngineImpl expectedEngine, OrderMatchingEngineImpl orderMatchingEngine, int step) {
+        for (String symbol : SYMBOLS) {
+            assertEquals("Step " + step, expectedEngine.dumpOrderBook(symbol), orderMatchingEngine.dumpOrderBook(symbol));
+            for (int i = 0; i < 12; i++) {
+                List<Trade> expectedTrades = expectedEngine.getTrades(symbol, symbol + "-" + i);
+                List<Trade> trades = orderMatchingEngine.getTrades(symbol, symbol + "-" + i);
+                Trade expectedLastTrade = expectedTrades == null ? null : expectedTrades.get(expectedTrades.size() - 1);
+                Trade lastTrade = trades == null ? null : trades.get(trades.size() - 1);
+                //Trades from before the restore are not in the checkpoint, so only ones made since are compared
+                if (lastTrade != null) {
+                    assertEquals("Step " + step, expectedLastTrade.getTradeID(), lastTrade.getTradeID());
+                    assertEquals("Step " + step, expectedLastTrade.getTradeQty(), lastTrade.getTradeQty());
+                }
+            }
+        }
+    }
+
+    private void restoredEngineMatchesLikeTheCheckpointedEngine(OrderBookType orderBookType) throws IOException {
+        checkpointFile = Files.createTempFile("engine", ".checkpoint");
+        OrderMatchingEngineImpl orderMatchingEngine = new OrderMatchingEngineImpl(orderBookType, new TradeHistory());
+        Random random = new Random(42);
+        for (String symbol : SYMBOLS) {
+            orderMatchingEngine.onMdSnapshot(TestMarketData.snapshot(symbol));
+        }
+        for (int step = 0; step < 2000; step++) {
+            enterRandomCommand(random, step, orderMatchingEngine);
+        }
+        orderMatchingEngine.writeCheckpoint(checkpointFile);
+
+        OrderMatchingEngineImpl restoredEngine = new OrderMatchingEngineImpl(orderBookType, new TradeHistory());
+        restoredEngine.restoreCheckpoint(checkpointFile);
+        assertSameState(orderMatchingEngine, restoredEngine, -1);
+        for (int step = 2000; step < 4000; step++) {
+            enterRandomCommand(random, step, orderMatchingEngine, restoredEngine);
+            assertSameState(orderMatchingEngine, restoredEngine, step);
+        }
+    }
+
+    @Test
+    public void restoredTreeMapEngineMatchesLikeTheCheckpointedEngine() throws IOException {
+        restoredEngineMatchesLikeTheCheckpointedEngine(OrderBookType.TREE_MAP);
+    }
+
+    @Test
+    public void restoredPriceLadderEngineMatchesLikeTheCheckpointedEngine() throws IOException {
+        restoredEngineMatchesLikeTheCheckpointedEngine(OrderBookType.PRICE_LADDER);
+    }
+
+    @Test
+    public void restoredBookKeepsItsTickSize() throws IOException {
+        checkpointFile = Files.createTempFile("engine", ".checkpoint");
+        OrderMatchingEngineImpl orderMatchingEngine = new OrderMatchingEngineImpl(OrderBookType.PRICE_LADDER, new TradeHistory());
+        orderMatchingEngine.setTickSize("AAPL", 0.5);
+        orderMatchingEngine.enter(new NewOrder("AAPL", Side.BUY, 100, 99.5, "CLIENT1"));
+        orderMatchingEngine.writeCheckpoint(checkpointFile);
+
+        OrderMatchingEngineImpl restoredEngine = new OrderMatchingEngineImpl(OrderBookType.PRICE_LADDER, new TradeHistory());
+        restoredEngine.restoreCheckpoint(checkpointFile);
+        assertEquals(OrderStatus.REJECTED, restoredEngine.enter(new NewOrder("AAPL", Side.BUY, 100, 99.1, "CLIENT2")));
+        assertEquals(OrderStatus.NEW, restoredEngine.enter(new NewOrder("AAPL", Side.BUY, 100, 99.0, "CLIENT3")));
+        assertEquals(100, restoredEngine.getQuantityAtLevel("AAPL", Side.BUY, 99.5));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void checkpointCannotBeRestoredIntoAnEngineWithOrders() throws IOException {
+        checkpointFile = Files.createTempFile("engine", ".checkpoint");
+        OrderMatchingEngineImpl orderMatchingEngine = new OrderMatchingEngineImpl("AAPL");
+        orderMatchingEngine.writeCheckpoint(checkpointFile);
+        orderMatchingEngine.enter(new NewOrder("AAPL", Side.BUY, 100, 99, "CLIENT1"));
+        orderMatchingEngine.restoreCheckpoint(checkpointFile);
+    }
+}
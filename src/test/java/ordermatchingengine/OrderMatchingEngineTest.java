@@ -1,15 +1,22 @@
+package ordermatchingengine;
+
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
 
 public class OrderMatchingEngineTest {
-    private double prices[] = new double[]{97, 98, 99, 100, 101, 103, 104, 105, 106, 107};
-    private int quantities[] = new int[]{500, 400, 300, 300, 100, 500, 1000, 2000, 2500, 3000};
-    private OrderMatchingEngineImpl orderMatchingEngine = new OrderMatchingEngineImpl("AAPL");
+    private OrderMatchingEngineImpl orderMatchingEngine = newOrderMatchingEngine("AAPL");
     private String clientName = "CLIENT";
+
+    protected OrderMatchingEngineImpl newOrderMatchingEngine(String symbol) {
+        return new OrderMatchingEngineImpl(symbol);
+    }
+
     private void assertInitialOrderBookIsCreatedAsExpectedFromMdSnapshot() {
-        orderMatchingEngine.onMdSnapshot(new MarketDataBookSnapshot("AAPL", prices, quantities));
+        orderMatchingEngine.onMdSnapshot(TestMarketData.snapshot("AAPL"));
         assertEquals("___________________________\n" +
                         "              107.0 3000\n" +
                         "              106.0 2500\n" +
@@ -799,7 +806,7 @@ public class OrderMatchingEngineTest {
         //Verify that the top of book price stays at the same
         assertTopOfBook("AAPL", 100, 103, 300, 500);
         //Now assume we randomly get the next market snapshot and the market has moved
-        orderMatchingEngine.onMdSnapshot(new MarketDataBookSnapshot("AAPL", prices, quantities));
+        orderMatchingEngine.onMdSnapshot(TestMarketData.snapshot("AAPL"));
         //We extract our original client order and add it back to the order book from the latest market data snapshot, so that it can potentially get filled later on
         assertEquals("___________________________\n" +
                         "              107.0 3000\n" +
@@ -881,6 +888,232 @@ public class OrderMatchingEngineTest {
     }
 
 
+    @Test
+    public void marketDataSnapshotUpdatesLevelsInPlaceAndOnlyRematchesCrossedClientOrders() {
+        assertInitialOrderBookIsCreatedAsExpectedFromMdSnapshot();
+        NewOrder passiveBuy = new NewOrder("AAPL", Side.BUY, 50, 100, clientName + 24);
+        orderMatchingEngine.enter(passiveBuy);
+        NewOrder passiveSell = new NewOrder("AAPL", Side.SELL, 50, 102, clientName + 25);
+        orderMatchingEngine.enter(passiveSell);
+
+        //Market quantity at 100 changes and stays ahead of our buy, 103 leaves the market and new market liquidity at 102 gets priority over our sell
+        orderMatchingEngine.onMdSnapshot(new MarketDataBookSnapshot("AAPL", new double[]{97, 98, 99, 100, 101, 102, 104, 105, 106, 107},
+                new int[]{500, 400, 300, 250, 100, 80, 1000, 2000, 2500, 3000}));
+        assertEquals("___________________________\n" +
+                        "              107.0 3000\n" +
+                        "              106.0 2500\n" +
+                        "              105.0 2000\n" +
+                        "              104.0 1000\n" +
+                        "              102.0 80 50 \n" +
+                        "101.0 100\n" +
+                        "100.0 250 50 \n" +
+                        "99.0 300\n" +
+                        "98.0 400\n" +
+                        "97.0 500\n" +
+                        "___________________________"
+                , orderMatchingEngine.dumpOrderBook("AAPL"));
+        assertNull(orderMatchingEngine.getTrades(passiveBuy));
+
+        //Market moves down through our buy at 100 which now matches the 30 offered there and rests with the remaining 20
+        orderMatchingEngine.onMdSnapshot(new MarketDataBookSnapshot("AAPL", new double[]{95, 96, 97, 98, 99, 100, 101, 102, 103, 104},
+                new int[]{100, 200, 300, 400, 500, 30, 60, 70, 80, 90}));
+        assertEquals("___________________________\n" +
+                        "              104.0 90\n" +
+                        "              103.0 80\n" +
+                        "              102.0 70 50 \n" +
+                        "              101.0 60\n" +
+                        "100.0 20\n" +
+                        "99.0 500\n" +
+                        "98.0 400\n" +
+                        "97.0 300\n" +
+                        "96.0 200\n" +
+                        "95.0 100\n" +
+                        "___________________________"
+                , orderMatchingEngine.dumpOrderBook("AAPL"));
+        assertTradeQtyAndPriceIsAsExpected(passiveBuy, 0, 30, 100);
+        assertNull(orderMatchingEngine.getTrades(passiveSell));
+        assertTopOfBook("AAPL", 100, 101, 20, 60);
+    }
+
+    @Test
+    public void marketDataSnapshotsOfDifferentDepthPerSide() {
+        //Ten bid levels and two ask levels
+        orderMatchingEngine.onMdSnapshot(new MarketDataBookSnapshot("AAPL", new double[]{91, 92, 93, 94, 95, 96, 97, 98, 99, 100, 101, 102},
+                new int[]{10, 20, 30, 40, 50, 60, 70, 80, 90, 100, 200, 300}, 10, 2));
+        assertEquals("___________________________\n" +
+                        "              102.0 300\n" +
+                        "              101.0 200\n" +
+                        "100.0 100\n" +
+                        "99.0 90\n" +
+                        "98.0 80\n" +
+                        "97.0 70\n" +
+                        "96.0 60\n" +
+                        "95.0 50\n" +
+                        "94.0 40\n" +
+                        "93.0 30\n" +
+                        "92.0 20\n" +
+                        "91.0 10\n" +
+                        "___________________________"
+                , orderMatchingEngine.dumpOrderBook("AAPL"));
+        assertTopOfBook("AAPL", 100, 101, 100, 200);
+
+        //Book thins out to a single bid while the asks deepen, levels which left the market are dropped
+        orderMatchingEngine.onMdSnapshot(new MarketDataBookSnapshot("AAPL", new double[]{99, 101, 102, 103},
+                new int[]{90, 250, 300, 400}, 1, 3));
+        assertEquals("___________________________\n" +
+                        "              103.0 400\n" +
+                        "              102.0 300\n" +
+                        "              101.0 250\n" +
+                        "99.0 90\n" +
+                        "___________________________"
+                , orderMatchingEngine.dumpOrderBook("AAPL"));
+        assertTopOfBook("AAPL", 99, 101, 90, 250);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void marketDataSnapshotDepthMustFitThePrices() {
+        new MarketDataBookSnapshot("AAPL", new double[]{99, 101}, new int[]{90, 250}, 2, 1);
+    }
+
+    @Test
+    public void mixedCommandBatchIsMatchedInOrderWithOneTopOfBookAndTradeBatch() {
+        assertInitialOrderBookIsCreatedAsExpectedFromMdSnapshot();
+        NewOrder aggressiveBuy = new NewOrder("AAPL", Side.BUY, 600, 104, clientName + 26);
+        CommandBatch batch = new CommandBatch("AAPL", 2)
+                .addNewOrder(aggressiveBuy)
+                .addNewOrder(Side.SELL, 50, 105, clientName + 27)
+                .addAmendOrder(Side.SELL, 100, 105, clientName + 27, clientName + 28)
+                .addNewOrder(Side.SELL, 250, 100, clientName + 29)
+                .addCancelOrder(Side.BUY, clientName + 30, clientName + 31);
+        orderMatchingEngine.enter(batch);
+
+        assertEquals(5, batch.size());
+        assertEquals(OrderStatus.NEW, batch.getOrderStatus(0));
+        assertEquals(OrderStatus.NEW, batch.getOrderStatus(1));
+        assertEquals(OrderStatus.AMENDED, batch.getOrderStatus(2));
+        assertEquals(OrderStatus.NEW, batch.getOrderStatus(3));
+        assertEquals(OrderStatus.REJECTED, batch.getOrderStatus(4));
+        //Trades of every order in the batch in the order they happened
+        assertEquals(4, batch.getTrades().getTradeCount());
+        assertEquals(500, batch.getTrades().getTrade(0).getTradeQty());
+        assertEquals(103.0, batch.getTrades().getTrade(0).getTradePrice(), 0);
+        assertEquals(100, batch.getTrades().getTrade(1).getTradeQty());
+        assertEquals(104.0, batch.getTrades().getTrade(1).getTradePrice(), 0);
+        assertEquals(100, batch.getTrades().getTrade(2).getTradeQty());
+        assertEquals(101.0, batch.getTrades().getTrade(2).getTradePrice(), 0);
+        assertEquals(150, batch.getTrades().getTrade(3).getTradeQty());
+        assertEquals(100.0, batch.getTrades().getTrade(3).getTradePrice(), 0);
+        assertEquals(OrderStatus.FILLED, aggressiveBuy.getOrderStatus());
+        assertEquals(new TopOfBook("AAPL", 100, 104, 150, 900), batch.getTopOfBook());
+        assertEquals("___________________________\n" +
+                        "              107.0 3000\n" +
+                        "              106.0 2500\n" +
+                        "              105.0 2000 50 50 \n" +
+                        "              104.0 900\n" +
+                        "100.0 150\n" +
+                        "99.0 300\n" +
+                        "98.0 400\n" +
+                        "97.0 500\n" +
+                        "___________________________"
+                , orderMatchingEngine.dumpOrderBook("AAPL"));
+
+        //The batch can be refilled and entered again
+        batch.clear();
+        orderMatchingEngine.enter(batch.addCancelOrder(Side.SELL, clientName + 27, clientName + 32));
+        assertEquals(1, batch.size());
+        assertEquals(OrderStatus.CANCELLED, batch.getOrderStatus(0));
+        assertEquals(0, batch.getTrades().getTradeCount());
+        assertEquals(new TopOfBook("AAPL", 100, 104, 150, 900), batch.getTopOfBook());
+    }
+
+    @Test
+    public void batchHoldsEveryTradeWhateverTheTradeHistoryRetains() {
+        for (int maxRetainedTrades : new int[]{TradeHistory.UNBOUNDED, 2, TradeHistory.NO_RETENTION}) {
+            OrderMatchingEngineImpl engine = new OrderMatchingEngineImpl("AAPL", OrderBookType.TREE_MAP, maxRetainedTrades);
+            engine.onMdSnapshot(TestMarketData.snapshot("AAPL"));
+            //Takes 500@103, 1000@104 and 100@105
+            CommandBatch batch = new CommandBatch("AAPL", 1).addNewOrder(Side.BUY, 1600, 105, clientName + 1);
+            engine.enter(batch);
+            assertEquals(3, batch.getTrades().getTradeCount());
+            assertEquals(500, batch.getTrades().getTrade(0).getTradeQty());
+            assertEquals(1000, batch.getTrades().getTrade(1).getTradeQty());
+            assertEquals(100, batch.getTrades().getTrade(2).getTradeQty());
+            assertEquals(105.0, batch.getTrades().getTrade(2).getTradePrice(), 0);
+        }
+    }
+
+    @Test
+    public void reUsedClOrdIdKeepsTheOrderIdOfTheOrderStillResting() {
+        assertInitialOrderBookIsCreatedAsExpectedFromMdSnapshot();
+        orderMatchingEngine.enter(new NewOrder("AAPL", Side.BUY, 100, 99, clientName + 1));
+        orderMatchingEngine.enter(new NewOrder("AAPL", Side.BUY, 200, 98, clientName + 1));
+        assertEquals(400, orderMatchingEngine.getQuantityAtLevel("AAPL", Side.BUY, 99));
+        assertEquals(600, orderMatchingEngine.getQuantityAtLevel("AAPL", Side.BUY, 98));
+        //Both orders rest under the same clOrdId, the cancel takes out both like any two slices of one order
+        assertEquals(OrderStatus.CANCELLED, orderMatchingEngine.enter(new CancelOrder("AAPL", Side.BUY, 200, 98, clientName + 1, clientName + 2)));
+        assertEquals(300, orderMatchingEngine.getQuantityAtLevel("AAPL", Side.BUY, 99));
+        assertEquals(400, orderMatchingEngine.getQuantityAtLevel("AAPL", Side.BUY, 98));
+    }
+
+    @Test
+    public void everySymbolGetsItsOwnBook() {
+        for (int i = 0; i < 40; i++) {
+            String symbol = "SYM" + i;
+            orderMatchingEngine.onMdSnapshot(TestMarketData.snapshot(symbol));
+            orderMatchingEngine.enter(new NewOrder(symbol, Side.BUY, 10 + i, 101, clientName + i));
+        }
+        assertFalse(orderMatchingEngine.hasOrderBook("UNKNOWN"));
+        for (int i = 0; i < 40; i++) {
+            assertTopOfBook("SYM" + i, 101, 103, 110 + i, 500);
+            assertEquals(OrderStatus.CANCELLED, orderMatchingEngine.enter(new CancelOrder("SYM" + i, Side.BUY, 10 + i, 101, clientName + i, "CXL" + i)));
+            assertTopOfBook("SYM" + i, 101, 103, 100, 500);
+        }
+    }
+
+    @Test
+    public void snapshotReplacesExchangeLiquidityAheadOfOurSlicesInPlace() {
+        assertInitialOrderBookIsCreatedAsExpectedFromMdSnapshot();
+        NewOrder firstOrder = new NewOrder("AAPL", Side.BUY, 100, 99, clientName + 1);
+        NewOrder secondOrder = new NewOrder("AAPL", Side.BUY, 200, 99, clientName + 2);
+        orderMatchingEngine.enter(firstOrder);
+        orderMatchingEngine.enter(secondOrder);
+        assertEquals(300, orderMatchingEngine.getQueueAhead("AAPL", clientName + 1));
+        assertEquals(400, orderMatchingEngine.getQueueAhead("AAPL", clientName + 2));
+        assertEquals(-1, orderMatchingEngine.getQueueAhead("AAPL", clientName + 3));
+
+        //Only the exchange layer at 99 changes, our slices keep their place and objects
+        double[] newPrices = new double[]{97, 98, 99, 100, 101, 103, 104, 105, 106, 107};
+        int[] newQuantities = new int[]{500, 400, 250, 300, 100, 500, 1000, 2000, 2500, 3000};
+        orderMatchingEngine.onMdSnapshot(new MarketDataBookSnapshot("AAPL", newPrices, newQuantities));
+        assertEquals(250, orderMatchingEngine.getQueueAhead("AAPL", clientName + 1));
+        assertEquals(350, orderMatchingEngine.getQueueAhead("AAPL", clientName + 2));
+        assertEquals(550, orderMatchingEngine.getQuantityAtLevel("AAPL", Side.BUY, 99));
+        assertEquals(3, orderMatchingEngine.getOrderCountAtLevel("AAPL", Side.BUY, 99));
+        assertEquals(100, firstOrder.getQty());
+        assertEquals(200, secondOrder.getQty());
+
+        //Selling through the exchange liquidity moves our slices up the queue
+        orderMatchingEngine.enter(new NewOrder("AAPL", Side.SELL, 650, 99, clientName + 4));
+        assertEquals(0, orderMatchingEngine.getQueueAhead("AAPL", clientName + 1));
+        assertEquals(2, orderMatchingEngine.getOrderCountAtLevel("AAPL", Side.BUY, 99));
+        assertEquals(250, orderMatchingEngine.getTrades("AAPL", clientName + 4).get(2).getTradeQty());
+    }
+
+    @Test
+    public void ordersAndSnapshotsOffTheConfiguredTickGridAreRejected() {
+        orderMatchingEngine.setTickSize("AAPL", 0.05);
+        assertEquals(OrderStatus.NEW, orderMatchingEngine.enter(new NewOrder("AAPL", Side.BUY, 10, 101.05, clientName + 1)));
+        assertEquals(OrderStatus.REJECTED, orderMatchingEngine.enter(new NewOrder("AAPL", Side.BUY, 10, 101.01, clientName + 2)));
+        assertEquals(OrderStatus.REJECTED, orderMatchingEngine.enter(new AmendOrder("AAPL", Side.BUY, 10, 101.02, clientName + 1, clientName + 3)));
+        assertEquals(OrderStatus.AMENDED, orderMatchingEngine.enter(new AmendOrder("AAPL", Side.BUY, 10, 101.1, clientName + 1, clientName + 4)));
+        try {
+            orderMatchingEngine.onMdSnapshot(new MarketDataBookSnapshot("AAPL", new double[]{100, 100.99, 103}, new int[]{300, 100, 500}));
+            fail("Snapshot off the tick grid was applied");
+        } catch (IllegalArgumentException expected) {
+        }
+        assertTopOfBook("AAPL", 101.1, -1, 10, -1);
+    }
+
     private void assertTradeQtyAndPriceIsAsExpected(Order order,int index,int quantity, double price) {
         assertEquals(quantity, orderMatchingEngine.getTrades(order).get(index).getTradeQty());
         assertEquals(price, orderMatchingEngine.getTrades(order).get(index).getTradePrice(), 0);
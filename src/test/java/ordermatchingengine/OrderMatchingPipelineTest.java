@@ -0,0 +1,258 @@
+package ordermatchingengine;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class OrderMatchingPipelineTest {
+    private static class CollectedResult {
+        final long sequence;
+        final EngineCommand.Type type;
+        final OrderStatus orderStatus;
+        final TopOfBook topOfBook;
+        final boolean conflated;
+        final List<Trade> trades = new ArrayList<>();
+
+        CollectedResult(EngineResult result) {
+            sequence = result.getSequence();
+            type = result.getType();
+            orderStatus = result.getOrderStatus();
+            topOfBook = result.getTopOfBook();
+            conflated = result.isConflated();
+            for (int i = 0; i < result.getTrades().getTradeCount(); i++) {
+                trades.add(result.getTrades().getTrade(i));
+            }
+        }
+    }
+
+    private List<CollectedResult> takeResults(OrderMatchingPipeline pipeline, int expectedResults) {
+        List<CollectedResult> collectedResults = new ArrayList<>();
+        while (collectedResults.size() < expectedResults) {
+            pipeline.takeResults(result -> collectedResults.add(new CollectedResult(result)));
+        }
+        return collectedResults;
+    }
+
+    private void commandsAreMatchedInOrderAndResultsCarryStatusTradesAndTopOfBook(WaitStrategy matchingWaitStrategy, WaitStrategy resultWaitStrategy) throws InterruptedException {
+        OrderMatchingPipeline pipeline = new OrderMatchingPipeline(new OrderMatchingEngineImpl("AAPL"), 8, false, matchingWaitStrategy, resultWaitStrategy);
+        try {
+            pipeline.onMdSnapshot(TestMarketData.snapshot("AAPL"));
+            //Aggressive buy 600@104 takes 500@103 and 100@104
+            pipeline.enterNewOrder("AAPL", Side.BUY, 600, 104, "CLIENT1");
+            pipeline.enterNewOrder("AAPL", Side.SELL, 50, 105, "CLIENT2");
+            pipeline.enterAmendOrder("AAPL", Side.SELL, 100, 105, "CLIENT2", "CLIENT3");
+            pipeline.enterCancelOrder("AAPL", Side.SELL, "CLIENT2", "CLIENT4");
+            pipeline.enterCancelOrder("AAPL", Side.SELL, "UNKNOWN", "CLIENT5");
+
+            List<CollectedResult> results = takeResults(pipeline, 6);
+            for (int i = 0; i < results.size(); i++) {
+                assertEquals(i, results.get(i).sequence);
+            }
+            assertEquals(EngineCommand.Type.MARKET_DATA_SNAPSHOT, results.get(0).type);
+            assertNull(results.get(0).orderStatus);
+            assertEquals(new TopOfBook("AAPL", 101, 103, 100, 500), results.get(0).topOfBook);
+
+            assertEquals(OrderStatus.NEW, results.get(1).orderStatus);
+            assertEquals(2, results.get(1).trades.size());
+            assertEquals(500, results.get(1).trades.get(0).getTradeQty());
+            assertEquals(103.0, results.get(1).trades.get(0).getTradePrice(), 0);
+            assertEquals(100, results.get(1).trades.get(1).getTradeQty());
+            assertEquals(104.0, results.get(1).trades.get(1).getTradePrice(), 0);
+            assertEquals(new TopOfBook("AAPL", 101, 104, 100, 900), results.get(1).topOfBook);
+
+            assertEquals(OrderStatus.NEW, results.get(2).orderStatus);
+            assertEquals(0, results.get(2).trades.size());
+            assertEquals(OrderStatus.AMENDED, results.get(3).orderStatus);
+            assertEquals(OrderStatus.CANCELLED, results.get(4).orderStatus);
+            assertEquals(OrderStatus.REJECTED, results.get(5).orderStatus);
+            assertEquals(new TopOfBook("AAPL", 101, 104, 100, 900), results.get(5).topOfBook);
+        } finally {
+            pipeline.close();
+        }
+    }
+
+    @Test
+    public void busySpinPipeline() throws InterruptedException {
+        commandsAreMatchedInOrderAndResultsCarryStatusTradesAndTopOfBook(new BusySpinWaitStrategy(), new BusySpinWaitStrategy());
+    }
+
+    @Test
+    public void yieldingPipeline() throws InterruptedException {
+        commandsAreMatchedInOrderAndResultsCarryStatusTradesAndTopOfBook(new YieldingWaitStrategy(), new YieldingWaitStrategy());
+    }
+
+    @Test
+    public void blockingPipeline() throws InterruptedException {
+        commandsAreMatchedInOrderAndResultsCarryStatusTradesAndTopOfBook(new BlockingWaitStrategy(), new BlockingWaitStrategy());
+    }
+
+    //Trade history keeping only the last fill, which counts the fills the matching thread recorded
+    private static class CountingTradeHistory extends TradeHistory {
+        final CountDownLatch recorded;
+
+        CountingTradeHistory(int expectedTrades) {
+            super(1);
+            recorded = new CountDownLatch(expectedTrades);
+        }
+
+        @Override
+        Trade recordTrade(int tradeQty, long tradePrice, Order order) {
+            Trade trade = super.recordTrade(tradeQty, tradePrice, order);
+            recorded.countDown();
+            return trade;
+        }
+    }
+
+    @Test
+    public void resultTradesStayIntactWhenABoundedTradeHistoryRecyclesItsTrades() throws InterruptedException {
+        CountingTradeHistory tradeHistory = new CountingTradeHistory(5);
+        OrderMatchingPipeline pipeline = new OrderMatchingPipeline(new OrderMatchingEngineImpl(OrderBookType.TREE_MAP, tradeHistory), 16, false, new YieldingWaitStrategy(), new YieldingWaitStrategy());
+        try {
+            pipeline.onMdSnapshot(TestMarketData.snapshot("AAPL"));
+            pipeline.enterNewOrder("AAPL", Side.BUY, 600, 104, "CLIENT1");
+            pipeline.enterNewOrder("AAPL", Side.SELL, 200, 100, "CLIENT2");
+            pipeline.enterNewOrder("AAPL", Side.BUY, 900, 104, "CLIENT3");
+            List<String> fills = new ArrayList<>();
+            while (fills.size() < 5) {
+                pipeline.takeResults(result -> {
+                    //Results are only read once every fill has been matched and the history has recycled the earlier ones
+                    try {
+                        tradeHistory.recorded.await();
+                    } catch (InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                    for (int i = 0; i < result.getTrades().getTradeCount(); i++) {
+                        Trade trade = result.getTrades().getTrade(i);
+                        assertNull(trade.getOrder());
+                        fills.add(trade.getClOrdId() + " " + trade.getSide() + " " + trade.getTradeQty() + "@" + trade.getTradePrice());
+                    }
+                });
+            }
+            assertEquals("[CLIENT1 BUY 500@103.0, CLIENT1 BUY 100@104.0, CLIENT2 SELL 100@101.0, CLIENT2 SELL 100@100.0, CLIENT3 BUY 900@104.0]", fills.toString());
+        } finally {
+            pipeline.close();
+        }
+    }
+
+    @Test
+    public void severalProducersWrapAroundASmallRing() throws InterruptedException {
+        int producerCount = 4;
+        int ordersPerProducer = 1000;
+        OrderMatchingEngineImpl orderMatchingEngine = new OrderMatchingEngineImpl("AAPL");
+        OrderMatchingPipeline pipeline = new OrderMatchingPipeline(orderMatchingEngine, 16, true, new YieldingWaitStrategy(), new BlockingWaitStrategy());
+        try {
+            pipeline.onMdSnapshot(TestMarketData.snapshot("AAPL"));
+            List<Thread> producers = new ArrayList<>();
+            for (int p = 0; p < producerCount; p++) {
+                String producer = "P" + p;
+                producers.add(new Thread(() -> {
+                    for (int i = 0; i < ordersPerProducer; i++) {
+                        pipeline.enterNewOrder("AAPL", Side.BUY, 1, 99, producer + "-" + i);
+                    }
+                }));
+            }
+            for (Thread producer : producers) {
+                producer.start();
+            }
+            //Results are consumed while the producers are still running, otherwise the 16 slot rings would stall them
+            List<CollectedResult> results = takeResults(pipeline, 1 + producerCount * ordersPerProducer);
+            for (Thread producer : producers) {
+                producer.join();
+            }
+            for (int i = 0; i < results.size(); i++) {
+                assertEquals(i, results.get(i).sequence);
+            }
+            CollectedResult lastResult = results.get(results.size() - 1);
+            assertEquals(OrderStatus.NEW, lastResult.orderStatus);
+            assertEquals(new TopOfBook("AAPL", 101, 103, 100, 500), lastResult.topOfBook);
+        } finally {
+            pipeline.close();
+        }
+        //Every order of every producer queued behind the market at 99, safe to read once the matching thread has stopped
+        assertEquals(1 + producerCount * ordersPerProducer, orderMatchingEngine.getOrderCountAtLevel("AAPL", Side.BUY, 99));
+        assertEquals(300 + producerCount * ordersPerProducer, orderMatchingEngine.getQuantityAtLevel("AAPL", Side.BUY, 99));
+    }
+
+    //Holds the matching thread inside its first command until released, so the commands published meanwhile arrive as one batch
+    private static class BlockingEngine extends OrderMatchingEngineImpl {
+        final CountDownLatch applying = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        BlockingEngine(String symbol) {
+            super(symbol);
+        }
+
+        @Override
+        OrderStatus apply(EngineCommand command) {
+            applying.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return super.apply(command);
+        }
+    }
+
+    @Test
+    public void snapshotsQueuedBehindABusyMatchingThreadAreConflatedPerSymbol() throws InterruptedException {
+        BlockingEngine orderMatchingEngine = new BlockingEngine("AAPL");
+        OrderMatchingPipeline pipeline = new OrderMatchingPipeline(orderMatchingEngine, 16, false, new YieldingWaitStrategy(), new BlockingWaitStrategy(), true);
+        try {
+            pipeline.onMdSnapshot(TestMarketData.snapshot("AAPL"));
+            orderMatchingEngine.applying.await();
+            pipeline.onMdSnapshot(TestMarketData.snapshot("AAPL"));
+            pipeline.onMdSnapshot(TestMarketData.snapshot("MSFT"));
+            pipeline.enterNewOrder("AAPL", Side.BUY, 50, 102, "CLIENT1");
+            pipeline.onMdSnapshot(new MarketDataBookSnapshot("AAPL", new double[]{96, 97, 98, 99, 100, 102, 103, 104, 105, 106}, TestMarketData.quantities()));
+            pipeline.onMdSnapshot(new MarketDataBookSnapshot("AAPL", new double[]{95, 96, 97, 98, 99, 101, 102, 103, 104, 105}, TestMarketData.quantities()));
+            orderMatchingEngine.release.countDown();
+
+            List<CollectedResult> results = takeResults(pipeline, 6);
+            //The latest AAPL snapshot is applied where the first queued one was, so the order already sees an ask of 101
+            assertEquals(new TopOfBook("AAPL", 99, 101, 100, 500), results.get(1).topOfBook);
+            assertEquals(new TopOfBook("MSFT", 101, 103, 100, 500), results.get(2).topOfBook);
+            assertEquals(1, results.get(3).trades.size());
+            assertEquals(101, results.get(3).trades.get(0).getTradePrice(), 0);
+            assertFalse(results.get(1).conflated);
+            assertTrue(results.get(4).conflated);
+            assertTrue(results.get(5).conflated);
+            assertEquals(2, pipeline.getConflatedSnapshotCount());
+        } finally {
+            pipeline.close();
+        }
+    }
+
+    //The matching thread used to read the caller's snapshot only when it got to the command, after the caller had refilled it
+    @Test
+    public void snapshotIsCopiedSoTheCallerCanReuseItRightAway() throws InterruptedException {
+        BlockingEngine orderMatchingEngine = new BlockingEngine("AAPL");
+        OrderMatchingPipeline pipeline = new OrderMatchingPipeline(orderMatchingEngine, 16, false, new YieldingWaitStrategy(), new BlockingWaitStrategy());
+        try {
+            double prices[] = TestMarketData.prices();
+            long reusedPrices[] = new long[prices.length];
+            int reusedQuantities[] = TestMarketData.quantities();
+            for (int i = 0; i < prices.length; i++) {
+                reusedPrices[i] = Prices.toScaled(prices[i]);
+            }
+            pipeline.onMdSnapshot(new MarketDataBookSnapshot("AAPL", reusedPrices, reusedQuantities));
+            orderMatchingEngine.applying.await();
+            for (int i = 0; i < prices.length; i++) {
+                reusedPrices[i] += Prices.toScaled(10);
+                reusedQuantities[i] = 1;
+            }
+            orderMatchingEngine.release.countDown();
+
+            assertEquals(new TopOfBook("AAPL", 101, 103, 100, 500), takeResults(pipeline, 1).get(0).topOfBook);
+        } finally {
+            pipeline.close();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package ordermatchingengine;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+
+public class OrderStoreTest {
+    private OrderMatchingEngineImpl newEngine(int maxArchivedOrders) {
+        return new OrderMatchingEngineImpl(OrderBookType.PRICE_LADDER, new TradeHistory(TradeHistory.UNBOUNDED), EventJournal.NONE,
+                new OrderStore(maxArchivedOrders));
+    }
+
+    @Test
+    public void filledOrdersAreArchivedAndStillAnsweredLikeBefore() {
+        OrderMatchingEngineImpl orderMatchingEngine = newEngine(OrderStore.DEFAULT_MAX_ARCHIVED_ORDERS);
+        orderMatchingEngine.onMdSnapshot(TestMarketData.snapshot("AAPL"));
+        orderMatchingEngine.enter(new NewOrder("AAPL", Side.BUY, 100, 99, "RESTING"));
+        orderMatchingEngine.enter(new NewOrder("AAPL", Side.BUY, 300, 103, "AGGRESSOR"));
+        //Takes the bids at 101 and 100 and fills the resting order behind the market data at 99
+        orderMatchingEngine.enter(new NewOrder("AAPL", Side.SELL, 800, 99, "SELLER"));
+
+        OrderStore orderStore = orderMatchingEngine.getOrderStore();
+        assertEquals(0, orderStore.getLiveOrderCount());
+        assertEquals(3, orderStore.getArchivedOrderCount());
+        assertEquals(OrderStatus.REJECTED, orderMatchingEngine.enter(new AmendOrder("AAPL", Side.BUY, 200, 103, "AGGRESSOR", "AGGRESSOR-UP")));
+        assertEquals(OrderStatus.CANCELLED, orderMatchingEngine.enter(new CancelOrder("AAPL", Side.BUY, 100, 99, "RESTING", "RESTING-CXL")));
+        assertEquals(OrderStatus.REJECTED, orderMatchingEngine.enter(new CancelOrder("AAPL", Side.BUY, 100, 99, "RESTING", "RESTING-CXL2")));
+        assertEquals(2, orderStore.getArchivedOrderCount());
+        assertEquals(1, orderMatchingEngine.getTrades("AAPL", "AGGRESSOR").size());
+
+        //A re-used clOrdId is live again and can be amended
+        orderMatchingEngine.enter(new NewOrder("AAPL", Side.BUY, 100, 98, "AGGRESSOR"));
+        assertEquals(1, orderStore.getLiveOrderCount());
+        assertEquals(1, orderStore.getArchivedOrderCount());
+        assertEquals(OrderStatus.AMENDED, orderMatchingEngine.enter(new AmendOrder("AAPL", Side.BUY, 200, 98, "AGGRESSOR", "AGGRESSOR-UP")));
+    }
+
+    @Test
+    public void evictedOrdersAreUnknownAndTheStoreStaysBounded() {
+        OrderMatchingEngineImpl orderMatchingEngine = newEngine(10);
+        for (int i = 0; i < 1000; i++) {
+            orderMatchingEngine.onMdSnapshot(TestMarketData.snapshot("AAPL"));
+            assertEquals(OrderStatus.NEW, orderMatchingEngine.enter(new NewOrder("AAPL", Side.BUY, 100, 103, "CLIENT" + i)));
+        }
+        OrderStore orderStore = orderMatchingEngine.getOrderStore();
+        assertEquals(0, orderStore.getLiveOrderCount());
+        assertEquals(10, orderStore.getArchivedOrderCount());
+        assertEquals(OrderStatus.REJECTED, orderMatchingEngine.enter(new CancelOrder("AAPL", Side.BUY, 100, 103, "CLIENT989", "CXL989")));
+        assertEquals(OrderStatus.CANCELLED, orderMatchingEngine.enter(new CancelOrder("AAPL", Side.BUY, 100, 103, "CLIENT990", "CXL990")));
+
+        //The same order object filled again only ever takes one archive entry
+        NewOrder repeatedOrder = new NewOrder("AAPL", Side.BUY, 100, 103, "REPEATED");
+        for (int i = 0; i < 20; i++) {
+            orderMatchingEngine.onMdSnapshot(TestMarketData.snapshot("AAPL"));
+            repeatedOrder.setQty(100);
+            orderMatchingEngine.enter(repeatedOrder);
+        }
+        assertEquals(10, orderStore.getArchivedOrderCount());
+        assertEquals(OrderStatus.CANCELLED, orderMatchingEngine.enter(new CancelOrder("AAPL", Side.BUY, 100, 103, "CLIENT999", "CXL999")));
+        assertEquals(OrderStatus.CANCELLED, orderMatchingEngine.enter(new CancelOrder("AAPL", Side.BUY, 100, 103, "REPEATED", "CXL-REPEATED")));
+    }
+
+    @Test
+    public void archivedOrdersSurviveACheckpoint() throws IOException {
+        OrderMatchingEngineImpl orderMatchingEngine = newEngine(4);
+        orderMatchingEngine.onMdSnapshot(TestMarketData.snapshot("AAPL"));
+        for (int i = 0; i < 6; i++) {
+            orderMatchingEngine.enter(new NewOrder("AAPL", Side.BUY, 10, 103, "FILLED" + i));
+        }
+        orderMatchingEngine.enter(new NewOrder("AAPL", Side.BUY, 100, 99, "RESTING"));
+        Path file = Files.createTempFile("orders", ".ckpt");
+        try {
+            orderMatchingEngine.writeCheckpoint(file);
+            OrderMatchingEngineImpl restoredEngine = newEngine(4);
+            restoredEngine.restoreCheckpoint(file);
+            assertEquals(1, restoredEngine.getOrderStore().getLiveOrderCount());
+            assertEquals(4, restoredEngine.getOrderStore().getArchivedOrderCount());
+            //Restored in eviction order, the next filled order evicts FILLED2
+            restoredEngine.enter(new NewOrder("AAPL", Side.BUY, 10, 103, "FILLED6"));
+            assertEquals(OrderStatus.REJECTED, restoredEngine.enter(new CancelOrder("AAPL", Side.BUY, 10, 103, "FILLED2", "CXL2")));
+            assertEquals(OrderStatus.CANCELLED, restoredEngine.enter(new CancelOrder("AAPL", Side.BUY, 10, 103, "FILLED3", "CXL3")));
+            assertEquals(OrderStatus.AMENDED, restoredEngine.enter(new AmendOrder("AAPL", Side.BUY, 200, 99, "RESTING", "RESTING-UP")));
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package ordermatchingengine;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+//Runs every OrderMatchingEngineTest scenario against the tick indexed price ladder book
+public class PriceLadderOrderMatchingEngineTest extends OrderMatchingEngineTest {
+
+    @Override
+    protected OrderMatchingEngineImpl newOrderMatchingEngine(String symbol) {
+        return new OrderMatchingEngineImpl(symbol, OrderBookType.PRICE_LADDER);
+    }
+
+    //101.005 falls into the tick of 101.0, it must not end up on the 101.0 level
+    @Test
+    public void priceBetweenTwoTicksIsRejectedInsteadOfJoiningTheTickBelow() {
+        OrderMatchingEngineImpl orderMatchingEngine = newOrderMatchingEngine("AAPL");
+        assertEquals(OrderStatus.REJECTED, orderMatchingEngine.enter(new NewOrder("AAPL", Side.BUY, 10, 101.005, "CLIENT1")));
+        assertEquals(OrderStatus.NEW, orderMatchingEngine.enter(new NewOrder("AAPL", Side.BUY, 10, 101.0, "CLIENT2")));
+        assertEquals(10, orderMatchingEngine.getQuantityAtLevel("AAPL", Side.BUY, 101.0));
+        assertEquals(0, orderMatchingEngine.getQuantityAtLevel("AAPL", Side.BUY, 101.005));
+        assertEquals(new TopOfBook("AAPL", 101.0, -1, 10, -1), orderMatchingEngine.getTopOfBook("AAPL"));
+    }
+
+    //100000 is about 10 million ticks away from 99, further than a ladder side can span, and used to throw with the order or snapshot half applied
+    @Test
+    public void pricesTooFarFromTheRestingLevelsAreRejectedBeforeTouchingTheBook() {
+        OrderMatchingEngineImpl orderMatchingEngine = newOrderMatchingEngine("AAPL");
+        orderMatchingEngine.onMdSnapshot(new MarketDataBookSnapshot("AAPL", new double[]{99, 101}, new int[]{300, 500}));
+        assertEquals(OrderStatus.NEW, orderMatchingEngine.enter(new NewOrder("AAPL", Side.BUY, 10, 100, "CLIENT1")));
+        String book = orderMatchingEngine.dumpOrderBook("AAPL");
+
+        assertEquals(OrderStatus.REJECTED, orderMatchingEngine.enter(new NewOrder("AAPL", Side.BUY, 10, 100000, "CLIENT2")));
+        assertEquals(OrderStatus.REJECTED, orderMatchingEngine.enter(new AmendOrder("AAPL", Side.BUY, 10, 100000, "CLIENT1", "CLIENT3")));
+        try {
+            orderMatchingEngine.onMdSnapshot(new MarketDataBookSnapshot("AAPL", new double[]{98, 97, 102, 100000}, new int[]{100, 100, 100, 100}));
+            fail("Snapshot too wide for the ladder was applied");
+        } catch (IllegalArgumentException expected) {
+        }
+        assertEquals(book, orderMatchingEngine.dumpOrderBook("AAPL"));
+        assertEquals(new TopOfBook("AAPL", 100, 101, 10, 500), orderMatchingEngine.getTopOfBook("AAPL"));
+
+        assertEquals(OrderStatus.NEW, orderMatchingEngine.enter(new NewOrder("AAPL", Side.SELL, 10, 50000, "CLIENT4")));
+        assertEquals(10, orderMatchingEngine.getQuantityAtLevel("AAPL", Side.SELL, 50000));
+    }
+}
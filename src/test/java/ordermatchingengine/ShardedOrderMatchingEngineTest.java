@@ -0,0 +1,159 @@
+package ordermatchingengine;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ShardedOrderMatchingEngineTest {
+    private ShardedOrderMatchingEngine orderMatchingEngine = new ShardedOrderMatchingEngine(4);
+
+    @After
+    public void shutdown() throws InterruptedException {
+        orderMatchingEngine.close();
+    }
+
+    //First symbol of the form prefix+n which lands on the given shard
+    private String symbolOnShard(String prefix, int shard) {
+        for (int i = 0; ; i++) {
+            if (orderMatchingEngine.shardOf(prefix + i) == shard) {
+                return prefix + i;
+            }
+        }
+    }
+
+    @Test
+    public void symbolsOnDifferentShardsMatchIndependentlyWithDisjointTradeIds() {
+        String symbol0 = symbolOnShard("SYM", 0);
+        String symbol3 = symbolOnShard("SYM", 3);
+        assertNotEquals(orderMatchingEngine.shardOf(symbol0), orderMatchingEngine.shardOf(symbol3));
+        orderMatchingEngine.onMdSnapshot(TestMarketData.snapshot(symbol0));
+        orderMatchingEngine.onMdSnapshot(TestMarketData.snapshot(symbol3));
+
+        NewOrder aggressiveBuy0 = new NewOrder(symbol0, Side.BUY, 600, 104, "CLIENT1");
+        NewOrder aggressiveSell3 = new NewOrder(symbol3, Side.SELL, 150, 100, "CLIENT2");
+        assertEquals(OrderStatus.NONE, orderMatchingEngine.enter(aggressiveBuy0));
+        assertEquals(OrderStatus.NONE, orderMatchingEngine.enter(aggressiveSell3));
+
+        List<Trade> trades0 = orderMatchingEngine.getTrades(aggressiveBuy0);
+        assertEquals(2, trades0.size());
+        assertEquals(500, trades0.get(0).getTradeQty());
+        assertEquals(103.0, trades0.get(0).getTradePrice(), 0);
+        assertEquals(100, trades0.get(1).getTradeQty());
+        assertEquals(104.0, trades0.get(1).getTradePrice(), 0);
+        assertEquals(TradeHistory.FIRST_TRADE_ID, trades0.get(0).getTradeID());
+        //Copies, the shard keeps the Trade objects of its history to itself
+        assertNull(trades0.get(0).getOrder());
+        assertEquals(aggressiveBuy0.getClOrderId(), trades0.get(0).getClOrdId());
+
+        List<Trade> trades3 = orderMatchingEngine.getTrades(aggressiveSell3);
+        assertEquals(2, trades3.size());
+        assertEquals(TradeHistory.FIRST_TRADE_ID + 3 * ShardedOrderMatchingEngine.TRADE_ID_RANGE_PER_SHARD, trades3.get(0).getTradeID());
+        assertEquals(TradeHistory.FIRST_TRADE_ID + 3 * ShardedOrderMatchingEngine.TRADE_ID_RANGE_PER_SHARD + 1, trades3.get(1).getTradeID());
+
+        assertEquals(new TopOfBook(symbol0, 101, 104, 100, 900), orderMatchingEngine.getTopOfBook(symbol0));
+        assertEquals(new TopOfBook(symbol3, 100, 103, 250, 500), orderMatchingEngine.getTopOfBook(symbol3));
+        assertEquals(900, orderMatchingEngine.getQuantityAtLevel(symbol0, Side.SELL, 104));
+        assertEquals(1, orderMatchingEngine.getOrderCountAtLevel(symbol3, Side.BUY, 100));
+    }
+
+    @Test
+    public void snapshotIsCopiedSoItCanBeReusedRightAway() {
+        int reusedQuantities[] = TestMarketData.quantities();
+        MarketDataBookSnapshot snapshot = new MarketDataBookSnapshot("AAPL", TestMarketData.prices(), reusedQuantities);
+        orderMatchingEngine.onMdSnapshot(snapshot);
+        reusedQuantities[4] = 1;
+        assertEquals(100, orderMatchingEngine.getQuantityAtLevel("AAPL", Side.BUY, 101));
+    }
+
+    @Test
+    public void ordersAndSnapshotsReportTheirResultsAsynchronously() throws InterruptedException {
+        List<String> results = Collections.synchronizedList(new ArrayList<>());
+        TopOfBook emptyBook;
+        ShardedOrderMatchingEngine priceLadderEngine = new ShardedOrderMatchingEngine(2, OrderBookType.PRICE_LADDER, TradeHistory.UNBOUNDED, 16,
+                result -> results.add(result.getType() + " " + result.getClOrdId() + " " + result.getOrderStatus() + " trades=" + result.getTrades().getTradeCount()
+                        + " " + result.getTopOfBook()));
+        try {
+            //Off the tick grid, fails on the shard thread where nobody waits for it
+            priceLadderEngine.onMdSnapshot(new MarketDataBookSnapshot("MSFT", new double[]{101.005, 103}, new int[]{100, 500}));
+            priceLadderEngine.onMdSnapshot(TestMarketData.snapshot("AAPL"));
+            priceLadderEngine.enter(new NewOrder("AAPL", Side.BUY, 600, 104, "CLIENT1"));
+            //Queued behind the commands of their shards
+            priceLadderEngine.getTopOfBook("AAPL");
+            emptyBook = priceLadderEngine.getTopOfBook("MSFT");
+        } finally {
+            priceLadderEngine.close();
+        }
+        assertEquals(3, results.size());
+        assertTrue(results.contains("MARKET_DATA_SNAPSHOT null REJECTED trades=0 " + emptyBook));
+        assertTrue(results.contains("MARKET_DATA_SNAPSHOT null null trades=0 " + new TopOfBook("AAPL", 101, 103, 100, 500)));
+        assertTrue(results.contains("NEW_ORDER CLIENT1 NEW trades=2 " + new TopOfBook("AAPL", 101, 104, 100, 900)));
+    }
+
+    //A shard stuck on a slow listener neither holds up the callers nor the other shards
+    @Test
+    public void aBusyShardDoesNotHoldUpTheOthers() throws InterruptedException {
+        String symbol0 = symbolOnShard("SYM", 0);
+        String symbol3 = symbolOnShard("SYM", 3);
+        CountDownLatch release = new CountDownLatch(1);
+        orderMatchingEngine.setExecutionListener(report -> {
+            if (report.getSymbol().equals(symbol0)) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        orderMatchingEngine.onMdSnapshot(TestMarketData.snapshot(symbol0));
+        orderMatchingEngine.onMdSnapshot(TestMarketData.snapshot(symbol3));
+        orderMatchingEngine.enter(new NewOrder(symbol0, Side.BUY, 10, 99, "CLIENT0"));
+        orderMatchingEngine.enter(new NewOrder(symbol0, Side.BUY, 10, 99, "CLIENT1"));
+        orderMatchingEngine.enter(new NewOrder(symbol3, Side.BUY, 10, 99, "CLIENT3"));
+
+        assertEquals(310, orderMatchingEngine.getQuantityAtLevel(symbol3, Side.BUY, 99));
+        release.countDown();
+        assertEquals(320, orderMatchingEngine.getQuantityAtLevel(symbol0, Side.BUY, 99));
+    }
+
+    @Test
+    public void concurrentProducersPerSymbolKeepEveryBookConsistent() throws Exception {
+        int symbolCount = 8;
+        int ordersPerSymbol = 500;
+        List<Thread> producers = new ArrayList<>();
+        List<String> symbols = new ArrayList<>();
+        for (int s = 0; s < symbolCount; s++) {
+            String symbol = "SYM" + s;
+            symbols.add(symbol);
+            orderMatchingEngine.onMdSnapshot(TestMarketData.snapshot(symbol));
+            producers.add(new Thread(() -> {
+                //Passive buys at 99 which are then all cancelled except the last one
+                for (int i = 0; i < ordersPerSymbol; i++) {
+                    orderMatchingEngine.enter(new NewOrder(symbol, Side.BUY, 10, 99, symbol + "-" + i));
+                }
+                for (int i = 0; i < ordersPerSymbol - 1; i++) {
+                    orderMatchingEngine.enter(new CancelOrder(symbol, Side.BUY, 10, 99, symbol + "-" + i, symbol + "-C" + i));
+                }
+            }));
+        }
+        for (Thread producer : producers) {
+            producer.start();
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        for (String symbol : symbols) {
+            assertEquals(310, orderMatchingEngine.getQuantityAtLevel(symbol, Side.BUY, 99));
+            assertEquals(2, orderMatchingEngine.getOrderCountAtLevel(symbol, Side.BUY, 99));
+            assertTrue(orderMatchingEngine.dumpOrderBook(symbol).contains("99.0 300 10 \n"));
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package ordermatchingengine;
+
+/*
+    Market data book the tests start from: bids 97 to 101 and asks 103 to 107, best bid 100@101 and best ask 500@103.
+    Every call hands out new arrays, a test may change them without affecting the others.
+*/
+final class TestMarketData {
+    private static final double PRICES[] = new double[]{97, 98, 99, 100, 101, 103, 104, 105, 106, 107};
+    private static final int QUANTITIES[] = new int[]{500, 400, 300, 300, 100, 500, 1000, 2000, 2500, 3000};
+
+    private TestMarketData() {
+    }
+
+    static double[] prices() {
+        return PRICES.clone();
+    }
+
+    static int[] quantities() {
+        return QUANTITIES.clone();
+    }
+
+    static MarketDataBookSnapshot snapshot(String symbol) {
+        return new MarketDataBookSnapshot(symbol, PRICES, quantities());
+    }
+}